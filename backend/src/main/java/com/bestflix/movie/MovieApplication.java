@@ -2,9 +2,11 @@ package com.bestflix.movie;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class MovieApplication {
 
 	public static void main(String[] args) {SpringApplication.run(MovieApplication.class, args);}
@@ -0,0 +1,154 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.entity.IdempotencyRecord;
+import com.bestflix.movie.exception.BaseException;
+import com.bestflix.movie.service.impl.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Honors the {@code Idempotency-Key} header on {@code POST /upload} and {@code PUT /update} through
+ * {@link IdempotencyService}.
+ * <p>
+ * The first request with a key runs normally and its successful response is stored. A retry with the same
+ * key gets that response back, marked with {@code Idempotent-Replayed: true}, before its body is read, so
+ * a client that sent {@code Expect: 100-continue} does not transfer the media again. A retry that arrives
+ * while the first request runs waits for it. Keys are scoped to the caller and the request line; a key sent
+ * again with another query string, e.g. a different {@code movieId}, is refused with 422.
+ * </p>
+ * <p>
+ * Runs after {@link UploadPreflightFilter} and before {@link UploadAdmissionFilter}, so waiting and
+ * replayed duplicates hold no share of the upload budget.
+ * </p>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_STORED_BODY_LENGTH = 4000;
+
+    private static final Set<String> IDEMPOTENT_REQUESTS =
+            Set.of("POST /rest/api/movie/upload", "PUT /rest/api/movie/update");
+
+    private final IdempotencyService idempotencyService;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.idempotencyService = idempotencyService;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        return key == null || key.isBlank() || !IDEMPOTENT_REQUESTS.contains(requestLineOf(request));
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        IdempotencyService.Claim claim;
+        try {
+            claim = idempotencyService.claim(callerOf(request), requestLineOf(request), request.getQueryString(),
+                    request.getHeader(IDEMPOTENCY_KEY));
+        } catch (BaseException e) {
+            exceptionResolver.resolveException(request, response, null, e);
+            return;
+        }
+
+        if (!claim.claimed()) {
+            replay(claim.record(), request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, cachingResponse);
+            completed = store(claim, cachingResponse);
+        } finally {
+            if (!completed)
+                idempotencyService.release(claim);
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+
+    /**
+     * Stores a successful response; failures are not stored so that their retries run again.
+     */
+    private boolean store(IdempotencyService.Claim claim, ContentCachingResponseWrapper response) {
+        int status = response.getStatus();
+        String body = new String(response.getContentAsByteArray(), charsetOf(response));
+
+        if (status < 200 || status >= 300 || body.length() > MAX_STORED_BODY_LENGTH)
+            return false;
+
+        idempotencyService.complete(claim, status, response.getContentType(), body);
+        return true;
+    }
+
+
+    private static void replay(IdempotencyRecord record, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // the body of the retry stays unread, so the connection cannot be reused for another request
+        if ("100-continue".equalsIgnoreCase(request.getHeader(HttpHeaders.EXPECT)))
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+
+        response.setStatus(record.getResponseStatus());
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+        if (record.getResponseContentType() != null)
+            response.setContentType(record.getResponseContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(record.getResponseBody() == null ? "" : record.getResponseBody());
+    }
+
+
+    private static Charset charsetOf(HttpServletResponse response) {
+        try {
+            return Charset.forName(response.getCharacterEncoding());
+        } catch (RuntimeException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+
+    private static String requestLineOf(HttpServletRequest request) {
+        return request.getMethod() + " " + request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+
+    private static String callerOf(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+}
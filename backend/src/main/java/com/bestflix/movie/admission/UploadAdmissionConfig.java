@@ -0,0 +1,23 @@
+package com.bestflix.movie.admission;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class UploadAdmissionConfig {
+
+    /**
+     * Defers {@code 100 Continue} until the application first reads the request body, instead of sending
+     * it as soon as the headers arrive. Requests refused by the upload filters are answered before that
+     * point, so their clients never send the payload.
+     *
+     * @return customizer for the embedded Tomcat connector
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> continueOnReadCustomizer() {
+        return factory -> factory.addConnectorCustomizers(
+                connector -> connector.setProperty("continueResponseTiming", "onRead"));
+    }
+}
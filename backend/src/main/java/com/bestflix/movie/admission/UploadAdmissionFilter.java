@@ -0,0 +1,106 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.exception.UploadLimitExceededException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Admits multipart uploads to the movie API through {@link UploadAdmissionLimiter} before their body is read.
+ * <p>
+ * Applies to {@code POST}, {@code PUT} and {@code PATCH} requests with a multipart body below
+ * {@code media.admission.path-prefix}, which covers the upload and update endpoints. The size reserved
+ * is the request's {@code Content-Length}; requests without one reserve the maximum request size.
+ * Uploads are counted per authenticated user, or per client address for anonymous requests.
+ * </p>
+ * <p>
+ * A refused upload is answered with {@code 429 Too Many Requests} and a {@code Retry-After} of
+ * {@code media.admission.retry-after-seconds}, without reading the body.
+ * </p>
+ * <p>
+ * Runs after the Spring Security filter chain, so the JWT of the request is already resolved.
+ * Background upload jobs hold their reservation only until their files are spooled.
+ * </p>
+ */
+@Component
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Set<String> UPLOAD_METHODS = Set.of("POST", "PUT", "PATCH");
+
+    private final UploadAdmissionLimiter limiter;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final long unknownLengthBytes;
+
+    @Value("${media.admission.path-prefix:/rest/api/movie/}")
+    private String pathPrefix = "/rest/api/movie/";
+
+    @Value("${media.admission.retry-after-seconds:5}")
+    private long retryAfterSeconds = 5;
+
+    public UploadAdmissionFilter(UploadAdmissionLimiter limiter,
+                                 @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+                                 @Value("${spring.servlet.multipart.max-request-size:1GB}") DataSize maxRequestSize) {
+        this.limiter = limiter;
+        this.exceptionResolver = exceptionResolver;
+        this.unknownLengthBytes = maxRequestSize.toBytes();
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return !UPLOAD_METHODS.contains(request.getMethod())
+                || contentType == null
+                || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")
+                || !request.getRequestURI().startsWith(request.getContextPath() + pathPrefix);
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        long declared = request.getContentLengthLong();
+        UploadAdmissionLimiter.Permit permit;
+
+        try {
+            permit = limiter.acquire(uploaderOf(request), declared >= 0 ? declared : unknownLengthBytes);
+        } catch (UploadLimitExceededException e) {
+            // the body stays unread. A client waiting on Expect: 100-continue only skips sending it because
+            // UploadAdmissionConfig defers the 100 Continue until the body is read; any other body is drained
+            // or discarded by the container
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            exceptionResolver.resolveException(request, response, null, e);
+            return;
+        }
+
+        try (permit) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+
+    private static String uploaderOf(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,127 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.exception.UploadLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the bytes of uploads in flight within a global budget and limits how many uploads a single
+ * user may run at the same time.
+ * <p>
+ * Every upload reserves its declared size before its body is read and gives it back once the request
+ * is done. An upload that would exceed {@code media.admission.max-in-flight-bytes}, or a user's
+ * {@code media.admission.max-uploads-per-user}, is refused. A single upload larger than the whole
+ * budget is only admitted when nothing else is in flight, so it cannot be starved forever.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code media.upload.admission.in-flight-bytes} – bytes currently reserved</li>
+ *   <li>{@code media.upload.admission.utilization} – reserved bytes as a fraction of the budget</li>
+ *   <li>{@code media.upload.admission.rejected} – refused uploads, tagged with {@code reason}</li>
+ * </ul>
+ */
+@Component
+public class UploadAdmissionLimiter {
+
+    private final long maxInFlightBytes;
+    private final int maxUploadsPerUser;
+
+    private final Map<String, Integer> uploadsPerUser = new HashMap<>();
+    private long inFlightBytes;
+
+    private final Counter rejectedByBudget;
+    private final Counter rejectedByUser;
+
+    public UploadAdmissionLimiter(@Value("${media.admission.max-in-flight-bytes:2GB}") DataSize maxInFlightBytes,
+                                  @Value("${media.admission.max-uploads-per-user:2}") int maxUploadsPerUser,
+                                  MeterRegistry meterRegistry) {
+        this.maxInFlightBytes = maxInFlightBytes.toBytes();
+        this.maxUploadsPerUser = maxUploadsPerUser;
+
+        this.rejectedByBudget = meterRegistry.counter("media.upload.admission.rejected", "reason", "budget");
+        this.rejectedByUser = meterRegistry.counter("media.upload.admission.rejected", "reason", "user");
+        Gauge.builder("media.upload.admission.in-flight-bytes", this, UploadAdmissionLimiter::inFlightBytes)
+                .register(meterRegistry);
+        Gauge.builder("media.upload.admission.utilization", this, UploadAdmissionLimiter::utilization)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Reserves room for an upload.
+     *
+     * @param user  key of the uploader
+     * @param bytes declared size of the upload
+     * @return a permit to close when the upload is done
+     * @throws UploadLimitExceededException if the upload must wait
+     */
+    public synchronized Permit acquire(String user, long bytes) {
+        int running = uploadsPerUser.getOrDefault(user, 0);
+        if (running >= maxUploadsPerUser) {
+            rejectedByUser.increment();
+            throw new UploadLimitExceededException(running + " uploads of this user are already running");
+        }
+
+        if (inFlightBytes > 0 && inFlightBytes + bytes > maxInFlightBytes) {
+            rejectedByBudget.increment();
+            throw new UploadLimitExceededException("upload capacity is exhausted");
+        }
+
+        inFlightBytes += bytes;
+        uploadsPerUser.put(user, running + 1);
+        return new Permit(user, bytes);
+    }
+
+
+    /**
+     * @return bytes currently reserved by running uploads
+     */
+    public synchronized long inFlightBytes() {
+        return inFlightBytes;
+    }
+
+
+    /**
+     * @return reserved bytes as a fraction of the budget; above 1 while an oversized upload runs alone
+     */
+    public double utilization() {
+        return maxInFlightBytes == 0 ? 0 : (double) inFlightBytes() / maxInFlightBytes;
+    }
+
+
+    private synchronized void release(String user, long bytes) {
+        inFlightBytes -= bytes;
+        uploadsPerUser.computeIfPresent(user, (key, running) -> running > 1 ? running - 1 : null);
+    }
+
+
+    /**
+     * Reservation of one upload. Closing it more than once has no effect.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String user;
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String user, long bytes) {
+            this.user = user;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true))
+                release(user, bytes);
+        }
+    }
+}
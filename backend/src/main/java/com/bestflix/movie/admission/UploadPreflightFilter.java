@@ -0,0 +1,106 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.exception.BaseException;
+import com.bestflix.movie.service.impl.UploadPreflightService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Validates multipart movie uploads from their headers before the body is read.
+ * <p>
+ * Covers {@code POST} to {@code /upload}, {@code /upload/stream} and {@code /upload/jobs}. The caller must be
+ * authenticated, a {@code username} in the query string must name the caller, the caller's account must
+ * exist and the {@code Content-Length} must be within the maximum request size. A {@code username} sent as a
+ * form field cannot be seen here without reading the body; it is checked by the controller instead.
+ * </p>
+ * <p>
+ * Tomcat is configured to send {@code 100 Continue} only once the body is first read, so a client that sent
+ * {@code Expect: 100-continue} and is rejected here never transmits the payload. The connection of such a
+ * request is closed, because the unsent body cannot be skipped.
+ * </p>
+ * <p>
+ * Runs before {@link IdempotencyFilter} and {@link UploadAdmissionFilter}, so invalid uploads neither claim an
+ * idempotency key nor take a share of the upload budget.
+ * </p>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+public class UploadPreflightFilter extends OncePerRequestFilter {
+
+    private static final Set<String> UPLOAD_PATHS =
+            Set.of("/rest/api/movie/upload", "/rest/api/movie/upload/stream", "/rest/api/movie/upload/jobs");
+
+    private final UploadPreflightService uploadPreflightService;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public UploadPreflightFilter(UploadPreflightService uploadPreflightService,
+                                 @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.uploadPreflightService = uploadPreflightService;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"POST".equals(request.getMethod()) || !UPLOAD_PATHS.contains(path);
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        try {
+            uploadPreflightService.checkUploader(callerOf(), queryUsername(request));
+            uploadPreflightService.checkRequestSize(request.getContentLengthLong());
+        } catch (BaseException e) {
+            if ("100-continue".equalsIgnoreCase(request.getHeader(HttpHeaders.EXPECT)))
+                response.setHeader(HttpHeaders.CONNECTION, "close");
+            exceptionResolver.resolveException(request, response, null, e);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+
+    private static String callerOf() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken)
+            return null;
+        return authentication.getName();
+    }
+
+
+    /**
+     * Reads {@code username} from the query string only; {@code getParameter} would parse the multipart body.
+     */
+    private static String queryUsername(HttpServletRequest request) {
+        if (request.getQueryString() == null)
+            return null;
+
+        String username = UriComponentsBuilder.newInstance().query(request.getQueryString()).build()
+                .getQueryParams().getFirst("username");
+        return username == null ? null : URLDecoder.decode(username, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package com.bestflix.movie.controller;
+
+import com.bestflix.movie.dto.UploadSessionRequest;
+import com.bestflix.movie.dto.UploadSessionStatus;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.service.impl.ChunkedUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("rest/api/movie/upload/sessions")
+@Tag(name = "Resumable Uploads", description = "Chunked movie uploads that can be resumed after a network failure")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+
+    /**
+     * Starts a resumable video upload.
+     *
+     * @param principal the authenticated uploader
+     * @param request   file name, content type and total size of the video
+     * @return the new session, including the chunk size to use
+     */
+    @Operation(
+            summary = "Start a resumable video upload",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Upload session created"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @PostMapping
+    public ResponseEntity<UploadSessionStatus> startUpload(Principal principal, @RequestBody UploadSessionRequest request) {
+        return new ResponseEntity<>(chunkedUploadService.startSession(principal.getName(), request), HttpStatus.CREATED);
+    }
+
+
+    /**
+     * Reports how many bytes of an upload were received, so the client knows where to resume.
+     *
+     * @param principal the authenticated uploader
+     * @param uploadId  session identifier
+     * @return current progress
+     */
+    @Operation(
+            summary = "Fetch the progress of a resumable upload",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Upload session found"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found, expired or started by another user")
+    })
+    @GetMapping(path = "/{uploadId}")
+    public ResponseEntity<UploadSessionStatus> getUploadStatus(Principal principal, @PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId, principal.getName()));
+    }
+
+
+    /**
+     * Receives the next chunk of the video as the raw request body.
+     *
+     * @param principal the authenticated uploader
+     * @param uploadId  session identifier
+     * @param offset    position of the chunk; must equal the session's {@code nextOffset}
+     * @param request   the servlet request whose body is streamed to storage
+     * @return progress after the chunk was stored
+     */
+    @Operation(
+            summary = "Upload the next chunk of a resumable upload",
+            description = "Body is the raw chunk (application/octet-stream) with a Content-Length header",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Chunk stored"),
+            @ApiResponse(responseCode = "409", description = "Wrong offset or chunk size"),
+            @ApiResponse(responseCode = "500", description = "Chunk could not be stored; resend it at the same offset")
+    })
+    @PutMapping(path = "/{uploadId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(
+            Principal principal,
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request) {
+
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(chunkedUploadService.uploadChunk(uploadId, principal.getName(), offset,
+                    request.getContentLengthLong(), body));
+        } catch (IOException e) {
+            return new ResponseEntity<>("Uploading Chunk Failed!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    /**
+     * Completes a resumable upload and creates the movie.
+     *
+     * @param principal the authenticated uploader
+     * @param uploadId  session identifier
+     * @param movie     movie metadata
+     * @param image     image file
+     * @return success message or error
+     */
+    @Operation(
+            summary = "Complete a resumable upload and create the movie",
+            description = "Requires multipart/form-data with the movie metadata and image",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Movie uploaded successfully"),
+            @ApiResponse(responseCode = "409", description = "Not all chunks were received yet"),
+            @ApiResponse(responseCode = "500", description = "Uploading failed")
+    })
+    @PostMapping(path = "/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(
+            Principal principal,
+            @PathVariable String uploadId,
+            @RequestPart Movie movie,
+            @RequestPart MultipartFile image) {
+
+        try {
+            chunkedUploadService.completeSession(uploadId, principal.getName(), movie, image);
+            return new ResponseEntity<>("Movie Uploaded Successfully!", HttpStatus.CREATED);
+        } catch (IOException e) {
+            return new ResponseEntity<>("Uploading Failed!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
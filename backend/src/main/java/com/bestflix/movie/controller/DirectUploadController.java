@@ -0,0 +1,73 @@
+package com.bestflix.movie.controller;
+
+import com.bestflix.movie.dto.DirectUploadCommitRequest;
+import com.bestflix.movie.dto.DirectUploadRequest;
+import com.bestflix.movie.dto.DirectUploadTicket;
+import com.bestflix.movie.service.impl.DirectUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("rest/api/movie/upload/direct")
+@Tag(name = "Direct Uploads", description = "Movie uploads that go straight to storage through presigned URLs")
+public class DirectUploadController {
+
+    private final DirectUploadService directUploadService;
+
+
+    /**
+     * Returns presigned URLs for uploading a poster and a video straight to storage.
+     *
+     * @param principal the authenticated uploader
+     * @param request   content types and sizes of the image and video
+     * @return presigned URLs and the names to pass back on commit
+     */
+    @Operation(
+            summary = "Get presigned URLs to upload a movie's media",
+            description = "Large videos get one URL per multipart part",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "URLs signed"),
+            @ApiResponse(responseCode = "415", description = "Declared type is not a supported image or video type")
+    })
+    @PostMapping
+    public ResponseEntity<DirectUploadTicket> presign(Principal principal, @RequestBody DirectUploadRequest request) {
+        return ResponseEntity.ok(directUploadService.presign(principal.getName(), request));
+    }
+
+
+    /**
+     * Creates the movie once its media was uploaded with the presigned URLs.
+     *
+     * @param principal the authenticated uploader
+     * @param request   reservation id returned by the presign call plus movie metadata
+     * @return success message
+     */
+    @Operation(
+            summary = "Commit a direct upload and create the movie",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Movie uploaded successfully"),
+            @ApiResponse(responseCode = "400", description = "Image or video size differs from the declared size"),
+            @ApiResponse(responseCode = "404", description = "Reservation unknown, expired or already committed"),
+            @ApiResponse(responseCode = "409", description = "Image or video was not uploaded"),
+            @ApiResponse(responseCode = "415", description = "Image or video is not of the declared type")
+    })
+    @PostMapping(path = "/commit")
+    public ResponseEntity<String> commit(Principal principal, @RequestBody DirectUploadCommitRequest request) {
+        directUploadService.commit(principal.getName(), request);
+        return new ResponseEntity<>("Movie Uploaded Successfully!", HttpStatus.CREATED);
+    }
+}
@@ -1,16 +1,22 @@
 package com.bestflix.movie.controller;
 
+import com.bestflix.movie.dto.UploadCheckRequest;
 import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.UploadForbiddenException;
 import com.bestflix.movie.repository.UsersMovieRepository;
 import com.bestflix.movie.service.IMovieService;
+import com.bestflix.movie.service.impl.StreamingUploadService;
+import com.bestflix.movie.service.impl.UploadPreflightService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletRequestContext;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
@@ -21,6 +27,7 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.IOException;
+import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,6 +40,8 @@ public class MovieController {
 
     private final IMovieService movieService;
     private final S3Client s3Client;
+    private final StreamingUploadService streamingUploadService;
+    private final UploadPreflightService uploadPreflightService;
 
     @Value("${cloud.aws.bucket.name}")
     private String bucketName;
@@ -60,7 +69,6 @@ public class MovieController {
      */
     @Operation(summary = "Fetch movies uploaded by a specific user")
     @ApiResponse(responseCode = "200", description = "Movies fetched by the given username")
-    @Transactional
     @PostMapping(path = "/mymovies")
     public ResponseEntity<List<Movie>> getMyMovies(@RequestBody Map<String, String> requestBody) {
         String username = requestBody.get("username");
@@ -89,7 +97,8 @@ public class MovieController {
     /**
      * Uploads a new movie with image and video files.
      *
-     * @param username the uploader's username
+     * @param principal the authenticated uploader
+     * @param username the uploader's username; must be the authenticated user
      * @param movie movie metadata
      * @param image image file
      * @param video video file
@@ -102,15 +111,22 @@ public class MovieController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Movie uploaded successfully"),
+            @ApiResponse(responseCode = "403", description = "Username is not the authenticated user"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "413", description = "Upload too large"),
             @ApiResponse(responseCode = "500", description = "Uploading failed")
     })
     @PostMapping(path = "/upload")
     public ResponseEntity<?> uploadMovie(
+            Principal principal,
             @RequestParam String username,
             @RequestPart Movie movie,
             @RequestPart MultipartFile image,
             @RequestPart MultipartFile video) {
 
+        if (!username.equals(principal.getName()))
+            throw new UploadForbiddenException(principal.getName() + " cannot upload as " + username);
+
         try {
           movieService.uploadMovie(username, movie, image, video);
             return new ResponseEntity<>("Movie Uploaded Successfully!", HttpStatus.CREATED);
@@ -122,6 +138,65 @@ public class MovieController {
 
 
 
+    /**
+     * Validates a planned upload without receiving its files, for clients that cannot send
+     * {@code Expect: 100-continue} on the upload itself.
+     *
+     * @param principal the authenticated uploader
+     * @param request   uploader, metadata, content types and sizes of the planned upload
+     * @return empty response if the upload would be accepted
+     */
+    @Operation(
+            summary = "Check whether a movie upload would be accepted",
+            description = "Runs the uploader, metadata, content type and size checks of /upload without sending files",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Upload would be accepted"),
+            @ApiResponse(responseCode = "400", description = "Metadata or a content type is invalid"),
+            @ApiResponse(responseCode = "403", description = "Username is not the authenticated user"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "413", description = "A file or the whole upload is too large")
+    })
+    @PostMapping(path = "/upload/check")
+    public ResponseEntity<Void> checkUpload(Principal principal, @RequestBody UploadCheckRequest request) {
+        uploadPreflightService.check(principal.getName(), request);
+        return ResponseEntity.noContent().build();
+    }
+
+
+
+    /**
+     * Uploads a new movie by streaming the multipart body straight to storage, without spooling parts to disk.
+     * The request carries {@code movie}, {@code image} and {@code video} parts, like {@link #uploadMovie}.
+     *
+     * @param principal the authenticated uploader
+     * @param request the raw multipart request
+     * @return success message or error
+     */
+    @Operation(
+            summary = "Upload a new movie as a streamed multipart request",
+            description = "Same parts as /upload, but each part is piped to storage while it arrives",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Movie uploaded successfully"),
+            @ApiResponse(responseCode = "400", description = "A required part is missing"),
+            @ApiResponse(responseCode = "500", description = "Uploading failed")
+    })
+    @PostMapping(path = "/upload/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadMovieStreaming(Principal principal, HttpServletRequest request) {
+
+        try {
+            streamingUploadService.upload(principal.getName(), new JakartaServletRequestContext(request));
+            return new ResponseEntity<>("Movie Uploaded Successfully!", HttpStatus.CREATED);
+        } catch (IOException e) {
+            return new ResponseEntity<>("Uploading Failed!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+
     /**
      * Fetches the image associated with a movie.
      *
@@ -203,18 +278,18 @@ public class MovieController {
 
 
     /**
-     * Deletes a movie by ID.
+     * Deletes a movie by ID. The movie disappears at once; its image and video are purged in the background.
      *
      * @param id movie ID
      * @return confirmation message or 404
      */
     @Operation(
             summary = "Delete a movie by ID",
-            description = "Requires authentication and valid movie ID",
+            description = "Requires authentication and valid movie ID. The media files are removed in the background",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Movie deleted successfully"),
+            @ApiResponse(responseCode = "200", description = "Movie deleted; its media is purged in the background"),
             @ApiResponse(responseCode = "404", description = "Movie not found")
     })
     @Transactional
@@ -243,7 +318,6 @@ public class MovieController {
             @ApiResponse(responseCode = "200", description = "Movie updated successfully"),
             @ApiResponse(responseCode = "500", description = "Update failed due to server error")
     })
-    @Transactional
     @PutMapping(path = "/update")
     public ResponseEntity<String> updateMovie(
             @RequestParam Long movieId,
@@ -261,4 +335,41 @@ public class MovieController {
     }
 
 
+
+    /**
+     * Partially updates a movie. Every part is optional: metadata fields left out or {@code null} keep their
+     * value, and only the media files that are sent are replaced.
+     *
+     * @param principal the authenticated caller; must be the movie's uploader
+     * @param id movie ID
+     * @param movie metadata fields to change
+     * @param image new image, if it should be replaced
+     * @param video new video, if it should be replaced
+     * @return success or error message
+     */
+    @Operation(
+            summary = "Partially update a movie",
+            description = "Multipart request where movie, image and video are all optional; metadata-only edits upload nothing",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Movie updated successfully"),
+            @ApiResponse(responseCode = "404", description = "Movie not found or not uploaded by the caller"),
+            @ApiResponse(responseCode = "500", description = "Update failed due to server error")
+    })
+    @PatchMapping(path = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<String> patchMovie(
+            Principal principal,
+            @PathVariable Long id,
+            @RequestPart(required = false) Movie movie,
+            @RequestPart(required = false) MultipartFile image,
+            @RequestPart(required = false) MultipartFile video) {
+
+        try {
+            movieService.patchMovie(id, principal.getName(), movie, image, video);
+            return new ResponseEntity<>("Movie Updated Successfully!", HttpStatus.OK);
+        } catch (IOException e) {
+            return new ResponseEntity<>("Updating Failed!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.bestflix.movie.controller;
+
+import com.bestflix.movie.dto.UploadJobStatus;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.service.impl.UploadJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.security.Principal;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("rest/api/movie/upload/jobs")
+@Tag(name = "Background Uploads", description = "Movie uploads that are accepted at once and stored in the background")
+public class UploadJobController {
+
+    private final UploadJobService uploadJobService;
+
+
+    /**
+     * Accepts a movie upload and stores it in the background.
+     *
+     * @param principal the authenticated uploader
+     * @param movie     movie metadata
+     * @param image     image file
+     * @param video     video file
+     * @return the queued job, with its status URL in the {@code Location} header
+     */
+    @Operation(
+            summary = "Upload a new movie and store it in the background",
+            description = "Same parts as /upload; responds once the files are received and reports progress through the job",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Upload accepted"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "503", description = "Too many uploads are waiting; retry later")
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submitUpload(
+            Principal principal,
+            @RequestPart Movie movie,
+            @RequestPart MultipartFile image,
+            @RequestPart MultipartFile video) {
+
+        try {
+            UploadJobStatus job = uploadJobService.submit(principal.getName(), movie, image, video);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                            .path("/{jobId}").buildAndExpand(job.getJobId()).toUri())
+                    .body(job);
+        } catch (IOException e) {
+            return new ResponseEntity<>("Uploading Failed!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    /**
+     * Reports the state and progress of a background upload.
+     *
+     * @param principal the authenticated uploader
+     * @param jobId     job identifier
+     * @return current status
+     */
+    @Operation(
+            summary = "Fetch the progress of a background upload",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Upload job found"),
+            @ApiResponse(responseCode = "404", description = "Upload job not found")
+    })
+    @GetMapping(path = "/{jobId}")
+    public ResponseEntity<UploadJobStatus> getUploadJob(Principal principal, @PathVariable String jobId) {
+        return ResponseEntity.ok(uploadJobService.getStatus(jobId, principal.getName()));
+    }
+
+
+    /**
+     * Streams the progress of a background upload as server-sent events until it completes or fails.
+     *
+     * @param principal the authenticated uploader
+     * @param jobId     job identifier
+     * @return event stream of {@code upload-job} events
+     */
+    @Operation(
+            summary = "Subscribe to the progress of a background upload",
+            description = "Server-sent events; each event carries the job status",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "404", description = "Upload job not found")
+    })
+    @GetMapping(path = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUploadJob(Principal principal, @PathVariable String jobId) {
+        return uploadJobService.subscribe(jobId, principal.getName());
+    }
+}
@@ -0,0 +1,93 @@
+package com.bestflix.movie.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single auto-configured {@link DataSource} with a routing one when
+ * {@code datasource.routing.enabled=true}.
+ * <p>
+ * Writes and non read-only transactions use the primary from {@code spring.datasource}.
+ * Read-only transactions are spread over the configured replicas.
+ * </p>
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceRoutingProperties routingProperties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+
+        List<DataSourceRoutingProperties.Replica> configured = routingProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            replicas.put("replica-" + i, createReplicaPool("replica-" + i, configured.get(i)));
+        }
+
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replicas,
+                routingProperties.getLagQuery(), routingProperties.getMaxReplicaLagMs());
+        monitor.refresh();
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor,
+                                 ReadYourWritesTracker readYourWritesTracker) {
+        return new LazyConnectionDataSourceProxy(
+                createRoutingDataSource(primaryDataSource, replicaLagMonitor, readYourWritesTracker));
+    }
+
+    /**
+     * Builds the routing data source over the primary and the monitor's replicas.
+     *
+     * @param primary               the primary pool
+     * @param replicaLagMonitor     monitor owning the replica pools
+     * @param readYourWritesTracker tracker used for post-write stickiness
+     * @return an initialised routing data source
+     */
+    static ReplicaRoutingDataSource createRoutingDataSource(DataSource primary, ReplicaLagMonitor replicaLagMonitor,
+                                                            ReadYourWritesTracker readYourWritesTracker) {
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.getReplicas());
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primary);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaLagMonitor, readYourWritesTracker);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private HikariDataSource createReplicaPool(String name, DataSourceRoutingProperties.Replica replica) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+}
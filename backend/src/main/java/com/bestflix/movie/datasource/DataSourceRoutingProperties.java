@@ -0,0 +1,57 @@
+package com.bestflix.movie.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration for routing read-only work to replica databases.
+ * <p>
+ * The primary database is still configured through {@code spring.datasource}; this class only
+ * describes the replica pools and the rules used to decide when a replica may serve a read.
+ * </p>
+ */
+@Data
+@ConfigurationProperties(prefix = "datasource.routing")
+public class DataSourceRoutingProperties {
+
+    /**
+     * Enables replica routing. When disabled, every query goes to the primary.
+     */
+    private boolean enabled;
+
+    /**
+     * Maximum replication lag in milliseconds before a replica stops receiving reads.
+     */
+    private long maxReplicaLagMs = 5000;
+
+    /**
+     * Query returning the replica's replication lag in milliseconds.
+     * The default works for PostgreSQL streaming replicas.
+     */
+    private String lagQuery = "SELECT CASE WHEN pg_is_in_recovery() "
+            + "THEN COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) "
+            + "ELSE 0 END";
+
+    /**
+     * Replica connection pools that may serve read-only transactions.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * Connection settings for a single replica pool.
+     */
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,123 @@
+package com.bestflix.movie.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote to the primary recently, so that their next reads are
+ * served by the primary instead of a replica that may not have caught up yet.
+ * <p>
+ * A user is sticky when they are the authenticated principal of the current request,
+ * or when a caller explicitly pins the current thread with {@link #pinIfRecentWriter(String)}
+ * (used by endpoints that receive the username in the request body).
+ * </p>
+ * <p>
+ * Expired entries are removed when their user is looked up and by {@link #evictExpired()}, so users who
+ * write once and never read again do not stay in memory.
+ * </p>
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private final long windowMs;
+
+    public ReadYourWritesTracker(@Value("${datasource.routing.read-your-writes-window-ms:10000}") long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Records that the given user has just written to the primary.
+     *
+     * @param username the user who performed the write
+     */
+    public void recordWrite(String username) {
+        if (username != null) {
+            lastWrites.put(username, System.currentTimeMillis() + windowMs);
+        }
+    }
+
+    /**
+     * Checks whether the user wrote within the stickiness window.
+     *
+     * @param username the user to check
+     * @return true if reads for this user should go to the primary
+     */
+    public boolean isRecentWriter(String username) {
+        if (username == null) {
+            return false;
+        }
+        Long until = lastWrites.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            lastWrites.remove(username, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the users whose stickiness window has passed.
+     */
+    @Scheduled(fixedDelayString = "${datasource.routing.read-your-writes-cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        lastWrites.values().removeIf(until -> until < now);
+    }
+
+    /**
+     * @return number of users currently tracked
+     */
+    int size() {
+        return lastWrites.size();
+    }
+
+    /**
+     * Pins the current thread to the primary if the given user wrote recently.
+     * Must be used with try-with-resources so the pin is released on the pooled request thread.
+     *
+     * @param username the user whose data is about to be read
+     * @return a handle releasing the pin, or {@code null} when no pin was needed
+     */
+    public PrimaryPin pinIfRecentWriter(String username) {
+        if (!isRecentWriter(username) || Boolean.TRUE.equals(PINNED.get())) {
+            return null;
+        }
+        PINNED.set(Boolean.TRUE);
+        return PINNED::remove;
+    }
+
+    /**
+     * Decides whether the current thread must read from the primary.
+     *
+     * @return true if the thread is pinned or the authenticated user wrote recently
+     */
+    public boolean shouldUsePrimary() {
+        if (Boolean.TRUE.equals(PINNED.get())) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && isRecentWriter(authentication.getName());
+    }
+
+    /**
+     * Handle returned by {@link #pinIfRecentWriter(String)}.
+     */
+    @FunctionalInterface
+    public interface PrimaryPin extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,79 @@
+package com.bestflix.movie.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically measures replication lag on every replica and keeps the list of replicas
+ * that are allowed to serve reads. A replica that cannot be reached, or that lags behind
+ * the primary by more than the configured limit, is skipped until it recovers.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;
+    private final long maxLagMs;
+
+    private volatile List<String> healthyReplicas = Collections.emptyList();
+
+    /**
+     * @param replicas replica pools keyed by their routing key
+     * @param lagQuery query returning the replica lag in milliseconds
+     * @param maxLagMs maximum tolerated lag in milliseconds
+     */
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, String lagQuery, long maxLagMs) {
+        this.replicas = replicas;
+        this.lagQuery = lagQuery;
+        this.maxLagMs = maxLagMs;
+    }
+
+    /**
+     * Re-checks every replica and publishes the new set of healthy replicas.
+     */
+    @Scheduled(fixedDelayString = "${datasource.routing.lag-check-interval-ms:2000}")
+    public void refresh() {
+        List<String> healthy = new ArrayList<>();
+
+        replicas.forEach((key, dataSource) -> {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+
+                long lagMs = resultSet.next() ? resultSet.getLong(1) : Long.MAX_VALUE;
+                if (lagMs <= maxLagMs) {
+                    healthy.add(key);
+                } else {
+                    log.warn("Replica {} lags {} ms behind the primary, routing reads to the primary", key, lagMs);
+                }
+            } catch (Exception e) {
+                log.warn("Replica {} is unreachable, routing reads to the primary", key, e);
+            }
+        });
+
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    /**
+     * @return all replica pools keyed by their routing key
+     */
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return routing keys of replicas that passed the last lag check
+     */
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+}
@@ -0,0 +1,49 @@
+package com.bestflix.movie.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes {@code @Transactional(readOnly = true)} work to a healthy replica and everything else
+ * to the primary.
+ * <p>
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so that the physical connection is only fetched once the transaction's read-only flag is known.
+ * Reads fall back to the primary when every replica is lagging, or when the current user wrote recently.
+ * </p>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor, ReadYourWritesTracker readYourWritesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        if (readYourWritesTracker.shouldUsePrimary()) {
+            return PRIMARY;
+        }
+
+        List<String> healthy = lagMonitor.getHealthyReplicas();
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+}
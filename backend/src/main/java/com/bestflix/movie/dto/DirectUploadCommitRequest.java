@@ -0,0 +1,22 @@
+package com.bestflix.movie.dto;
+
+import com.bestflix.movie.entity.Movie;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Confirms that media was uploaded with presigned URLs and creates the movie")
+public class DirectUploadCommitRequest {
+
+    @Schema(description = "Reservation id returned by the presign call", example = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7e")
+    private String reservationId;
+
+    @Schema(description = "Movie metadata")
+    private Movie movie;
+}
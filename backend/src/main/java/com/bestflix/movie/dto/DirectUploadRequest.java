@@ -0,0 +1,27 @@
+package com.bestflix.movie.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Request for presigned URLs to upload a movie's poster and video straight to storage")
+public class DirectUploadRequest {
+
+    @Schema(description = "Image MIME type: image/jpeg, image/png or image/webp; the upload must send the same Content-Type", example = "image/jpeg")
+    private String imageContentType;
+
+    @Schema(description = "Size of the image in bytes; the upload must send exactly this many", example = "204800")
+    private long imageSize;
+
+    @Schema(description = "Video MIME type: video/mp4, video/webm or video/x-matroska; the upload must send the same Content-Type", example = "video/mp4")
+    private String videoContentType;
+
+    @Schema(description = "Size of the video in bytes; large videos get multipart part URLs", example = "1073741824")
+    private long videoSize;
+}
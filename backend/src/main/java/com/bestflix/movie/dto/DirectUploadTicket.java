@@ -0,0 +1,45 @@
+package com.bestflix.movie.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Presigned URLs for uploading a movie's media straight to storage")
+public class DirectUploadTicket {
+
+    @Schema(description = "Identifier of the reservation; pass it back on commit", example = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7e")
+    private String reservationId;
+
+    @Schema(description = "Name under which the image is stored", example = "3f1c0d2e.jpg")
+    private String imageName;
+
+    @Schema(description = "Presigned PUT URL for the image")
+    private String imageUploadUrl;
+
+    @Schema(description = "Name under which the video is stored", example = "9a7b6c5d.mp4")
+    private String videoName;
+
+    @Schema(description = "Presigned PUT URL for the video; empty when the video is uploaded in parts")
+    private String videoUploadUrl;
+
+    @Schema(description = "Multipart upload id of the video; empty for a single PUT")
+    private String videoUploadId;
+
+    @Schema(description = "Size of every video part but the last", example = "16777216")
+    private long videoPartSize;
+
+    @Schema(description = "Presigned PUT URLs for video parts 1..n, in order")
+    private List<String> videoPartUrls;
+
+    @Schema(description = "Time the URLs stop working")
+    private Instant expiresAt;
+}
@@ -0,0 +1,34 @@
+package com.bestflix.movie.dto;
+
+import com.bestflix.movie.entity.Movie;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Describes a planned movie upload so it can be validated before any file is sent")
+public class UploadCheckRequest {
+
+    @Schema(description = "Uploader; defaults to the authenticated user and must match it", example = "john")
+    private String username;
+
+    @Schema(description = "Movie metadata")
+    private Movie movie;
+
+    @Schema(description = "Image MIME type", example = "image/jpeg")
+    private String imageContentType;
+
+    @Schema(description = "Size of the image in bytes", example = "204800")
+    private long imageSize;
+
+    @Schema(description = "Video MIME type", example = "video/mp4")
+    private String videoContentType;
+
+    @Schema(description = "Size of the video in bytes", example = "1073741824")
+    private long videoSize;
+}
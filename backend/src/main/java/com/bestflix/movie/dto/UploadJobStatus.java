@@ -0,0 +1,64 @@
+package com.bestflix.movie.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Progress of a movie upload that is stored in the background")
+public class UploadJobStatus {
+
+    /**
+     * Lifecycle of a background upload.
+     */
+    public enum State {
+        /** Accepted and waiting for a free worker. */
+        QUEUED,
+        /** Image and video are being sent to storage. */
+        STORING,
+        /** Media is stored; the movie is being saved. */
+        SAVING,
+        /** The movie was created; {@code movieId} is set. */
+        COMPLETED,
+        /** The upload failed; {@code error} says why. Nothing was left in storage. */
+        FAILED;
+
+        /**
+         * @return true if the job ends in this state and no further update follows
+         */
+        public boolean isTerminal() {
+            return this == COMPLETED || this == FAILED;
+        }
+    }
+
+    @Schema(description = "Identifier of the upload job", example = "5d1c9a8e-2f4b-4c61-9a0e-0b7f3c2d1e4a")
+    private String jobId;
+
+    @Schema(description = "Current state of the job", example = "STORING")
+    private State state;
+
+    @Schema(description = "Combined size of image and video in bytes", example = "734003200")
+    private long totalBytes;
+
+    @Schema(description = "Bytes stored so far", example = "268435456")
+    private long storedBytes;
+
+    @Schema(description = "Identifier of the created movie once the job completed", example = "42")
+    private Long movieId;
+
+    @Schema(description = "Reason the job failed")
+    private String error;
+
+    @Schema(description = "Time the upload was accepted")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "Time the job completed or failed")
+    private LocalDateTime finishedAt;
+}
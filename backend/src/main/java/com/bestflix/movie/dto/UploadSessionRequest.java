@@ -0,0 +1,24 @@
+package com.bestflix.movie.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Request to start a resumable video upload")
+public class UploadSessionRequest {
+
+    @Schema(description = "Original file name of the video", example = "interstellar.mp4")
+    private String fileName;
+
+    @Schema(description = "Video MIME type", example = "video/mp4")
+    private String contentType;
+
+    @Schema(description = "Total size of the video in bytes", example = "1073741824")
+    private long totalSize;
+}
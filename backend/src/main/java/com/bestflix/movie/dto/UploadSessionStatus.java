@@ -0,0 +1,35 @@
+package com.bestflix.movie.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Current progress of a resumable video upload")
+public class UploadSessionStatus {
+
+    @Schema(description = "Identifier of the upload session", example = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7e")
+    private String uploadId;
+
+    @Schema(description = "Total size of the video in bytes", example = "1073741824")
+    private long totalSize;
+
+    @Schema(description = "Size every chunk must have, except the last one", example = "16777216")
+    private long chunkSize;
+
+    @Schema(description = "Bytes received so far; send the next chunk at this offset", example = "33554432")
+    private long nextOffset;
+
+    @Schema(description = "Whether all bytes were received and the upload can be completed", example = "false")
+    private boolean complete;
+
+    @Schema(description = "Time after which the session expires unless another chunk arrives")
+    private LocalDateTime expiresAt;
+}
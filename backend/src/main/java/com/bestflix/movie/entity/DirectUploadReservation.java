@@ -0,0 +1,66 @@
+package com.bestflix.movie.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "direct_upload_reservations",
+        indexes = @Index(name = "idx_direct_upload_reservations_expires_at", columnList = "expiresAt"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Object names presigned for a user's direct upload, kept until the upload is committed or expires")
+public class DirectUploadReservation {
+
+    @Id
+    @Column(length = 36)
+    @Schema(description = "Public identifier of the reservation", example = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7e")
+    private String id;
+
+    @Column(nullable = false)
+    @Schema(description = "User the URLs were signed for", example = "Elcin.dev")
+    private String username;
+
+    @Column(nullable = false)
+    @Schema(description = "Name of the image inside images/", example = "3f1c0d2e.jpg")
+    private String imageName;
+
+    @Column(nullable = false)
+    @Schema(description = "Declared image MIME type", example = "image/jpeg")
+    private String imageContentType;
+
+    @Schema(description = "Declared size of the image in bytes", example = "204800")
+    private long imageSize;
+
+    @Column(nullable = false)
+    @Schema(description = "Name of the video inside videos/", example = "9a7b6c5d.mp4")
+    private String videoName;
+
+    @Column(nullable = false)
+    @Schema(description = "Declared video MIME type", example = "video/mp4")
+    private String videoContentType;
+
+    @Schema(description = "Declared size of the video in bytes", example = "1073741824")
+    private long videoSize;
+
+    @Column(length = 1024)
+    @Schema(description = "Identifier of the S3 multipart upload; empty for a single PUT")
+    private String videoUploadId;
+
+    @Schema(description = "Whether a commit has claimed the reservation")
+    private boolean consumed;
+
+    @Schema(description = "Time the URLs were signed")
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    @Schema(description = "Time after which the reservation can no longer be committed")
+    private LocalDateTime expiresAt;
+}
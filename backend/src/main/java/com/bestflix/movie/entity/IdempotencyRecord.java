@@ -0,0 +1,72 @@
+package com.bestflix.movie.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_records", indexes = @Index(name = "idx_idempotency_records_expires_at", columnList = "expiresAt"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Outcome of a request sent with an Idempotency-Key, replayed to retries of the same request")
+public class IdempotencyRecord {
+
+    @Id
+    @Column(length = 64)
+    @Schema(description = "Hex-encoded SHA-256 of the caller, the request line and the key")
+    private String id;
+
+    @Column(nullable = false)
+    @Schema(description = "User or client address that sent the request", example = "user:Elcin.dev")
+    private String caller;
+
+    @Column(nullable = false)
+    @Schema(description = "Method and path of the request", example = "POST /rest/api/movie/upload")
+    private String request;
+
+    @Column(length = 64)
+    @Schema(description = "Hex-encoded SHA-256 of the query string the key was first sent with")
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @Schema(description = "Whether the first request is still running or has completed")
+    private State state;
+
+    @Schema(description = "HTTP status of the completed request", example = "201")
+    private Integer responseStatus;
+
+    @Schema(description = "Content type of the completed request's response", example = "text/plain;charset=UTF-8")
+    private String responseContentType;
+
+    @Column(length = 4000)
+    @Schema(description = "Body of the completed request's response", example = "Movie Uploaded Successfully!")
+    private String responseBody;
+
+    @Schema(description = "Time the first request arrived")
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    @Schema(description = "Time after which the record is discarded; for a running request, after which it counts as abandoned")
+    private LocalDateTime expiresAt;
+
+    /**
+     * Keeps new records on the insert path, so two requests with the same key cannot both claim it.
+     */
+    @Version
+    @Schema(hidden = true)
+    private Long version;
+
+
+    public enum State {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
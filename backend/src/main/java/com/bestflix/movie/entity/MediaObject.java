@@ -0,0 +1,42 @@
+package com.bestflix.movie.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "media_objects")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Content-addressed media object and the number of movies that reference it")
+public class MediaObject {
+
+    @Id
+    @Column(length = 512)
+    @Schema(description = "Full object key in the bucket", example = "images/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.jpg")
+    private String objectKey;
+
+    @Column(nullable = false, length = 64)
+    @Schema(description = "Hex-encoded SHA-256 of the content", example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+    private String sha256;
+
+    @Schema(description = "Size of the object in bytes", example = "204800")
+    private long size;
+
+    @Schema(description = "Number of movie references to this object; 0 while it waits to be purged", example = "3")
+    private long referenceCount;
+
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    @Schema(description = "Whether the first upload of the content is still being written to the bucket")
+    private boolean uploading;
+
+    @Schema(description = "Time the object was first stored")
+    private LocalDateTime createdAt;
+}
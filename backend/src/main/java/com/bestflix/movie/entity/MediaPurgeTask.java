@@ -0,0 +1,45 @@
+package com.bestflix.movie.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "media_purge_tasks", indexes = {
+        @Index(name = "idx_media_purge_next_attempt", columnList = "nextAttemptAt"),
+        @Index(name = "idx_media_purge_object_key", columnList = "objectKey")})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Storage object waiting to be removed after its movie was deleted or replaced")
+public class MediaPurgeTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Unique identifier of the purge task", example = "12")
+    private Long id;
+
+    @Column(nullable = false, length = 512)
+    @Schema(description = "Full object key in the bucket", example = "videos/3f1c0d2e.mp4")
+    private String objectKey;
+
+    @Schema(description = "Number of failed delete attempts so far", example = "0")
+    private int attempts;
+
+    @Column(nullable = false)
+    @Schema(description = "Earliest time the purger may try this key again")
+    private LocalDateTime nextAttemptAt;
+
+    @Schema(description = "Time the key was queued for purge")
+    private LocalDateTime createdAt;
+
+    @Column(length = 1000)
+    @Schema(description = "Error reported by the last failed attempt")
+    private String lastError;
+}
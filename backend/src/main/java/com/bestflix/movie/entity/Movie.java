@@ -1,16 +1,22 @@
 package com.bestflix.movie.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "movies")
+@Table(name = "movies", indexes = {
+        @Index(name = "idx_movies_image_name", columnList = "imageName"),
+        @Index(name = "idx_movies_video_name", columnList = "videoName")})
+@SQLRestriction("deleted = false")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -64,4 +70,13 @@ public class Movie {
     @Column(name = "video_path")
     @Schema(description = "Server path to the video file", example = "/videos/interstellar-trailer.mp4")
     private String videoPath;
-}
\ No newline at end of file
+
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    @Schema(description = "Whether the movie was deleted and its media is awaiting purge", hidden = true)
+    private boolean deleted;
+
+    @JsonIgnore
+    @Schema(description = "Time the movie was deleted", hidden = true)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,95 @@
+package com.bestflix.movie.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "upload_sessions", indexes = @Index(name = "idx_upload_sessions_expires_at", columnList = "expiresAt"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Progress of a resumable, chunked video upload backed by an S3 multipart upload")
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    @Schema(description = "Public identifier of the upload session", example = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7e")
+    private String id;
+
+    @Column(nullable = false)
+    @Schema(description = "User who started the upload", example = "Elcin.dev")
+    private String username;
+
+    @Schema(description = "Original file name of the video", example = "interstellar.mp4")
+    private String fileName;
+
+    @Schema(description = "Video MIME type, as declared until the first chunk shows the real format", example = "video/mp4")
+    private String contentType;
+
+    @Schema(description = "Total size of the video in bytes", example = "1073741824")
+    private long totalSize;
+
+    @Schema(description = "Size of every chunk except the last one", example = "16777216")
+    private long chunkSize;
+
+    @Schema(description = "Bytes received so far; the offset of the next chunk", example = "33554432")
+    private long receivedBytes;
+
+    @Schema(description = "Name of the video inside videos/ once the upload completes; set by the first chunk", example = "3f1c0d2e.mp4")
+    private String videoName;
+
+    @Column(length = 1024)
+    @Schema(description = "Identifier of the S3 multipart upload; created by the first chunk")
+    private String s3UploadId;
+
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    @Schema(description = "Whether a request is assembling the video; only one may complete the session")
+    private boolean completing;
+
+    @Schema(description = "Time the session was started")
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    @Schema(description = "Time after which an idle session is aborted and removed")
+    private LocalDateTime expiresAt;
+
+    @Version
+    @Schema(hidden = true)
+    private long version;
+
+    @Builder.Default
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "upload_session_parts", joinColumns = @JoinColumn(name = "session_id"))
+    @OrderBy("partNumber ASC")
+    @Schema(description = "Parts stored in S3 so far")
+    private List<UploadedPart> parts = new ArrayList<>();
+
+
+    /**
+     * One chunk stored as an S3 multipart part.
+     */
+    @Embeddable
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class UploadedPart {
+
+        @Schema(description = "S3 part number, starting at 1", example = "3")
+        private int partNumber;
+
+        @Schema(description = "ETag S3 returned for the part")
+        private String eTag;
+
+        @Schema(description = "Size of the part in bytes", example = "16777216")
+        private long size;
+    }
+}
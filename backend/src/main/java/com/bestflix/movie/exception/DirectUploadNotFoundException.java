@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class DirectUploadNotFoundException extends BaseException{
+
+    public DirectUploadNotFoundException(String reservationId){
+        super(new ErrorMessage(reservationId, MessageType.DIRECT_UPLOAD_NOT_FOUND) , HttpStatus.NOT_FOUND);
+    }
+}
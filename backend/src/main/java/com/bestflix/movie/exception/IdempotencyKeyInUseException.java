@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyInUseException extends BaseException{
+
+    public IdempotencyKeyInUseException(String key){
+        super(new ErrorMessage(key, MessageType.IDEMPOTENCY_KEY_IN_USE) , HttpStatus.CONFLICT);
+    }
+}
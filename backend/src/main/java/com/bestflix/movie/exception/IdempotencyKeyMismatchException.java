@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyMismatchException extends BaseException{
+
+    public IdempotencyKeyMismatchException(String key){
+        super(new ErrorMessage(key, MessageType.IDEMPOTENCY_KEY_MISMATCH) , HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+}
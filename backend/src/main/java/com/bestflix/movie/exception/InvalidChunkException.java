@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidChunkException extends BaseException{
+
+    public InvalidChunkException(String details){
+        super(new ErrorMessage(details, MessageType.INVALID_CHUNK) , HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidUploadRequestException extends BaseException{
+
+    public InvalidUploadRequestException(String details){
+        super(new ErrorMessage(details, MessageType.INVALID_UPLOAD_REQUEST) , HttpStatus.BAD_REQUEST);
+    }
+}
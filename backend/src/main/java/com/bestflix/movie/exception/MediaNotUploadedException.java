@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class MediaNotUploadedException extends BaseException{
+
+    public MediaNotUploadedException(String objectKey){
+        super(new ErrorMessage(objectKey, MessageType.MEDIA_NOT_UPLOADED) , HttpStatus.CONFLICT);
+    }
+}
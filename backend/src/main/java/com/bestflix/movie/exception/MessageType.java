@@ -41,6 +41,86 @@ public enum MessageType {
      */
     BAD_CREDENTIALS("600", "Username or Password is wrong"),
 
+    /**
+     * Resumable upload session does not exist or has expired.
+     */
+    UPLOAD_SESSION_NOT_FOUND("700", "Upload Session Not Found"),
+
+    /**
+     * Chunk does not match the session's offset or size, or the upload is not finished yet.
+     */
+    INVALID_CHUNK("701", "Invalid Chunk"),
+
+    /**
+     * Media the client should have uploaded directly to storage is missing.
+     */
+    MEDIA_NOT_UPLOADED("702", "Uploaded Media Not Found"),
+
+    /**
+     * Upload request is missing a required part or is malformed.
+     */
+    INVALID_UPLOAD_REQUEST("703", "Invalid Upload Request"),
+
+    /**
+     * Background upload job does not exist or its status was already discarded.
+     */
+    UPLOAD_JOB_NOT_FOUND("704", "Upload Job Not Found"),
+
+    /**
+     * The background upload queue is full; the client should retry later.
+     */
+    UPLOAD_QUEUE_FULL("705", "Upload Queue Is Full"),
+
+    /**
+     * Too many upload bytes or uploads of this user are in flight; the client should retry later.
+     */
+    UPLOAD_LIMIT_EXCEEDED("706", "Too Many Uploads In Progress"),
+
+    /**
+     * The caller may not upload on behalf of the requested user.
+     */
+    UPLOAD_FORBIDDEN("707", "Upload Not Permitted"),
+
+    /**
+     * Declared size of the upload or one of its files exceeds the configured maximum.
+     */
+    UPLOAD_TOO_LARGE("708", "Upload Too Large"),
+
+    /**
+     * Another request with the same Idempotency-Key is still running.
+     */
+    IDEMPOTENCY_KEY_IN_USE("709", "Request With This Idempotency Key Is Still In Progress"),
+
+    /**
+     * Uploaded file is not one of the supported image or video formats.
+     */
+    UNSUPPORTED_MEDIA("710", "Unsupported Media"),
+
+    /**
+     * Too many logins or registrations are being processed; the client should retry later.
+     */
+    PASSWORD_HASHING_BUSY("711", "Too Many Login Attempts In Progress"),
+
+    /**
+     * The client or account sent too many authentication requests; the client should retry later.
+     */
+    RATE_LIMITED("712", "Too Many Requests"),
+
+    /**
+     * Another account already uses the username or email.
+     */
+    USER_ALREADY_EXISTS("713", "Username Or Email Already Taken"),
+
+    /**
+     * Presigned upload does not exist, has expired, was already committed or belongs to another user.
+     */
+    DIRECT_UPLOAD_NOT_FOUND("714", "Direct Upload Not Found"),
+
+    /**
+     * The Idempotency-Key was already used for the same endpoint with other query parameters.
+     */
+    IDEMPOTENCY_KEY_MISMATCH("715", "Idempotency Key Was Used With Different Parameters"),
+
     /**
      * Unclassified or generic application error.
      */
@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PasswordHashingBusyException extends BaseException{
+
+    public PasswordHashingBusyException(int queued){
+        super(new ErrorMessage(queued + " password checks waiting", MessageType.PASSWORD_HASHING_BUSY) , HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
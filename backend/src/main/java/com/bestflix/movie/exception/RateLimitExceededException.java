@@ -0,0 +1,15 @@
+package com.bestflix.movie.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class RateLimitExceededException extends BaseException{
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds){
+        super(new ErrorMessage("retry after " + retryAfterSeconds + " seconds", MessageType.RATE_LIMITED) , HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UnsupportedMediaException extends BaseException{
+
+    public UnsupportedMediaException(String details){
+        super(new ErrorMessage(details, MessageType.UNSUPPORTED_MEDIA) , HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+}
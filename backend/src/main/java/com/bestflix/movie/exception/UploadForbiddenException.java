@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadForbiddenException extends BaseException{
+
+    public UploadForbiddenException(String details){
+        super(new ErrorMessage(details, MessageType.UPLOAD_FORBIDDEN) , HttpStatus.FORBIDDEN);
+    }
+}
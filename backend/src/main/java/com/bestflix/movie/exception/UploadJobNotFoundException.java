@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadJobNotFoundException extends BaseException{
+
+    public UploadJobNotFoundException(String jobId){
+        super(new ErrorMessage(jobId, MessageType.UPLOAD_JOB_NOT_FOUND) , HttpStatus.NOT_FOUND);
+    }
+}
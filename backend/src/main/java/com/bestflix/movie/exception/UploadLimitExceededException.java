@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadLimitExceededException extends BaseException{
+
+    public UploadLimitExceededException(String details){
+        super(new ErrorMessage(details, MessageType.UPLOAD_LIMIT_EXCEEDED) , HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
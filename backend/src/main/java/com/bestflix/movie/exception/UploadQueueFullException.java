@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadQueueFullException extends BaseException{
+
+    public UploadQueueFullException(int queued){
+        super(new ErrorMessage(queued + " uploads waiting", MessageType.UPLOAD_QUEUE_FULL) , HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
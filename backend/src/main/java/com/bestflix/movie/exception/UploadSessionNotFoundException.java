@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadSessionNotFoundException extends BaseException{
+
+    public UploadSessionNotFoundException(String uploadId){
+        super(new ErrorMessage(uploadId, MessageType.UPLOAD_SESSION_NOT_FOUND) , HttpStatus.NOT_FOUND);
+    }
+}
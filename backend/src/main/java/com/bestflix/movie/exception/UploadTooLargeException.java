@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadTooLargeException extends BaseException{
+
+    public UploadTooLargeException(String details){
+        super(new ErrorMessage(details, MessageType.UPLOAD_TOO_LARGE) , HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bestflix.movie.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UserAlreadyExistsException extends BaseException{
+
+    public UserAlreadyExistsException(String detail){
+        super(new ErrorMessage(detail, MessageType.USER_ALREADY_EXISTS) , HttpStatus.CONFLICT);
+    }
+}
@@ -3,7 +3,9 @@ package com.bestflix.movie.handler;
 import com.bestflix.movie.exception.BaseException;
 import com.bestflix.movie.exception.ErrorMessage;
 import com.bestflix.movie.exception.MessageType;
+import com.bestflix.movie.exception.RateLimitExceededException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -45,6 +47,22 @@ public class GlobalExceptionHandler {
     }
 
 
+    /**
+     * Handles throttled requests like any {@link BaseException} and tells the client when to retry.
+     *
+     * @param ex the exception instance
+     * @param request the current web request context
+     * @return 429 Too Many Requests response with a {@code Retry-After} header
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ApiError> handleRateLimitExceeded(RateLimitExceededException ex, WebRequest request) {
+        ResponseEntity<ApiError> response = handleBaseException(ex, request);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+
+
     /**
      * Handles bean validation failures such as field-level validation errors.
      *
@@ -142,7 +160,14 @@ public class GlobalExceptionHandler {
      */
     private HttpStatus resolveHttpStatus(MessageType messageType) {
         return switch (messageType) {
-            case NO_RECORD_EXIST -> HttpStatus.NOT_FOUND;
+            case NO_RECORD_EXIST, UPLOAD_SESSION_NOT_FOUND, UPLOAD_JOB_NOT_FOUND, DIRECT_UPLOAD_NOT_FOUND -> HttpStatus.NOT_FOUND;
+            case INVALID_CHUNK, MEDIA_NOT_UPLOADED, IDEMPOTENCY_KEY_IN_USE, USER_ALREADY_EXISTS -> HttpStatus.CONFLICT;
+            case UPLOAD_QUEUE_FULL, PASSWORD_HASHING_BUSY -> HttpStatus.SERVICE_UNAVAILABLE;
+            case UPLOAD_LIMIT_EXCEEDED, RATE_LIMITED -> HttpStatus.TOO_MANY_REQUESTS;
+            case UPLOAD_FORBIDDEN -> HttpStatus.FORBIDDEN;
+            case UPLOAD_TOO_LARGE -> HttpStatus.PAYLOAD_TOO_LARGE;
+            case IDEMPOTENCY_KEY_MISMATCH -> HttpStatus.UNPROCESSABLE_ENTITY;
+            case UNSUPPORTED_MEDIA -> HttpStatus.UNSUPPORTED_MEDIA_TYPE;
             case OTHER_EXCEPTION -> HttpStatus.INTERNAL_SERVER_ERROR;
             default -> HttpStatus.BAD_REQUEST;
         };
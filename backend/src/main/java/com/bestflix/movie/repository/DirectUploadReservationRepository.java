@@ -0,0 +1,65 @@
+package com.bestflix.movie.repository;
+
+import com.bestflix.movie.entity.DirectUploadReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for object names reserved by presigned direct uploads.
+ * A reservation is claimed and released with single update statements, so two commits can never both claim it.
+ */
+@Repository
+public interface DirectUploadReservationRepository extends JpaRepository<DirectUploadReservation, String> {
+
+    /**
+     * Claims an unexpired reservation for a commit.
+     *
+     * @param id  reservation id
+     * @param now reservations expiring before this time cannot be claimed
+     * @return 1 if the reservation was claimed, 0 if it is expired or already claimed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DirectUploadReservation r set r.consumed = true "
+            + "where r.id = :id and r.consumed = false and r.expiresAt > :now")
+    int consume(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * Gives a claimed reservation back after its commit failed, so the client can retry.
+     *
+     * @param id reservation id
+     * @return number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DirectUploadReservation r set r.consumed = false where r.id = :id")
+    int release(@Param("id") String id);
+
+    /**
+     * Removes a reservation that no commit has claimed.
+     *
+     * @param id reservation id
+     * @return 1 if the reservation was removed, 0 if a commit claimed it meanwhile
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from DirectUploadReservation r where r.id = :id and r.consumed = false")
+    int deleteUnconsumed(@Param("id") String id);
+
+    /**
+     * Finds reservations past their expiry time, oldest first.
+     *
+     * @param now      reservations expiring before this time are returned
+     * @param pageable batch size
+     * @return expired reservations
+     */
+    List<DirectUploadReservation> findByExpiresAtBeforeOrderByExpiresAtAsc(LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,53 @@
+package com.bestflix.movie.repository;
+
+import com.bestflix.movie.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository for outcomes of requests sent with an {@code Idempotency-Key}.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Stores the response of a request that still holds its record.
+     *
+     * @return number of rows updated; 0 if the record expired and was taken over or discarded
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update IdempotencyRecord r set r.state = com.bestflix.movie.entity.IdempotencyRecord.State.COMPLETED, "
+            + "r.responseStatus = :status, r.responseContentType = :contentType, r.responseBody = :body, "
+            + "r.expiresAt = :expiresAt, r.version = r.version + 1 where r.id = :id and r.version = :version")
+    int complete(@Param("id") String id, @Param("version") long version, @Param("status") int status,
+                 @Param("contentType") String contentType, @Param("body") String body,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Removes one version of a record, leaving it alone if another request has taken it over meanwhile.
+     *
+     * @return 1 if the record was removed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.version = :version")
+    int deleteVersion(@Param("id") String id, @Param("version") long version);
+
+    /**
+     * Removes records past their expiry time.
+     *
+     * @param now records expiring before this time are removed
+     * @return number of records removed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
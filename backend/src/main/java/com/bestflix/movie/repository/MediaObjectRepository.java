@@ -0,0 +1,93 @@
+package com.bestflix.movie.repository;
+
+import com.bestflix.movie.entity.MediaObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for reference counts of content-addressed media objects.
+ * Counts are changed with single update statements so concurrent uploads and deletes never lose an update.
+ * The purge locks the rows of the keys it deletes, so these updates wait for it to finish.
+ */
+@Repository
+public interface MediaObjectRepository extends JpaRepository<MediaObject, String> {
+
+    /**
+     * Adds one reference to an object.
+     *
+     * @param objectKey full object key
+     * @return number of rows updated; 0 if the object is not tracked yet
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update MediaObject m set m.referenceCount = m.referenceCount + 1 where m.objectKey = :objectKey")
+    int incrementReferences(@Param("objectKey") String objectKey);
+
+    /**
+     * Removes one reference from an object.
+     *
+     * @param objectKey full object key
+     * @return number of rows updated; 0 if the object is not tracked
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update MediaObject m set m.referenceCount = m.referenceCount - 1 where m.objectKey = :objectKey")
+    int decrementReferences(@Param("objectKey") String objectKey);
+
+    /**
+     * Records that the first upload of an object finished writing it to the bucket.
+     *
+     * @param objectKey full object key
+     * @return number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update MediaObject m set m.uploading = false where m.objectKey = :objectKey")
+    int markStored(@Param("objectKey") String objectKey);
+
+    /**
+     * @param objectKey      full object key
+     * @param referenceCount upper bound
+     * @return true if the object is tracked with at most the given number of references
+     */
+    boolean existsByObjectKeyAndReferenceCountLessThanEqual(String objectKey, long referenceCount);
+
+    /**
+     * Loads the rows of the given keys and locks them until the surrounding transaction ends.
+     *
+     * @param objectKeys full object keys
+     * @return the rows of the tracked keys
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from MediaObject m where m.objectKey in :objectKeys")
+    List<MediaObject> lockAll(@Param("objectKeys") Collection<String> objectKeys);
+
+    /**
+     * Drops the row of an object that has no references left.
+     *
+     * @param objectKey full object key
+     * @return 1 if the row was removed, 0 if it is still referenced
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from MediaObject m where m.objectKey = :objectKey and m.referenceCount <= 0")
+    int deleteIfUnreferenced(@Param("objectKey") String objectKey);
+
+    /**
+     * Returns which of the given keys are currently referenced.
+     *
+     * @param objectKeys full object keys
+     * @return the subset of keys that have a row
+     */
+    @Query("select m.objectKey from MediaObject m where m.objectKey in :objectKeys")
+    List<String> findTrackedKeys(@Param("objectKeys") Collection<String> objectKeys);
+}
@@ -0,0 +1,48 @@
+package com.bestflix.movie.repository;
+
+import com.bestflix.movie.entity.MediaPurgeTask;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for storage keys queued for asynchronous removal.
+ */
+@Repository
+public interface MediaPurgeTaskRepository extends JpaRepository<MediaPurgeTask, Long> {
+
+    /**
+     * Finds tasks that are due and have not exhausted their retries, oldest first.
+     *
+     * @param maxAttempts tasks with this many attempts or more are skipped
+     * @param now         only tasks scheduled at or before this time are returned
+     * @param pageable    batch size
+     * @return due purge tasks
+     */
+    List<MediaPurgeTask> findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(int maxAttempts,
+                                                                                       LocalDateTime now,
+                                                                                       Pageable pageable);
+
+    /**
+     * Counts tasks that are still eligible for another attempt.
+     *
+     * @param maxAttempts retry limit
+     * @return number of pending tasks
+     */
+    long countByAttemptsLessThan(int maxAttempts);
+
+    /**
+     * Returns which of the given keys are already queued, including keys that ran out of retries.
+     *
+     * @param objectKeys full object keys
+     * @return the subset of keys that have a purge task
+     */
+    @Query("select distinct t.objectKey from MediaPurgeTask t where t.objectKey in :objectKeys")
+    List<String> findQueuedKeys(@Param("objectKeys") Collection<String> objectKeys);
+}
@@ -2,8 +2,15 @@ package com.bestflix.movie.repository;
 
 import com.bestflix.movie.entity.Movie;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for managing Movie entities.
  * Provides CRUD operations and supports custom queries via JPA.
@@ -11,4 +18,48 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, Long> {
     // Inherits: save, findById, delete, findAll, etc.
+
+    /**
+     * Changes the metadata of a movie in a single UPDATE without loading it.
+     * A {@code null} argument keeps the current value of its column.
+     *
+     * @return number of rows updated; 0 if the movie does not exist or was deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Movie m set
+                m.movieName = coalesce(:movieName, m.movieName),
+                m.country = coalesce(:country, m.country),
+                m.releaseDate = coalesce(:releaseDate, m.releaseDate),
+                m.casts = coalesce(:casts, m.casts),
+                m.duration = coalesce(:duration, m.duration),
+                m.about = coalesce(:about, m.about),
+                m.category = coalesce(:category, m.category)
+            where m.id = :id and m.deleted = false""")
+    int updateMetadata(@Param("id") long id,
+                       @Param("movieName") String movieName,
+                       @Param("country") String country,
+                       @Param("releaseDate") LocalDate releaseDate,
+                       @Param("casts") String casts,
+                       @Param("duration") String duration,
+                       @Param("about") String about,
+                       @Param("category") String category);
+
+    /**
+     * Returns which of the given image names are used by a movie that is not deleted.
+     *
+     * @param names file names inside {@code images/}
+     * @return the subset of names that are referenced
+     */
+    @Query("select m.imageName from Movie m where m.imageName in :names")
+    List<String> findImageNamesIn(@Param("names") Collection<String> names);
+
+    /**
+     * Returns which of the given video names are used by a movie that is not deleted.
+     *
+     * @param names file names inside {@code videos/}
+     * @return the subset of names that are referenced
+     */
+    @Query("select m.videoName from Movie m where m.videoName in :names")
+    List<String> findVideoNamesIn(@Param("names") Collection<String> names);
 }
@@ -0,0 +1,51 @@
+package com.bestflix.movie.repository;
+
+import com.bestflix.movie.entity.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for resumable upload sessions.
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /**
+     * Finds sessions that were idle past their expiry time, oldest first.
+     *
+     * @param now      sessions expiring before this time are returned
+     * @param pageable batch size
+     * @return expired sessions
+     */
+    List<UploadSession> findByExpiresAtBeforeOrderByExpiresAtAsc(LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claims a session for completion unless another request already did.
+     *
+     * @param id session identifier
+     * @return 1 if this call claimed the session, 0 if it is being completed or was removed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update UploadSession s set s.completing = true where s.id = :id and s.completing = false")
+    int claimCompletion(@Param("id") String id);
+
+    /**
+     * Hands a claimed session back after its completion failed, so the client can retry it.
+     *
+     * @param id session identifier
+     * @return number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update UploadSession s set s.completing = false where s.id = :id")
+    int releaseCompletion(@Param("id") String id);
+}
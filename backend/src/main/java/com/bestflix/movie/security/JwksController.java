@@ -0,0 +1,48 @@
+package com.bestflix.movie.security;
+
+import com.bestflix.movie.security.userService.SigningKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@Tag(name = "Authentication", description = "Handles user registration, login, and password management")
+public class JwksController {
+
+    private final SigningKeyService signingKeyService;
+    private final long maxAgeSeconds;
+
+    public JwksController(SigningKeyService signingKeyService,
+                          @Value("${jwt.jwks.max-age-seconds:300}") long maxAgeSeconds) {
+        this.signingKeyService = signingKeyService;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+
+    /**
+     * Publishes the public keys that verify access tokens, so other services and edge components can check
+     * tokens locally. The document changes only on key rotation and may be cached for
+     * {@code jwt.jwks.max-age-seconds}.
+     *
+     * @return the JSON Web Key Set
+     */
+    @Operation(
+            summary = "Token verification keys",
+            description = "Returns the public keys that verify access tokens as a JSON Web Key Set"
+    )
+    @ApiResponse(responseCode = "200", description = "Key set returned successfully")
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .body(signingKeyService.jwks());
+    }
+}
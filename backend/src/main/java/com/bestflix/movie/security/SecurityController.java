@@ -1,21 +1,29 @@
 package com.bestflix.movie.security;
 
+import com.bestflix.movie.security.dto.AvailabilityResponse;
 import com.bestflix.movie.security.dto.ForgotPasswordRequest;
+import com.bestflix.movie.security.dto.RefreshTokenRequest;
 import com.bestflix.movie.security.dto.ResetPasswordRequest;
+import com.bestflix.movie.security.dto.TokenResponse;
 import com.bestflix.movie.security.dto.UsersRequest;
 import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.ratelimit.AuthRateLimiter;
 import com.bestflix.movie.security.userService.UserService;
+import com.bestflix.movie.security.userService.UsernameAvailabilityService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -25,13 +33,17 @@ import org.springframework.web.bind.annotation.RestController;
 public class SecurityController {
 
     private final UserService userService;
+    private final AuthRateLimiter authRateLimiter;
+    private final UsernameAvailabilityService usernameAvailabilityService;
 
 
     /**
      * Registers a new user into the system.
      *
-     * @param user the user credentials and profile data
-     * @return success message or 400 if required fields are missing
+     * @param user    the user credentials and profile data
+     * @param request the HTTP request, for the client address
+     * @return success message, 400 if required fields are missing, 409 if the username or email is taken
+     * or 429 if throttled
      */
     @Operation(
             summary = "Register new user",
@@ -39,11 +51,14 @@ public class SecurityController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User registered successfully"),
-            @ApiResponse(responseCode = "400", description = "Missing required fields")
+            @ApiResponse(responseCode = "400", description = "Missing required fields"),
+            @ApiResponse(responseCode = "409", description = "Username or email already taken"),
+            @ApiResponse(responseCode = "429", description = "Too many registrations from this client or email")
     })
     @PostMapping("/register")
-    public ResponseEntity<String> register(@Valid @RequestBody Users user) {
+    public ResponseEntity<String> register(@Valid @RequestBody Users user, HttpServletRequest request) {
 
+        authRateLimiter.checkRegister(request.getRemoteAddr(), user.getEmail());
         userService.register(user);
 
         return ResponseEntity.ok("User registered successfully");
@@ -51,24 +66,105 @@ public class SecurityController {
 
 
     /**
-     * Authenticates a user and returns a JWT token.
+     * Tells the registration form whether a username and an email are still free, before the user submits it.
+     * The answer is advisory; {@link #register} rejects a taken username or email with 409.
      *
-     * @param user login credentials
-     * @return JWT token or 400 if missing fields
+     * @param username the username to check, optional
+     * @param email    the email to check, optional
+     * @param request  the HTTP request, for the client address
+     * @return the availability of each value given, or 429 if throttled
+     */
+    @Operation(
+            summary = "Check username and email availability",
+            description = "Reports whether a username and an email can still be registered"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Availability returned"),
+            @ApiResponse(responseCode = "429", description = "Too many checks from this client")
+    })
+    @GetMapping("/register/availability")
+    public ResponseEntity<AvailabilityResponse> availability(@RequestParam(required = false) String username,
+                                                             @RequestParam(required = false) String email,
+                                                             HttpServletRequest request) {
+
+        authRateLimiter.checkAvailability(request.getRemoteAddr());
+        Boolean usernameAvailable = username == null || username.isBlank()
+                ? null : usernameAvailabilityService.isUsernameAvailable(username);
+        Boolean emailAvailable = email == null || email.isBlank()
+                ? null : usernameAvailabilityService.isEmailAvailable(email);
+
+        return ResponseEntity.ok(new AvailabilityResponse(usernameAvailable, emailAvailable));
+    }
+
+
+    /**
+     * Authenticates a user and returns an access token and a refresh token.
+     *
+     * @param user    login credentials
+     * @param request the HTTP request, for the client address
+     * @return tokens, 400 if missing fields or 429 if throttled
      */
     @Operation(
             summary = "User login",
-            description = "Verifies user credentials and returns access token"
+            description = "Verifies user credentials and returns access and refresh tokens"
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Token returned successfully"),
-            @ApiResponse(responseCode = "400", description = "Missing username or password")
+            @ApiResponse(responseCode = "200", description = "Tokens returned successfully"),
+            @ApiResponse(responseCode = "400", description = "Missing username or password"),
+            @ApiResponse(responseCode = "429", description = "Too many login attempts from this client or for this user")
     })
     @PostMapping(path = "/login")
-    public ResponseEntity<String> login(@Valid @RequestBody UsersRequest user){
+    public ResponseEntity<TokenResponse> login(@Valid @RequestBody UsersRequest user, HttpServletRequest request){
 
-        String token = userService.verify(user);
-        return ResponseEntity.ok(token);
+        authRateLimiter.checkLogin(request.getRemoteAddr(), user.getUsername());
+        TokenResponse tokens = userService.verify(user);
+        return ResponseEntity.ok(tokens);
+    }
+
+
+    /**
+     * Exchanges a refresh token for new tokens without asking for the password again.
+     *
+     * @param request contains the refresh token
+     * @return new access and refresh tokens
+     */
+    @Operation(
+            summary = "Refresh tokens",
+            description = "Rotates the refresh token and returns a new access token; a reused refresh token revokes the session"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tokens returned successfully"),
+            @ApiResponse(responseCode = "400", description = "Missing, unknown, reused or expired refresh token")
+    })
+    @PostMapping(path = "/token/refresh")
+    public ResponseEntity<TokenResponse> refresh(@Valid @RequestBody RefreshTokenRequest request){
+
+        TokenResponse tokens = userService.refresh(request.getRefreshToken());
+        return ResponseEntity.ok(tokens);
+    }
+
+
+
+    /**
+     * Revokes a refresh token and every token rotated from the same login, e.g. at logout.
+     * Needs no access token, so a client whose access token already expired can still log out.
+     *
+     * @param request contains the refresh token
+     * @return 204, also for a token that is unknown or already revoked
+     */
+    @Operation(
+            summary = "Revoke refresh token",
+            description = "Logs out the session of a refresh token; its access tokens stay valid until they expire"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Refresh token revoked"),
+            @ApiResponse(responseCode = "400", description = "Missing refresh token")
+    })
+    @PostMapping(path = "/token/revoke")
+    public ResponseEntity<Void> revoke(@Valid @RequestBody RefreshTokenRequest request){
+
+        userService.logout(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
     }
 
 
@@ -76,8 +172,9 @@ public class SecurityController {
     /**
      * Initiates password reset process by sending email.
      *
-     * @param request the reset request containing email
-     * @return success message or 400 if email is invalid
+     * @param request     the reset request containing email
+     * @param httpRequest the HTTP request, for the client address
+     * @return success message, 400 if email is invalid or 429 if throttled
      */
     @Operation(
             summary = "Forgot password",
@@ -85,14 +182,15 @@ public class SecurityController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reset link sent"),
-            @ApiResponse(responseCode = "400", description = "Invalid or missing email")
+            @ApiResponse(responseCode = "400", description = "Invalid or missing email"),
+            @ApiResponse(responseCode = "429", description = "Too many reset requests from this client or for this email")
     })
     @PostMapping("/forgot-password")
-    public ResponseEntity<String> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request) {
+    public ResponseEntity<String> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request,
+                                                 HttpServletRequest httpRequest) {
         String email = request.getEmail();
 
-
-
+        authRateLimiter.checkForgotPassword(httpRequest.getRemoteAddr(), email);
         userService.generateResetToken(email);
 
         return ResponseEntity.ok("Reset link sent if email exists");
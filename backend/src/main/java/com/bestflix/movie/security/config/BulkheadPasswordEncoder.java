@@ -0,0 +1,119 @@
+package com.bestflix.movie.security.config;
+
+import com.bestflix.movie.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * {@link PasswordEncoder} that runs hashing and verification of the delegate on a dedicated, bounded pool.
+ * <p>
+ * A BCrypt hash costs a few hundred milliseconds of CPU. Running them on request threads lets a burst of
+ * logins or registrations take every core and stall unrelated requests. Here at most as many hashes run at
+ * once as the pool has threads; the calling thread waits for its result. When the queue is full, or a hash
+ * has not finished within {@code maxWaitMs}, the call fails with {@link PasswordHashingBusyException}
+ * ({@code 503 Service Unavailable}) instead of adding to the backlog.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.password-hashing.queue-wait} – time a hash waited for a thread</li>
+ *   <li>{@code security.password-hashing.duration} – time spent hashing, tagged with {@code operation}
+ *       {@code encode} or {@code matches}</li>
+ *   <li>{@code security.password-hashing.rejected} – calls shed because the pool was saturated</li>
+ *   <li>{@code security.password-hashing.queued} – hashes waiting for a thread</li>
+ * </ul>
+ */
+public class BulkheadPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMs;
+
+    private final Timer queueWaitTimer;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BulkheadPasswordEncoder(PasswordEncoder delegate, ThreadPoolExecutor executor, long maxWaitMs,
+                                   MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxWaitMs = maxWaitMs;
+
+        this.queueWaitTimer = meterRegistry.timer("security.password-hashing.queue-wait");
+        this.encodeTimer = meterRegistry.timer("security.password-hashing.duration", "operation", "encode");
+        this.matchesTimer = meterRegistry.timer("security.password-hashing.duration", "operation", "matches");
+        this.rejectedCounter = meterRegistry.counter("security.password-hashing.rejected");
+        Gauge.builder("security.password-hashing.queued", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+
+    /**
+     * Only inspects the stored hash, so it stays on the calling thread.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+
+    private <T> T run(Timer hashTimer, Callable<T> hash) {
+        long submittedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+
+        try {
+            return result.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // a queued hash is skipped; one already running finishes, since BCrypt does not check interrupts
+            result.cancel(true);
+            throw busy();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+
+    private PasswordHashingBusyException busy() {
+        rejectedCounter.increment();
+        return new PasswordHashingBusyException(executor.getQueue().size());
+    }
+}
@@ -0,0 +1,103 @@
+package com.bestflix.movie.security.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Set;
+
+/**
+ * Classifies the requests that need no token: movie listings, posters, videos, the API docs, the JWKS,
+ * the username availability check and the endpoints that issue and revoke tokens.
+ * <p>
+ * They are served by their own filter chain without {@link com.bestflix.movie.security.userService.filter.JwtFilter},
+ * so a stale token sent along with a poster request is never parsed and cannot fail it. Every route listed here
+ * is permitted to anyone in the authenticated chain as well, so a request that is not recognized, e.g. one with
+ * an encoded path, only loses the fast path and is never authorized differently.
+ * </p>
+ * <p>
+ * The routes are fixed at startup and matched with set lookups and prefix comparisons on the raw path,
+ * without parsing it into segments as path patterns do; poster traffic goes through this on every request.
+ * </p>
+ */
+public final class PublicRoutes implements RequestMatcher {
+
+    private static final String MOVIE = "/rest/api/movie/";
+
+    /**
+     * Routes ending in a numeric movie id, e.g. {@code /rest/api/movie/image/42}.
+     */
+    private static final String[] GET_BY_ID = {MOVIE + "image/", MOVIE + "video/", MOVIE};
+
+    private static final Set<String> GET_EXACT = Set.of(
+            MOVIE + "all",
+            "/register/availability",
+            "/.well-known/jwks.json",
+            "/swagger-ui.html",
+            "/v2/api-docs",
+            "/v3/api-docs",
+            "/swagger-resources",
+            "/configuration/ui",
+            "/configuration/security");
+
+    private static final String[] GET_PREFIXES = {"/swagger-ui/", "/v3/api-docs/", "/swagger-resources/", "/webjars/"};
+
+    private static final Set<String> POST_EXACT = Set.of(
+            "/login", "/register", "/token/refresh", "/token/revoke", "/forgot-password", "/reset-password");
+
+    private static final String[] ANY_PREFIXES = {"/h2-console/"};
+
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method))
+            return true;
+
+        String path = path(request);
+        if (startsWithAny(path, ANY_PREFIXES))
+            return true;
+
+        return switch (method) {
+            case "GET", "HEAD" -> GET_EXACT.contains(path) || startsWithAny(path, GET_PREFIXES) || isGetById(path);
+            case "POST" -> POST_EXACT.contains(path);
+            default -> false;
+        };
+    }
+
+
+    private static String path(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        return contextPath.isEmpty() ? uri : uri.substring(contextPath.length());
+    }
+
+
+    private static boolean startsWithAny(String path, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+
+    private static boolean isGetById(String path) {
+        for (String prefix : GET_BY_ID) {
+            if (path.startsWith(prefix))
+                return isDigits(path, prefix.length());
+        }
+        return false;
+    }
+
+
+    private static boolean isDigits(String path, int from) {
+        if (from == path.length())
+            return false;
+        for (int i = from; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+}
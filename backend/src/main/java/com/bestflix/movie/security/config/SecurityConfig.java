@@ -1,9 +1,14 @@
 package com.bestflix.movie.security.config;
 
 import com.bestflix.movie.security.userService.filter.JwtFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
@@ -17,11 +22,17 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 /**
  * Configures Spring Security for the application.
  * Defines custom JWT-based authentication, disables form login,
  * and enables stateless session management.
+ * Public reads are served by a separate filter chain that never processes tokens, see {@link PublicRoutes}.
  */
 @EnableWebSecurity
 @Configuration
@@ -33,9 +44,44 @@ public class SecurityConfig {
      */
     private final JwtFilter jwtFilter;
 
+    @Value("${security.password-hashing.core-share:0.5}")
+    private double coreShare;
+
+    @Value("${security.password-hashing.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${security.password-hashing.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+
+    /**
+     * Serves the routes of {@link PublicRoutes} without looking at any token.
+     * - Enables CORS and disables CSRF
+     * - Permits every request; no {@link JwtFilter} is added
+     * - Enforces stateless session management
+     *
+     * @param http the {@link HttpSecurity} builder
+     * @return the configured {@link SecurityFilterChain}
+     * @throws Exception in case of configuration errors
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain publicFilterChain(HttpSecurity http) throws Exception {
+
+        return http
+                .securityMatcher(new PublicRoutes())
+                .cors(Customizer.withDefaults())
+                .csrf(customizer -> customizer.disable())
+                .authorizeHttpRequests(request -> request.anyRequest().permitAll())
+                .formLogin(form -> form.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+
+                .build();
+    }
+
 
     /**
-     * Configures the HTTP security filter chain.
+     * Configures the filter chain for every request not taken by {@link #publicFilterChain}.
      * - Enables CORS and disables CSRF
      * - Whitelists publicly accessible endpoints
      * - Disables default form login
@@ -48,6 +94,7 @@ public class SecurityConfig {
      */
 
     @Bean
+    @Order(2)
      public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 
          return http
@@ -56,11 +103,20 @@ public class SecurityConfig {
 
                  .authorizeHttpRequests(request->request
 
-                         .requestMatchers(HttpMethod.OPTIONS, "/**")
+                         // completes streamed responses such as upload progress events; the request itself was authorized
+                         .dispatcherTypeMatchers(DispatcherType.ASYNC)
                          .permitAll()
 
-                         .requestMatchers("/forgot-password", "/reset-password", "/login", "/h2-console/**",
-                                 "/register","/rest/api/movie/all","/rest/api/movie/image/**","/rest/api/movie/**",
+                         .requestMatchers("/rest/api/movie/upload", "/rest/api/movie/upload/check",
+                                 "/rest/api/movie/upload/direct/**", "/rest/api/movie/upload/stream",
+                                 "/rest/api/movie/upload/jobs/**", "/rest/api/movie/upload/sessions/**")
+                         .authenticated()
+                         .requestMatchers(HttpMethod.PATCH, "/rest/api/movie/*")
+                         .authenticated()
+
+                         // the public reads are served by publicFilterChain; these stay open but read the token if sent
+                         .requestMatchers("/forgot-password", "/reset-password", "/login", "/token/refresh", "/token/revoke", "/.well-known/jwks.json", "/h2-console/**",
+                                 "/register", "/register/availability","/rest/api/movie/all","/rest/api/movie/image/**","/rest/api/movie/**",
                                  "/swagger-ui/**",
                                  "/swagger-ui.html",
                                  "/api/v1/auth/**",
@@ -84,13 +140,53 @@ public class SecurityConfig {
 
 
     /**
-     * Provides a BCrypt password encoder with strength 12.
+     * Keeps the servlet container from running {@link JwtFilter} on every request, which Spring Boot does for
+     * any filter bean; it belongs to {@link #securityFilterChain} only.
      *
+     * @param jwtFilter the filter
+     * @return a disabled registration
+     */
+    @Bean
+    public FilterRegistrationBean<JwtFilter> jwtFilterRegistration(JwtFilter jwtFilter) {
+        FilterRegistrationBean<JwtFilter> registration = new FilterRegistrationBean<>(jwtFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+
+    /**
+     * Provides a BCrypt password encoder with strength 12, run on {@link #passwordHashingExecutor()}
+     * so logins and registrations cannot take the CPU from other requests.
+     *
+     * @param meterRegistry registry for the hashing metrics
      * @return password encoder instance
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new BulkheadPasswordEncoder(new BCryptPasswordEncoder(12), passwordHashingExecutor(),
+                maxWaitMs, meterRegistry);
+    }
+
+
+    /**
+     * Threads that hash and verify passwords, {@code security.password-hashing.core-share} of the cores
+     * and at least one. The queue is bounded, so a burst of logins is shed instead of piling up.
+     *
+     * @return executor for {@link BulkheadPasswordEncoder}
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashingExecutor() {
+        int threads = Math.max(1, (int) Math.round(Runtime.getRuntime().availableProcessors() * coreShare));
+        AtomicInteger counter = new AtomicInteger();
+
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
     }
 
     /**
@@ -0,0 +1,18 @@
+package com.bestflix.movie.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Whether a username and an email can still be registered. A value is null if it was not asked for.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityResponse {
+
+    private Boolean usernameAvailable;
+
+    private Boolean emailAvailable;
+}
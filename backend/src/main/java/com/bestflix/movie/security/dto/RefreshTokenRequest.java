@@ -0,0 +1,21 @@
+package com.bestflix.movie.security.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Payload for exchanging a refresh token for new tokens or revoking it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenRequest {
+
+    /**
+     * Refresh token returned by login or the previous refresh.
+     */
+    @NotBlank(message = "Refresh token is required")
+    private String refreshToken;
+}
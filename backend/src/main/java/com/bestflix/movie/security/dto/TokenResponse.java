@@ -0,0 +1,29 @@
+package com.bestflix.movie.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tokens returned by login and refresh.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenResponse {
+
+    /**
+     * Short-lived JWT sent as {@code Authorization: Bearer} on API requests.
+     */
+    private String accessToken;
+
+    /**
+     * Single-use token exchanged at {@code /token/refresh} for new tokens.
+     */
+    private String refreshToken;
+
+    /**
+     * Lifetime of the access token, in seconds.
+     */
+    private long expiresIn;
+}
@@ -0,0 +1,62 @@
+package com.bestflix.movie.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Represents a refresh token issued to a user at login or on rotation.
+ * Only a hash of the token is stored. Tokens rotated from the same login share a family, which is
+ * revoked as a whole when a rotated token is presented again.
+ */
+@Entity
+@Table(name = "refresh_token", indexes = {
+        @Index(name = "idx_refresh_token_family", columnList = "familyId"),
+        @Index(name = "idx_refresh_token_expires_at", columnList = "expiresAt")})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshToken {
+
+    /**
+     * Primary key identifier for the token entry.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * SHA-256 hash of the token handed to the client, Base64URL encoded.
+     */
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    /**
+     * Identifier shared by every token rotated from the same login.
+     */
+    @Column(nullable = false, length = 36)
+    private String familyId;
+
+    /**
+     * User the token was issued to.
+     */
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private Users user;
+
+    /**
+     * Time after which the token is no longer accepted.
+     */
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    /**
+     * Time the token was exchanged for a new one; null while it is still unused.
+     */
+    private Instant usedAt;
+}
@@ -0,0 +1,60 @@
+package com.bestflix.movie.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Represents a key pair used to sign access tokens.
+ * The public key is published at the JWKS endpoint; the private key is stored encrypted.
+ */
+@Entity
+@Table(name = "signing_key")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SigningKey {
+
+    /**
+     * Key id, sent as the {@code kid} header of every token signed with this key.
+     */
+    @Id
+    @Column(length = 36)
+    private String kid;
+
+    /**
+     * JWS algorithm of the key, e.g. {@code ES256}.
+     */
+    @Column(nullable = false, length = 16)
+    private String algorithm;
+
+    /**
+     * X.509 encoded public key, Base64 encoded.
+     */
+    @Column(nullable = false, length = 512)
+    private String publicKey;
+
+    /**
+     * PKCS#8 encoded private key, encrypted with AES-GCM and Base64 encoded.
+     */
+    @Column(nullable = false, length = 1024)
+    private String privateKey;
+
+    /**
+     * Time the key was generated and published.
+     */
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Time from which the key signs new tokens. Later than {@code createdAt} for rotated keys, so
+     * verifiers can fetch the key before the first token signed with it arrives.
+     */
+    @Column(nullable = false)
+    private Instant activatesAt;
+}
@@ -1,5 +1,6 @@
 package com.bestflix.movie.security.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -10,12 +11,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+
 /**
  * Entity representing registered users in the system.
  * Includes credentials and contact information with field-level validation constraints.
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_username", columnNames = "username"),
+        @UniqueConstraint(name = "uk_users_email", columnNames = "email")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -48,12 +54,18 @@ public class Users {
     private String password;
 
     /**
-     * Email address associated with the user.
+     * Email address associated with the user, unique like the username.
      * Must be in valid format.
      */
     @NotNull(message = "Email cannot be null")
     @NotBlank(message = "Email cannot be empty")
     @Email(message = "Email should be valid")
     private String email;
-}
 
+    /**
+     * Tokens issued before this time are rejected, e.g. after a password reset.
+     * Null if every unexpired token of the user is valid.
+     */
+    @JsonIgnore
+    private Instant tokensValidAfter;
+}
@@ -0,0 +1,95 @@
+package com.bestflix.movie.security.ratelimit;
+
+import com.bestflix.movie.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Throttles login, registration and password reset requests, so credential stuffing cannot burn password
+ * hashing CPU or the mail quota, and availability checks, so they cannot be used to list the accounts.
+ * <p>
+ * Each request takes a token from the bucket of its client address and from the bucket of the account it
+ * names, with the limits of {@link RateLimitProperties}. Client addresses come from
+ * {@code HttpServletRequest#getRemoteAddr()}, which honours {@code X-Forwarded-For} from trusted proxies
+ * only ({@code server.forward-headers-strategy}).
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.rate-limit.rejected} – refused requests, tagged with {@code endpoint} and
+ *       {@code key} {@code address} or {@code account}</li>
+ * </ul>
+ */
+@Component
+public class AuthRateLimiter {
+
+    private final RateLimitProperties properties;
+    private final RateLimitBackend backend;
+    private final MeterRegistry meterRegistry;
+
+    public AuthRateLimiter(RateLimitProperties properties, RateLimitBackend backend, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.backend = backend;
+        this.meterRegistry = meterRegistry;
+    }
+
+
+    /**
+     * @param address  client address
+     * @param username username to log in as
+     * @throws RateLimitExceededException if either limit is exhausted
+     */
+    public void checkLogin(String address, String username) {
+        check("login", properties.getLogin(), address, username);
+    }
+
+
+    /**
+     * @param address client address
+     * @param email   email of the new account
+     * @throws RateLimitExceededException if either limit is exhausted
+     */
+    public void checkRegister(String address, String email) {
+        check("register", properties.getRegister(), address, email);
+    }
+
+
+    /**
+     * @param address client address
+     * @throws RateLimitExceededException if the limit of the address is exhausted
+     */
+    public void checkAvailability(String address) {
+        check("availability", properties.getAvailability(), address, null);
+    }
+
+
+    /**
+     * @param address client address
+     * @param email   email to send the reset link to
+     * @throws RateLimitExceededException if either limit is exhausted
+     */
+    public void checkForgotPassword(String address, String email) {
+        check("forgot-password", properties.getForgotPassword(), address, email);
+    }
+
+
+    private void check(String endpoint, RateLimitProperties.Endpoint limits, String address, String account) {
+        if (!properties.isEnabled())
+            return;
+
+        consume(endpoint, "address", address, limits.getPerAddress());
+        if (account != null && !account.isBlank())
+            consume(endpoint, "account", account.trim().toLowerCase(Locale.ROOT), limits.getPerAccount());
+    }
+
+
+    private void consume(String endpoint, String keyType, String key, RateLimitProperties.Limit limit) {
+        long waitMs = backend.tryConsume(endpoint + ":" + keyType + ":" + key, limit);
+        if (waitMs > 0) {
+            meterRegistry.counter("security.rate-limit.rejected", "endpoint", endpoint, "key", keyType).increment();
+            throw new RateLimitExceededException((waitMs + 999) / 1000);
+        }
+    }
+}
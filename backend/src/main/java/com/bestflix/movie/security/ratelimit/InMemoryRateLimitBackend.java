@@ -0,0 +1,102 @@
+package com.bestflix.movie.security.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets held in memory of this instance.
+ * <p>
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again, updated with
+ * compare-and-set. Each request moves that time forward by {@code period / capacity}; a request that would
+ * move it more than {@code period} past now finds the bucket empty. This is the generic cell rate
+ * algorithm, which admits exactly what a token bucket of the same capacity and rate admits, without a
+ * lock or an allocation per request.
+ * </p>
+ * <p>
+ * A bucket that is full again carries no state, so it is removed by {@link #evictIdle()}. At most
+ * {@code security.rate-limit.max-keys} buckets are kept; beyond that, idle buckets are dropped first and
+ * then arbitrary ones, a sixteenth at a time, which resets their limits. A request racing with the removal
+ * of its bucket may go uncounted once.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.rate-limit.buckets} – buckets currently held</li>
+ * </ul>
+ */
+public class InMemoryRateLimitBackend implements RateLimitBackend {
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int maxKeys;
+
+    public InMemoryRateLimitBackend(int maxKeys, MeterRegistry meterRegistry) {
+        this.maxKeys = maxKeys;
+
+        Gauge.builder("security.rate-limit.buckets", buckets, Map::size)
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public long tryConsume(String key, RateLimitProperties.Limit limit) {
+        long period = limit.getPeriod().toNanos();
+        long interval = Math.max(period / Math.max(limit.getCapacity(), 1), 1);
+
+        long now = System.nanoTime();
+        AtomicLong fullAt = buckets.get(key);
+        if (fullAt == null) {
+            if (buckets.size() >= maxKeys) {
+                makeRoom(now);
+            }
+            fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > period) {
+                return Math.max(TimeUnit.NANOSECONDS.toMillis(next - now - period), 1);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+
+    /**
+     * Removes buckets that have refilled completely.
+     */
+    @Scheduled(fixedDelayString = "${security.rate-limit.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+    }
+
+
+    /**
+     * @return number of buckets currently held
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+
+    private void makeRoom(long now) {
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+
+        int target = maxKeys - Math.max(maxKeys / 16, 1);
+        Iterator<String> keys = buckets.keySet().iterator();
+        while (buckets.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
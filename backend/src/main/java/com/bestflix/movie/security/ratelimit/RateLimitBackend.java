@@ -0,0 +1,20 @@
+package com.bestflix.movie.security.ratelimit;
+
+/**
+ * Stores the token buckets behind {@link AuthRateLimiter}.
+ * <p>
+ * {@link InMemoryRateLimitBackend} keeps them per instance. A backend shared by every instance, e.g. one
+ * on Redis, can replace it by declaring a {@code @Primary} bean of this type.
+ * </p>
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Takes a token from the bucket of a key, creating a full bucket if it does not exist.
+     *
+     * @param key   bucket key
+     * @param limit size and refill rate of the bucket
+     * @return 0 if a token was taken, otherwise the milliseconds until the bucket has one again
+     */
+    long tryConsume(String key, RateLimitProperties.Limit limit);
+}
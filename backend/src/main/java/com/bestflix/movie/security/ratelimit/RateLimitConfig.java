@@ -0,0 +1,23 @@
+package com.bestflix.movie.security.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    /**
+     * Keeps the buckets in memory. A shared backend replaces it by being declared {@code @Primary}.
+     *
+     * @param properties    rate limit settings
+     * @param meterRegistry registry for the bucket gauge
+     * @return the in-memory backend
+     */
+    @Bean
+    public InMemoryRateLimitBackend inMemoryRateLimitBackend(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        return new InMemoryRateLimitBackend(properties.getMaxKeys(), meterRegistry);
+    }
+}
@@ -0,0 +1,65 @@
+package com.bestflix.movie.security.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits for the unauthenticated endpoints of {@link com.bestflix.movie.security.SecurityController}.
+ * <p>
+ * Every endpoint has a limit per client address and one per account, i.e. the username or email in the
+ * request. A request has to pass both. The availability check names no single account and is limited per
+ * address only.
+ * </p>
+ */
+@Data
+@ConfigurationProperties(prefix = "security.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Enables rate limiting. When disabled, every request is let through.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of buckets the in-memory backend keeps.
+     */
+    private int maxKeys = 100_000;
+
+    private Endpoint login = new Endpoint(new Limit(20, Duration.ofMinutes(1)), new Limit(5, Duration.ofMinutes(1)));
+
+    private Endpoint register = new Endpoint(new Limit(5, Duration.ofHours(1)), new Limit(3, Duration.ofHours(1)));
+
+    private Endpoint forgotPassword = new Endpoint(new Limit(5, Duration.ofHours(1)), new Limit(3, Duration.ofHours(1)));
+
+    private Endpoint availability = new Endpoint(new Limit(60, Duration.ofMinutes(1)), null);
+
+    /**
+     * Limits of a single endpoint.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Endpoint {
+
+        private Limit perAddress;
+
+        private Limit perAccount;
+    }
+
+    /**
+     * A token bucket holding up to {@code capacity} requests, refilled at {@code capacity} per {@code period}.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Limit {
+
+        private int capacity;
+
+        private Duration period;
+    }
+}
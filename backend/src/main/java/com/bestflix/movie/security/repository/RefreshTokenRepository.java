@@ -0,0 +1,69 @@
+package com.bestflix.movie.security.repository;
+
+import com.bestflix.movie.security.entity.RefreshToken;
+import com.bestflix.movie.security.entity.Users;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository interface for managing {@link RefreshToken} entities.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Retrieves a refresh token together with its user.
+     *
+     * @param tokenHash hash of the token presented by the client
+     * @return an {@link Optional} containing the token entity if found
+     */
+    @Query("select r from RefreshToken r join fetch r.user where r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Marks a token as used unless another request already did.
+     *
+     * @param id  token id
+     * @param now time of use
+     * @return 1 if this call marked the token, 0 if it was already used
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update RefreshToken r set r.usedAt = :now where r.id = :id and r.usedAt is null")
+    int markUsed(@Param("id") Long id, @Param("now") Instant now);
+
+    /**
+     * Deletes every token rotated from the same login.
+     *
+     * @param familyId the family identifier
+     * @return number of deleted tokens
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from RefreshToken r where r.familyId = :familyId")
+    int deleteFamily(@Param("familyId") String familyId);
+
+    /**
+     * Deletes every refresh token of a user.
+     *
+     * @param user the user
+     * @return number of deleted tokens
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from RefreshToken r where r.user = :user")
+    int deleteByUser(@Param("user") Users user);
+
+    /**
+     * Deletes tokens that expired before the given time.
+     *
+     * @param now current time
+     * @return number of deleted tokens
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from RefreshToken r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,21 @@
+package com.bestflix.movie.security.repository;
+
+import com.bestflix.movie.security.entity.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for managing {@link SigningKey} entities.
+ */
+@Repository
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+
+    /**
+     * Retrieves every stored signing key, oldest first.
+     *
+     * @return the signing keys
+     */
+    List<SigningKey> findAllByOrderByCreatedAtAsc();
+}
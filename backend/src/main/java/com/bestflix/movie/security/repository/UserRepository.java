@@ -1,14 +1,19 @@
 package com.bestflix.movie.security.repository;
 
 import com.bestflix.movie.security.entity.Users;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository interface for accessing {@link Users} entities.
- * Supports username-based lookup and email-based retrieval.
+ * Supports username-based lookup, email-based retrieval and uniqueness checks.
  */
 @Repository
 public interface UserRepository extends JpaRepository<Users, Long> {
@@ -28,4 +33,35 @@ public interface UserRepository extends JpaRepository<Users, Long> {
      * @return an {@link Optional} containing the user if matched
      */
     Optional<Users> findByEmail(String email);
+
+    /**
+     * @param username a username
+     * @return whether an account uses it; answered from the unique index
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * @param email an email address
+     * @return whether an account uses it; answered from the unique index
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * Returns a page of usernames and emails in id order, for keyset pagination over all users.
+     *
+     * @param afterId  highest id of the previous page, 0 for the first page
+     * @param pageable page size
+     * @return triples of id, username and email
+     */
+    @Query("select u.id, u.username, u.email from Users u where u.id > :afterId order by u.id")
+    List<Object[]> findIdentifiersAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Returns the users whose tokens were revoked after the given time.
+     *
+     * @param since lower bound of {@code tokensValidAfter}
+     * @return pairs of user id and {@code tokensValidAfter}
+     */
+    @Query("select u.id, u.tokensValidAfter from Users u where u.tokensValidAfter > :since")
+    List<Object[]> findTokensValidAfterSince(@Param("since") Instant since);
 }
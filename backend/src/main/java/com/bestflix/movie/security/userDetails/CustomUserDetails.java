@@ -25,6 +25,13 @@ public class CustomUserDetails implements UserDetails {
         this.user = user;
     }
 
+    /**
+     * @return the wrapped user entity
+     */
+    public Users getUser() {
+        return user;
+    }
+
     /**
      * @return username used for login
      */
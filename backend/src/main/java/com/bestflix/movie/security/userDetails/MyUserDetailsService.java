@@ -2,22 +2,84 @@ package com.bestflix.movie.security.userDetails;
 
 import com.bestflix.movie.security.entity.Users;
 import com.bestflix.movie.security.repository.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Custom implementation of Spring Security's {@link UserDetailsService}.
  * Responsible for loading user details from the database during authentication.
+ * <p>
+ * Loaded users are cached by username for {@code security.user-details-cache.ttl-ms}, and unknown
+ * usernames for the shorter {@code security.user-details-cache.negative-ttl-ms}, so repeated lookups
+ * of a username that does not exist do not reach the database either. At most
+ * {@code security.user-details-cache.max-entries} usernames are kept; when the cache is full, expired
+ * entries are dropped first and then arbitrary ones, a sixteenth of the cache at a time.
+ * </p>
+ * <p>
+ * {@link com.bestflix.movie.security.userService.UserService} evicts a username whenever it registers
+ * the user or changes their password. Changes made on other instances become visible once the entry
+ * expires, so the TTL bounds how long an old password keeps working there.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.user-details-cache.requests} – lookups, tagged with {@code result}
+ *       {@code hit}, {@code negative-hit} or {@code miss}</li>
+ *   <li>{@code security.user-details-cache.size} – usernames currently cached</li>
+ * </ul>
  */
 @Service
 public class MyUserDetailsService implements UserDetailsService {
 
-    @Autowired
-    private UserRepository userRepository;
+    private final UserRepository userRepository;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter negativeHitCounter;
+    private final Counter missCounter;
+
+    @Value("${security.user-details-cache.ttl-ms:60000}")
+    private long ttlMs = 60_000;
+
+    @Value("${security.user-details-cache.negative-ttl-ms:5000}")
+    private long negativeTtlMs = 5_000;
+
+    @Value("${security.user-details-cache.max-entries:10000}")
+    private int maxEntries = 10_000;
+
+    public MyUserDetailsService(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+
+        this.hitCounter = meterRegistry.counter("security.user-details-cache.requests", "result", "hit");
+        this.negativeHitCounter = meterRegistry.counter("security.user-details-cache.requests", "result", "negative-hit");
+        this.missCounter = meterRegistry.counter("security.user-details-cache.requests", "result", "miss");
+        Gauge.builder("security.user-details-cache.size", cache, Map::size)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Cached lookup result; {@code userDetails} is {@code null} for a username that does not exist.
+     */
+    private record Entry(CustomUserDetails userDetails, long expiresAt) {
+    }
+
 
     /**
      * Fetches user details from the database using the provided username.
@@ -29,13 +91,89 @@ public class MyUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
+        long now = System.currentTimeMillis();
+        Entry cached = cache.get(username);
+        if (cached != null && cached.expiresAt() > now) {
+            if (cached.userDetails() == null) {
+                negativeHitCounter.increment();
+                throw new UsernameNotFoundException("User not Found");
+            }
+            hitCounter.increment();
+            return cached.userDetails();
+        }
+
+        missCounter.increment();
+        long epoch = evictions.get();
         Users user = userRepository.findByUsername(username);
 
         if(user == null){
-            System.out.println("User Not Found: " + username);
+            put(username, new Entry(null, now + negativeTtlMs), epoch);
             throw new UsernameNotFoundException("User not Found");
         }
 
-        return new CustomUserDetails(user);
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        put(username, new Entry(userDetails, now + ttlMs), epoch);
+        return userDetails;
+    }
+
+
+    /**
+     * Drops the cached lookup of a username, found or not. Must be called when a user is created or
+     * their credentials change. Inside a transaction the username is evicted again after commit, so a
+     * lookup that read the old row in the meantime is not kept.
+     *
+     * @param username the username to forget
+     */
+    public void evict(String username) {
+        if (username == null) {
+            return;
+        }
+        remove(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(username);
+                }
+            });
+        }
+    }
+
+
+    private void remove(String username) {
+        evictions.incrementAndGet();
+        cache.remove(username);
+    }
+
+
+    /**
+     * Caches a lookup unless an eviction happened since it started reading, in which case it may be stale.
+     */
+    private void put(String username, Entry entry, long epoch) {
+        if (maxEntries <= 0 || username == null) {
+            return;
+        }
+        if (cache.size() >= maxEntries) {
+            makeRoom();
+        }
+
+        cache.put(username, entry);
+        if (evictions.get() != epoch) {
+            cache.remove(username, entry);
+        }
+    }
+
+
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> cached.expiresAt() <= now);
+
+        int target = maxEntries - Math.max(maxEntries / 16, 1);
+        Iterator<String> keys = cache.keySet().iterator();
+        while (cache.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
     }
 }
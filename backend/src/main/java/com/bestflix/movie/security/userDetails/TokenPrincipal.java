@@ -0,0 +1,17 @@
+package com.bestflix.movie.security.userDetails;
+
+import java.security.Principal;
+
+/**
+ * Principal of a request authenticated by a JWT, built from the token's claims without loading the user.
+ *
+ * @param id       id of the user
+ * @param username username of the user
+ */
+public record TokenPrincipal(Long id, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
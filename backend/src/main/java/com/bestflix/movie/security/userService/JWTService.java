@@ -2,146 +2,178 @@ package com.bestflix.movie.security.userService;
 
 import com.bestflix.movie.exception.InvalidTokenException;
 import com.bestflix.movie.exception.TokenExpiredException;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.RequiredTypeException;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.io.Encoders;
-import io.jsonwebtoken.security.Keys;
-import jakarta.annotation.PostConstruct;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cglib.core.internal.Function;
-import org.springframework.security.core.userdetails.UserDetails;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
-import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Service class responsible for generating, validating, and parsing JWT tokens.
  * Encapsulates all cryptographic and claim-handling operations.
+ * <p>
+ * Tokens are signed with ES256 by the current key of {@link SigningKeyService} and name it in their
+ * {@code kid} header. Verification looks the key up by that id, so tokens signed before a rotation stay
+ * valid, and other services can verify tokens with the public keys from {@code /.well-known/jwks.json}
+ * without knowing any secret.
+ * </p>
+ * <p>
+ * The parser is built once, when the service is created, and shared by all requests. A token is verified
+ * and parsed exactly once by {@link #verify(String)}, which returns its claims as an immutable
+ * {@link VerifiedToken}.
+ * </p>
+ * <p>
+ * Tokens carry the user id ({@code uid}) and roles ({@code roles}) next to the username, so a request
+ * can be authenticated from the token alone.
+ * </p>
  */
 @Service
 public class JWTService {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
-
     /**
-     * Generates a JWT token for the specified username with 1-hour expiration.
-     *
-     * @param userName the subject (usually the username) to embed in the token
-     * @return a signed JWT token string
+     * Lifetime of issued tokens. Kept short; clients renew them with a refresh token instead of logging in again.
      */
-    public String generateToken(String userName) {
-
-        Map<String, Object> claims = new HashMap<>();
-
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(userName)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60)) // 1 hour
-                .signWith(getKey(), SignatureAlgorithm.HS256)
-                .compact();
-
+    public static final Duration TOKEN_VALIDITY = Duration.ofMinutes(15);
+
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLES_CLAIM = "roles";
+
+    private final SigningKeyService signingKeyService;
+    private final JwtParser parser;
+
+    public JWTService(SigningKeyService signingKeyService) {
+        this.signingKeyService = signingKeyService;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header);
+                    }
+                })
+                .build();
     }
 
-    /**
-     * Retrieves the signing key from the configured secret.
-     *
-     * @return a SecretKey for signing/verifying JWTs
-     */
-    private SecretKey getKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-    }
 
     /**
-     * Extracts the username embedded within the token.
+     * Claims of a token whose signature and expiration were checked.
      *
-     * @param token the JWT token to parse
-     * @return the subject/username
+     * @param subject   the subject (usually the username)
+     * @param userId    id of the user
+     * @param roles     roles granted to the user
+     * @param issuedAt  time the token was issued, or {@code null} if absent
+     * @param expiresAt time the token expires, or {@code null} if absent
      */
-    public String extractUserName(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public record VerifiedToken(String subject, Long userId, List<String> roles, Instant issuedAt, Instant expiresAt) {
+
+        public VerifiedToken {
+            roles = roles == null ? List.of() : List.copyOf(roles);
+        }
     }
 
 
     /**
-     * Generic claim extraction logic.
+     * Generates a JWT token for the specified user that expires after {@link #TOKEN_VALIDITY}.
      *
-     * @param token         the JWT token to parse
-     * @param claimResolver function to resolve a specific claim
-     * @return the resolved claim value
+     * @param userDetails the user; its username becomes the subject, its id and authorities become claims
+     * @return a signed JWT token string
      */
-    private <T> T extractClaim(String token, Function<Claims,T> claimResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimResolver.apply(claims);
+    public String generateToken(CustomUserDetails userDetails) {
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userDetails.getUser().getId());
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+
+        SigningKeyService.ActiveKey key = signingKeyService.signingKey();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                .setClaims(claims)
+                .setSubject(userDetails.getUsername())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + TOKEN_VALIDITY.toMillis()))
+                .signWith(key.privateKey(), SignatureAlgorithm.ES256)
+                .compact();
+
     }
 
     /**
-     * Parses token to retrieve all claims.
+     * Verifies the signature and expiration of a token and parses its claims, in a single pass.
      *
      * @param token the JWT token
-     * @return JWT Claims payload
-     * @throws InvalidTokenException if parsing fails
+     * @return the verified claims
+     * @throws TokenExpiredException if the token is expired
+     * @throws InvalidTokenException if the token is malformed, is not signed with ES256 by a published key,
+     *                               or has no subject or no user id
      */
-    private Claims extractAllClaims(String token) {
+    public VerifiedToken verify(String token) {
 
+        Claims claims;
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (Exception e){
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            throw new TokenExpiredException(token);
+        } catch (Exception e) {
             throw new InvalidTokenException(token);
         }
 
+        List<?> roles;
+        Long userId;
+        try {
+            roles = claims.get(ROLES_CLAIM, List.class);
+            userId = claims.get(USER_ID_CLAIM, Long.class);
+        } catch (RequiredTypeException e) {
+            throw new InvalidTokenException(token);
+        }
+
+        if (claims.getSubject() == null || userId == null) {
+            throw new InvalidTokenException(token);
+        }
 
+        return new VerifiedToken(claims.getSubject(), userId,
+                roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+                toInstant(claims.getIssuedAt()), toInstant(claims.getExpiration()));
     }
 
     /**
-     * Validates token integrity and subject match against provided user details.
+     * Extracts the username embedded within the token.
      *
-     * @param token        the JWT token
-     * @param userDetails  user details from security context
-     * @return true if token is valid
+     * @param token the JWT token to parse
+     * @return the subject/username
      * @throws InvalidTokenException or TokenExpiredException as needed
      */
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        if (!userName.equals(userDetails.getUsername())) {
-            throw new InvalidTokenException("Username in token doesn't match");
-        }
-        if (isTokenExpired(token)) {
-            throw new TokenExpiredException(token);
-        }
-        return true;
+    public String extractUserName(String token) {
+        return verify(token).subject();
     }
 
     /**
-     * Checks if token is expired.
-     *
-     * @param token the JWT token
-     * @return true if expired
+     * Accepts only ES256 with a published key, so a token cannot pick a weaker algorithm for itself.
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Key resolveKey(JwsHeader<?> header) {
+        if (!SignatureAlgorithm.ES256.getValue().equals(header.getAlgorithm()))
+            throw new UnsupportedJwtException("Unexpected algorithm " + header.getAlgorithm());
+
+        PublicKey key = signingKeyService.verificationKey(header.getKeyId());
+        if (key == null)
+            throw new UnsupportedJwtException("Unknown key id " + header.getKeyId());
+        return key;
     }
 
-    /**
-     * Extracts expiration timestamp from token.
-     *
-     * @param token the JWT token
-     * @return Date representing expiration time
-     */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static Instant toInstant(Date date) {
+        return date == null ? null : date.toInstant();
     }
 }
-
@@ -0,0 +1,186 @@
+package com.bestflix.movie.security.userService;
+
+import com.bestflix.movie.exception.InvalidTokenException;
+import com.bestflix.movie.exception.TokenExpiredException;
+import com.bestflix.movie.security.entity.RefreshToken;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens, so clients renew their access token without sending the password again.
+ * <p>
+ * A refresh token is 256 random bits; only its SHA-256 hash is stored, which is enough for a secret of that
+ * size and keeps the lookup as cheap as any indexed query. Each token can be exchanged once: rotation marks
+ * it used and issues a successor in the same family. Presenting a used token means it was copied, so the
+ * whole family is deleted and both holders have to log in again. Access tokens already issued to the
+ * family stay valid until they expire, at most {@link JWTService#TOKEN_VALIDITY}.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.refresh-tokens.rotations} – refresh attempts, tagged with {@code result}
+ *       {@code rotated}, {@code reused}, {@code expired} or {@code unknown}</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final Counter rotatedCounter;
+    private final Counter reusedCounter;
+    private final Counter expiredCounter;
+    private final Counter unknownCounter;
+
+    @Value("${jwt.refresh.validity-ms:1209600000}")
+    private long validityMs = 1_209_600_000L;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+
+        this.rotatedCounter = meterRegistry.counter("security.refresh-tokens.rotations", "result", "rotated");
+        this.reusedCounter = meterRegistry.counter("security.refresh-tokens.rotations", "result", "reused");
+        this.expiredCounter = meterRegistry.counter("security.refresh-tokens.rotations", "result", "expired");
+        this.unknownCounter = meterRegistry.counter("security.refresh-tokens.rotations", "result", "unknown");
+    }
+
+
+    /**
+     * A rotated refresh token and the user it belongs to.
+     *
+     * @param user         owner of the token
+     * @param refreshToken the new refresh token to hand to the client
+     */
+    public record Rotation(Users user, String refreshToken) {
+    }
+
+
+    /**
+     * Issues the first refresh token of a new family, e.g. at login.
+     *
+     * @param user the authenticated user
+     * @return the refresh token to hand to the client
+     */
+    @Transactional
+    public String issue(Users user) {
+        return save(user, UUID.randomUUID().toString());
+    }
+
+
+    /**
+     * Exchanges a refresh token for its successor.
+     * <p>
+     * The family deletion on reuse is committed even though the call fails.
+     * </p>
+     *
+     * @param token the refresh token presented by the client
+     * @return the user and the new refresh token
+     * @throws InvalidTokenException if the token is unknown or was already used
+     * @throws TokenExpiredException if the token expired
+     */
+    @Transactional(dontRollbackOn = InvalidTokenException.class)
+    public Rotation rotate(String token) {
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(hash(token)).orElse(null);
+        if (stored == null) {
+            unknownCounter.increment();
+            throw new InvalidTokenException("Unknown refresh token");
+        }
+
+        Instant now = Instant.now();
+        if (!stored.getExpiresAt().isAfter(now)) {
+            expiredCounter.increment();
+            throw new TokenExpiredException("Refresh token has expired");
+        }
+
+        // conditional update, so two requests racing with the same token cannot both rotate it
+        if (stored.getUsedAt() != null || refreshTokenRepository.markUsed(stored.getId(), now) == 0) {
+            reusedCounter.increment();
+            refreshTokenRepository.deleteFamily(stored.getFamilyId());
+            log.warn("Refresh token reused for user {}; revoked its token family", stored.getUser().getId());
+            throw new InvalidTokenException("Refresh token was already used");
+        }
+
+        rotatedCounter.increment();
+        return new Rotation(stored.getUser(), save(stored.getUser(), stored.getFamilyId()));
+    }
+
+
+    /**
+     * Deletes the family of a refresh token, e.g. at logout; the other logins of the user keep theirs.
+     * An unknown token is ignored, so logging out twice is harmless.
+     *
+     * @param token the refresh token presented by the client
+     */
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(stored -> refreshTokenRepository.deleteFamily(stored.getFamilyId()));
+    }
+
+
+    /**
+     * Deletes every refresh token of a user, e.g. after a password reset.
+     *
+     * @param user the user
+     */
+    @Transactional
+    public void revokeAll(Users user) {
+        refreshTokenRepository.deleteByUser(user);
+    }
+
+
+    /**
+     * Removes expired tokens. Used tokens are kept until then, so their reuse is still detected.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0)
+            log.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+
+    private String save(Users user, String familyId) {
+        byte[] secret = new byte[32];
+        RANDOM.nextBytes(secret);
+        String token = ENCODER.encodeToString(secret);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .familyId(familyId)
+                .user(user)
+                .expiresAt(Instant.now().plusMillis(validityMs))
+                .build());
+        return token;
+    }
+
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ENCODER.encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
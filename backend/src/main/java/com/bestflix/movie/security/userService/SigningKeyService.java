@@ -0,0 +1,308 @@
+package com.bestflix.movie.security.userService;
+
+import com.bestflix.movie.security.entity.SigningKey;
+import com.bestflix.movie.security.repository.SigningKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Holds the ES256 key pairs that sign and verify access tokens, and rotates them.
+ * <p>
+ * Keys are stored in the database, so every instance signs with the same key and accepts the tokens of
+ * the others. Each instance keeps an immutable snapshot of the keys in memory and reloads it every
+ * {@code jwt.signing.refresh-interval-ms}. Only the signing key is decrypted; the rest is public.
+ * </p>
+ * <p>
+ * Once the newest key is older than {@code jwt.signing.rotation-interval-ms}, a new one is generated.
+ * It is published at once but signs only after {@code jwt.signing.publish-delay-ms}, which must cover the
+ * refresh interval and the JWKS cache lifetime, so every verifier knows it before the first token signed
+ * with it arrives. A replaced key keeps verifying until the tokens it signed have expired, then it is
+ * deleted. Instances that rotate at the same moment each add a key, which is harmless: both are published
+ * and the newest one signs.
+ * </p>
+ * <p>
+ * Private keys are encrypted with AES-GCM under a key derived from {@code jwt.secret}.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.signing-keys.rotations} – keys generated by this instance</li>
+ *   <li>{@code security.signing-keys.published} – keys currently accepted for verification</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class SigningKeyService {
+
+    static final String ALGORITHM = "ES256";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final SecretKey keyEncryptionKey;
+    private final Counter rotationCounter;
+
+    private volatile KeySet keySet;
+
+    @Value("${jwt.signing.rotation-interval-ms:604800000}")
+    private long rotationIntervalMs = 604_800_000L;
+
+    @Value("${jwt.signing.publish-delay-ms:600000}")
+    private long publishDelayMs = 600_000L;
+
+    @Value("${jwt.signing.refresh-interval-ms:60000}")
+    private long refreshIntervalMs = 60_000L;
+
+    public SigningKeyService(SigningKeyRepository signingKeyRepository, @Value("${jwt.secret}") String secret,
+                             MeterRegistry meterRegistry) {
+        this.signingKeyRepository = signingKeyRepository;
+        this.keyEncryptionKey = deriveKey(secret);
+
+        this.rotationCounter = meterRegistry.counter("security.signing-keys.rotations");
+        Gauge.builder("security.signing-keys.published", this,
+                        service -> service.keySet == null ? 0 : service.keySet.verificationKeys().size())
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Private key that signs new tokens.
+     *
+     * @param kid        key id to put in the token header
+     * @param privateKey the private key
+     */
+    public record ActiveKey(String kid, PrivateKey privateKey) {
+    }
+
+
+    /**
+     * Immutable view of the keys, swapped as a whole on reload.
+     */
+    private record KeySet(ActiveKey signingKey, Map<String, PublicKey> verificationKeys, Map<String, Object> jwks) {
+    }
+
+
+    /**
+     * @return the key that signs new tokens
+     */
+    public ActiveKey signingKey() {
+        return keySet().signingKey();
+    }
+
+
+    /**
+     * @param kid key id from a token header
+     * @return the public key with that id, or {@code null} if it is unknown or no longer accepted
+     */
+    public PublicKey verificationKey(String kid) {
+        return kid == null ? null : keySet().verificationKeys().get(kid);
+    }
+
+
+    /**
+     * @return the JSON Web Key Set of every key accepted for verification, built once per reload
+     */
+    public Map<String, Object> jwks() {
+        return keySet().jwks();
+    }
+
+
+    /**
+     * Rotates the signing key when due, deletes keys no longer needed and reloads the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${jwt.signing.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        Instant now = Instant.now();
+        List<SigningKey> keys = new ArrayList<>(signingKeyRepository.findAllByOrderByCreatedAtAsc());
+
+        if (keys.isEmpty()) {
+            keys.add(generate(now, now));
+        } else if (!keys.get(keys.size() - 1).getCreatedAt().plusMillis(rotationIntervalMs).isAfter(now)) {
+            keys.add(generate(now, now.plusMillis(publishDelayMs)));
+        }
+
+        SigningKey signing = null;
+        for (SigningKey key : keys) {
+            if (!key.getActivatesAt().isAfter(now))
+                signing = key;
+        }
+        if (signing == null)
+            signing = keys.get(0);
+
+        List<SigningKey> published = new ArrayList<>();
+        List<SigningKey> retired = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            SigningKey key = keys.get(i);
+            if (i + 1 < keys.size() && key != signing && !retiredAt(keys.get(i + 1)).isAfter(now)) {
+                retired.add(key);
+            } else {
+                published.add(key);
+            }
+        }
+        if (!retired.isEmpty()) {
+            signingKeyRepository.deleteAll(retired);
+            log.info("Deleted {} retired signing keys", retired.size());
+        }
+
+        keySet = toKeySet(signing, published);
+    }
+
+
+    private KeySet keySet() {
+        KeySet current = keySet;
+        return current != null ? current : load();
+    }
+
+
+    private synchronized KeySet load() {
+        if (keySet == null)
+            refresh();
+        return keySet;
+    }
+
+
+    /**
+     * Time after which tokens signed by the predecessor of a key have expired on every instance.
+     */
+    private Instant retiredAt(SigningKey successor) {
+        return successor.getActivatesAt().plus(JWTService.TOKEN_VALIDITY).plusMillis(refreshIntervalMs);
+    }
+
+
+    private SigningKey generate(Instant now, Instant activatesAt) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"), RANDOM);
+            KeyPair pair = generator.generateKeyPair();
+
+            SigningKey key = SigningKey.builder()
+                    .kid(UUID.randomUUID().toString())
+                    .algorithm(ALGORITHM)
+                    .publicKey(Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()))
+                    .privateKey(encrypt(pair.getPrivate().getEncoded()))
+                    .createdAt(now)
+                    .activatesAt(activatesAt)
+                    .build();
+
+            rotationCounter.increment();
+            log.info("Generated signing key {}, signing from {}", key.getKid(), activatesAt);
+            return signingKeyRepository.save(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not generate signing key", e);
+        }
+    }
+
+
+    private KeySet toKeySet(SigningKey signing, List<SigningKey> published) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("EC");
+
+            Map<String, PublicKey> verificationKeys = new HashMap<>();
+            List<Map<String, Object>> jwks = new ArrayList<>();
+            for (SigningKey key : published) {
+                PublicKey publicKey = keyFactory.generatePublic(
+                        new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey())));
+                verificationKeys.put(key.getKid(), publicKey);
+                jwks.add(toJwk(key.getKid(), (ECPublicKey) publicKey));
+            }
+
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decrypt(signing.getPrivateKey())));
+            return new KeySet(new ActiveKey(signing.getKid(), privateKey), Map.copyOf(verificationKeys),
+                    Map.of("keys", List.copyOf(jwks)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not load signing keys; was jwt.secret changed?", e);
+        }
+    }
+
+
+    private static Map<String, Object> toJwk(String kid, ECPublicKey publicKey) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("x", URL_ENCODER.encodeToString(unsigned(publicKey.getW().getAffineX())));
+        jwk.put("y", URL_ENCODER.encodeToString(unsigned(publicKey.getW().getAffineY())));
+        jwk.put("use", "sig");
+        jwk.put("alg", ALGORITHM);
+        jwk.put("kid", kid);
+        return Map.copyOf(jwk);
+    }
+
+
+    /**
+     * @return the coordinate as a 32 byte big-endian number, as RFC 7518 requires for P-256
+     */
+    private static byte[] unsigned(BigInteger coordinate) {
+        byte[] bytes = coordinate.toByteArray();
+        byte[] padded = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+        return padded;
+    }
+
+
+    private String encrypt(byte[] plain) throws GeneralSecurityException {
+        byte[] iv = new byte[12];
+        RANDOM.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(128, iv));
+        byte[] encrypted = cipher.doFinal(plain);
+
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + encrypted.length)
+                .put(iv).put(encrypted).array());
+    }
+
+
+    private byte[] decrypt(String stored) throws GeneralSecurityException {
+        byte[] bytes = Base64.getDecoder().decode(stored);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(128, bytes, 0, 12));
+        return cipher.doFinal(Arrays.copyOfRange(bytes, 12, bytes.length));
+    }
+
+
+    private static SecretKey deriveKey(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(digest, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bestflix.movie.security.userService;
+
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejects tokens that were issued before their user's {@link Users#getTokensValidAfter() tokensValidAfter}.
+ * <p>
+ * Requests are authenticated from the token alone, so the timestamps are kept in memory. Only users that
+ * revoked their tokens within the last {@link JWTService#TOKEN_VALIDITY} matter; older revocations can
+ * only affect tokens that already expired. That small set is reloaded from the database every
+ * {@code jwt.revocation.refresh-interval-ms}, which is how revocations made on other instances arrive.
+ * Revocations made on this instance apply at once.
+ * </p>
+ * <p>
+ * {@code iat} has a resolution of one second, so the revocation time is truncated to the second: a token
+ * issued within the same second as the revocation is still accepted.
+ * </p>
+ */
+@Service
+public class TokenRevocationService {
+
+    private final UserRepository userRepository;
+
+    private final Map<Long, Instant> validAfter = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    public TokenRevocationService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+
+    /**
+     * Makes every token issued so far to the user invalid. The caller saves the user.
+     *
+     * @param user the user whose tokens are revoked
+     */
+    public void revokeTokens(Users user) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        user.setTokensValidAfter(now);
+        if (user.getId() != null) {
+            validAfter.merge(user.getId(), now, (a, b) -> a.isAfter(b) ? a : b);
+        }
+    }
+
+
+    /**
+     * @param token a verified token
+     * @return true if the token was issued before its user revoked their tokens
+     */
+    public boolean isRevoked(JWTService.VerifiedToken token) {
+        if (!loaded) {
+            refresh();
+        }
+
+        Instant revokedAt = validAfter.get(token.userId());
+        return revokedAt != null && (token.issuedAt() == null || token.issuedAt().isBefore(revokedAt));
+    }
+
+
+    /**
+     * Reloads recent revocations from the database and forgets those that can no longer matter.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        Instant since = Instant.now().minus(JWTService.TOKEN_VALIDITY);
+
+        for (Object[] row : userRepository.findTokensValidAfterSince(since)) {
+            validAfter.merge((Long) row[0], (Instant) row[1], (a, b) -> a.isAfter(b) ? a : b);
+        }
+        validAfter.values().removeIf(revokedAt -> revokedAt.isBefore(since));
+        loaded = true;
+    }
+}
@@ -3,14 +3,19 @@ package com.bestflix.movie.security.userService;
 import com.bestflix.movie.exception.InvalidCredentialsException;
 import com.bestflix.movie.exception.InvalidTokenException;
 import com.bestflix.movie.exception.TokenExpiredException;
+import com.bestflix.movie.exception.UserAlreadyExistsException;
 import com.bestflix.movie.exception.UserNotFoundException;
 import com.bestflix.movie.security.entity.PasswordResetToken;
 import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.dto.TokenResponse;
 import com.bestflix.movie.security.dto.UsersRequest;
 import com.bestflix.movie.security.repository.PasswordResetTokenRepository;
 import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
+import com.bestflix.movie.security.userDetails.MyUserDetailsService;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -38,34 +43,57 @@ public class UserService {
     private JWTService jwtService;
     private PasswordEncoder passwordEncoder;
     private EmailService emailService;
+    private TokenRevocationService tokenRevocationService;
+    private MyUserDetailsService myUserDetailsService;
+    private RefreshTokenService refreshTokenService;
+    private UsernameAvailabilityService usernameAvailabilityService;
 
 
     /**
      * Registers a new user by encoding their password and persisting to database.
+     * A taken username or email is rejected before the password is hashed; two registrations racing for the
+     * same name are told apart by the unique constraints when the user is flushed.
+     * Forgets a cached "not found" lookup of the username so the user can log in right away.
      *
      * @param user a {@link Users} entity with plain-text password
      * @return the saved {@link Users} entity
+     * @throws UserAlreadyExistsException if the username or email is already registered
      */
     public Users register(Users user) {
+        if (!usernameAvailabilityService.isUsernameAvailable(user.getUsername()))
+            throw new UserAlreadyExistsException("Username: " + user.getUsername());
+        if (!usernameAvailabilityService.isEmailAvailable(user.getEmail()))
+            throw new UserAlreadyExistsException("Email: " + user.getEmail());
+
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        Users saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new UserAlreadyExistsException("Username: " + user.getUsername() + " or email: " + user.getEmail());
+        }
+
+        usernameAvailabilityService.add(saved);
+        myUserDetailsService.evict(saved.getUsername());
+        return saved;
     }
 
 
     /**
-     * Authenticates a user and issues a JWT token upon success.
+     * Authenticates a user and issues an access token and a refresh token upon success.
      *
      * @param user the login credentials
-     * @return JWT token if authentication succeeds
+     * @return the tokens if authentication succeeds
      * @throws InvalidCredentialsException on failed authentication
      */
-    public String verify(UsersRequest user) {
+    public TokenResponse verify(UsersRequest user) {
         try {
             Authentication authentication =
                     authManager.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword()));
 
             if (authentication.isAuthenticated()) {
-                return jwtService.generateToken(user.getUsername());
+                Users authenticated = ((CustomUserDetails) authentication.getPrincipal()).getUser();
+                return tokens(authenticated, refreshTokenService.issue(authenticated));
             } else {
                 throw new InvalidCredentialsException(user.getUsername());
             }
@@ -77,6 +105,39 @@ public class UserService {
     }
 
 
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token, without checking the password.
+     * A refresh token that was already used revokes every token rotated from the same login.
+     *
+     * @param refreshToken the refresh token from login or the previous refresh
+     * @return the new tokens
+     * @throws InvalidTokenException if the refresh token is unknown or was already used
+     * @throws TokenExpiredException if the refresh token expired
+     */
+    @Transactional(dontRollbackOn = InvalidTokenException.class)
+    public TokenResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        return tokens(rotation.user(), rotation.refreshToken());
+    }
+
+
+    /**
+     * Logs out the session a refresh token belongs to by revoking every token rotated from the same login.
+     * Access tokens already issued stay valid until they expire.
+     *
+     * @param refreshToken the current refresh token of the session
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+    }
+
+
+    private TokenResponse tokens(Users user, String refreshToken) {
+        return new TokenResponse(jwtService.generateToken(new CustomUserDetails(user)), refreshToken,
+                JWTService.TOKEN_VALIDITY.toSeconds());
+    }
+
+
     /**
      * Generates and stores a password reset token for the given user email.
      * Sends token via email with reset link.
@@ -108,7 +169,8 @@ public class UserService {
 
     /**
      * Resets the user's password using a valid token.
-     * Deletes used token after successful operation.
+     * Deletes used token after successful operation, revokes every JWT and refresh token issued to the user
+     * so far and evicts the user's cached details so the old password stops working.
      *
      * @param token       the password reset token
      * @param newPassword the new password to set
@@ -130,7 +192,10 @@ public class UserService {
 
         Users user = resetToken.getUser();
         user.setPassword(passwordEncoder.encode(newPassword));
+        tokenRevocationService.revokeTokens(user);
+        refreshTokenService.revokeAll(user);
         userRepository.save(user);
+        myUserDetailsService.evict(user.getUsername());
 
         resetTokenRepository.delete(resetToken);
         return true;
@@ -0,0 +1,227 @@
+package com.bestflix.movie.security.userService;
+
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tells whether a username or email is still free, mostly without querying the database.
+ * <p>
+ * Every username and email in use is added to a bloom filter. A name the filter has never seen is free for
+ * certain; only a possible hit is checked with an indexed query. Names are added exactly as stored, because the
+ * lookups and the unique constraints on {@link Users} compare them case-sensitively; a name that differs only in
+ * case is a different name to the filter as well.
+ * </p>
+ * <p>
+ * The filter is filled page by page in id order and then catches up every
+ * {@code security.username-availability.refresh-interval-ms} with the users created since, which is how
+ * registrations on other instances arrive; registrations on this instance are added at once. Until the first
+ * load completes every check goes to the database. Deleted users stay in the filter and only cost a query.
+ * A user committed with a lower id after the catch-up passed it is missed, so the answer is advisory:
+ * uniqueness is enforced by the unique constraints on {@link Users}.
+ * </p>
+ * <p>
+ * Sized for {@code security.username-availability.expected-entries} usernames and emails together at
+ * {@code security.username-availability.false-positive-rate}; the rate rises once more are added.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.username-availability.checks} – lookups, tagged with {@code result} {@code absent}
+ *       (answered by the filter), {@code taken} or {@code false-positive} (answered by the database)</li>
+ *   <li>{@code security.username-availability.entries} – usernames and emails added to the filter</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class UsernameAvailabilityService {
+
+    private final UserRepository userRepository;
+    private final BloomFilter filter;
+
+    private final Counter absentCounter;
+    private final Counter takenCounter;
+    private final Counter falsePositiveCounter;
+
+    @Value("${security.username-availability.page-size:1000}")
+    private int pageSize = 1000;
+
+    private volatile boolean loaded;
+
+    private long lastId;
+
+    public UsernameAvailabilityService(UserRepository userRepository,
+                                       @Value("${security.username-availability.expected-entries:2000000}") long expectedEntries,
+                                       @Value("${security.username-availability.false-positive-rate:0.01}") double falsePositiveRate,
+                                       MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+
+        this.absentCounter = meterRegistry.counter("security.username-availability.checks", "result", "absent");
+        this.takenCounter = meterRegistry.counter("security.username-availability.checks", "result", "taken");
+        this.falsePositiveCounter = meterRegistry.counter("security.username-availability.checks", "result", "false-positive");
+        Gauge.builder("security.username-availability.entries", filter, BloomFilter::size).register(meterRegistry);
+    }
+
+
+    /**
+     * @param username a username
+     * @return true if no account uses it
+     */
+    public boolean isUsernameAvailable(String username) {
+        return isAvailable(usernameKey(username), () -> userRepository.existsByUsername(username));
+    }
+
+
+    /**
+     * @param email an email address
+     * @return true if no account uses it
+     */
+    public boolean isEmailAvailable(String email) {
+        return isAvailable(emailKey(email), () -> userRepository.existsByEmail(email));
+    }
+
+
+    /**
+     * Adds a newly registered user, so this instance reports its username and email as taken at once.
+     *
+     * @param user the saved user
+     */
+    public void add(Users user) {
+        filter.put(usernameKey(user.getUsername()));
+        filter.put(emailKey(user.getEmail()));
+    }
+
+
+    /**
+     * Adds the users created since the last run; the first run loads all of them.
+     */
+    @Scheduled(fixedDelayString = "${security.username-availability.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        long added = 0;
+        List<Object[]> page;
+        do {
+            page = userRepository.findIdentifiersAfter(lastId, PageRequest.ofSize(pageSize));
+            for (Object[] row : page) {
+                lastId = (Long) row[0];
+                filter.put(usernameKey((String) row[1]));
+                filter.put(emailKey((String) row[2]));
+            }
+            added += page.size();
+        } while (page.size() == pageSize);
+
+        if (!loaded) {
+            log.info("Loaded {} users into the username availability filter", added);
+            loaded = true;
+        }
+    }
+
+
+    private boolean isAvailable(String key, BooleanSupplier exists) {
+        if (loaded && !filter.mightContain(key)) {
+            absentCounter.increment();
+            return true;
+        }
+
+        if (exists.getAsBoolean()) {
+            takenCounter.increment();
+            return false;
+        }
+        falsePositiveCounter.increment();
+        return true;
+    }
+
+
+    private static String usernameKey(String username) {
+        return "u:" + username;
+    }
+
+
+    private static String emailKey(String email) {
+        return "e:" + email;
+    }
+
+
+    /**
+     * Lock-free bloom filter over strings. Bits are only ever set, so concurrent readers see a key once its
+     * last bit is set and never lose one.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashes;
+        private final LongAdder size = new LongAdder();
+
+        BloomFilter(long expectedEntries, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-Math.max(1, expectedEntries) * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+            this.bitCount = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedEntries) * ln2));
+        }
+
+        void put(String key) {
+            long hash = hash(key);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = index(hash, i);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                if ((words.get(word) & mask) == 0)
+                    words.getAndAccumulate(word, mask, (current, add) -> current | add);
+            }
+            size.increment();
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = index(hash, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+        long size() {
+            return size.sum();
+        }
+
+        /**
+         * i-th bit of the key, from the two halves of its hash (Kirsch and Mitzenmacher).
+         */
+        private long index(long hash, int i) {
+            long combined = (int) hash + (long) i * (int) (hash >>> 32);
+            return (combined < 0 ? ~combined : combined) % bitCount;
+        }
+
+        /**
+         * 64-bit FNV-1a over the characters, finished with the MurmurHash3 mixer so both halves are usable.
+         */
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.bestflix.movie.security.userService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens that {@link JWTService} already verified.
+ * <p>
+ * Clients send the same bearer token on every request until it expires, so a token whose signature was
+ * checked once is remembered together with its claims. A hit skips signature verification and parsing.
+ * Entries are keyed by the token itself: the map finds them by the token's hash code and confirms the
+ * match with {@code equals}, so two tokens with colliding hashes never share an entry.
+ * </p>
+ * <p>
+ * An entry is never returned after its token expires; expired entries are dropped on access and by
+ * {@link #evictExpired()}. At most {@code jwt.cache.max-entries} tokens are kept. When the cache is full,
+ * expired entries are dropped first and then arbitrary ones, a sixteenth of the cache at a time.
+ * Tokens without an expiration are never cached.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code security.token-cache.requests} – lookups, tagged with {@code result} {@code hit} or {@code miss}</li>
+ *   <li>{@code security.token-cache.size} – tokens currently cached</li>
+ * </ul>
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JWTService jwtService;
+    private final int maxEntries;
+
+    private final Map<String, JWTService.VerifiedToken> tokens = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public VerifiedTokenCache(JWTService jwtService,
+                              @Value("${jwt.cache.max-entries:10000}") int maxEntries,
+                              MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.maxEntries = maxEntries;
+
+        this.hitCounter = meterRegistry.counter("security.token-cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("security.token-cache.requests", "result", "miss");
+        Gauge.builder("security.token-cache.size", tokens, Map::size)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Returns the claims of a token, verifying it only if it is not cached.
+     *
+     * @param token the JWT token
+     * @return the verified claims
+     * @throws com.bestflix.movie.exception.TokenExpiredException if the token is expired
+     * @throws com.bestflix.movie.exception.InvalidTokenException if the token is not valid
+     */
+    public JWTService.VerifiedToken verify(String token) {
+        JWTService.VerifiedToken cached = tokens.get(token);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(Instant.now())) {
+                hitCounter.increment();
+                return cached;
+            }
+            tokens.remove(token, cached);
+        }
+
+        missCounter.increment();
+        JWTService.VerifiedToken verified = jwtService.verify(token);
+
+        if (verified.expiresAt() != null && maxEntries > 0) {
+            if (tokens.size() >= maxEntries) {
+                makeRoom();
+            }
+            tokens.put(token, verified);
+        }
+        return verified;
+    }
+
+
+    /**
+     * Drops the entries of expired tokens.
+     */
+    @Scheduled(fixedDelayString = "${jwt.cache.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        tokens.values().removeIf(token -> !token.expiresAt().isAfter(now));
+    }
+
+
+    /**
+     * @return number of tokens currently cached
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+
+    private void makeRoom() {
+        evictExpired();
+
+        int target = maxEntries - Math.max(maxEntries / 16, 1);
+        Iterator<String> keys = tokens.keySet().iterator();
+        while (tokens.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
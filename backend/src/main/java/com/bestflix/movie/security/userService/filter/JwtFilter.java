@@ -1,36 +1,40 @@
 package com.bestflix.movie.security.userService.filter;
 
 import com.bestflix.movie.exception.InvalidTokenException;
-import com.bestflix.movie.security.userDetails.MyUserDetailsService;
+import com.bestflix.movie.security.userDetails.TokenPrincipal;
 import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.TokenRevocationService;
+import com.bestflix.movie.security.userService.VerifiedTokenCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
-import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * JWT authentication filter that runs once per request.
- * Intercepts requests to extract and validate JWT tokens from the Authorization header.
- * If valid, sets the security context with authenticated user details.
+ * Intercepts requests to extract and validate JWT tokens from the Authorization header;
+ * tokens seen before are taken from the {@link VerifiedTokenCache}.
+ * If valid, sets the security context with a {@link TokenPrincipal} and the roles from the token's claims,
+ * without loading the user from the database. Tokens revoked through {@link TokenRevocationService} are rejected.
  */
 @Component
 @AllArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
-    private JWTService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
 
-    private final MyUserDetailsService myUserDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
 
     /**
@@ -50,27 +54,26 @@ public class JwtFilter extends OncePerRequestFilter {
 
 
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String userName = null;
+        JWTService.VerifiedToken token = null;
 
         if(authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            userName = jwtService.extractUserName(token);
+            token = verifiedTokenCache.verify(authHeader.substring(7));
         }
 
-        if(userName != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if(token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = myUserDetailsService.loadUserByUsername(userName);
+            if(tokenRevocationService.isRevoked(token)) {
+                throw new InvalidTokenException("Token was revoked");
+            }
 
-            if(jwtService.validateToken(token,userDetails)) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            List<SimpleGrantedAuthority> authorities = token.roles().stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .toList();
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    new TokenPrincipal(token.userId(), token.subject()), null, authorities);
 
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            } else {
-                throw new InvalidTokenException(token);
-            }
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
 
         }
 
@@ -10,6 +10,9 @@ import java.util.Optional;
 public interface IMovieService {
      Movie uploadMovie(String token, Movie movie, MultipartFile image, MultipartFile video) throws IOException;
 
+     Movie saveUploadedMovie(String username, Movie movie, String imageName, String imageType,
+                             String videoName, String videoType);
+
      List<Movie> getMovies();
 
     List<Movie> getMyMovies(String username);
@@ -21,4 +24,6 @@ public interface IMovieService {
 
     Movie updateMovie(Long id, Movie movie, MultipartFile image, MultipartFile video) throws IOException;
 
+    void patchMovie(Long id, String username, Movie changes, MultipartFile image, MultipartFile video) throws IOException;
+
 }
@@ -0,0 +1,308 @@
+package com.bestflix.movie.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongConsumer;
+
+
+/**
+ * Uploads a movie's image and video to S3 concurrently using {@link S3AsyncClient}.
+ * <p>
+ * Both transfers start immediately and run side by side, so the time spent uploading a movie is
+ * roughly that of the larger file instead of the sum of both. If either transfer fails, the other one
+ * is cancelled, and the reference of an object that was already stored is released again so no orphan
+ * is left behind.
+ * </p>
+ * <p>
+ * The format of both files is detected by {@link MediaSniffer} before either transfer starts, so an
+ * unsupported file is rejected without uploading anything.
+ * </p>
+ *
+ * <h2>Usage</h2>
+ * <pre>{@code
+ * StoredMedia media = asyncFileStorageService.saveImageAndVideo(imageFile, videoFile);
+ * }</pre>
+ *
+ * <h2>Folder Structure</h2>
+ * Same content-addressed layout as {@link FileStorageService}: {@code images/} and {@code videos/}.
+ */
+@Slf4j
+@Service
+public class AsyncFileStorageService {
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final ExecutorService uploadExecutor;
+    private final MediaReferenceService mediaReferenceService;
+    private final MultipartUploader multipartUploader;
+
+    public AsyncFileStorageService(S3AsyncClient s3AsyncClient,
+                                   @Qualifier("mediaUploadExecutor") ExecutorService uploadExecutor,
+                                   MediaReferenceService mediaReferenceService,
+                                   MultipartUploader multipartUploader) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.uploadExecutor = uploadExecutor;
+        this.mediaReferenceService = mediaReferenceService;
+        this.multipartUploader = multipartUploader;
+    }
+
+    /**
+     * Names under which a movie's media was stored.
+     *
+     * @param imageName file name of the image inside {@code images/}
+     * @param videoName file name of the video inside {@code videos/}
+     */
+    public record StoredMedia(String imageName, String videoName) {
+    }
+
+
+    /**
+     * Uploads the image and the video in parallel and waits for both.
+     *
+     * @param image the image file
+     * @param video the video file
+     * @return the stored file names
+     * @throws IOException if either upload fails; nothing is left in the bucket in that case
+     */
+    public StoredMedia saveImageAndVideo(MultipartFile image, MultipartFile video) throws IOException {
+        return saveImageAndVideo(image, video, bytes -> { });
+    }
+
+
+    /**
+     * Uploads the image and the video in parallel and waits for both, reporting bytes as they are stored.
+     * Content that is already stored counts as stored at once.
+     *
+     * @param image    the image file
+     * @param video    the video file
+     * @param progress receives the number of bytes stored since the last call; invoked from upload threads
+     * @return the stored file names
+     * @throws IOException if either upload fails; nothing is left in the bucket in that case
+     * @throws com.bestflix.movie.exception.UnsupportedMediaException if either file is not a supported format
+     */
+    public StoredMedia saveImageAndVideo(MultipartFile image, MultipartFile video, LongConsumer progress)
+            throws IOException {
+        MediaSniffer.Media imageMedia = MediaSniffer.sniffImage(image);
+        MediaSniffer.Media videoMedia = MediaSniffer.sniffVideo(video);
+
+        CompletableFuture<String> imageUpload = upload("images/", image, imageMedia, false, progress);
+        CompletableFuture<String> videoUpload = upload("videos/", video, videoMedia, true, progress);
+
+        imageUpload.whenComplete((name, error) -> { if (error != null) videoUpload.cancel(true); });
+        videoUpload.whenComplete((name, error) -> { if (error != null) imageUpload.cancel(true); });
+
+        try {
+            CompletableFuture.allOf(imageUpload, videoUpload).join();
+            return new StoredMedia(imageUpload.join(), videoUpload.join());
+        } catch (CompletionException | CancellationException e) {
+            cleanUp(imageUpload, "images/");
+            cleanUp(videoUpload, "videos/");
+            throw new IOException("Uploading media failed", rootCause(e, imageUpload, videoUpload));
+        }
+    }
+
+
+    /**
+     * Starts uploading an image to the {@code images/} folder.
+     *
+     * @param file the image file
+     * @return future completing with the content-addressed file name, or failing if the file is not a supported image
+     */
+    public CompletableFuture<String> saveImage(MultipartFile file) {
+        try {
+            return upload("images/", file, MediaSniffer.sniffImage(file), false, bytes -> { });
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+
+    /**
+     * Starts uploading a video to the {@code videos/} folder.
+     * Large videos are sent as a parallel multipart upload through {@link MultipartUploader}.
+     *
+     * @param file the video file
+     * @return future completing with the content-addressed file name, or failing if the file is not a supported video
+     */
+    public CompletableFuture<String> saveVideo(MultipartFile file) {
+        try {
+            return upload("videos/", file, MediaSniffer.sniffVideo(file), true, bytes -> { });
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+
+    /**
+     * Hashes the file on the upload pool, then stores it unless the same content is already stored.
+     * Cancelling the returned future aborts a running transfer.
+     */
+    private CompletableFuture<String> upload(String folder, MultipartFile file, MediaSniffer.Media media,
+                                             boolean allowMultipart, LongConsumer progress) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        uploadExecutor.execute(() -> {
+            String key = null;
+            try {
+                String name = MediaReferenceService.contentName(file, media);
+
+                if (result.isDone())
+                    return;
+
+                if (mediaReferenceService.acquire(folder + name, file.getSize())) {
+                    progress.accept(file.getSize());
+                    complete(result, folder + name, name);
+                    return;
+                }
+                // the reference is held from here on and must be released if the transfer fails
+                key = folder + name;
+
+                if (allowMultipart && multipartUploader.shouldUseMultipart(file.getSize())) {
+                    try (InputStream inputStream = new ProgressInputStream(file.getInputStream(), progress)) {
+                        multipartUploader.upload(key, media.contentType(), inputStream, result::isCancelled);
+                    }
+                    stored(result, key, name);
+                    return;
+                }
+
+                PutObjectRequest putRequest = PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(media.contentType())
+                        .contentLength(file.getSize())
+                        .build();
+
+                InputStream inputStream = new ProgressInputStream(file.getInputStream(), progress);
+                CompletableFuture<PutObjectResponse> transfer = s3AsyncClient.putObject(putRequest,
+                        AsyncRequestBody.fromInputStream(inputStream, file.getSize(), uploadExecutor));
+
+                // Cancelling the returned future must abort the HTTP transfer itself
+                result.whenComplete((n, error) -> { if (result.isCancelled()) transfer.cancel(true); });
+
+                // from here on the transfer releases the reference itself
+                String storedKey = key;
+                key = null;
+                transfer.whenComplete((response, error) -> {
+                    closeQuietly(inputStream);
+                    if (error != null) {
+                        mediaReferenceService.release(List.of(storedKey));
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else {
+                        stored(result, storedKey, name);
+                    }
+                });
+            } catch (Throwable e) {
+                if (key != null)
+                    mediaReferenceService.release(List.of(key));
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+
+    /**
+     * Records that a transfer wrote the object and hands back the name.
+     */
+    private void stored(CompletableFuture<String> result, String key, String name) {
+        mediaReferenceService.markStored(key);
+        complete(result, key, name);
+    }
+
+
+    /**
+     * Hands back the name of a referenced object. If the upload was cancelled in the meantime, the reference
+     * is released again so the object does not leak.
+     */
+    private void complete(CompletableFuture<String> result, String key, String name) {
+        if (!result.complete(name))
+            mediaReferenceService.release(List.of(key));
+    }
+
+
+    /**
+     * Gives back the reference of an upload whose sibling failed; the object is purged if nobody else uses it.
+     */
+    private void cleanUp(CompletableFuture<String> upload, String folder) {
+        if (!upload.isDone() || upload.isCompletedExceptionally()) {
+            return;
+        }
+
+        String key = folder + upload.join();
+        log.warn("Releasing {} after a failed sibling upload", key);
+        mediaReferenceService.release(List.of(key));
+    }
+
+
+    private static Throwable rootCause(Throwable thrown, CompletableFuture<?>... uploads) {
+        for (CompletableFuture<?> upload : uploads) {
+            if (upload.isCompletedExceptionally() && !upload.isCancelled()) {
+                try {
+                    upload.join();
+                } catch (CompletionException e) {
+                    return e.getCause() != null ? e.getCause() : e;
+                }
+            }
+        }
+        return thrown.getCause() != null ? thrown.getCause() : thrown;
+    }
+
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+
+    /**
+     * Reports every chunk read from the wrapped stream, i.e. every chunk handed to the S3 client.
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+
+        private final LongConsumer progress;
+
+        ProgressInputStream(InputStream in, LongConsumer progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                progress.accept(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0)
+                progress.accept(count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.dto.UploadSessionRequest;
+import com.bestflix.movie.dto.UploadSessionStatus;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.entity.UploadSession;
+import com.bestflix.movie.exception.InvalidChunkException;
+import com.bestflix.movie.exception.UploadSessionNotFoundException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.exception.UserNotFoundException;
+import com.bestflix.movie.repository.UploadSessionRepository;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.IMovieService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Resumable, chunked upload of large videos.
+ * <p>
+ * A client starts a session, then sends the video in ordered chunks, each at the offset the server
+ * reports as received so far. The S3 multipart upload is only created once the first chunk shows the real
+ * format, which also names the video. Every chunk is streamed straight into one part of that upload,
+ * so a network error only costs the chunk that was in flight: the client asks for the session status
+ * and resumes from {@code nextOffset}. Completing the session assembles the parts into the final object
+ * and creates the {@link Movie} exactly as {@link MovieService#uploadMovie} does.
+ * </p>
+ *
+ * <h2>Chunk Size</h2>
+ * All chunks but the last must be exactly {@code chunkSize} bytes, which is chosen at start so that
+ * every chunk satisfies the S3 minimum part size and the video fits into 10,000 parts. Videos are limited to
+ * {@code media.chunked-upload.max-size}, which defaults to the multipart file size limit of the other upload
+ * paths; chunk bodies are raw streams, so that limit would not apply to them otherwise.
+ *
+ * <h2>Completion</h2>
+ * A request claims the session before assembling the video, so a retried or duplicated completion cannot
+ * create a second movie for the same video; it is refused with 409 while the first one runs.
+ *
+ * <h2>Expiry</h2>
+ * Each chunk extends the session by {@code media.chunked-upload.session-ttl-ms}. Sessions idle for longer
+ * are aborted in S3 and removed by {@link #expireAbandonedSessions()}.
+ */
+@Slf4j
+@Service
+public class ChunkedUploadService {
+
+    /**
+     * Largest number of parts a single S3 multipart upload may have.
+     */
+    static final int MAX_PARTS = 10_000;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UserRepository userRepository;
+    private final IMovieService movieService;
+    private final FileStorageService fileStorageService;
+    private final MediaReferenceService mediaReferenceService;
+    private final S3Client s3Client;
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    @Value("${media.chunked-upload.chunk-size-bytes:16777216}")
+    private long chunkSizeBytes = 16L * 1024 * 1024;
+
+    @Value("${media.chunked-upload.max-size:${spring.servlet.multipart.max-file-size:1GB}}")
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+
+    @Value("${media.chunked-upload.session-ttl-ms:86400000}")
+    private long sessionTtlMs = 86_400_000;
+
+    @Value("${media.chunked-upload.cleanup-batch-size:100}")
+    private int cleanupBatchSize = 100;
+
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository, UserRepository userRepository,
+                                IMovieService movieService, FileStorageService fileStorageService,
+                                MediaReferenceService mediaReferenceService, S3Client s3Client) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.userRepository = userRepository;
+        this.movieService = movieService;
+        this.fileStorageService = fileStorageService;
+        this.mediaReferenceService = mediaReferenceService;
+        this.s3Client = s3Client;
+    }
+
+
+    /**
+     * Starts a resumable upload. Nothing is created in S3 until the first chunk arrives.
+     *
+     * @param username uploader, taken from the authenticated principal
+     * @param request  file name, content type and total size of the video
+     * @return status of the new session, including the chunk size the client must use
+     * @throws UserNotFoundException if the uploader does not exist
+     * @throws InvalidChunkException if the size is not positive
+     * @throws UploadTooLargeException if the size exceeds {@code media.chunked-upload.max-size}
+     */
+    public UploadSessionStatus startSession(String username, UploadSessionRequest request) {
+        if (request.getTotalSize() <= 0)
+            throw new InvalidChunkException("totalSize must be positive");
+
+        if (request.getTotalSize() > maxSize.toBytes())
+            throw new UploadTooLargeException("video of " + request.getTotalSize() + " bytes exceeds " + maxSize.toBytes());
+
+        if (userRepository.findByUsername(username) == null)
+            throw new UserNotFoundException(username);
+
+        long minChunkForPartLimit = (request.getTotalSize() + MAX_PARTS - 1) / MAX_PARTS;
+        LocalDateTime now = LocalDateTime.now();
+
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .username(username)
+                .fileName(request.getFileName())
+                .contentType(request.getContentType())
+                .totalSize(request.getTotalSize())
+                .chunkSize(Math.max(Math.max(chunkSizeBytes, MultipartUploader.MIN_PART_SIZE), minChunkForPartLimit))
+                .createdAt(now)
+                .expiresAt(now.plus(Duration.ofMillis(sessionTtlMs)))
+                .build();
+
+        return toStatus(uploadSessionRepository.save(session));
+    }
+
+
+    /**
+     * Reports how far an upload got, so the client knows where to resume.
+     *
+     * @param uploadId session identifier
+     * @param username the caller; only the uploader who started the session may see it
+     * @return current status
+     * @throws UploadSessionNotFoundException if the session does not exist, has expired or belongs to another user
+     */
+    public UploadSessionStatus getStatus(String uploadId, String username) {
+        return toStatus(findActive(uploadId, username));
+    }
+
+
+    /**
+     * Stores one chunk as the next part of the multipart upload. The first chunk is sniffed, and the detected
+     * format names the video and sets the content type of the multipart upload it creates.
+     *
+     * @param uploadId session identifier
+     * @param username the caller; must be the uploader who started the session
+     * @param offset   position of the chunk in the video; must equal the bytes received so far
+     * @param length   size of the chunk in bytes
+     * @param content  chunk body, streamed to S3 without buffering
+     * @return status after the chunk was stored
+     * @throws UploadSessionNotFoundException if the session does not exist, has expired or belongs to another user
+     * @throws InvalidChunkException if the offset or length is wrong, or the chunk raced another one
+     * @throws com.bestflix.movie.exception.UnsupportedMediaException if the first chunk is not an MP4, WebM or
+     *         Matroska video
+     * @throws IOException if the chunk could not be stored; the client may resend it at the same offset
+     */
+    public UploadSessionStatus uploadChunk(String uploadId, String username, long offset, long length,
+                                           InputStream content) throws IOException {
+
+        UploadSession session = findActive(uploadId, username);
+
+        if (offset != session.getReceivedBytes())
+            throw new InvalidChunkException("expected offset " + session.getReceivedBytes() + " but got " + offset);
+
+        long expectedLength = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        if (length != expectedLength)
+            throw new InvalidChunkException("expected " + expectedLength + " bytes at offset " + offset + " but got " + length);
+
+        int partNumber = (int) (offset / session.getChunkSize()) + 1;
+
+        if (offset == 0) {
+            content = content.markSupported() ? content : new BufferedInputStream(content, MediaSniffer.HEADER_BYTES);
+            content.mark(MediaSniffer.HEADER_BYTES);
+            byte[] header = content.readNBytes((int) Math.min(length, MediaSniffer.HEADER_BYTES));
+            content.reset();
+            start(session, MediaSniffer.require(header, false, "video"));
+        }
+
+        String eTag;
+        try {
+            eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key("videos/" + session.getVideoName())
+                    .uploadId(session.getS3UploadId())
+                    .partNumber(partNumber)
+                    .contentLength(length)
+                    .build(), RequestBody.fromInputStream(content, length)).eTag();
+        } catch (SdkException | UncheckedIOException e) {
+            // a first chunk is resent into a new multipart upload, so the one created for it is dropped
+            if (offset == 0)
+                abort(session);
+            throw new IOException("Storing chunk " + partNumber + " of upload " + uploadId + " failed", e);
+        }
+
+        session.getParts().add(new UploadSession.UploadedPart(partNumber, eTag, length));
+        session.setReceivedBytes(offset + length);
+        session.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(sessionTtlMs)));
+
+        try {
+            return toStatus(uploadSessionRepository.save(session));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            if (offset == 0)
+                abort(session);
+            throw new InvalidChunkException("chunk at offset " + offset + " was sent twice concurrently");
+        }
+    }
+
+
+    /**
+     * Names the video after the detected format and creates the multipart upload it is stored in.
+     */
+    private void start(UploadSession session, MediaSniffer.Media media) throws IOException {
+        session.setContentType(media.contentType());
+        session.setVideoName(UUID.randomUUID() + media.extension());
+        try {
+            session.setS3UploadId(s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key("videos/" + session.getVideoName())
+                    .contentType(media.contentType())
+                    .build()).uploadId());
+        } catch (SdkException e) {
+            throw new IOException("Starting upload " + session.getId() + " failed", e);
+        }
+    }
+
+
+    /**
+     * Assembles the uploaded parts into the final video, stores the image and creates the movie.
+     *
+     * @param uploadId session identifier
+     * @param username the caller; must be the uploader who started the session
+     * @param movie    movie metadata
+     * @param image    image file (poster or thumbnail)
+     * @return the saved Movie entity
+     * @throws UploadSessionNotFoundException if the session does not exist, has expired or belongs to another user
+     * @throws InvalidChunkException if not all bytes have been received yet, or another request is completing
+     *         the session
+     * @throws IOException if the image cannot be stored
+     */
+    public Movie completeSession(String uploadId, String username, Movie movie, MultipartFile image)
+            throws IOException {
+        UploadSession session = findActive(uploadId, username);
+
+        if (session.getReceivedBytes() != session.getTotalSize())
+            throw new InvalidChunkException("received " + session.getReceivedBytes() + " of " + session.getTotalSize() + " bytes");
+
+        if (uploadSessionRepository.claimCompletion(uploadId) == 0)
+            throw new InvalidChunkException("upload " + uploadId + " is already being completed");
+
+        List<CompletedPart> parts = session.getParts().stream()
+                .sorted((a, b) -> Integer.compare(a.getPartNumber(), b.getPartNumber()))
+                .map(part -> CompletedPart.builder().partNumber(part.getPartNumber()).eTag(part.getETag()).build())
+                .toList();
+
+        String imageName;
+        try {
+            imageName = fileStorageService.saveImage(image);
+        } catch (IOException | RuntimeException e) {
+            uploadSessionRepository.releaseCompletion(uploadId);
+            throw e;
+        }
+
+        try {
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key("videos/" + session.getVideoName())
+                    .uploadId(session.getS3UploadId())
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (SdkException e) {
+            // the session stays in place so the client can retry completing it
+            uploadSessionRepository.releaseCompletion(uploadId);
+            mediaReferenceService.release(List.of("images/" + imageName));
+            throw new IOException("Assembling upload " + uploadId + " failed", e);
+        }
+
+        uploadSessionRepository.deleteById(uploadId);
+
+        try {
+            return movieService.saveUploadedMovie(session.getUsername(), movie, imageName, MediaSniffer.contentTypeOf(imageName),
+                    session.getVideoName(), session.getContentType());
+        } catch (RuntimeException e) {
+            mediaReferenceService.release(List.of("images/" + imageName, "videos/" + session.getVideoName()));
+            throw e;
+        }
+    }
+
+
+    /**
+     * Aborts and removes sessions that received no chunk within the session TTL. Sessions that never
+     * received their first chunk have nothing to abort in S3.
+     */
+    @Scheduled(fixedDelayString = "${media.chunked-upload.cleanup-interval-ms:900000}")
+    public void expireAbandonedSessions() {
+        List<UploadSession> expired;
+        do {
+            expired = uploadSessionRepository.findByExpiresAtBeforeOrderByExpiresAtAsc(
+                    LocalDateTime.now(), PageRequest.of(0, cleanupBatchSize));
+
+            for (UploadSession session : expired) {
+                abort(session);
+            }
+            uploadSessionRepository.deleteAll(expired);
+        } while (expired.size() == cleanupBatchSize);
+    }
+
+
+    private void abort(UploadSession session) {
+        if (session.getS3UploadId() == null)
+            return;
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key("videos/" + session.getVideoName())
+                    .uploadId(session.getS3UploadId())
+                    .build());
+        } catch (NoSuchUploadException e) {
+            // already aborted or completed
+        } catch (SdkException e) {
+            log.warn("Could not abort multipart upload of session {}; rely on the bucket lifecycle rule",
+                    session.getId(), e);
+        }
+    }
+
+
+    /**
+     * Sessions of other users are reported as missing, so their ids cannot be probed.
+     */
+    private UploadSession findActive(String uploadId, String username) {
+        return uploadSessionRepository.findById(uploadId)
+                .filter(session -> session.getExpiresAt().isAfter(LocalDateTime.now()))
+                .filter(session -> session.getUsername().equals(username))
+                .orElseThrow(() -> new UploadSessionNotFoundException(uploadId));
+    }
+
+
+    private static UploadSessionStatus toStatus(UploadSession session) {
+        return UploadSessionStatus.builder()
+                .uploadId(session.getId())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .nextOffset(session.getReceivedBytes())
+                .complete(session.getReceivedBytes() == session.getTotalSize())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
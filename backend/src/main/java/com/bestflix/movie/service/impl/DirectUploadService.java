@@ -0,0 +1,379 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.dto.DirectUploadCommitRequest;
+import com.bestflix.movie.dto.DirectUploadRequest;
+import com.bestflix.movie.dto.DirectUploadTicket;
+import com.bestflix.movie.entity.DirectUploadReservation;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.DirectUploadNotFoundException;
+import com.bestflix.movie.exception.InvalidUploadRequestException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.exception.MediaNotUploadedException;
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import com.bestflix.movie.repository.DirectUploadReservationRepository;
+import com.bestflix.movie.service.IMovieService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Lets clients upload a movie's media straight to S3 with presigned URLs, so no media byte passes
+ * through the application.
+ * <p>
+ * {@link #presign} reserves object names for the caller and returns a presigned PUT URL for the poster and
+ * either a single PUT URL or one URL per part for the video, depending on its size. Objects are named with the
+ * extension of the declared type, and single PUTs are signed with the declared size and type, so S3 refuses
+ * anything else. After uploading, the client calls {@link #commit} with the reservation id. Only the user the
+ * reservation was made for can commit it, and only once: the commit assembles a multipart video, checks the
+ * size and type of both objects with a HEAD request, sniffs their first bytes with a ranged GET and creates the
+ * {@code Movie} and {@code UsersMovie} rows.
+ * </p>
+ *
+ * <h2>Abandoned Uploads</h2>
+ * A reservation can be committed until {@code cloud.aws.presign.commit-window-ms} after its URLs expire.
+ * {@link #expireReservations()} then aborts the multipart upload and deletes the objects of reservations that
+ * were never committed. Multipart uploads it misses are removed by the bucket's
+ * {@code AbortIncompleteMultipartUpload} lifecycle rule.
+ */
+@Slf4j
+@Service
+public class DirectUploadService {
+
+    private final S3Presigner s3Presigner;
+    private final S3Client s3Client;
+    private final MultipartUploader multipartUploader;
+    private final IMovieService movieService;
+    private final DirectUploadReservationRepository reservationRepository;
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    @Value("${cloud.aws.presign.expiration-ms:900000}")
+    private long expirationMs = 900_000;
+
+    @Value("${cloud.aws.presign.commit-window-ms:3600000}")
+    private long commitWindowMs = 3_600_000;
+
+    @Value("${spring.servlet.multipart.max-file-size:1GB}")
+    private DataSize maxFileSize = DataSize.ofGigabytes(1);
+
+    @Value("${spring.servlet.multipart.max-request-size:1GB}")
+    private DataSize maxRequestSize = DataSize.ofGigabytes(1);
+
+    @Value("${cloud.aws.presign.cleanup-batch-size:100}")
+    private int cleanupBatchSize = 100;
+
+    public DirectUploadService(S3Presigner s3Presigner, S3Client s3Client, MultipartUploader multipartUploader,
+                               IMovieService movieService, DirectUploadReservationRepository reservationRepository) {
+        this.s3Presigner = s3Presigner;
+        this.s3Client = s3Client;
+        this.multipartUploader = multipartUploader;
+        this.movieService = movieService;
+        this.reservationRepository = reservationRepository;
+    }
+
+
+    /**
+     * Reserves object names for a movie's media and signs the URLs to upload them. The sizes are held to the
+     * same limits as multipart uploads before anything is signed, and every URL only accepts its declared
+     * length, so nothing larger can be stored.
+     *
+     * @param username uploader, taken from the authenticated principal
+     * @param request  content types and sizes of the image and video
+     * @return presigned URLs and the reservation id to pass back on commit
+     * @throws UnsupportedMediaException if a declared type is not a supported image or video type
+     * @throws InvalidUploadRequestException if a declared size is not positive
+     * @throws UploadTooLargeException if a file exceeds {@code spring.servlet.multipart.max-file-size} or both
+     *         together exceed {@code spring.servlet.multipart.max-request-size}
+     */
+    public DirectUploadTicket presign(String username, DirectUploadRequest request) {
+        MediaSniffer.Media image = MediaSniffer.forContentType(request.getImageContentType(), true, "image");
+        MediaSniffer.Media video = MediaSniffer.forContentType(request.getVideoContentType(), false, "video");
+        if (request.getImageSize() <= 0 || request.getVideoSize() <= 0)
+            throw new InvalidUploadRequestException("imageSize and videoSize must be positive");
+        checkSize("image", request.getImageSize(), maxFileSize);
+        checkSize("video", request.getVideoSize(), maxFileSize);
+        checkSize("upload", request.getImageSize() + request.getVideoSize(), maxRequestSize);
+
+        Duration validity = Duration.ofMillis(expirationMs);
+
+        String imageName = UUID.randomUUID() + image.extension();
+        String videoName = UUID.randomUUID() + video.extension();
+
+        DirectUploadTicket.DirectUploadTicketBuilder ticket = DirectUploadTicket.builder()
+                .imageName(imageName)
+                .imageUploadUrl(presignPut("images/" + imageName, image.contentType(), request.getImageSize(), validity))
+                .videoName(videoName)
+                .expiresAt(Instant.now().plus(validity));
+
+        String uploadId = null;
+        if (!multipartUploader.shouldUseMultipart(request.getVideoSize())) {
+            ticket.videoUploadUrl(presignPut("videos/" + videoName, video.contentType(), request.getVideoSize(), validity))
+                    .videoPartUrls(List.of());
+        } else {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key("videos/" + videoName)
+                    .contentType(video.contentType())
+                    .build()).uploadId();
+
+            long partSize = Math.max(multipartUploader.partSize(),
+                    (request.getVideoSize() + ChunkedUploadService.MAX_PARTS - 1) / ChunkedUploadService.MAX_PARTS);
+            int partCount = (int) ((request.getVideoSize() + partSize - 1) / partSize);
+
+            List<String> partUrls = new ArrayList<>(partCount);
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                partUrls.add(s3Presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                        .signatureDuration(validity)
+                        .uploadPartRequest(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key("videos/" + videoName)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength(Math.min(partSize, request.getVideoSize() - (partNumber - 1) * partSize))
+                                .build())
+                        .build()).url().toString());
+            }
+
+            ticket.videoUploadId(uploadId)
+                    .videoPartSize(partSize)
+                    .videoPartUrls(partUrls);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        DirectUploadReservation reservation = reservationRepository.save(DirectUploadReservation.builder()
+                .id(UUID.randomUUID().toString())
+                .username(username)
+                .imageName(imageName)
+                .imageContentType(image.contentType())
+                .imageSize(request.getImageSize())
+                .videoName(videoName)
+                .videoContentType(video.contentType())
+                .videoSize(request.getVideoSize())
+                .videoUploadId(uploadId)
+                .createdAt(now)
+                .expiresAt(now.plus(validity).plus(Duration.ofMillis(commitWindowMs)))
+                .build());
+
+        return ticket.reservationId(reservation.getId()).build();
+    }
+
+
+    /**
+     * Verifies that the reserved media was uploaded as declared and creates the movie for the given user.
+     *
+     * @param username uploader, taken from the authenticated principal
+     * @param request  reservation id returned by {@link #presign}, plus the movie metadata
+     * @return the saved Movie entity
+     * @throws DirectUploadNotFoundException if the reservation is unknown, expired, committed or not the caller's
+     * @throws MediaNotUploadedException if the image or video is not in the bucket
+     * @throws InvalidUploadRequestException if an object's size differs from the declared size
+     * @throws UnsupportedMediaException if an object's stored or sniffed type differs from the declared type
+     */
+    public Movie commit(String username, DirectUploadCommitRequest request) {
+        DirectUploadReservation reservation = findActive(request.getReservationId(), username);
+        String imageKey = "images/" + reservation.getImageName();
+        String videoKey = "videos/" + reservation.getVideoName();
+
+        if (reservation.getVideoUploadId() != null) {
+            completeMultipart(videoKey, reservation.getVideoUploadId());
+        }
+
+        verify(imageKey, reservation.getImageContentType(), reservation.getImageSize(), true, "image");
+        verify(videoKey, reservation.getVideoContentType(), reservation.getVideoSize(), false, "video");
+
+        if (reservationRepository.consume(reservation.getId(), LocalDateTime.now()) == 0)
+            throw new DirectUploadNotFoundException(reservation.getId());
+
+        try {
+            return movieService.saveUploadedMovie(username, request.getMovie(),
+                    reservation.getImageName(), reservation.getImageContentType(),
+                    reservation.getVideoName(), reservation.getVideoContentType());
+        } catch (RuntimeException e) {
+            reservationRepository.release(reservation.getId());
+            throw e;
+        }
+    }
+
+
+    /**
+     * Removes expired reservations, discarding the media of those that were never committed.
+     */
+    @Scheduled(fixedDelayString = "${cloud.aws.presign.cleanup-interval-ms:900000}")
+    public void expireReservations() {
+        List<DirectUploadReservation> expired;
+        do {
+            expired = reservationRepository.findByExpiresAtBeforeOrderByExpiresAtAsc(
+                    LocalDateTime.now(), PageRequest.of(0, cleanupBatchSize));
+
+            for (DirectUploadReservation reservation : expired) {
+                if (reservationRepository.deleteUnconsumed(reservation.getId()) == 1)
+                    discard(reservation);
+                else
+                    reservationRepository.deleteById(reservation.getId());
+            }
+        } while (expired.size() == cleanupBatchSize);
+    }
+
+
+    private static void checkSize(String part, long size, DataSize limit) {
+        if (size > limit.toBytes())
+            throw new UploadTooLargeException(part + " of " + size + " bytes exceeds " + limit.toBytes());
+    }
+
+
+    private String presignPut(String key, String contentType, long contentLength, Duration validity) {
+        return s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(validity)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .contentLength(contentLength)
+                        .build())
+                .build()).url().toString();
+    }
+
+
+    /**
+     * Reservations of other users are reported as missing, so their ids cannot be probed.
+     */
+    private DirectUploadReservation findActive(String reservationId, String username) {
+        if (reservationId == null)
+            throw new DirectUploadNotFoundException(null);
+        return reservationRepository.findById(reservationId)
+                .filter(reservation -> !reservation.isConsumed())
+                .filter(reservation -> reservation.getExpiresAt().isAfter(LocalDateTime.now()))
+                .filter(reservation -> reservation.getUsername().equals(username))
+                .orElseThrow(() -> new DirectUploadNotFoundException(reservationId));
+    }
+
+
+    /**
+     * Completes a client-driven multipart upload using the parts S3 has recorded for it.
+     */
+    private void completeMultipart(String key, String uploadId) {
+        List<CompletedPart> parts;
+        try {
+            parts = s3Client.listPartsPaginator(ListPartsRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .build())
+                    .parts().stream()
+                    .map(part -> CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build())
+                    .sorted(Comparator.comparing(CompletedPart::partNumber))
+                    .toList();
+        } catch (NoSuchUploadException e) {
+            // already completed by an earlier commit attempt; the HEAD check decides
+            return;
+        }
+
+        if (parts.isEmpty())
+            throw new MediaNotUploadedException(key);
+
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+    }
+
+
+    /**
+     * Checks an uploaded object against its reservation: size and type from a HEAD request, format from its
+     * first bytes. Multipart parts are not signed with a size, so this is the only size check for them.
+     */
+    private void verify(String key, String contentType, long size, boolean image, String part) {
+        HeadObjectResponse head = head(key);
+        if (head.contentLength() == null || head.contentLength() != size)
+            throw new InvalidUploadRequestException(key + " has " + head.contentLength() + " bytes, " + size + " were declared");
+        if (!contentType.equalsIgnoreCase(head.contentType()))
+            throw new UnsupportedMediaException(key + " was stored as " + head.contentType() + ", " + contentType + " was declared");
+
+        byte[] header = s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=0-" + (MediaSniffer.HEADER_BYTES - 1))
+                .build()).asByteArray();
+        MediaSniffer.Media detected = MediaSniffer.require(header, image, part);
+        if (!detected.contentType().equals(contentType))
+            throw new UnsupportedMediaException(part + " is " + detected.contentType() + ", " + contentType + " was declared");
+    }
+
+
+    private HeadObjectResponse head(String key) {
+        try {
+            return s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404)
+                throw new MediaNotUploadedException(key);
+            throw e;
+        }
+    }
+
+
+    /**
+     * Aborts the multipart upload and deletes whatever media a reservation that was never committed left behind.
+     */
+    private void discard(DirectUploadReservation reservation) {
+        try {
+            if (reservation.getVideoUploadId() != null) {
+                try {
+                    s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                            .bucket(bucketName)
+                            .key("videos/" + reservation.getVideoName())
+                            .uploadId(reservation.getVideoUploadId())
+                            .build());
+                } catch (NoSuchUploadException e) {
+                    // already aborted or completed
+                }
+            }
+            s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder()
+                            .objects(ObjectIdentifier.builder().key("images/" + reservation.getImageName()).build(),
+                                    ObjectIdentifier.builder().key("videos/" + reservation.getVideoName()).build())
+                            .quiet(true)
+                            .build())
+                    .build());
+        } catch (SdkException e) {
+            log.warn("Could not discard the media of expired direct upload {}; rely on the bucket lifecycle rule",
+                    reservation.getId(), e);
+        }
+    }
+}
@@ -8,14 +8,22 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.List;
 
 
 /**
  * Service for handling file storage operations in AWS S3.
  * <p>
  * This service provides methods to upload image and video files to designated folders
- * within a configured S3 bucket. Files are stored with unique names to prevent collisions.
+ * within a configured S3 bucket. Files are named after the SHA-256 of their content, so identical
+ * uploads share one object: if the object is already stored, the upload is skipped and only a
+ * reference is added through {@link MediaReferenceService}.
+ * </p>
+ * <p>
+ * The format of each file is detected from its leading bytes by {@link MediaSniffer}; the client's file
+ * name and content type are ignored. Unsupported files are rejected before anything is uploaded, and the
+ * stored name carries the extension of the detected format.
  * </p>
  *
  * <h2>Configuration</h2>
@@ -26,7 +34,7 @@ import java.util.UUID;
  *
  * <h2>Usage</h2>
  * Inject this service and call {@code saveImage(MultipartFile)} or {@code saveVideo(MultipartFile)}
- * to upload files. The returned string is the unique filename stored in S3.
+ * to upload files. The returned string is the content-addressed filename stored in S3.
  *
  * <h2>Example</h2>
  * <pre>{@code
@@ -38,8 +46,13 @@ import java.util.UUID;
  * - Images are stored under {@code images/}
  * - Videos are stored under {@code videos/}
  *
+ * <h2>Large Videos</h2>
+ * Videos at or above {@code cloud.aws.multipart.threshold-bytes} are sent through {@link MultipartUploader}
+ * as parallel multipart uploads instead of a single {@code putObject} stream.
+ *
  * <h2>Exceptions</h2>
- * Throws {@link IOException} if the file stream cannot be read or uploaded.
+ * Throws {@link IOException} if the file stream cannot be read or uploaded, and
+ * {@link com.bestflix.movie.exception.UnsupportedMediaException} if the file is not a supported format.
  *
  * @author Elcin
  */
@@ -51,61 +64,94 @@ public class FileStorageService {
     private String bucketName;
 
     private final S3Client s3Client;
+    private final MultipartUploader multipartUploader;
+    private final MediaReferenceService mediaReferenceService;
 
     /**
      * Constructs the service with an injected {@link S3Client}.
      *
      * @param s3Client AWS S3 client used for file operations
+     * @param multipartUploader uploader used for large videos
+     * @param mediaReferenceService reference counts of stored objects
      */
-    public FileStorageService(S3Client s3Client) {
+    public FileStorageService(S3Client s3Client, MultipartUploader multipartUploader,
+                              MediaReferenceService mediaReferenceService) {
         this.s3Client = s3Client;
+        this.multipartUploader = multipartUploader;
+        this.mediaReferenceService = mediaReferenceService;
     }
 
     /**
-     * Uploads an image file to the {@code images/} folder in the S3 bucket.
-     * Generates a unique filename to avoid collisions.
+     * Uploads an image file to the {@code images/} folder in the S3 bucket,
+     * unless an image with the same content is already stored.
      *
      * @param file the image file to upload
-     * @return the unique filename stored in S3
+     * @return the content-addressed filename stored in S3
      * @throws IOException if the file cannot be read or uploaded
+     * @throws com.bestflix.movie.exception.UnsupportedMediaException if the file is not a JPEG, PNG or WebP image
      */
     public String saveImage(MultipartFile file) throws IOException {
-        String extension = file.getOriginalFilename().substring(file.getOriginalFilename().lastIndexOf("."));
-        String uniqueName = UUID.randomUUID().toString() + extension;
-
-        PutObjectRequest putRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key("images/" + uniqueName)
-                .contentType(file.getContentType())
-                .build();
-
-        s3Client.putObject(putRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-
-        return uniqueName;
+        MediaSniffer.Media media = MediaSniffer.sniffImage(file);
+        String name = MediaReferenceService.contentName(file, media);
+        String key = "images/" + name;
+
+        if (!mediaReferenceService.acquire(key, file.getSize())) {
+            try {
+                PutObjectRequest putRequest = PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(media.contentType())
+                        .build();
+
+                s3Client.putObject(putRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+            } catch (IOException | RuntimeException e) {
+                mediaReferenceService.release(List.of(key));
+                throw e;
+            }
+            mediaReferenceService.markStored(key);
+        }
+
+        return name;
     }
 
 
     /**
-     * Uploads a video file to the {@code videos/} folder in the S3 bucket.
-     * Generates a unique filename to avoid collisions.
+     * Uploads a video file to the {@code videos/} folder in the S3 bucket,
+     * unless a video with the same content is already stored. Large videos use a parallel multipart upload.
      *
      * @param file the video file to upload
-     * @return the unique filename stored in S3
+     * @return the content-addressed filename stored in S3
      * @throws IOException if the file cannot be read or uploaded
+     * @throws com.bestflix.movie.exception.UnsupportedMediaException if the file is not an MP4, WebM or Matroska video
      */
     public String saveVideo(MultipartFile file) throws IOException {
-        String extension = file.getOriginalFilename().substring(file.getOriginalFilename().lastIndexOf("."));
-        String uniqueName = UUID.randomUUID().toString() + extension;
-
-        PutObjectRequest putRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key("videos/" + uniqueName)
-                .contentType(file.getContentType())
-                .build();
-
-        s3Client.putObject(putRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-
-        return uniqueName;
+        MediaSniffer.Media media = MediaSniffer.sniffVideo(file);
+        String name = MediaReferenceService.contentName(file, media);
+        String key = "videos/" + name;
+
+        if (!mediaReferenceService.acquire(key, file.getSize())) {
+            try {
+                if (multipartUploader.shouldUseMultipart(file.getSize())) {
+                    try (InputStream inputStream = file.getInputStream()) {
+                        multipartUploader.upload(key, media.contentType(), inputStream, () -> false);
+                    }
+                } else {
+                    PutObjectRequest putRequest = PutObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .contentType(media.contentType())
+                            .build();
+
+                    s3Client.putObject(putRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+                }
+            } catch (IOException | RuntimeException e) {
+                mediaReferenceService.release(List.of(key));
+                throw e;
+            }
+            mediaReferenceService.markStored(key);
+        }
+
+        return name;
     }
 }
 
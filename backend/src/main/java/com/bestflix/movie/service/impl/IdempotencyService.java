@@ -0,0 +1,186 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.entity.IdempotencyRecord;
+import com.bestflix.movie.exception.IdempotencyKeyInUseException;
+import com.bestflix.movie.exception.IdempotencyKeyMismatchException;
+import com.bestflix.movie.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Makes requests sent with an {@code Idempotency-Key} run at most once per caller, request line and key.
+ * <p>
+ * The first request inserts an {@code IN_PROGRESS} record; the primary key makes that insert the lock.
+ * Its response is stored when it succeeds and kept for {@code media.idempotency.ttl-ms}, so retries get the
+ * same answer without running again. A failed request drops its record, so a retry runs normally.
+ * </p>
+ * <p>
+ * Duplicates that arrive while the first request runs poll the record until it completes. A running record
+ * older than {@code media.idempotency.lock-timeout-ms} counts as abandoned, e.g. after a crash, and is taken
+ * over by the next duplicate.
+ * </p>
+ * <p>
+ * The record keeps a fingerprint of the query parameters, e.g. the {@code movieId} of an update. A key sent
+ * again with other parameters is refused rather than answered with the response of a different request.
+ * </p>
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${media.idempotency.ttl-ms:86400000}")
+    private long ttlMs = 86_400_000;
+
+    @Value("${media.idempotency.lock-timeout-ms:1800000}")
+    private long lockTimeoutMs = 1_800_000;
+
+    @Value("${media.idempotency.wait-timeout-ms:300000}")
+    private long waitTimeoutMs = 300_000;
+
+    @Value("${media.idempotency.poll-interval-ms:500}")
+    private long pollIntervalMs = 500;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+    }
+
+
+    /**
+     * Result of {@link #claim}: either the caller now owns the key, or the request already completed.
+     *
+     * @param record  the record; {@code COMPLETED} if the stored response must be replayed
+     * @param claimed whether the caller must run the request and then {@link #complete} or {@link #release} it
+     */
+    public record Claim(IdempotencyRecord record, boolean claimed) {
+    }
+
+
+    /**
+     * Claims a key, waiting while another request with the same key runs.
+     *
+     * @param caller     user or client address sending the request
+     * @param request    method and path of the request
+     * @param parameters query string of the request, may be {@code null}
+     * @param key        value of the {@code Idempotency-Key} header
+     * @return the claimed record, or the completed record to replay
+     * @throws IdempotencyKeyInUseException    if the other request is still running after {@code wait-timeout-ms}
+     * @throws IdempotencyKeyMismatchException if the key was sent with other parameters
+     */
+    public Claim claim(String caller, String request, String parameters, String key) {
+        String id = sha256(caller + "\n" + request + "\n" + key);
+        String fingerprint = sha256(parameters == null ? "" : parameters);
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                IdempotencyRecord claimed = idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.builder()
+                        .id(id)
+                        .caller(caller)
+                        .request(request)
+                        .fingerprint(fingerprint)
+                        .state(IdempotencyRecord.State.IN_PROGRESS)
+                        .createdAt(now)
+                        .expiresAt(now.plus(Duration.ofMillis(lockTimeoutMs)))
+                        .build());
+                return new Claim(claimed, true);
+            } catch (DataIntegrityViolationException e) {
+                // another request holds the key
+            }
+
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(id);
+            if (existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+
+                if (record.getExpiresAt().isBefore(now)) {
+                    idempotencyRecordRepository.deleteVersion(id, record.getVersion());
+                    continue;
+                }
+                if (!Objects.equals(record.getFingerprint(), fingerprint))
+                    throw new IdempotencyKeyMismatchException(key);
+                if (record.getState() == IdempotencyRecord.State.COMPLETED)
+                    return new Claim(record, false);
+
+                if (System.currentTimeMillis() >= deadline)
+                    throw new IdempotencyKeyInUseException(key);
+
+                sleep();
+            }
+        }
+    }
+
+
+    /**
+     * Stores the response of a claimed request for replay to its retries.
+     *
+     * @param claim       the claim returned by {@link #claim}
+     * @param status      HTTP status of the response
+     * @param contentType content type of the response, may be {@code null}
+     * @param body        body of the response
+     */
+    public void complete(Claim claim, int status, String contentType, String body) {
+        IdempotencyRecord record = claim.record();
+        int updated = idempotencyRecordRepository.complete(record.getId(), record.getVersion(), status, contentType,
+                body, LocalDateTime.now().plus(Duration.ofMillis(ttlMs)));
+
+        if (updated == 0)
+            log.warn("Idempotency record of {} {} expired before the request completed; retries will run again",
+                    record.getCaller(), record.getRequest());
+    }
+
+
+    /**
+     * Drops a claimed record so that a retry of a failed request runs again.
+     *
+     * @param claim the claim returned by {@link #claim}
+     */
+    public void release(Claim claim) {
+        idempotencyRecordRepository.deleteVersion(claim.record().getId(), claim.record().getVersion());
+    }
+
+
+    /**
+     * Removes completed records past their TTL and running records past their lock timeout.
+     */
+    @Scheduled(fixedDelayString = "${media.idempotency.cleanup-interval-ms:900000}")
+    public void discardExpired() {
+        int removed = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0)
+            log.debug("Discarded {} expired idempotency records", removed);
+    }
+
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request", e);
+        }
+    }
+
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
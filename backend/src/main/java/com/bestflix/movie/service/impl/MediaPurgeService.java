@@ -0,0 +1,280 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.entity.MediaObject;
+import com.bestflix.movie.entity.MediaPurgeTask;
+import com.bestflix.movie.repository.MediaObjectRepository;
+import com.bestflix.movie.repository.MediaPurgeTaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+/**
+ * Removes media objects from S3 in the background.
+ * <p>
+ * Deleting or replacing a movie only queues the affected object keys in {@link MediaPurgeTask} rows,
+ * inside the same database transaction. This service periodically collects due keys and removes them
+ * with multi-object {@code DeleteObjects} calls of up to 1000 keys each. Failed keys are retried
+ * with exponential backoff until {@code media.purge.max-attempts} is reached; after that they stay
+ * in the table for manual inspection.
+ * </p>
+ * <p>
+ * Content-addressed objects may be referenced again between being queued and being purged, when the
+ * same file is uploaded once more. Each batch locks the {@link MediaObject} rows of its keys for the
+ * duration of the {@code DeleteObjects} call: keys referenced again are dropped from the queue without
+ * touching S3, the others are deleted together with their rows, and uploads that take a reference
+ * meanwhile wait for the lock and then store the object again.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code media.purge.deleted} – objects removed</li>
+ *   <li>{@code media.purge.failed} – failed delete attempts</li>
+ *   <li>{@code media.purge.abandoned} – keys that ran out of retries</li>
+ *   <li>{@code media.purge.batch} – latency of each {@code DeleteObjects} call</li>
+ *   <li>{@code media.purge.pending} – keys still waiting to be purged</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class MediaPurgeService {
+
+    /**
+     * Hard limit of keys per {@code DeleteObjects} request imposed by S3.
+     */
+    static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    private final MediaPurgeTaskRepository purgeTaskRepository;
+    private final MediaObjectRepository mediaObjectRepository;
+    private final S3Client s3Client;
+    private final TransactionTemplate transaction;
+
+    private final Counter deletedCounter;
+    private final Counter failedCounter;
+    private final Counter abandonedCounter;
+    private final Timer batchTimer;
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    @Value("${media.purge.batch-size:1000}")
+    private int batchSize = MAX_KEYS_PER_REQUEST;
+
+    @Value("${media.purge.max-batches-per-run:20}")
+    private int maxBatchesPerRun = 20;
+
+    @Value("${media.purge.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${media.purge.initial-backoff-ms:30000}")
+    private long initialBackoffMs = 30_000;
+
+    public MediaPurgeService(MediaPurgeTaskRepository purgeTaskRepository, MediaObjectRepository mediaObjectRepository,
+                             S3Client s3Client, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.purgeTaskRepository = purgeTaskRepository;
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.s3Client = s3Client;
+        this.transaction = new TransactionTemplate(transactionManager);
+
+        this.deletedCounter = meterRegistry.counter("media.purge.deleted");
+        this.failedCounter = meterRegistry.counter("media.purge.failed");
+        this.abandonedCounter = meterRegistry.counter("media.purge.abandoned");
+        this.batchTimer = meterRegistry.timer("media.purge.batch");
+        Gauge.builder("media.purge.pending", this, service -> service.countPending())
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Queues object keys for removal. Must be called inside the transaction that makes the keys
+     * unreferenced, so the queue and the database change commit or roll back together.
+     *
+     * @param objectKeys full object keys, e.g. {@code images/abc.jpg}
+     */
+    public void enqueue(Collection<String> objectKeys) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<MediaPurgeTask> tasks = objectKeys.stream()
+                .filter(key -> key != null && !key.isBlank())
+                .distinct()
+                .map(key -> MediaPurgeTask.builder()
+                        .objectKey(key)
+                        .createdAt(now)
+                        .nextAttemptAt(now)
+                        .build())
+                .toList();
+
+        purgeTaskRepository.saveAll(tasks);
+    }
+
+
+    /**
+     * Purges due keys in batches until the queue is drained or the per-run limit is reached.
+     */
+    @Scheduled(fixedDelayString = "${media.purge.interval-ms:15000}")
+    public void purgePending() {
+        int pageSize = Math.min(Math.max(batchSize, 1), MAX_KEYS_PER_REQUEST);
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<MediaPurgeTask> due = purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    maxAttempts, LocalDateTime.now(), PageRequest.of(0, pageSize));
+
+            if (due.isEmpty()) {
+                return;
+            }
+
+            purgeBatch(due);
+
+            if (due.size() < pageSize) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Deletes one batch of keys with a single {@code DeleteObjects} call.
+     * Successfully removed keys are dropped from the queue, failed ones are rescheduled.
+     *
+     * @param tasks at most {@value #MAX_KEYS_PER_REQUEST} tasks
+     */
+    void purgeBatch(List<MediaPurgeTask> tasks) {
+        Map<String, List<MediaPurgeTask>> byKey = tasks.stream()
+                .collect(Collectors.groupingBy(MediaPurgeTask::getObjectKey, LinkedHashMap::new, Collectors.toList()));
+
+        try {
+            transaction.executeWithoutResult(status -> purgeLocked(byKey));
+        } catch (SdkException e) {
+            log.warn("DeleteObjects failed for {} keys, will retry", byKey.size(), e);
+            reschedule(tasks, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Deletes the objects while holding the locks on their {@link MediaObject} rows,
+     * and drops the rows with them, so no upload can take a reference to an object that is being deleted.
+     * Keys referenced again are skipped, as are content-addressed keys without a row: those were purged already
+     * or are being uploaded again right now.
+     */
+    private void purgeLocked(Map<String, List<MediaPurgeTask>> byKey) {
+        Set<String> tracked = new HashSet<>();
+        List<MediaPurgeTask> skipped = new ArrayList<>();
+        for (MediaObject object : mediaObjectRepository.lockAll(byKey.keySet())) {
+            tracked.add(object.getObjectKey());
+            if (object.getReferenceCount() > 0)
+                skipped.addAll(byKey.remove(object.getObjectKey()));
+        }
+        byKey.keySet().removeIf(key -> {
+            if (tracked.contains(key) || !MediaReferenceService.isContentAddressed(key))
+                return false;
+            skipped.addAll(byKey.get(key));
+            return true;
+        });
+        if (!skipped.isEmpty()) {
+            purgeTaskRepository.deleteAllInBatch(skipped);
+            if (byKey.isEmpty())
+                return;
+        }
+
+        List<ObjectIdentifier> objects = byKey.keySet().stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+
+        DeleteObjectsResponse response;
+        try {
+            response = batchTimer.recordCallable(() -> s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(objects).quiet(true).build())
+                    .build()));
+        } catch (SdkException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected failure while purging media", e);
+        }
+
+        Map<String, S3Error> errors = response.hasErrors()
+                ? response.errors().stream().collect(Collectors.toMap(S3Error::key, Function.identity(), (a, b) -> a))
+                : Map.of();
+
+        List<MediaPurgeTask> purged = new ArrayList<>();
+        List<MediaPurgeTask> failed = new ArrayList<>();
+
+        byKey.forEach((key, keyTasks) -> {
+            if (errors.containsKey(key)) {
+                failed.addAll(keyTasks);
+            } else {
+                purged.addAll(keyTasks);
+                if (tracked.contains(key))
+                    mediaObjectRepository.deleteIfUnreferenced(key);
+            }
+        });
+
+        purgeTaskRepository.deleteAllInBatch(purged);
+        deletedCounter.increment(purged.size());
+
+        if (!failed.isEmpty()) {
+            failed.forEach(task -> task.setLastError(errors.get(task.getObjectKey()).message()));
+            reschedule(failed, null);
+        }
+    }
+
+
+    private void reschedule(List<MediaPurgeTask> tasks, String error) {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (MediaPurgeTask task : tasks) {
+            int attempts = task.getAttempts() + 1;
+            long backoff = initialBackoffMs << Math.min(attempts - 1, 16);
+
+            task.setAttempts(attempts);
+            task.setNextAttemptAt(now.plusNanos(backoff * 1_000_000));
+            if (error != null) {
+                task.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            }
+
+            if (attempts >= maxAttempts) {
+                log.error("Giving up purging {} after {} attempts: {}", task.getObjectKey(), attempts, task.getLastError());
+                abandonedCounter.increment();
+            }
+        }
+
+        failedCounter.increment(tasks.size());
+        purgeTaskRepository.saveAll(tasks);
+    }
+
+
+    private double countPending() {
+        try {
+            return purgeTaskRepository.countByAttemptsLessThan(maxAttempts);
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
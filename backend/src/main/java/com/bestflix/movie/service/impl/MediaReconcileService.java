@@ -0,0 +1,258 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.repository.MediaObjectRepository;
+import com.bestflix.movie.repository.MediaPurgeTaskRepository;
+import com.bestflix.movie.repository.MovieRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Finds media objects in the bucket that nothing in the database references and queues them for purge.
+ * <p>
+ * Failed uploads, failed updates and interrupted deletes can leave objects under {@code images/} and
+ * {@code videos/} behind. This service pages through each folder with {@code ListObjectsV2} and checks the
+ * listed keys in batches of up to {@code media.reconcile.batch-size} against the database: a key is in use
+ * while a movie that is not deleted names it, while it is tracked in
+ * {@link com.bestflix.movie.entity.MediaObject}, or while it is already queued for purge.
+ * </p>
+ * <p>
+ * Objects younger than {@code media.reconcile.grace-period-ms} are never touched, because the upload flows
+ * store their objects before the movie row exists. The grace period must therefore exceed the lifetime of
+ * a chunked upload session and of a presigned upload.
+ * </p>
+ * <p>
+ * Orphans are removed through {@link MediaPurgeService}, which deletes them in batches and drops keys that
+ * became referenced again in the meantime. In dry-run mode ({@code media.reconcile.dry-run}) orphans are only
+ * reported. A run stops queueing after {@code media.reconcile.max-purges-per-run} orphans, so a database
+ * pointed at the wrong bucket cannot empty it.
+ * </p>
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code media.reconcile.scanned} – objects listed</li>
+ *   <li>{@code media.reconcile.orphans} – unreferenced objects found, tagged with {@code dry_run}</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class MediaReconcileService {
+
+    static final List<String> FOLDERS = List.of("images/", "videos/");
+
+    private final S3Client s3Client;
+    private final MovieRepository movieRepository;
+    private final MediaObjectRepository mediaObjectRepository;
+    private final MediaPurgeTaskRepository purgeTaskRepository;
+    private final MediaPurgeService mediaPurgeService;
+
+    private final Counter scannedCounter;
+    private final Counter orphanCounter;
+    private final Counter dryRunOrphanCounter;
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    @Value("${media.reconcile.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${media.reconcile.dry-run:true}")
+    private boolean dryRun = true;
+
+    @Value("${media.reconcile.grace-period-ms:172800000}")
+    private long gracePeriodMs = 172_800_000;
+
+    @Value("${media.reconcile.batch-size:1000}")
+    private int batchSize = MediaPurgeService.MAX_KEYS_PER_REQUEST;
+
+    @Value("${media.reconcile.max-purges-per-run:10000}")
+    private long maxPurgesPerRun = 10_000;
+
+    @Value("${media.reconcile.report-sample-size:20}")
+    private int reportSampleSize = 20;
+
+    public MediaReconcileService(S3Client s3Client, MovieRepository movieRepository,
+                                 MediaObjectRepository mediaObjectRepository,
+                                 MediaPurgeTaskRepository purgeTaskRepository, MediaPurgeService mediaPurgeService,
+                                 MeterRegistry meterRegistry) {
+        this.s3Client = s3Client;
+        this.movieRepository = movieRepository;
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.purgeTaskRepository = purgeTaskRepository;
+        this.mediaPurgeService = mediaPurgeService;
+
+        this.scannedCounter = meterRegistry.counter("media.reconcile.scanned");
+        this.orphanCounter = meterRegistry.counter("media.reconcile.orphans", "dry_run", "false");
+        this.dryRunOrphanCounter = meterRegistry.counter("media.reconcile.orphans", "dry_run", "true");
+    }
+
+
+    /**
+     * Outcome of one reconciliation run.
+     *
+     * @param dryRun       whether orphans were only reported
+     * @param scanned      objects listed
+     * @param recent       objects skipped because they are younger than the grace period
+     * @param orphans      unreferenced objects found
+     * @param orphanBytes  total size of the unreferenced objects
+     * @param queued       orphans queued for purge; 0 in dry-run mode
+     * @param sample       keys of the first orphans found, for the report
+     */
+    public record Report(boolean dryRun, long scanned, long recent, long orphans, long orphanBytes, long queued,
+                         List<String> sample) {
+    }
+
+
+    /**
+     * Runs a reconciliation with the configured mode, unless {@code media.reconcile.enabled} is off.
+     */
+    @Scheduled(fixedDelayString = "${media.reconcile.interval-ms:86400000}",
+            initialDelayString = "${media.reconcile.initial-delay-ms:3600000}")
+    public void reconcileScheduled() {
+        if (enabled)
+            reconcile(dryRun);
+    }
+
+
+    /**
+     * Scans both media folders once.
+     *
+     * @param dryRun if true, orphans are only reported and nothing is queued for purge
+     * @return what the run found
+     */
+    public Report reconcile(boolean dryRun) {
+        Run run = new Run(dryRun, Instant.now().minus(Duration.ofMillis(gracePeriodMs)));
+        int pageSize = Math.min(Math.max(batchSize, 1), MediaPurgeService.MAX_KEYS_PER_REQUEST);
+
+        for (String folder : FOLDERS) {
+            Iterator<S3Object> objects = s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                            .bucket(bucketName)
+                            .prefix(folder)
+                            .maxKeys(pageSize)
+                            .build())
+                    .contents()
+                    .iterator();
+
+            List<S3Object> batch = new ArrayList<>(pageSize);
+            while (objects.hasNext()) {
+                batch.add(objects.next());
+                if (batch.size() == pageSize) {
+                    run.check(folder, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty())
+                run.check(folder, batch);
+        }
+
+        Report report = run.report();
+        log.info("Media reconciliation{}: scanned {} objects, skipped {} recent, found {} orphans ({} bytes), queued {}; e.g. {}",
+                dryRun ? " (dry run)" : "", report.scanned(), report.recent(), report.orphans(), report.orphanBytes(),
+                report.queued(), report.sample());
+        return report;
+    }
+
+
+    /**
+     * Returns which of the listed keys of one folder are in use.
+     */
+    private Set<String> referencedKeys(String folder, Collection<String> keys) {
+        List<String> names = keys.stream().map(key -> key.substring(folder.length())).toList();
+        List<String> movieNames = "images/".equals(folder)
+                ? movieRepository.findImageNamesIn(names)
+                : movieRepository.findVideoNamesIn(names);
+
+        Set<String> referenced = new HashSet<>();
+        movieNames.forEach(name -> referenced.add(folder + name));
+        referenced.addAll(mediaObjectRepository.findTrackedKeys(keys));
+        referenced.addAll(purgeTaskRepository.findQueuedKeys(keys));
+        return referenced;
+    }
+
+
+    /**
+     * State of one run.
+     */
+    private final class Run {
+
+        private final boolean dryRun;
+        private final Instant cutoff;
+        private final List<String> sample = new ArrayList<>();
+
+        private long scanned;
+        private long recent;
+        private long orphans;
+        private long orphanBytes;
+        private long queued;
+
+        private Run(boolean dryRun, Instant cutoff) {
+            this.dryRun = dryRun;
+            this.cutoff = cutoff;
+        }
+
+        private void check(String folder, List<S3Object> batch) {
+            scanned += batch.size();
+            scannedCounter.increment(batch.size());
+
+            List<S3Object> candidates = batch.stream()
+                    .filter(object -> object.lastModified() == null || object.lastModified().isBefore(cutoff))
+                    .filter(object -> object.key().length() > folder.length())
+                    .toList();
+            recent += batch.size() - candidates.size();
+            if (candidates.isEmpty())
+                return;
+
+            Set<String> referenced = referencedKeys(folder, candidates.stream().map(S3Object::key).toList());
+
+            List<String> found = new ArrayList<>();
+            for (S3Object object : candidates) {
+                if (referenced.contains(object.key()))
+                    continue;
+
+                found.add(object.key());
+                orphanBytes += object.size() == null ? 0 : object.size();
+                if (sample.size() < reportSampleSize)
+                    sample.add(object.key());
+            }
+            if (found.isEmpty())
+                return;
+
+            orphans += found.size();
+            (dryRun ? dryRunOrphanCounter : orphanCounter).increment(found.size());
+            if (dryRun)
+                return;
+
+            long room = maxPurgesPerRun - queued;
+            if (room <= 0)
+                return;
+            if (found.size() > room) {
+                log.warn("Media reconciliation reached {} purges in this run; remaining orphans are left for the next run",
+                        maxPurgesPerRun);
+                found = found.subList(0, (int) room);
+            }
+
+            mediaPurgeService.enqueue(found);
+            queued += found.size();
+        }
+
+        private Report report() {
+            return new Report(dryRun, scanned, recent, orphans, orphanBytes, queued, List.copyOf(sample));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.entity.MediaObject;
+import com.bestflix.movie.repository.MediaObjectRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/**
+ * Tracks how many movies reference each content-addressed media object.
+ * <p>
+ * Images and videos uploaded through {@link FileStorageService} and {@link AsyncFileStorageService} are
+ * stored as {@code <folder>/<sha256>.<ext>}, so identical files share one object. Each movie that uses an
+ * object holds one reference in {@link MediaObject}. An upload takes its reference before writing and skips
+ * the write if the content is already stored, and an object is only queued for purge when its last
+ * reference is released.
+ * </p>
+ * <p>
+ * The purge and new references are serialized on the object's row: an unreferenced row stays in place until
+ * {@link MediaPurgeService} locks it, deletes the object and drops the row in one transaction, and
+ * {@link #acquire} changes the count with an update that waits for that lock. An upload therefore either
+ * revives the object before the purge looks at it, or finds it gone and writes it again.
+ * </p>
+ * <p>
+ * Objects stored under random names (older uploads and the resumable, direct and streaming flows,
+ * which only know the hash once the bytes are already in storage) have no row; releasing such a key
+ * purges it right away, exactly like before.
+ * </p>
+ */
+@Service
+public class MediaReferenceService {
+
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]+)?");
+
+    private final MediaObjectRepository mediaObjectRepository;
+    private final MediaPurgeService mediaPurgeService;
+    private final TransactionTemplate newTransaction;
+
+    public MediaReferenceService(MediaObjectRepository mediaObjectRepository, MediaPurgeService mediaPurgeService,
+                                 PlatformTransactionManager transactionManager) {
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.mediaPurgeService = mediaPurgeService;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    /**
+     * Computes the content-addressed file name of an upload: its SHA-256 plus the extension of its detected format.
+     *
+     * @param file  the uploaded file
+     * @param media format detected by {@link MediaSniffer}
+     * @return name such as {@code 9f86d0...0a08.jpg}
+     * @throws IOException if the file cannot be read
+     */
+    public static String contentName(MultipartFile file, MediaSniffer.Media media) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest()) + media.extension();
+    }
+
+
+    /**
+     * Takes a reference to an object before it is stored, creating its row on first use. While the reference is
+     * held the object is never purged. Safe against concurrent uploads of the same content and against a purge
+     * of it: the purge locks the row, so this waits for it and then either keeps the object alive or finds the
+     * row gone and creates it again.
+     *
+     * @param objectKey full object key
+     * @param size      object size in bytes
+     * @return true if the content is already in the bucket and the upload can be skipped; otherwise the caller
+     *         uploads it and calls {@link #markStored}, or {@link #release} if the upload fails
+     */
+    public boolean acquire(String objectKey, long size) {
+        if (mediaObjectRepository.incrementReferences(objectKey) > 0) {
+            // another upload of the same content may still be writing it; then write it as well
+            return mediaObjectRepository.findById(objectKey).map(object -> !object.isUploading()).orElse(false);
+        }
+
+        String name = objectKey.substring(objectKey.lastIndexOf('/') + 1);
+        MediaObject mediaObject = MediaObject.builder()
+                .objectKey(objectKey)
+                .sha256(name.contains(".") ? name.substring(0, name.indexOf('.')) : name)
+                .size(size)
+                .referenceCount(1)
+                .uploading(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        try {
+            // in its own transaction, so losing the insert race does not doom the caller's transaction
+            newTransaction.executeWithoutResult(status -> mediaObjectRepository.saveAndFlush(mediaObject));
+        } catch (DataIntegrityViolationException e) {
+            mediaObjectRepository.incrementReferences(objectKey);
+        }
+        return false;
+    }
+
+
+    /**
+     * Records that an upload started with {@link #acquire} wrote the object, so later uploads of the same content
+     * skip the write.
+     *
+     * @param objectKey full object key
+     */
+    public void markStored(String objectKey) {
+        mediaObjectRepository.markStored(objectKey);
+    }
+
+
+    /**
+     * Releases one reference per key and queues objects that are no longer referenced for purge.
+     * Their rows stay, with no references, until the purge deletes them together with the object;
+     * keys without a row are purged right away.
+     *
+     * @param objectKeys full object keys
+     */
+    @Transactional
+    public void release(Collection<String> objectKeys) {
+        List<String> unreferenced = new ArrayList<>();
+
+        for (String objectKey : objectKeys) {
+            if (objectKey == null || objectKey.isBlank())
+                continue;
+
+            if (mediaObjectRepository.decrementReferences(objectKey) == 0
+                    || mediaObjectRepository.existsByObjectKeyAndReferenceCountLessThanEqual(objectKey, 0)) {
+                unreferenced.add(objectKey);
+            }
+        }
+
+        if (!unreferenced.isEmpty())
+            mediaPurgeService.enqueue(unreferenced);
+    }
+
+
+    /**
+     * @param objectKey full object key
+     * @return true if the key names content-addressed media, i.e. a SHA-256 plus extension
+     */
+    public static boolean isContentAddressed(String objectKey) {
+        return CONTENT_NAME.matcher(objectKey.substring(objectKey.lastIndexOf('/') + 1)).matches();
+    }
+
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
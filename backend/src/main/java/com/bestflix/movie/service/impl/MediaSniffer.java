@@ -0,0 +1,230 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Detects the format of uploaded media from its leading bytes instead of the client's file name and
+ * {@code Content-Type}.
+ * <p>
+ * Only the first {@link #HEADER_BYTES} bytes are inspected. Images must be JPEG, PNG or WebP; videos must be
+ * MP4 (any ISO base media brand that is not an image), WebM or Matroska. Stored media is named with the
+ * detected extension, so {@link #contentTypeOf(String)} recovers the type from a stored name.
+ * </p>
+ */
+public final class MediaSniffer {
+
+    /**
+     * Number of leading bytes inspected.
+     */
+    public static final int HEADER_BYTES = 4096;
+
+    private static final String FALLBACK_CONTENT_TYPE = "application/octet-stream";
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] EBML = {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3};
+    private static final byte[] EBML_DOC_TYPE = {0x42, (byte) 0x82};
+
+    // ISO base media brands used by HEIF and AVIF still images
+    private static final Set<String> IMAGE_BRANDS =
+            Set.of("heic", "heix", "hevc", "hevx", "heim", "heis", "mif1", "msf1", "avif", "avis");
+
+    private MediaSniffer() {
+    }
+
+
+    /**
+     * A supported media format.
+     */
+    public enum Media {
+        JPEG("image/jpeg", ".jpg", true),
+        PNG("image/png", ".png", true),
+        WEBP("image/webp", ".webp", true),
+        MP4("video/mp4", ".mp4", false),
+        WEBM("video/webm", ".webm", false),
+        MKV("video/x-matroska", ".mkv", false);
+
+        private final String contentType;
+        private final String extension;
+        private final boolean image;
+
+        Media(String contentType, String extension, boolean image) {
+            this.contentType = contentType;
+            this.extension = extension;
+            this.image = image;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public boolean isImage() {
+            return image;
+        }
+    }
+
+
+    /**
+     * Detects the format of an uploaded image.
+     *
+     * @param file the uploaded file
+     * @return the detected format
+     * @throws IOException if the file cannot be read
+     * @throws UnsupportedMediaException if the file is not a JPEG, PNG or WebP image
+     */
+    public static Media sniffImage(MultipartFile file) throws IOException {
+        return require(detect(readHeader(file)), true, "image");
+    }
+
+
+    /**
+     * Detects the format of an uploaded video.
+     *
+     * @param file the uploaded file
+     * @return the detected format
+     * @throws IOException if the file cannot be read
+     * @throws UnsupportedMediaException if the file is not an MP4, WebM or Matroska video
+     */
+    public static Media sniffVideo(MultipartFile file) throws IOException {
+        return require(detect(readHeader(file)), false, "video");
+    }
+
+
+    /**
+     * Checks that leading bytes belong to a supported image or video.
+     *
+     * @param header leading bytes of the content, ideally {@link #HEADER_BYTES} of them
+     * @param image  whether an image is expected rather than a video
+     * @param part   name of the upload part, used in the error message
+     * @return the detected format
+     * @throws UnsupportedMediaException if the content is not of the expected kind
+     */
+    public static Media require(byte[] header, boolean image, String part) {
+        return require(detect(header), image, part);
+    }
+
+
+    /**
+     * Detects a supported format from leading bytes.
+     *
+     * @param header leading bytes of the content
+     * @return the detected format, or {@code null} if none matches
+     */
+    public static Media detect(byte[] header) {
+        if (startsWith(header, 0, JPEG))
+            return Media.JPEG;
+        if (startsWith(header, 0, PNG))
+            return Media.PNG;
+        if (startsWith(header, 0, ascii("RIFF")) && startsWith(header, 8, ascii("WEBP")))
+            return Media.WEBP;
+        if (startsWith(header, 4, ascii("ftyp")) && header.length >= 12) {
+            String brand = new String(header, 8, 4, StandardCharsets.US_ASCII);
+            return IMAGE_BRANDS.contains(brand) ? null : Media.MP4;
+        }
+        if (startsWith(header, 0, EBML))
+            return matroskaDocType(header);
+        return null;
+    }
+
+
+    /**
+     * Returns the content type of media stored under a name produced for a detected format.
+     *
+     * @param storedName file name inside {@code images/} or {@code videos/}
+     * @return the content type, or {@code application/octet-stream} for names without a known extension
+     */
+    public static String contentTypeOf(String storedName) {
+        if (storedName != null) {
+            String lower = storedName.toLowerCase(Locale.ROOT);
+            for (Media media : Media.values()) {
+                if (lower.endsWith(media.extension()))
+                    return media.contentType();
+            }
+        }
+        return FALLBACK_CONTENT_TYPE;
+    }
+
+
+    /**
+     * Looks up the supported format a client declared by its content type.
+     *
+     * @param contentType declared MIME type
+     * @param image       whether an image is expected rather than a video
+     * @param part        name of the upload part, used in the error message
+     * @return the declared format
+     * @throws UnsupportedMediaException if the type is not a supported image or video type
+     */
+    public static Media forContentType(String contentType, boolean image, String part) {
+        Media declared = null;
+        for (Media media : Media.values()) {
+            if (media.contentType().equalsIgnoreCase(contentType))
+                declared = media;
+        }
+        return require(declared, image, part);
+    }
+
+
+    private static Media require(Media detected, boolean image, String part) {
+        if (detected == null || detected.isImage() != image) {
+            throw new UnsupportedMediaException(image
+                    ? part + " must be a JPEG, PNG or WebP image"
+                    : part + " must be an MP4, WebM or Matroska video");
+        }
+        return detected;
+    }
+
+
+    private static byte[] readHeader(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return in.readNBytes(HEADER_BYTES);
+        }
+    }
+
+
+    /**
+     * WebM and Matroska share the EBML container; the DocType element in the header tells them apart.
+     */
+    private static Media matroskaDocType(byte[] header) {
+        for (int i = EBML.length; i + EBML_DOC_TYPE.length < header.length; i++) {
+            if (!startsWith(header, i, EBML_DOC_TYPE))
+                continue;
+
+            int sizeByte = header[i + EBML_DOC_TYPE.length] & 0xFF;
+            if ((sizeByte & 0x80) == 0)
+                return null; // DocType is a short string, its size always fits one byte
+
+            int start = i + EBML_DOC_TYPE.length + 1;
+            int length = Math.min(sizeByte & 0x7F, header.length - start);
+            String docType = new String(header, start, length, StandardCharsets.US_ASCII);
+            return switch (docType) {
+                case "webm" -> Media.WEBM;
+                case "matroska" -> Media.MKV;
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        return data.length >= offset + prefix.length
+                && Arrays.equals(data, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
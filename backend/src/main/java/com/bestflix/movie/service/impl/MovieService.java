@@ -1,5 +1,6 @@
 package com.bestflix.movie.service.impl;
 
+import com.bestflix.movie.datasource.ReadYourWritesTracker;
 import com.bestflix.movie.entity.Movie;
 import com.bestflix.movie.entity.UsersMovie;
 import com.bestflix.movie.exception.MovieNotFoundException;
@@ -10,18 +11,21 @@ import com.bestflix.movie.repository.UsersMovieRepository;
 import com.bestflix.movie.security.entity.Users;
 import com.bestflix.movie.security.repository.UserRepository;
 import com.bestflix.movie.service.IMovieService;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutBucketAclRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -35,10 +39,14 @@ import java.util.stream.Collectors;
 public class MovieService implements IMovieService {
 
     private final FileStorageService fileStorageService;
+    private final AsyncFileStorageService asyncFileStorageService;
     private final MovieRepository movieRepository;
     private final UserRepository userRepository;
     private final UsersMovieRepository usersMovieRepository;
     private final S3Client s3Client;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final MediaReferenceService mediaReferenceService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${cloud.aws.region.static}")
     private String region;
@@ -46,13 +54,20 @@ public class MovieService implements IMovieService {
     @Value("${cloud.aws.bucket.name}")
     private String bucketName;
 
-    public MovieService(FileStorageService fileStorageService, MovieRepository movieRepository,
-                        UserRepository userRepository, UsersMovieRepository usersMovieRepository, S3Client s3Client){
+    public MovieService(FileStorageService fileStorageService, AsyncFileStorageService asyncFileStorageService,
+                        MovieRepository movieRepository,
+                        UserRepository userRepository, UsersMovieRepository usersMovieRepository, S3Client s3Client,
+                        ReadYourWritesTracker readYourWritesTracker, MediaReferenceService mediaReferenceService,
+                        PlatformTransactionManager transactionManager){
         this.fileStorageService = fileStorageService;
+        this.asyncFileStorageService = asyncFileStorageService;
         this.movieRepository = movieRepository;
         this.userRepository = userRepository;
         this.usersMovieRepository = usersMovieRepository;
         this.s3Client = s3Client;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.mediaReferenceService = mediaReferenceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
@@ -61,11 +76,11 @@ public class MovieService implements IMovieService {
      *
      * <p><strong>Workflow:</strong></p>
      * <ul>
-     *   <li>Validates and stores image and video files using FileStorageService and VideoFileStorageService.</li>
+     *   <li>Looks up the uploading user by username via UserRepository, before any file is stored.</li>
+     *   <li>Stores the image and video files concurrently using AsyncFileStorageService.</li>
      *   <li>Builds a Movie entity including file metadata and binary content.</li>
      *   <li>Saves the Movie entity in the MovieRepository.</li>
-     *   <li>Looks up the uploading user by username via UserRepository.</li>
-     *   <li>If found, associates the user with the uploaded movie via UsersMovieRepository.</li>
+     *   <li>Associates the user with the uploaded movie via UsersMovieRepository.</li>
      * </ul>
      *
      * @param username the unique username of the user uploading the movie
@@ -79,8 +94,46 @@ public class MovieService implements IMovieService {
     @Override
     public Movie uploadMovie(String username, Movie movie, MultipartFile image, MultipartFile video) throws IOException {
 
-        String imageKey = fileStorageService.saveImage(image);
-        String videoKey = fileStorageService.saveVideo(video);
+        Users user = findUploader(username);
+
+        AsyncFileStorageService.StoredMedia media = asyncFileStorageService.saveImageAndVideo(image, video);
+
+        return saveUploadedMovie(user, movie, media.imageName(), MediaSniffer.contentTypeOf(media.imageName()),
+                media.videoName(), MediaSniffer.contentTypeOf(media.videoName()));
+    }
+
+
+
+    /**
+     * Persists a movie whose image and video are already stored in S3 and links it to the uploader.
+     * Shared by the single-request upload and the resumable chunked upload.
+     *
+     * @param username  the unique username of the uploader
+     * @param movie     metadata of the movie
+     * @param imageName file name of the image inside {@code images/}
+     * @param imageType MIME type of the image
+     * @param videoName file name of the video inside {@code videos/}
+     * @param videoType MIME type of the video
+     * @return the saved Movie entity
+     * @throws UserNotFoundException if the provided username does not match any existing user
+     */
+    @Override
+    public Movie saveUploadedMovie(String username, Movie movie, String imageName, String imageType,
+                                   String videoName, String videoType) {
+
+        return saveUploadedMovie(findUploader(username), movie, imageName, imageType, videoName, videoType);
+    }
+
+
+    private Users findUploader(String username) {
+        Users user = userRepository.findByUsername(username);
+        if (user == null) throw new UserNotFoundException(username);
+        return user;
+    }
+
+
+    private Movie saveUploadedMovie(Users user, Movie movie, String imageName, String imageType,
+                                    String videoName, String videoType) {
 
         Movie movieFile = Movie.builder()
                 .movieName(movie.getMovieName())
@@ -90,24 +143,22 @@ public class MovieService implements IMovieService {
                 .duration(movie.getDuration())
                 .about(movie.getAbout())
                 .category(movie.getCategory())
-                .imageName(imageKey)
-                .imageType(image.getContentType())
-                .videoName(videoKey)
-                .videoType(video.getContentType())
-                .videoPath("https://" + bucketName + ".s3." + region + ".amazonaws.com/" + videoKey)
+                .imageName(imageName)
+                .imageType(imageType)
+                .videoName(videoName)
+                .videoType(videoType)
+                .videoPath("https://" + bucketName + ".s3." + region + ".amazonaws.com/" + videoName)
                 .build();
 
         Movie savedMovie = movieRepository.save(movieFile);
 
-        Users user = userRepository.findByUsername(username);
-        if (user == null) throw new UserNotFoundException(username);
-
         UsersMovie myMovie = UsersMovie.builder()
                 .user(user)
                 .movie(savedMovie)
                 .build();
 
         usersMovieRepository.save(myMovie);
+        readYourWritesTracker.recordWrite(user.getUsername());
 
         return savedMovie;
     }
@@ -117,15 +168,19 @@ public class MovieService implements IMovieService {
     /**
      * Retrieves all movies uploaded by the specified user.
      * Uses transactional consistency to ensure associated data is fully fetched.
+     * Runs read-only, so it may be served by a replica unless the user wrote recently.
      *
      * @param username the unique identifier of the user
      * @return list of Movies owned by the user
      * @throws MovieNotFoundException if the user has no associated movies
      */
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public List<Movie> getMyMovies(String username)  {
-        List<UsersMovie> userMovies = usersMovieRepository.findByUserUsername(username);
+        List<UsersMovie> userMovies;
+        try (ReadYourWritesTracker.PrimaryPin ignored = readYourWritesTracker.pinIfRecentWriter(username)) {
+            userMovies = usersMovieRepository.findByUserUsername(username);
+        }
 
         if(userMovies == null || userMovies.isEmpty())
             throw new MovieNotFoundException();
@@ -146,7 +201,7 @@ public class MovieService implements IMovieService {
      * @return list of all Movie entities
      * @throws MovieNotFoundException if no movies are available in the database
      */
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public List<Movie> getMovies() {
 
@@ -167,6 +222,7 @@ public class MovieService implements IMovieService {
      * @return Optional container with Movie if found
      * @throws MovieNotFoundException if the movie is missing or was deleted
      */
+    @Transactional(readOnly = true)
     @Override
     public Optional<Movie> getMovieById(Long id) {
 
@@ -180,32 +236,35 @@ public class MovieService implements IMovieService {
 
 
     /**
-     * Deletes a movie and its associated user mappings.
-     * Ensures referential integrity by removing `UsersMovie` references before deletion.
+     * Soft-deletes a movie and removes its user mappings in a single short transaction.
+     * The movie is hidden from every query immediately, while its references to the image and video
+     * objects are released; objects no other movie uses are removed from S3 in the background.
      *
      * @param id the ID of the movie to delete
      * @return confirmation message upon successful deletion
+     * @throws MovieNotFoundException if the movie does not exist or was already deleted
      */
+    @Transactional
     @Override
     public String deleteMovieById(Long id) {
 
         Movie movie = movieRepository.findById(id).orElseThrow(()-> new MovieNotFoundException());
 
-        s3Client.deleteObject(DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key("images/" + movie.getImageName())
-                .build());
+        UsersMovie owner = usersMovieRepository.findByMovieId(id);
+        usersMovieRepository.deleteAllByMovieId(id);
 
-        s3Client.deleteObject(DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key("videos/" + movie.getVideoName())
-                .build());
+        movie.setDeleted(true);
+        movie.setDeletedAt(LocalDateTime.now());
+        movieRepository.save(movie);
 
-        usersMovieRepository.deleteAllByMovieId(id);
+        mediaReferenceService.release(List.of(
+                "images/" + movie.getImageName(),
+                "videos/" + movie.getVideoName()));
 
-        movieRepository.deleteById(id);
+        if (owner != null && owner.getUser() != null)
+            readYourWritesTracker.recordWrite(owner.getUser().getUsername());
 
-        return "Movie deleted completely";
+        return "Movie deleted";
     }
 
 
@@ -213,7 +272,11 @@ public class MovieService implements IMovieService {
 
     /**
      * Updates an existing movie entry with new metadata and media files.
-     * Replaces image/video files and updates `UsersMovie` references.
+     * <p>
+     * The new image and video are stored first, outside the database transaction. The row and its
+     * `UsersMovie` reference are then updated in one short transaction, which also releases the references to
+     * the old media. If that fails, the newly stored media is released again and the old media stays in place.
+     * </p>
      *
      * @param movieId ID of the movie to be updated
      * @param movie updated metadata fields
@@ -227,46 +290,182 @@ public class MovieService implements IMovieService {
     @Override
     public Movie updateMovie(Long movieId, Movie movie, MultipartFile image, MultipartFile video) throws IOException {
 
-        Movie updatedMovie = movieRepository.findById(movieId).orElseThrow(()-> new MovieNotFoundException());
-
-        s3Client.deleteObject(DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key("images/" + updatedMovie.getImageName())
-                .build());
-
-        s3Client.deleteObject(DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key("videos/" + updatedMovie.getVideoName())
-                .build());
-
-        String newImageKey = fileStorageService.saveImage(image);
-        String newVideoKey = fileStorageService.saveVideo(video);
-
-        updatedMovie.setMovieName(movie.getMovieName());
-        updatedMovie.setCountry(movie.getCountry());
-        updatedMovie.setReleaseDate(movie.getReleaseDate());
-        updatedMovie.setCasts(movie.getCasts());
-        updatedMovie.setDuration(movie.getDuration());
-        updatedMovie.setAbout(movie.getAbout());
-        updatedMovie.setCategory(movie.getCategory());
-        updatedMovie.setImageName(newImageKey);
-        updatedMovie.setImageType(image.getContentType());
-        updatedMovie.setVideoName(newVideoKey);
-        updatedMovie.setVideoType(video.getContentType());
-        updatedMovie.setVideoPath("https://" + bucketName + ".s3." + region + ".amazonaws.com/" + newVideoKey);
+        movieRepository.findById(movieId).orElseThrow(()-> new MovieNotFoundException());
+
+        // both files are checked before either is stored, so an unsupported video leaves no image behind
+        MediaSniffer.sniffImage(image);
+        MediaSniffer.sniffVideo(video);
+
+        String newImageName = fileStorageService.saveImage(image);
+        String newVideoName;
+        try {
+            newVideoName = fileStorageService.saveVideo(video);
+        } catch (IOException | RuntimeException e) {
+            mediaReferenceService.release(List.of("images/" + newImageName));
+            throw e;
+        }
+
+        List<String> newKeys = List.of("images/" + newImageName, "videos/" + newVideoName);
+
+        try {
+            return transactionTemplate.execute(status -> {
+                Movie updatedMovie = movieRepository.findById(movieId).orElseThrow(()-> new MovieNotFoundException());
+
+                List<String> replacedKeys = List.of(
+                        "images/" + updatedMovie.getImageName(),
+                        "videos/" + updatedMovie.getVideoName());
+
+                updatedMovie.setMovieName(movie.getMovieName());
+                updatedMovie.setCountry(movie.getCountry());
+                updatedMovie.setReleaseDate(movie.getReleaseDate());
+                updatedMovie.setCasts(movie.getCasts());
+                updatedMovie.setDuration(movie.getDuration());
+                updatedMovie.setAbout(movie.getAbout());
+                updatedMovie.setCategory(movie.getCategory());
+                updatedMovie.setImageName(newImageName);
+                updatedMovie.setImageType(MediaSniffer.contentTypeOf(newImageName));
+                updatedMovie.setVideoName(newVideoName);
+                updatedMovie.setVideoType(MediaSniffer.contentTypeOf(newVideoName));
+                updatedMovie.setVideoPath("https://" + bucketName + ".s3." + region + ".amazonaws.com/" + newVideoName);
+
+                movieRepository.save(updatedMovie);
+
+                UsersMovie usersMovie = usersMovieRepository.findByMovieId(movieId);
+                if (usersMovie == null)
+                    throw new UserMoviesNotFoundException();
+
+                usersMovie.setMovie(updatedMovie);
+                usersMovieRepository.save(usersMovie);
+
+                // the new media holds its own references, so releasing the old ones never drops shared content
+                mediaReferenceService.release(replacedKeys);
+                readYourWritesTracker.recordWrite(usersMovie.getUser() != null ? usersMovie.getUser().getUsername() : null);
+
+                return updatedMovie;
+            });
+        } catch (RuntimeException e) {
+            mediaReferenceService.release(newKeys);
+            throw e;
+        }
+    }
 
 
-        movieRepository.save(updatedMovie);
+    /**
+     * Applies a partial update: only the metadata fields that are not {@code null} and the media files that
+     * were supplied are changed.
+     *
+     * <p><strong>Workflow:</strong></p>
+     * <ul>
+     *   <li>Without media, the metadata is changed with a single UPDATE and nothing is uploaded.</li>
+     *   <li>Supplied media is stored first, outside the database transaction; both files are uploaded concurrently.</li>
+     *   <li>The row is then updated in one short transaction, which also releases the references to the
+     *       replaced media. Their objects are purged in the background, so they are only removed once the
+     *       new row is committed.</li>
+     *   <li>If the update fails, the newly stored media is released again and the old media stays in place.</li>
+     * </ul>
+     *
+     * @param movieId  ID of the movie to update
+     * @param username the caller, taken from the authenticated principal; only the uploader may change a movie
+     * @param changes  metadata to change; {@code null} fields, or a {@code null} object, keep their current value
+     * @param image    new image file, or {@code null} to keep the current one
+     * @param video    new video file, or {@code null} to keep the current one
+     * @throws IOException if storing a new file fails
+     * @throws MovieNotFoundException if the movie does not exist, was deleted or belongs to someone else
+     */
+    @Override
+    public void patchMovie(Long movieId, String username, Movie changes, MultipartFile image, MultipartFile video)
+            throws IOException {
+
+        requireOwner(movieId, username);
+
+        Movie metadata = changes != null ? changes : new Movie();
+        boolean replaceImage = image != null && !image.isEmpty();
+        boolean replaceVideo = video != null && !video.isEmpty();
+
+        if (!replaceImage && !replaceVideo) {
+            transactionTemplate.executeWithoutResult(status -> {
+                int updated = movieRepository.updateMetadata(movieId, metadata.getMovieName(), metadata.getCountry(),
+                        metadata.getReleaseDate(), metadata.getCasts(), metadata.getDuration(), metadata.getAbout(),
+                        metadata.getCategory());
+                if (updated == 0)
+                    throw new MovieNotFoundException();
+                recordOwnerWrite(movieId);
+            });
+            return;
+        }
+
+        if (!movieRepository.existsById(movieId))
+            throw new MovieNotFoundException();
 
-        UsersMovie usersMovie = usersMovieRepository.findByMovieId(movieId);
-        if (usersMovie == null)
-            throw new UserMoviesNotFoundException();
+        String newImageName = null;
+        String newVideoName = null;
+
+        if (replaceImage && replaceVideo) {
+            AsyncFileStorageService.StoredMedia media = asyncFileStorageService.saveImageAndVideo(image, video);
+            newImageName = media.imageName();
+            newVideoName = media.videoName();
+        } else if (replaceImage) {
+            newImageName = fileStorageService.saveImage(image);
+        } else {
+            newVideoName = fileStorageService.saveVideo(video);
+        }
+
+        List<String> newKeys = new ArrayList<>();
+        if (newImageName != null) newKeys.add("images/" + newImageName);
+        if (newVideoName != null) newKeys.add("videos/" + newVideoName);
+
+        String imageName = newImageName;
+        String videoName = newVideoName;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Movie movie = movieRepository.findById(movieId).orElseThrow(() -> new MovieNotFoundException());
+                List<String> replacedKeys = new ArrayList<>();
+
+                if (metadata.getMovieName() != null) movie.setMovieName(metadata.getMovieName());
+                if (metadata.getCountry() != null) movie.setCountry(metadata.getCountry());
+                if (metadata.getReleaseDate() != null) movie.setReleaseDate(metadata.getReleaseDate());
+                if (metadata.getCasts() != null) movie.setCasts(metadata.getCasts());
+                if (metadata.getDuration() != null) movie.setDuration(metadata.getDuration());
+                if (metadata.getAbout() != null) movie.setAbout(metadata.getAbout());
+                if (metadata.getCategory() != null) movie.setCategory(metadata.getCategory());
+
+                if (imageName != null) {
+                    replacedKeys.add("images/" + movie.getImageName());
+                    movie.setImageName(imageName);
+                    movie.setImageType(MediaSniffer.contentTypeOf(imageName));
+                }
+                if (videoName != null) {
+                    replacedKeys.add("videos/" + movie.getVideoName());
+                    movie.setVideoName(videoName);
+                    movie.setVideoType(MediaSniffer.contentTypeOf(videoName));
+                    movie.setVideoPath("https://" + bucketName + ".s3." + region + ".amazonaws.com/" + videoName);
+                }
+
+                movieRepository.save(movie);
+                mediaReferenceService.release(replacedKeys);
+                recordOwnerWrite(movieId);
+            });
+        } catch (RuntimeException e) {
+            mediaReferenceService.release(newKeys);
+            throw e;
+        }
+    }
 
-        usersMovie.setMovie(updatedMovie);
-        usersMovieRepository.save(usersMovie);
 
-        return updatedMovie;
+    /**
+     * Movies of other users are reported as missing, so their ids cannot be probed.
+     */
+    private void requireOwner(Long movieId, String username) {
+        UsersMovie owner = usersMovieRepository.findByMovieId(movieId);
+        if (owner == null || owner.getUser() == null || !owner.getUser().getUsername().equals(username))
+            throw new MovieNotFoundException();
     }
 
 
+    private void recordOwnerWrite(Long movieId) {
+        UsersMovie owner = usersMovieRepository.findByMovieId(movieId);
+        if (owner != null && owner.getUser() != null)
+            readYourWritesTracker.recordWrite(owner.getUser().getUsername());
+    }
 }
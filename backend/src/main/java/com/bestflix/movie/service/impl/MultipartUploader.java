@@ -0,0 +1,227 @@
+package com.bestflix.movie.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Uploads large objects to S3 as a multipart upload with several parts in flight at once.
+ * <p>
+ * The source stream is cut into parts of {@code cloud.aws.multipart.part-size-bytes}. Up to
+ * {@code cloud.aws.multipart.parallelism} parts are uploaded concurrently; reading the next part
+ * waits for a free slot, so at most {@code parallelism × partSize} bytes are held in memory per upload.
+ * Each part is retried on its own, so a transient error only resends that part. If a part still fails,
+ * the multipart upload is aborted so S3 does not keep (and bill for) the orphaned parts.
+ * </p>
+ */
+@Slf4j
+@Component
+public class MultipartUploader {
+
+    /**
+     * Smallest part size S3 accepts for every part but the last.
+     */
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final ExecutorService partExecutor;
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    @Value("${cloud.aws.multipart.threshold-bytes:67108864}")
+    private long thresholdBytes = 64L * 1024 * 1024;
+
+    @Value("${cloud.aws.multipart.part-size-bytes:16777216}")
+    private int partSizeBytes = 16 * 1024 * 1024;
+
+    @Value("${cloud.aws.multipart.parallelism:4}")
+    private int parallelism = 4;
+
+    @Value("${cloud.aws.multipart.max-part-attempts:3}")
+    private int maxPartAttempts = 3;
+
+    @Value("${cloud.aws.multipart.retry-backoff-ms:200}")
+    private long retryBackoffMs = 200;
+
+    public MultipartUploader(S3Client s3Client, @Qualifier("multipartPartExecutor") ExecutorService partExecutor) {
+        this.s3Client = s3Client;
+        this.partExecutor = partExecutor;
+    }
+
+
+    /**
+     * @param size object size in bytes
+     * @return true if an object of this size should be sent as a multipart upload
+     */
+    public boolean shouldUseMultipart(long size) {
+        return size >= thresholdBytes;
+    }
+
+
+    /**
+     * @return size of every part but the last, never below the S3 minimum
+     */
+    public int partSize() {
+        return Math.max(partSizeBytes, MIN_PART_SIZE);
+    }
+
+
+    /**
+     * Uploads the stream as a multipart object and blocks until it is complete.
+     *
+     * @param key            object key
+     * @param contentType    MIME type stored with the object
+     * @param inputStream    source data; read sequentially and not closed
+     * @param abortRequested polled between parts; returning true aborts the upload
+     * @throws IOException if reading the source fails, a part cannot be stored, or the upload was aborted
+     */
+    public void upload(String key, String contentType, InputStream inputStream, BooleanSupplier abortRequested)
+            throws IOException {
+
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+
+        int partSize = partSize();
+        Semaphore inFlight = new Semaphore(Math.max(parallelism, 1));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<CompletedPart>> parts = new ArrayList<>();
+
+        try {
+            for (int partNumber = 1; ; partNumber++) {
+                inFlight.acquire();
+
+                if (failure.get() != null || abortRequested.getAsBoolean()) {
+                    inFlight.release();
+                    break;
+                }
+
+                byte[] buffer = inputStream.readNBytes(partSize);
+                if (buffer.length == 0 && partNumber > 1) {
+                    inFlight.release();
+                    break;
+                }
+
+                int number = partNumber;
+                parts.add(partExecutor.submit(() -> {
+                    try {
+                        return uploadPart(key, uploadId, number, buffer);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+
+                if (buffer.length < partSize) {
+                    break;
+                }
+            }
+
+            List<CompletedPart> completed = new ArrayList<>();
+            for (Future<CompletedPart> part : parts) {
+                completed.add(part.get());
+            }
+
+            if (abortRequested.getAsBoolean()) {
+                throw new IOException("Multipart upload of " + key + " was cancelled");
+            }
+
+            completed.sort(Comparator.comparing(CompletedPart::partNumber));
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(key, uploadId, parts);
+            throw new IOException("Multipart upload of " + key + " was interrupted", e);
+        } catch (ExecutionException e) {
+            abort(key, uploadId, parts);
+            throw new IOException("Multipart upload of " + key + " failed", e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId, parts);
+            throw e instanceof IOException io ? io : new IOException("Multipart upload of " + key + " failed", e);
+        }
+    }
+
+
+    /**
+     * Uploads one part, retrying transient SDK errors with exponential backoff.
+     */
+    private CompletedPart uploadPart(String key, String uploadId, int partNumber, byte[] data) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) data.length)
+                        .build(), RequestBody.fromBytes(data)).eTag();
+
+                return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+            } catch (SdkException e) {
+                if (attempt >= maxPartAttempts) {
+                    throw e;
+                }
+                log.warn("Part {} of {} failed (attempt {}/{}), retrying", partNumber, key, attempt, maxPartAttempts, e);
+                sleep(retryBackoffMs << (attempt - 1));
+            }
+        }
+    }
+
+
+    private void abort(String key, String uploadId, List<Future<CompletedPart>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            log.error("Could not abort multipart upload {} of {}; rely on the bucket lifecycle rule", uploadId, key, e);
+        }
+    }
+
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry a part", e);
+        }
+    }
+}
@@ -5,8 +5,19 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 public class S3Config {
@@ -20,6 +31,21 @@ public class S3Config {
     @Value("${cloud.aws.region.static}")
     private String region;
 
+    @Value("${cloud.aws.async.max-concurrency:64}")
+    private int maxConcurrency;
+
+    @Value("${cloud.aws.async.upload-threads:8}")
+    private int uploadThreads;
+
+    @Value("${cloud.aws.multipart.threads:16}")
+    private int multipartThreads;
+
+    @Value("${media.upload-jobs.workers:2}")
+    private int uploadJobWorkers;
+
+    @Value("${media.upload-jobs.queue-capacity:16}")
+    private int uploadJobQueueCapacity;
+
     @Bean
     public S3Client s3Client(){
         AwsBasicCredentials awsBasicCredentials = AwsBasicCredentials.create(accessKey,secretKey);
@@ -28,4 +54,70 @@ public class S3Config {
                 .credentialsProvider(StaticCredentialsProvider.create(awsBasicCredentials))
                 .build();
     }
+
+    /**
+     * Non-blocking S3 client backed by Netty, used to run several transfers concurrently.
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient(){
+        AwsBasicCredentials awsBasicCredentials = AwsBasicCredentials.create(accessKey,secretKey);
+        return S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(awsBasicCredentials))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(maxConcurrency))
+                .build();
+    }
+
+    /**
+     * Signs URLs that let clients upload straight to the bucket without passing through the application.
+     */
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner(){
+        AwsBasicCredentials awsBasicCredentials = AwsBasicCredentials.create(accessKey,secretKey);
+        return S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(awsBasicCredentials))
+                .build();
+    }
+
+    /**
+     * Threads that read uploaded files from the local spool and feed them to the async client.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService mediaUploadExecutor(){
+        return namedPool("media-upload-", uploadThreads);
+    }
+
+    /**
+     * Threads that send individual parts of multipart uploads. Kept apart from
+     * {@link #mediaUploadExecutor()} so a running upload never waits on its own pool.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService multipartPartExecutor(){
+        return namedPool("multipart-part-", multipartThreads);
+    }
+
+    /**
+     * Workers that finish uploads accepted by {@link UploadJobService}. The queue is bounded, so a burst of
+     * uploads is turned away instead of piling up spooled files and crowding out the request threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor uploadJobExecutor(){
+        return new ThreadPoolExecutor(uploadJobWorkers, uploadJobWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadJobQueueCapacity), namedThreads("upload-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ExecutorService namedPool(String prefix, int threads){
+        return Executors.newFixedThreadPool(threads, namedThreads(prefix));
+    }
+
+    private static ThreadFactory namedThreads(String prefix){
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
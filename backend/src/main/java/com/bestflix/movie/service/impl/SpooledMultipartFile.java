@@ -0,0 +1,88 @@
+package com.bestflix.movie.service.impl;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * An uploaded file moved out of the request into a spool directory, so it outlives the request.
+ * Spring removes its own temporary upload files once the request completes.
+ */
+final class SpooledMultipartFile implements MultipartFile {
+
+    private final Path path;
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+
+    private SpooledMultipartFile(Path path, MultipartFile source) {
+        this.path = path;
+        this.name = source.getName();
+        this.originalFilename = source.getOriginalFilename();
+        this.contentType = source.getContentType();
+        this.size = source.getSize();
+    }
+
+    /**
+     * Moves an uploaded file to {@code target}. Goes through {@link MultipartFile#transferTo(File)}, which hands
+     * the file to {@code Part.write}: the container renames a part it already wrote to disk instead of copying
+     * it, whereas {@link MultipartFile#transferTo(Path)} always copies the bytes.
+     *
+     * @param source the uploaded file
+     * @param target where to keep it
+     * @return the spooled file
+     * @throws IOException if the file cannot be written
+     */
+    static SpooledMultipartFile spool(MultipartFile source, Path target) throws IOException {
+        // absolute, because Part.write resolves a relative path against the container's upload location
+        source.transferTo(target.toAbsolutePath().toFile());
+        return new SpooledMultipartFile(target, source);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
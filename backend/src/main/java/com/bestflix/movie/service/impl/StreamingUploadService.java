@@ -0,0 +1,176 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.InvalidUploadRequestException;
+import com.bestflix.movie.service.IMovieService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.RequestContext;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Uploads a movie by reading the multipart request body as it arrives, without spooling parts to disk.
+ * <p>
+ * The request must not have been parsed by the servlet container, which is why multipart resolution is
+ * lazy. Each part is read straight from the request stream: the {@code movie} part is parsed as JSON, and
+ * the {@code image} and {@code video} parts are piped into S3 while they are still being received.
+ * A part that fits into one multipart part is sent with a single {@code putObject}; anything larger goes
+ * through {@link MultipartUploader}, so at most {@code (parallelism + 1) × partSize} bytes of a file are
+ * held in memory at any time, regardless of its size.
+ * </p>
+ *
+ * <h2>Part Order</h2>
+ * Parts may arrive in any order. If the request ends without all three parts, or fails midway,
+ * the objects already stored are queued for purge.
+ */
+@Service
+public class StreamingUploadService {
+
+    private static final int MAX_METADATA_BYTES = 64 * 1024;
+
+    /**
+     * Limit on the headers of one part, so a client cannot make the parser buffer endless header lines.
+     */
+    private static final int MAX_PART_HEADER_BYTES = 8 * 1024;
+
+    private final MultipartUploader multipartUploader;
+    private final S3Client s3Client;
+    private final IMovieService movieService;
+    private final MediaPurgeService mediaPurgeService;
+    private final ObjectMapper objectMapper;
+
+    private final JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> fileUpload = new JakartaServletFileUpload<>();
+
+    @Value("${cloud.aws.bucket.name}")
+    private String bucketName;
+
+    public StreamingUploadService(MultipartUploader multipartUploader, S3Client s3Client, IMovieService movieService,
+                                  MediaPurgeService mediaPurgeService, ObjectMapper objectMapper,
+                                  @Value("${spring.servlet.multipart.max-request-size:1GB}") DataSize maxRequestSize) {
+        this.multipartUploader = multipartUploader;
+        this.s3Client = s3Client;
+        this.movieService = movieService;
+        this.mediaPurgeService = mediaPurgeService;
+        this.objectMapper = objectMapper;
+
+        fileUpload.setMaxSize(maxRequestSize.toBytes());
+        fileUpload.setMaxFileCount(3);
+        fileUpload.setMaxPartHeaderSize(MAX_PART_HEADER_BYTES);
+    }
+
+
+    /**
+     * Stores the image and video of a streaming multipart request and creates the movie.
+     *
+     * @param username the uploader
+     * @param request  the raw multipart request with {@code movie}, {@code image} and {@code video} parts
+     * @return the saved Movie entity
+     * @throws IOException if reading the request or storing a part fails
+     * @throws InvalidUploadRequestException if a part is missing or the metadata is too large
+     * @throws com.bestflix.movie.exception.UnsupportedMediaException if the image or video is not a supported format
+     */
+    public Movie upload(String username, RequestContext request) throws IOException {
+        List<String> storedKeys = new ArrayList<>();
+
+        Movie movie = null;
+        StoredPart image = null;
+        StoredPart video = null;
+
+        try {
+            FileItemInputIterator items = fileUpload.getItemIterator(request);
+
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+
+                switch (String.valueOf(item.getFieldName())) {
+                    case "movie" -> movie = readMetadata(item);
+                    case "image" -> {
+                        image = store("images/", item);
+                        storedKeys.add("images/" + image.name());
+                    }
+                    case "video" -> {
+                        video = store("videos/", item);
+                        storedKeys.add("videos/" + video.name());
+                    }
+                    default -> {
+                        // unknown parts are skipped by the iterator
+                    }
+                }
+            }
+
+            if (movie == null || image == null || video == null)
+                throw new InvalidUploadRequestException("movie, image and video parts are required");
+
+            return movieService.saveUploadedMovie(username, movie, image.name(), image.contentType(),
+                    video.name(), video.contentType());
+
+        } catch (IOException | RuntimeException e) {
+            if (!storedKeys.isEmpty())
+                mediaPurgeService.enqueue(storedKeys);
+            throw e;
+        }
+    }
+
+
+    private record StoredPart(String name, String contentType) {
+    }
+
+
+    private Movie readMetadata(FileItemInput item) throws IOException {
+        try (InputStream in = item.getInputStream()) {
+            byte[] json = in.readNBytes(MAX_METADATA_BYTES + 1);
+            if (json.length > MAX_METADATA_BYTES)
+                throw new InvalidUploadRequestException("movie metadata exceeds " + MAX_METADATA_BYTES + " bytes");
+            return objectMapper.readValue(json, Movie.class);
+        }
+    }
+
+
+    /**
+     * Pipes one file part into S3 while it is being received.
+     */
+    private StoredPart store(String folder, FileItemInput item) throws IOException {
+        int partSize = multipartUploader.partSize();
+
+        try (InputStream in = item.getInputStream()) {
+            byte[] head = in.readNBytes(partSize);
+
+            // the format comes from the first bytes of the part, not from its file name or Content-Type
+            MediaSniffer.Media media = MediaSniffer.require(head, "images/".equals(folder), item.getFieldName());
+            String name = UUID.randomUUID() + media.extension();
+            String key = folder + name;
+
+            if (head.length < partSize) {
+                s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(media.contentType())
+                        .contentLength((long) head.length)
+                        .build(), RequestBody.fromBytes(head));
+            } else {
+                multipartUploader.upload(key, media.contentType(),
+                        new SequenceInputStream(new ByteArrayInputStream(head), in), () -> false);
+            }
+
+            return new StoredPart(name, media.contentType());
+        }
+    }
+}
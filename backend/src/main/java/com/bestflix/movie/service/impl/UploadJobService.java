@@ -0,0 +1,342 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.dto.UploadJobStatus;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.BaseException;
+import com.bestflix.movie.exception.UploadJobNotFoundException;
+import com.bestflix.movie.exception.UploadQueueFullException;
+import com.bestflix.movie.exception.UserNotFoundException;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.IMovieService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Accepts movie uploads and finishes them in the background.
+ * <p>
+ * The request thread only moves the uploaded image and video into a spool directory and queues a job,
+ * so the client gets an answer right away instead of waiting for the transfer to S3. A fixed number of
+ * workers ({@code media.upload-jobs.workers}) then store the media through {@link AsyncFileStorageService}
+ * and save the movie. At most {@code media.upload-jobs.queue-capacity} jobs wait for a worker; further
+ * uploads are rejected with {@link UploadQueueFullException}, so a burst of uploads cannot pile up
+ * spooled files or tie up the storage pools used by the rest of the API.
+ * </p>
+ *
+ * <h2>Progress</h2>
+ * Each job reports its state and the bytes stored so far. Clients poll {@link #getStatus} or subscribe
+ * with {@link #subscribe}, which pushes the status every {@code media.upload-jobs.progress-interval-ms}
+ * while it changes. Finished jobs are kept for {@code media.upload-jobs.retention-ms}.
+ *
+ * <h2>Scope</h2>
+ * Job status lives in memory: it is only visible on the instance that accepted the upload, and jobs
+ * that were still running are lost on restart.
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code media.upload.jobs.queued} – jobs waiting for a worker</li>
+ *   <li>{@code media.upload.jobs.active} – jobs being processed</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class UploadJobService {
+
+    private final AsyncFileStorageService asyncFileStorageService;
+    private final IMovieService movieService;
+    private final MediaReferenceService mediaReferenceService;
+    private final UserRepository userRepository;
+    private final ThreadPoolExecutor jobExecutor;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${media.upload-jobs.spool-dir:${java.io.tmpdir}/bestflix-upload-jobs}")
+    private String spoolDir;
+
+    @Value("${media.upload-jobs.retention-ms:3600000}")
+    private long retentionMs = 3_600_000;
+
+    @Value("${media.upload-jobs.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs = 1_800_000;
+
+    public UploadJobService(AsyncFileStorageService asyncFileStorageService, IMovieService movieService,
+                            MediaReferenceService mediaReferenceService, UserRepository userRepository,
+                            @Qualifier("uploadJobExecutor") ThreadPoolExecutor jobExecutor,
+                            MeterRegistry meterRegistry) {
+        this.asyncFileStorageService = asyncFileStorageService;
+        this.movieService = movieService;
+        this.mediaReferenceService = mediaReferenceService;
+        this.userRepository = userRepository;
+        this.jobExecutor = jobExecutor;
+
+        Gauge.builder("media.upload.jobs.queued", jobExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("media.upload.jobs.active", jobExecutor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Spools the media and queues the upload.
+     *
+     * @param username the uploader
+     * @param movie    movie metadata
+     * @param image    image file
+     * @param video    video file
+     * @return status of the queued job
+     * @throws IOException if the files cannot be spooled
+     * @throws UserNotFoundException if the uploader does not exist
+     * @throws com.bestflix.movie.exception.UnsupportedMediaException if a file is not a supported image or video
+     * @throws UploadQueueFullException if too many uploads are already waiting
+     */
+    public UploadJobStatus submit(String username, Movie movie, MultipartFile image, MultipartFile video)
+            throws IOException {
+
+        if (userRepository.findByUsername(username) == null)
+            throw new UserNotFoundException(username);
+
+        // rejected here rather than in the job, so the client gets the error instead of a failed job
+        MediaSniffer.sniffImage(image);
+        MediaSniffer.sniffVideo(video);
+
+        // cheap check first, so a full queue does not cost a copy of the upload
+        if (jobExecutor.getQueue().remainingCapacity() == 0)
+            throw new UploadQueueFullException(jobExecutor.getQueue().size());
+
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), username, image.getSize() + video.getSize());
+        Path jobDir = Files.createDirectories(Path.of(spoolDir, job.id));
+
+        UploadJobStatus accepted = job.toStatus();
+        try {
+            MultipartFile spooledImage = SpooledMultipartFile.spool(image, jobDir.resolve("image"));
+            MultipartFile spooledVideo = SpooledMultipartFile.spool(video, jobDir.resolve("video"));
+
+            jobs.put(job.id, job);
+            jobExecutor.execute(() -> run(job, movie, spooledImage, spooledVideo, jobDir));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteSpool(jobDir);
+            throw new UploadQueueFullException(jobExecutor.getQueue().size());
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.id);
+            deleteSpool(jobDir);
+            throw e;
+        }
+
+        // taken before queueing, so the response always says QUEUED even if a worker picks the job up at once
+        return accepted;
+    }
+
+
+    /**
+     * @param jobId    job identifier
+     * @param username the caller; only the uploader may see a job
+     * @return current status of the job
+     * @throws UploadJobNotFoundException if the job does not exist, belongs to someone else or was discarded
+     */
+    public UploadJobStatus getStatus(String jobId, String username) {
+        return find(jobId, username).toStatus();
+    }
+
+
+    /**
+     * Streams status updates of a job as server-sent events until it completes or fails.
+     *
+     * @param jobId    job identifier
+     * @param username the caller; only the uploader may see a job
+     * @return emitter that receives an {@code upload-job} event per change
+     * @throws UploadJobNotFoundException if the job does not exist, belongs to someone else or was discarded
+     */
+    public SseEmitter subscribe(String jobId, String username) {
+        UploadJob job = find(jobId, username);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        emitter.onCompletion(() -> job.subscribers.remove(emitter));
+        emitter.onTimeout(() -> job.subscribers.remove(emitter));
+        emitter.onError(error -> job.subscribers.remove(emitter));
+
+        UploadJobStatus status = job.toStatus();
+        if (!send(emitter, status))
+            return emitter;
+
+        if (status.getState().isTerminal()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        job.subscribers.add(emitter);
+
+        // the job may have finished after the snapshot and its final status been published before the emitter
+        // was added; whoever removes the emitter sends the final status and completes it
+        UploadJobStatus latest = job.toStatus();
+        if (latest.getState().isTerminal() && job.subscribers.remove(emitter) && send(emitter, latest))
+            emitter.complete();
+        return emitter;
+    }
+
+
+    /**
+     * Pushes the status of every job that changed since the last run to its subscribers.
+     */
+    @Scheduled(fixedDelayString = "${media.upload-jobs.progress-interval-ms:1000}")
+    public void publishProgress() {
+        for (UploadJob job : jobs.values()) {
+            if (job.subscribers.isEmpty())
+                continue;
+
+            UploadJobStatus status = job.toStatus();
+            if (status.equals(job.lastPublished))
+                continue;
+            job.lastPublished = status;
+
+            for (SseEmitter emitter : job.subscribers) {
+                if (!status.getState().isTerminal()) {
+                    send(emitter, status);
+                } else if (job.subscribers.remove(emitter) && send(emitter, status)) {
+                    emitter.complete();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Forgets jobs that finished longer than the retention period ago.
+     */
+    @Scheduled(fixedDelayString = "${media.upload-jobs.cleanup-interval-ms:60000}")
+    public void discardFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(Duration.ofMillis(retentionMs));
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAt.isBefore(threshold));
+    }
+
+
+    private void run(UploadJob job, Movie movie, MultipartFile image, MultipartFile video, Path jobDir) {
+        try {
+            job.state = UploadJobStatus.State.STORING;
+            AsyncFileStorageService.StoredMedia media =
+                    asyncFileStorageService.saveImageAndVideo(image, video, job.storedBytes::addAndGet);
+
+            job.state = UploadJobStatus.State.SAVING;
+            Movie saved;
+            try {
+                saved = movieService.saveUploadedMovie(job.username, movie,
+                        media.imageName(), MediaSniffer.contentTypeOf(media.imageName()),
+                        media.videoName(), MediaSniffer.contentTypeOf(media.videoName()));
+            } catch (RuntimeException e) {
+                mediaReferenceService.release(List.of("images/" + media.imageName(), "videos/" + media.videoName()));
+                throw e;
+            }
+
+            job.finish(UploadJobStatus.State.COMPLETED, saved.getId(), null);
+
+        } catch (BaseException e) {
+            job.finish(UploadJobStatus.State.FAILED, null, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload job {} failed", job.id, e);
+            job.finish(UploadJobStatus.State.FAILED, null, "Uploading Failed!");
+        } finally {
+            deleteSpool(jobDir);
+        }
+    }
+
+
+    private UploadJob find(String jobId, String username) {
+        UploadJob job = jobs.get(jobId);
+        if (job == null || !job.username.equals(username))
+            throw new UploadJobNotFoundException(jobId);
+        return job;
+    }
+
+
+    private static boolean send(SseEmitter emitter, UploadJobStatus status) {
+        try {
+            emitter.send(SseEmitter.event().name("upload-job").data(status));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // the client went away; the emitter's error callback unsubscribes it
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+
+    private static void deleteSpool(Path jobDir) {
+        try {
+            FileSystemUtils.deleteRecursively(jobDir);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", jobDir, e);
+        }
+    }
+
+
+    /**
+     * Mutable state of one job, written by its worker and read by status requests.
+     */
+    private static final class UploadJob {
+
+        private final String id;
+        private final String username;
+        private final long totalBytes;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong storedBytes = new AtomicLong();
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+        private volatile UploadJobStatus.State state = UploadJobStatus.State.QUEUED;
+        private volatile Long movieId;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+        private volatile UploadJobStatus lastPublished;
+
+        private UploadJob(String id, String username, long totalBytes) {
+            this.id = id;
+            this.username = username;
+            this.totalBytes = totalBytes;
+        }
+
+        private boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        private void finish(UploadJobStatus.State finalState, Long movieId, String error) {
+            this.movieId = movieId;
+            this.error = error;
+            this.state = finalState;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        private UploadJobStatus toStatus() {
+            return UploadJobStatus.builder()
+                    .jobId(id)
+                    .state(state)
+                    .totalBytes(totalBytes)
+                    .storedBytes(Math.min(storedBytes.get(), totalBytes))
+                    .movieId(movieId)
+                    .error(error)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
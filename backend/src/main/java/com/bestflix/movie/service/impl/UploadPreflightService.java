@@ -0,0 +1,107 @@
+package com.bestflix.movie.service.impl;
+
+import com.bestflix.movie.dto.UploadCheckRequest;
+import com.bestflix.movie.exception.InvalidUploadRequestException;
+import com.bestflix.movie.exception.UploadForbiddenException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.exception.UserNotFoundException;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Validates a movie upload from what is known before its body arrives: the caller, the uploader's
+ * account and the declared sizes and content types.
+ * <p>
+ * Used by the pre-flight filter on the multipart upload endpoints, where only the request headers are
+ * available, and by {@code /upload/check} for clients that cannot send {@code Expect: 100-continue}.
+ * Rejecting here means no byte of the payload reaches storage.
+ * </p>
+ */
+@Service
+public class UploadPreflightService {
+
+    private final UserRepository userRepository;
+    private final long maxFileBytes;
+    private final long maxRequestBytes;
+
+    public UploadPreflightService(UserRepository userRepository,
+                                  @Value("${spring.servlet.multipart.max-file-size:1GB}") DataSize maxFileSize,
+                                  @Value("${spring.servlet.multipart.max-request-size:1GB}") DataSize maxRequestSize) {
+        this.userRepository = userRepository;
+        this.maxFileBytes = maxFileSize.toBytes();
+        this.maxRequestBytes = maxRequestSize.toBytes();
+    }
+
+
+    /**
+     * Resolves the account an upload is stored for.
+     *
+     * @param principal name of the authenticated caller, or {@code null} if anonymous
+     * @param username  uploader named by the request, or {@code null} to upload as the caller
+     * @return the uploader
+     * @throws UploadForbiddenException if the caller is anonymous or names another user
+     * @throws UserNotFoundException if the uploader has no account
+     */
+    public Users checkUploader(String principal, String username) {
+        if (principal == null)
+            throw new UploadForbiddenException("authentication is required to upload");
+
+        if (username != null && !username.equals(principal))
+            throw new UploadForbiddenException(principal + " cannot upload as " + username);
+
+        Users user = userRepository.findByUsername(principal);
+        if (user == null) throw new UserNotFoundException(principal);
+
+        return user;
+    }
+
+
+    /**
+     * Checks the declared size of a whole multipart request.
+     *
+     * @param contentLength value of {@code Content-Length}, or a negative number if unknown
+     * @throws UploadTooLargeException if the request is larger than {@code spring.servlet.multipart.max-request-size}
+     */
+    public void checkRequestSize(long contentLength) {
+        if (contentLength > maxRequestBytes)
+            throw new UploadTooLargeException("request of " + contentLength + " bytes exceeds " + maxRequestBytes);
+    }
+
+
+    /**
+     * Validates a planned upload without receiving its files.
+     *
+     * @param principal name of the authenticated caller
+     * @param request   uploader, metadata, content types and sizes of the planned upload
+     * @throws UploadForbiddenException if the caller may not upload for the requested user
+     * @throws UserNotFoundException if the uploader has no account
+     * @throws InvalidUploadRequestException if metadata or a content type is missing or wrong
+     * @throws UploadTooLargeException if a file or the whole upload is too large
+     */
+    public void check(String principal, UploadCheckRequest request) {
+        checkUploader(principal, request.getUsername());
+
+        if (request.getMovie() == null || request.getMovie().getMovieName() == null
+                || request.getMovie().getMovieName().isBlank())
+            throw new InvalidUploadRequestException("movie name is required");
+
+        checkFile("image", "image/", request.getImageContentType(), request.getImageSize());
+        checkFile("video", "video/", request.getVideoContentType(), request.getVideoSize());
+        checkRequestSize(request.getImageSize() + request.getVideoSize());
+    }
+
+
+    private void checkFile(String part, String typePrefix, String contentType, long size) {
+        if (contentType == null || !contentType.startsWith(typePrefix))
+            throw new InvalidUploadRequestException(part + " must be of type " + typePrefix + "*");
+
+        if (size <= 0)
+            throw new InvalidUploadRequestException(part + " size is required");
+
+        if (size > maxFileBytes)
+            throw new UploadTooLargeException(part + " of " + size + " bytes exceeds " + maxFileBytes);
+    }
+}
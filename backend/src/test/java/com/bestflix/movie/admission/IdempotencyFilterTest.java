@@ -0,0 +1,139 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.entity.IdempotencyRecord;
+import com.bestflix.movie.service.impl.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private HandlerExceptionResolver exceptionResolver;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private IdempotencyFilter filter;
+
+    private final IdempotencyService.Claim claimed =
+            new IdempotencyService.Claim(IdempotencyRecord.builder().id("id").version(0L).build(), true);
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(idempotencyService, exceptionResolver);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("john", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest upload(String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/rest/api/movie/upload");
+        request.setContentType("multipart/form-data; boundary=x");
+        request.addHeader("Idempotency-Key", key);
+        request.addHeader("Expect", "100-continue");
+        request.setQueryString("username=john");
+        return request;
+    }
+
+    @Test
+    void shouldStoreSuccessfulResponseOfFirstRequest() throws Exception {
+        when(idempotencyService.claim("user:john", "POST /rest/api/movie/upload", "username=john", "k1")).thenReturn(claimed);
+        doAnswer(invocation -> {
+            HttpServletResponse response = invocation.getArgument(1);
+            response.setStatus(201);
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Movie Uploaded Successfully!");
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(upload("k1"), response, filterChain);
+
+        verify(idempotencyService).complete(claimed, 201, "text/plain;charset=UTF-8", "Movie Uploaded Successfully!");
+        verify(idempotencyService, never()).release(any());
+        assertEquals("Movie Uploaded Successfully!", response.getContentAsString());
+    }
+
+    @Test
+    void shouldReleaseKeyWhenRequestFails() throws Exception {
+        when(idempotencyService.claim(any(), any(), any(), any())).thenReturn(claimed);
+        doAnswer(invocation -> {
+            invocation.<HttpServletResponse>getArgument(1).setStatus(500);
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        filter.doFilter(upload("k1"), new MockHttpServletResponse(), filterChain);
+
+        verify(idempotencyService).release(claimed);
+        verify(idempotencyService, never()).complete(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void shouldReplayCompletedResponseWithoutRunningTheRequest() throws Exception {
+        IdempotencyRecord completed = IdempotencyRecord.builder()
+                .state(IdempotencyRecord.State.COMPLETED)
+                .responseStatus(201)
+                .responseContentType("text/plain;charset=UTF-8")
+                .responseBody("Movie Uploaded Successfully!")
+                .build();
+        when(idempotencyService.claim(any(), any(), any(), any())).thenReturn(new IdempotencyService.Claim(completed, false));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(upload("k1"), response, filterChain);
+
+        verifyNoInteractions(filterChain);
+        assertEquals(201, response.getStatus());
+        assertEquals("true", response.getHeader("Idempotent-Replayed"));
+        assertEquals("close", response.getHeader("Connection"));
+        assertEquals("Movie Uploaded Successfully!", response.getContentAsString());
+    }
+
+    @Test
+    void shouldScopeKeyToQueryString() throws Exception {
+        MockHttpServletRequest update = new MockHttpServletRequest("PUT", "/rest/api/movie/update");
+        update.setQueryString("movieId=5");
+        update.addHeader("Idempotency-Key", "k1");
+        when(idempotencyService.claim("user:john", "PUT /rest/api/movie/update", "movieId=5", "k1")).thenReturn(claimed);
+
+        filter.doFilter(update, new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain).doFilter(eq(update), any());
+    }
+
+    @Test
+    void shouldIgnoreRequestsWithoutKeyOrOnOtherEndpoints() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("POST", "/rest/api/movie/upload"),
+                new MockHttpServletResponse(), filterChain);
+        MockHttpServletRequest stream = new MockHttpServletRequest("POST", "/rest/api/movie/upload/stream");
+        stream.addHeader("Idempotency-Key", "k1");
+        filter.doFilter(stream, new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain, times(2)).doFilter(any(), any());
+        verifyNoInteractions(idempotencyService);
+    }
+}
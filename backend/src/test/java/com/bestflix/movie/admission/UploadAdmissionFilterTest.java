@@ -0,0 +1,139 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.exception.UploadLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadAdmissionFilterTest {
+
+    @Mock
+    private HandlerExceptionResolver exceptionResolver;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UploadAdmissionLimiter limiter;
+
+    private UploadAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new UploadAdmissionLimiter(DataSize.ofBytes(100), 1, meterRegistry);
+        filter = new UploadAdmissionFilter(limiter, exceptionResolver, DataSize.ofBytes(60));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest upload(String method, String uri, int size) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContentType("multipart/form-data; boundary=x");
+        request.setContent(new byte[size]);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    @Test
+    void shouldReserveDeclaredBytesWhileUploadRunsAndReleaseAfterwards() throws Exception {
+        authenticate("john");
+        doAnswer(invocation -> {
+            assertEquals(40, limiter.inFlightBytes());
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        filter.doFilter(upload("POST", "/rest/api/movie/upload", 40), new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain).doFilter(any(), any());
+        assertEquals(0, limiter.inFlightBytes());
+    }
+
+    @Test
+    void shouldRejectWith429AndRetryAfterWhenBudgetIsExhausted() throws Exception {
+        authenticate("john");
+        UploadAdmissionLimiter.Permit running = limiter.acquire("user:jane", 80);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(upload("PUT", "/rest/api/movie/update", 40), response, filterChain);
+
+        verifyNoInteractions(filterChain);
+        assertEquals("5", response.getHeader("Retry-After"));
+        verify(exceptionResolver).resolveException(any(), eq(response), isNull(), any(UploadLimitExceededException.class));
+        assertEquals(1, meterRegistry.counter("media.upload.admission.rejected", "reason", "budget").count());
+        running.close();
+    }
+
+    @Test
+    void shouldLimitConcurrentUploadsPerUser() throws Exception {
+        authenticate("john");
+        UploadAdmissionLimiter.Permit running = limiter.acquire("user:john", 1);
+
+        filter.doFilter(upload("PATCH", "/rest/api/movie/7", 10), new MockHttpServletResponse(), filterChain);
+
+        verifyNoInteractions(filterChain);
+        assertEquals(1, meterRegistry.counter("media.upload.admission.rejected", "reason", "user").count());
+
+        running.close();
+        running.close();
+        filter.doFilter(upload("PATCH", "/rest/api/movie/7", 10), new MockHttpServletResponse(), filterChain);
+        verify(filterChain).doFilter(any(), any());
+    }
+
+    @Test
+    void shouldReserveMaxRequestSizeWhenLengthIsUnknown() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/rest/api/movie/upload/stream");
+        request.setContentType("multipart/form-data; boundary=x");
+        doAnswer(invocation -> {
+            assertEquals(60, limiter.inFlightBytes());
+            assertEquals(0.6, limiter.utilization(), 0.0001);
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain).doFilter(any(), any());
+    }
+
+    @Test
+    void shouldIgnoreRequestsWithoutMultipartBody() throws Exception {
+        UploadAdmissionLimiter.Permit running = limiter.acquire("address:10.0.0.1", 100);
+        MockHttpServletRequest json = new MockHttpServletRequest("POST", "/rest/api/movie/mymovies");
+        json.setContentType("application/json");
+        json.setRemoteAddr("10.0.0.1");
+
+        filter.doFilter(json, new MockHttpServletResponse(), filterChain);
+        filter.doFilter(new MockHttpServletRequest("GET", "/rest/api/movie/7"), new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain, times(2)).doFilter(any(), any());
+        running.close();
+    }
+}
@@ -0,0 +1,127 @@
+package com.bestflix.movie.admission;
+
+import com.bestflix.movie.exception.UploadForbiddenException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.exception.UserNotFoundException;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.impl.UploadPreflightService;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadPreflightFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private HandlerExceptionResolver exceptionResolver;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private UploadPreflightFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        UploadPreflightService preflightService =
+                new UploadPreflightService(userRepository, DataSize.ofBytes(50), DataSize.ofBytes(100));
+        filter = new UploadPreflightFilter(preflightService, exceptionResolver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest upload(String uri, int size) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContentType("multipart/form-data; boundary=x");
+        request.setContent(new byte[size]);
+        request.addHeader("Expect", "100-continue");
+        return request;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    @Test
+    void shouldPassValidUploadWithoutTouchingTheBody() throws Exception {
+        authenticate("john");
+        when(userRepository.findByUsername("john")).thenReturn(new Users());
+        MockHttpServletRequest request = upload("/rest/api/movie/upload/stream", 80);
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain).doFilter(any(), any());
+        assertEquals(80, request.getInputStream().available());
+    }
+
+    @Test
+    void shouldRejectUnknownUserAndCloseExpectingConnection() throws Exception {
+        authenticate("ghost");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(upload("/rest/api/movie/upload/jobs", 10), response, filterChain);
+
+        verifyNoInteractions(filterChain);
+        assertEquals("close", response.getHeader("Connection"));
+        verify(exceptionResolver).resolveException(any(), eq(response), isNull(), any(UserNotFoundException.class));
+    }
+
+    @Test
+    void shouldRejectQueryUsernameOfAnotherUser() throws Exception {
+        authenticate("john");
+        MockHttpServletRequest request = upload("/rest/api/movie/upload", 10);
+        request.setQueryString("username=jane%20doe");
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        verifyNoInteractions(filterChain, userRepository);
+        verify(exceptionResolver).resolveException(any(), any(), isNull(), any(UploadForbiddenException.class));
+    }
+
+    @Test
+    void shouldRejectOversizedRequestFromContentLength() throws Exception {
+        authenticate("john");
+        when(userRepository.findByUsername("john")).thenReturn(new Users());
+        MockHttpServletRequest request = upload("/rest/api/movie/upload", 101);
+        request.setQueryString("username=john");
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        verifyNoInteractions(filterChain);
+        verify(exceptionResolver).resolveException(any(), any(), isNull(), any(UploadTooLargeException.class));
+    }
+
+    @Test
+    void shouldIgnoreOtherEndpoints() throws Exception {
+        filter.doFilter(upload("/rest/api/movie/upload/direct", 10), new MockHttpServletResponse(), filterChain);
+        filter.doFilter(new MockHttpServletRequest("GET", "/rest/api/movie/upload/jobs"),
+                new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain, times(2)).doFilter(any(), any());
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -0,0 +1,124 @@
+package com.bestflix.movie.benchmark;
+
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.security.service.SigningKeys;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
+import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.TokenRevocationService;
+import com.bestflix.movie.security.userService.VerifiedTokenCache;
+import com.bestflix.movie.security.userService.filter.JwtFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link JwtFilter} under concurrent load, with and without the {@link VerifiedTokenCache}.
+ * <p>
+ * Eight threads authenticate requests that carry one of a few hundred tokens, as many clients re-sending
+ * their token would. No token is revoked, so the numbers show the overhead of the filter itself.
+ * {@code uncached} uses a cache of size 0, which verifies every token.
+ * </p>
+ * <p>
+ * Run {@link #main} like {@link JwtVerificationBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final int CLIENTS = 256;
+
+    private static final FilterChain NO_OP = (request, response) -> { };
+
+    private JwtFilter cachedFilter;
+    private JwtFilter uncachedFilter;
+    private String[] headers;
+
+    @Setup
+    public void setUp() {
+        JWTService jwtService = new JWTService(SigningKeys.inMemory("benchmark-256-bit-secret-benchmark-256-bit"));
+        UserRepository noRevocations = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> List.of());
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(noRevocations);
+
+        cachedFilter = new JwtFilter(new VerifiedTokenCache(jwtService, 10_000, new SimpleMeterRegistry()),
+                tokenRevocationService);
+        uncachedFilter = new JwtFilter(new VerifiedTokenCache(jwtService, 0, new SimpleMeterRegistry()),
+                tokenRevocationService);
+
+        headers = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            Users user = Users.builder().id((long) i).username("user" + i).build();
+            headers[i] = "Bearer " + jwtService.generateToken(new CustomUserDetails(user));
+        }
+    }
+
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private int next;
+
+        MockHttpServletRequest request(String[] headers) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rest/api/movie/mymovies");
+            request.addHeader("Authorization", headers[next++ & (CLIENTS - 1)]);
+            return request;
+        }
+    }
+
+
+    @Benchmark
+    public Object cached(Client client) throws Exception {
+        return authenticate(cachedFilter, client.request(headers));
+    }
+
+
+    @Benchmark
+    public Object uncached(Client client) throws Exception {
+        return authenticate(uncachedFilter, client.request(headers));
+    }
+
+
+    private static Object authenticate(JwtFilter filter, MockHttpServletRequest request) throws Exception {
+        try {
+            filter.doFilterInternal(request, new MockHttpServletResponse(), NO_OP);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,105 @@
+package com.bestflix.movie.benchmark;
+
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.service.SigningKeys;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
+import com.bestflix.movie.security.userService.JWTService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of verifying the bearer token in {@code JwtFilter}.
+ * <p>
+ * {@code threeParses} reproduces the former flow: the filter extracted the username, then
+ * {@code validateToken} parsed the token again for the subject and a third time for the expiration,
+ * rebuilding the HMAC key and the parser every time. {@code singleParse} is the current
+ * {@link JWTService#verify(String)} with the parser built once. It checks an ES256 signature, which costs
+ * more than an HMAC; {@code JwtFilterBenchmark} shows how the token cache absorbs that.
+ * </p>
+ * <p>
+ * Run {@link #main} from the IDE, or from {@code backend/}:
+ * </p>
+ * <pre>
+ * mvn -B -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.bestflix.movie.benchmark.JwtVerificationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "benchmark-256-bit-secret-benchmark-256-bit";
+
+    private JWTService jwtService;
+    private String token;
+    private String hmacToken;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JWTService(SigningKeys.inMemory(SECRET));
+        token = jwtService.generateToken(new CustomUserDetails(Users.builder().id(7L).username("elcin").build()));
+        hmacToken = Jwts.builder()
+                .setSubject("elcin")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + JWTService.TOKEN_VALIDITY.toMillis()))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+
+    @Benchmark
+    public Object threeParses() {
+        String userName = parse(hmacToken).getSubject();
+        if (!userName.equals(parse(hmacToken).getSubject()))
+            throw new IllegalStateException();
+        return parse(hmacToken).getExpiration().before(new Date());
+    }
+
+
+    @Benchmark
+    public Object singleParse() {
+        return jwtService.verify(token);
+    }
+
+
+    private static Claims parse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
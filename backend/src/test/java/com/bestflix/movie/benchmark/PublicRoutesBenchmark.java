@@ -0,0 +1,163 @@
+package com.bestflix.movie.benchmark;
+
+import com.bestflix.movie.security.config.PublicRoutes;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.security.service.SigningKeys;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
+import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.TokenRevocationService;
+import com.bestflix.movie.security.userService.VerifiedTokenCache;
+import com.bestflix.movie.security.userService.filter.JwtFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.POST;
+
+/**
+ * Per-request overhead of token processing for poster-heavy traffic, before and after {@link PublicRoutes}.
+ * <p>
+ * Every request carries a token, as the frontend sends it on each call. Fifteen of sixteen requests fetch
+ * a poster, the last one lists the caller's movies. {@code tokenOnEveryRoute} runs {@link JwtFilter} on all
+ * of them, as the single filter chain did, with every token already in the {@link VerifiedTokenCache}.
+ * {@code routed} classifies each request and runs the filter only for the routes outside the public chain.
+ * {@code classifier} and {@code pathPatterns} compare {@link PublicRoutes} with the same routes expressed as
+ * Spring Security path pattern matchers.
+ * </p>
+ * <p>
+ * Run {@link #main} like {@link JwtVerificationBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PublicRoutesBenchmark {
+
+    private static final int CLIENTS = 256;
+
+    private static final FilterChain NO_OP = (request, response) -> { };
+
+    private final RequestMatcher publicRoutes = new PublicRoutes();
+
+    private RequestMatcher pathPatterns;
+    private JwtFilter jwtFilter;
+    private String[] headers;
+
+    @Setup
+    public void setUp() {
+        JWTService jwtService = new JWTService(SigningKeys.inMemory("benchmark-256-bit-secret-benchmark-256-bit"));
+        UserRepository noRevocations = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> List.of());
+
+        jwtFilter = new JwtFilter(new VerifiedTokenCache(jwtService, 10_000, new SimpleMeterRegistry()),
+                new TokenRevocationService(noRevocations));
+
+        headers = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            Users user = Users.builder().id((long) i).username("user" + i).build();
+            headers[i] = "Bearer " + jwtService.generateToken(new CustomUserDetails(user));
+        }
+
+        PathPatternRequestMatcher.Builder path = PathPatternRequestMatcher.withDefaults();
+        pathPatterns = new OrRequestMatcher(
+                path.matcher(GET, "/rest/api/movie/all"),
+                path.matcher(GET, "/rest/api/movie/image/{id}"),
+                path.matcher(GET, "/rest/api/movie/video/{id}"),
+                path.matcher(GET, "/rest/api/movie/{id}"),
+                path.matcher(GET, "/.well-known/jwks.json"),
+                path.matcher(GET, "/swagger-ui/**"),
+                path.matcher(GET, "/v3/api-docs/**"),
+                path.matcher(GET, "/webjars/**"),
+                path.matcher(POST, "/login"),
+                path.matcher(POST, "/register"),
+                path.matcher(POST, "/token/refresh"),
+                path.matcher("/h2-console/**"));
+    }
+
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private int next;
+
+        MockHttpServletRequest request(String[] headers) {
+            int n = next++;
+            String path = (n & 15) == 15 ? "/rest/api/movie/mymovies" : "/rest/api/movie/image/" + (n & 1023);
+            MockHttpServletRequest request = new MockHttpServletRequest((n & 15) == 15 ? "POST" : "GET", path);
+            request.addHeader("Authorization", headers[n & (CLIENTS - 1)]);
+            return request;
+        }
+    }
+
+
+    @Benchmark
+    public Object tokenOnEveryRoute(Client client) throws Exception {
+        return authenticate(client.request(headers));
+    }
+
+
+    @Benchmark
+    public Object routed(Client client) throws Exception {
+        MockHttpServletRequest request = client.request(headers);
+        return publicRoutes.matches(request) ? null : authenticate(request);
+    }
+
+
+    @Benchmark
+    public boolean classifier(Client client) {
+        return publicRoutes.matches(client.request(headers));
+    }
+
+
+    @Benchmark
+    public boolean pathPatterns(Client client) {
+        return pathPatterns.matches(client.request(headers));
+    }
+
+
+    private Object authenticate(MockHttpServletRequest request) throws Exception {
+        try {
+            jwtFilter.doFilterInternal(request, new MockHttpServletResponse(), NO_OP);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PublicRoutesBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -1,8 +1,13 @@
 package com.bestflix.movie.controller;
 
+import com.bestflix.movie.dto.UploadCheckRequest;
 import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.UploadForbiddenException;
+import com.bestflix.movie.handler.GlobalExceptionHandler;
 import com.bestflix.movie.service.IMovieService;
 import com.bestflix.movie.service.impl.S3Config;
+import com.bestflix.movie.service.impl.StreamingUploadService;
+import com.bestflix.movie.service.impl.UploadPreflightService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -50,6 +55,12 @@ class MovieControllerTest {
     @Mock
     private S3Client s3Client;
 
+    @Mock
+    private StreamingUploadService streamingUploadService;
+
+    @Mock
+    private UploadPreflightService uploadPreflightService;
+
     @InjectMocks
     private MovieController movieController;
 
@@ -57,8 +68,10 @@ class MovieControllerTest {
 
     @BeforeEach
     void setup() {
-        movieController = new MovieController(movieService,s3Client);
-        mockMvc = MockMvcBuilders.standaloneSetup(movieController).build();
+        movieController = new MovieController(movieService,s3Client,streamingUploadService,uploadPreflightService);
+        mockMvc = MockMvcBuilders.standaloneSetup(movieController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
     }
 
     @Test
@@ -140,6 +153,7 @@ class MovieControllerTest {
                         .file(videoFile)
                         .file(movieJson)
                         .param("username", "elcin")
+                        .principal(() -> "elcin")
                         .contentType(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isCreated())
                 .andExpect(content().string("Movie Uploaded Successfully!"));
@@ -147,6 +161,46 @@ class MovieControllerTest {
         verify(movieService).uploadMovie("elcin", movie, imageFile, videoFile);
     }
 
+    @Test
+    void shouldRejectUploadForAnotherUser() throws Exception {
+        MockMultipartFile movieJson = new MockMultipartFile(
+                "movie", "", "application/json", new ObjectMapper().writeValueAsBytes(new Movie()));
+
+        mockMvc.perform(multipart("/rest/api/movie/upload")
+                        .file(movieJson)
+                        .file(new MockMultipartFile("image", "poster.jpg", "image/jpeg", "img".getBytes()))
+                        .file(new MockMultipartFile("video", "trailer.mp4", "video/mp4", "vid".getBytes()))
+                        .param("username", "elcin")
+                        .principal(() -> "mallory"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void checkUpload_shouldAnswerNoContentOrForwardRejection() throws Exception {
+        String body = "{\"movie\":{\"movieName\":\"Interstellar\"},\"imageContentType\":\"image/jpeg\","
+                + "\"imageSize\":100,\"videoContentType\":\"video/mp4\",\"videoSize\":1000}";
+
+        mockMvc.perform(post("/rest/api/movie/upload/check")
+                        .principal(() -> "elcin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isNoContent());
+
+        verify(uploadPreflightService).check(eq("elcin"), argThat((UploadCheckRequest r) ->
+                r.getVideoSize() == 1000 && "Interstellar".equals(r.getMovie().getMovieName())));
+
+        doThrow(new UploadForbiddenException("elcin cannot upload as john"))
+                .when(uploadPreflightService).check(eq("elcin"), any());
+
+        mockMvc.perform(post("/rest/api/movie/upload/check")
+                        .principal(() -> "elcin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     void shouldReturnImageBytesWhenMovieExists() throws Exception {
         // Arrange
@@ -277,10 +331,26 @@ class MovieControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Movie Updated Successfully!"));
     }
-}
-
 
 
+    @Test
+    void patchMovie_shouldAcceptMetadataWithoutMedia() throws Exception {
+        Movie movie = new Movie();
+        movie.setAbout("Fixed typo");
 
+        MockMultipartFile moviePart = new MockMultipartFile(
+                "movie", "", "application/json", new ObjectMapper().writeValueAsBytes(movie));
 
+        mockMvc.perform(multipart("/rest/api/movie/7")
+                        .file(moviePart)
+                        .principal(() -> "elcin")
+                        .with(request -> {
+                            request.setMethod("PATCH");
+                            return request;
+                        }))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Movie Updated Successfully!"));
 
+        verify(movieService).patchMovie(eq(7L), eq("elcin"), argThat(m -> "Fixed typo".equals(m.getAbout())), isNull(), isNull());
+    }
+}
@@ -0,0 +1,138 @@
+package com.bestflix.movie.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private JdbcTemplate routed;
+    private ReplicaLagMonitor lagMonitor;
+    private ReadYourWritesTracker tracker;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate readWriteTx;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDs = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replicaDs = new DriverManagerDataSource("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "sa", "");
+
+        primary = new JdbcTemplate(primaryDs);
+        replica = new JdbcTemplate(replicaDs);
+
+        primary.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        primary.execute("DELETE FROM node");
+        primary.update("INSERT INTO node VALUES ('primary')");
+
+        replica.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        replica.execute("DELETE FROM node");
+        replica.update("INSERT INTO node VALUES ('replica')");
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (ms BIGINT)");
+        replica.execute("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+
+        lagMonitor = new ReplicaLagMonitor(Map.of("replica-0", replicaDs), "SELECT ms FROM replica_lag", 1000);
+        lagMonitor.refresh();
+        tracker = new ReadYourWritesTracker(60_000);
+
+        DataSource routingDs = new LazyConnectionDataSourceProxy(
+                DataSourceRoutingConfig.createRoutingDataSource(primaryDs, lagMonitor, tracker));
+        routed = new JdbcTemplate(routingDs);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routingDs);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        readWriteTx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private String currentNode(TransactionTemplate tx) {
+        return tx.execute(status -> routed.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUseReplica() {
+        assertEquals("replica", currentNode(readOnlyTx));
+    }
+
+    @Test
+    void readWriteTransaction_shouldUsePrimary() {
+        assertEquals("primary", currentNode(readWriteTx));
+    }
+
+    @Test
+    void queryOutsideTransaction_shouldUsePrimary() {
+        assertEquals("primary", routed.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void laggingReplica_shouldFallBackToPrimary() {
+        replica.update("UPDATE replica_lag SET ms = 5000");
+        lagMonitor.refresh();
+
+        assertEquals(List.of(), lagMonitor.getHealthyReplicas());
+        assertEquals("primary", currentNode(readOnlyTx));
+
+        replica.update("UPDATE replica_lag SET ms = 0");
+        lagMonitor.refresh();
+
+        assertEquals("replica", currentNode(readOnlyTx));
+    }
+
+    @Test
+    void recentWriter_shouldReadFromPrimaryWhenPinned() {
+        tracker.recordWrite("elcin");
+
+        try (ReadYourWritesTracker.PrimaryPin ignored = tracker.pinIfRecentWriter("elcin")) {
+            assertEquals("primary", currentNode(readOnlyTx));
+        }
+
+        assertEquals("replica", currentNode(readOnlyTx));
+    }
+
+    @Test
+    void evictExpired_shouldDropWritersThatNeverReadAgain() {
+        ReadYourWritesTracker shortWindow = new ReadYourWritesTracker(-1);
+        shortWindow.recordWrite("elcin");
+        tracker.recordWrite("elcin");
+
+        shortWindow.evictExpired();
+        tracker.evictExpired();
+
+        assertEquals(0, shortWindow.size());
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    void recentWriter_shouldReadFromPrimaryWhenAuthenticated() {
+        tracker.recordWrite("elcin");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("elcin", null, List.of()));
+
+        assertEquals("primary", currentNode(readOnlyTx));
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("someoneElse", null, List.of()));
+
+        assertEquals("replica", currentNode(readOnlyTx));
+    }
+}
@@ -1,5 +1,6 @@
 package com.bestflix.movie.repository;
 
+import com.bestflix.movie.entity.IdempotencyRecord;
 import com.bestflix.movie.entity.Movie;
 import com.bestflix.movie.entity.UsersMovie;
 import com.bestflix.movie.security.dto.ResetPasswordRequest;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
@@ -35,6 +37,8 @@ public class MovieRepositoryTest {
     private MovieRepository movieRepository;
     @Autowired
     private PasswordResetTokenRepository passwordResetTokenRepository;
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
 
 
     UsersMovie usersMovie;
@@ -91,6 +95,72 @@ public class MovieRepositoryTest {
 
 
 
+    //MovieRepo
+
+    @Test
+    public void test_Update_Metadata_Keeps_Null_Fields(){
+        int updated = movieRepository.updateMetadata(movie.getId(), null, null, null, null, null, "Fixed typo", null);
+
+        assertEquals(1, updated);
+
+        Movie fetched = movieRepository.findById(movie.getId()).get();
+        assertEquals("Fixed typo", fetched.getAbout());
+        assertEquals("Room", fetched.getMovieName());
+        assertEquals("ifie-3242dss-ssdfs", fetched.getImageName());
+        assertEquals(movie.getReleaseDate(), fetched.getReleaseDate());
+    }
+
+    @Test
+    public void test_Update_Metadata_Of_Deleted_Movie(){
+        movie.setDeleted(true);
+        movieRepository.saveAndFlush(movie);
+
+        assertEquals(0, movieRepository.updateMetadata(movie.getId(), "New", null, null, null, null, null, null));
+    }
+
+
+    //IdempotencyRecordRepo
+
+    private static IdempotencyRecord inProgress(String id, LocalDateTime expiresAt){
+        return IdempotencyRecord.builder()
+                .id(id)
+                .caller("user:Elcin")
+                .request("POST /rest/api/movie/upload")
+                .state(IdempotencyRecord.State.IN_PROGRESS)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    public void test_Idempotency_Record_Is_Claimed_Only_Once(){
+        IdempotencyRecord claimed = idempotencyRecordRepository.saveAndFlush(inProgress("k1", LocalDateTime.now().plusHours(1)));
+
+        assertEquals(0L, claimed.getVersion());
+        assertThrows(DataIntegrityViolationException.class,
+                () -> idempotencyRecordRepository.saveAndFlush(inProgress("k1", LocalDateTime.now().plusHours(1))));
+    }
+
+    @Test
+    public void test_Complete_And_Delete_Idempotency_Record_By_Version(){
+        idempotencyRecordRepository.saveAndFlush(inProgress("k2", LocalDateTime.now().plusHours(1)));
+        idempotencyRecordRepository.saveAndFlush(inProgress("k3", LocalDateTime.now().minusMinutes(1)));
+
+        assertEquals(1, idempotencyRecordRepository.complete("k2", 0, 201, "text/plain", "Movie Uploaded Successfully!",
+                LocalDateTime.now().plusDays(1)));
+        assertEquals(0, idempotencyRecordRepository.complete("k2", 0, 500, null, "", LocalDateTime.now()));
+
+        IdempotencyRecord completed = idempotencyRecordRepository.findById("k2").get();
+        assertEquals(IdempotencyRecord.State.COMPLETED, completed.getState());
+        assertEquals(201, completed.getResponseStatus());
+        assertEquals(1L, completed.getVersion());
+
+        assertEquals(0, idempotencyRecordRepository.deleteVersion("k2", 0));
+        assertEquals(1, idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        assertTrue(idempotencyRecordRepository.findById("k3").isEmpty());
+    }
+
+
     //UsersMovieRepo
 
     @Test
@@ -0,0 +1,103 @@
+package com.bestflix.movie.security.config;
+
+import com.bestflix.movie.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkheadPasswordEncoderTest {
+
+    @Mock
+    private PasswordEncoder delegate;
+
+    private ThreadPoolExecutor executor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private BulkheadPasswordEncoder encoder(long maxWaitMs) {
+        return new BulkheadPasswordEncoder(delegate, executor, maxWaitMs, meterRegistry);
+    }
+
+    @Test
+    void shouldHashOnPoolAndRecordTimes() {
+        when(delegate.encode("secret")).thenAnswer(invocation -> Thread.currentThread().getName());
+        when(delegate.matches("secret", "hash")).thenReturn(true);
+        BulkheadPasswordEncoder encoder = encoder(5_000);
+
+        assertNotEquals(Thread.currentThread().getName(), encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "hash"));
+
+        assertEquals(2, meterRegistry.timer("security.password-hashing.queue-wait").count());
+        assertEquals(1, meterRegistry.timer("security.password-hashing.duration", "operation", "encode").count());
+        assertEquals(1, meterRegistry.timer("security.password-hashing.duration", "operation", "matches").count());
+    }
+
+    @Test
+    void shouldShedWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        when(delegate.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        BulkheadPasswordEncoder encoder = encoder(5_000);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (executor.getQueue().isEmpty()) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("third"));
+        assertEquals(1, meterRegistry.counter("security.password-hashing.rejected").count());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxWait() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.matches(any(), any())).thenAnswer(invocation -> release.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder(50).matches("secret", "hash"));
+        release.countDown();
+    }
+
+    @Test
+    void shouldPropagateDelegateFailure() {
+        when(delegate.matches("secret", "not-a-hash")).thenThrow(new IllegalArgumentException("Invalid hash"));
+
+        assertThrows(IllegalArgumentException.class, () -> encoder(5_000).matches("secret", "not-a-hash"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.bestflix.movie.security.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicRoutesTest {
+
+    private final PublicRoutes publicRoutes = new PublicRoutes();
+
+    private boolean matches(String method, String path) {
+        return publicRoutes.matches(new MockHttpServletRequest(method, path));
+    }
+
+    @Test
+    void shouldMatchPublicMovieReads() {
+        assertTrue(matches("GET", "/rest/api/movie/all"));
+        assertTrue(matches("GET", "/rest/api/movie/42"));
+        assertTrue(matches("GET", "/rest/api/movie/image/42"));
+        assertTrue(matches("HEAD", "/rest/api/movie/video/42"));
+    }
+
+    @Test
+    void shouldNotMatchRoutesThatUseTheCaller() {
+        assertFalse(matches("GET", "/rest/api/movie/upload/jobs/7"));
+        assertFalse(matches("GET", "/rest/api/movie/upload/sessions/abc"));
+        assertFalse(matches("GET", "/rest/api/movie/image/"));
+        assertFalse(matches("GET", "/rest/api/movie/image/42/x"));
+        assertFalse(matches("POST", "/rest/api/movie/mymovies"));
+        assertFalse(matches("DELETE", "/rest/api/movie/delete/42"));
+        assertFalse(matches("PATCH", "/rest/api/movie/42"));
+    }
+
+    @Test
+    void shouldMatchTokenEndpointsDocsAndPreflight() {
+        assertTrue(matches("POST", "/login"));
+        assertTrue(matches("POST", "/token/refresh"));
+        assertTrue(matches("POST", "/token/revoke"));
+        assertTrue(matches("GET", "/register/availability"));
+        assertFalse(matches("GET", "/login"));
+        assertTrue(matches("GET", "/.well-known/jwks.json"));
+        assertTrue(matches("GET", "/swagger-ui/index.html"));
+        assertTrue(matches("POST", "/h2-console/login.do"));
+        assertTrue(matches("OPTIONS", "/rest/api/movie/upload"));
+    }
+
+    @Test
+    void shouldMatchPathWithinContext() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bestflix/rest/api/movie/image/42");
+        request.setContextPath("/bestflix");
+
+        assertTrue(publicRoutes.matches(request));
+    }
+}
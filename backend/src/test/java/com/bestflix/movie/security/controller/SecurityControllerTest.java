@@ -1,14 +1,21 @@
 package com.bestflix.movie.security.controller;
 
 import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.InvalidTokenException;
+import com.bestflix.movie.exception.RateLimitExceededException;
+import com.bestflix.movie.exception.UserAlreadyExistsException;
 import com.bestflix.movie.exception.UserMoviesNotFoundException;
 import com.bestflix.movie.handler.GlobalExceptionHandler;
 import com.bestflix.movie.security.SecurityController;
 import com.bestflix.movie.security.dto.ForgotPasswordRequest;
+import com.bestflix.movie.security.dto.RefreshTokenRequest;
 import com.bestflix.movie.security.dto.ResetPasswordRequest;
+import com.bestflix.movie.security.dto.TokenResponse;
 import com.bestflix.movie.security.dto.UsersRequest;
 import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.ratelimit.AuthRateLimiter;
 import com.bestflix.movie.security.userService.UserService;
+import com.bestflix.movie.security.userService.UsernameAvailabilityService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +34,7 @@ import org.springframework.web.multipart.MultipartFile;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,13 +47,19 @@ public class SecurityControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private AuthRateLimiter authRateLimiter;
+
+    @Mock
+    private UsernameAvailabilityService usernameAvailabilityService;
+
     @InjectMocks
     private SecurityController securityController;
 
 
     @BeforeEach
     void setup(){
-        SecurityController securityController = new SecurityController(userService);
+        SecurityController securityController = new SecurityController(userService, authRateLimiter, usernameAvailabilityService);
         mockMvc = MockMvcBuilders
                 .standaloneSetup(securityController)
                 .setControllerAdvice(new GlobalExceptionHandler())
@@ -110,20 +124,103 @@ public class SecurityControllerTest {
         ObjectMapper mapper = new ObjectMapper();
         String userJson = mapper.writeValueAsString(user);
 
-        String token = "token";
+        TokenResponse tokens = new TokenResponse("token", "refresh", 900);
 
-        when(userService.verify(user)).thenReturn(token);
+        when(userService.verify(user)).thenReturn(tokens);
 
         mockMvc.perform(post("/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(userJson))
                 .andExpect(status().isOk())
-                .andExpect(content().string(token));
+                .andExpect(jsonPath("$.accessToken").value("token"))
+                .andExpect(jsonPath("$.refreshToken").value("refresh"))
+                .andExpect(jsonPath("$.expiresIn").value(900));
 
         verify(userService).verify(any(UsersRequest.class));
 
     }
 
+    @Test
+    void shouldReturnTooManyRequestsWhenLoginIsThrottled() throws Exception {
+        String userJson = new ObjectMapper().writeValueAsString(new UsersRequest("elcin", "securePassword"));
+
+        doThrow(new RateLimitExceededException(42)).when(authRateLimiter).checkLogin(any(), eq("elcin"));
+
+        mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "42"));
+
+        verify(userService, never()).verify(any());
+    }
+
+    @Test
+    void shouldReturnConflictWhenUsernameIsTaken() throws Exception {
+        Users user = new Users();
+        user.setUsername("elcin");
+        user.setPassword("securePassword");
+        user.setEmail("elcin@gmail.com");
+
+        when(userService.register(any())).thenThrow(new UserAlreadyExistsException("Username: elcin"));
+
+        mockMvc.perform(post("/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(user)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldReportAvailabilityOfRequestedValuesOnly() throws Exception {
+        when(usernameAvailabilityService.isUsernameAvailable("elcin")).thenReturn(false);
+
+        mockMvc.perform(get("/register/availability").param("username", "elcin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usernameAvailable").value(false))
+                .andExpect(jsonPath("$.emailAvailable").doesNotExist());
+
+        verify(authRateLimiter).checkAvailability(any());
+        verify(usernameAvailabilityService, never()).isEmailAvailable(any());
+    }
+
+    @Test
+    void shouldRefreshTokens() throws Exception {
+        String requestJson = new ObjectMapper().writeValueAsString(new RefreshTokenRequest("refresh"));
+
+        when(userService.refresh("refresh")).thenReturn(new TokenResponse("token-2", "refresh-2", 900));
+
+        mockMvc.perform(post("/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").value("token-2"))
+                .andExpect(jsonPath("$.refreshToken").value("refresh-2"));
+    }
+
+    @Test
+    void shouldReturnBadRequestForReusedRefreshToken() throws Exception {
+        String requestJson = new ObjectMapper().writeValueAsString(new RefreshTokenRequest("used"));
+
+        when(userService.refresh("used")).thenThrow(new InvalidTokenException("Refresh token was already used"));
+
+        mockMvc.perform(post("/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRevokeRefreshToken() throws Exception {
+        String requestJson = new ObjectMapper().writeValueAsString(new RefreshTokenRequest("refresh"));
+
+        mockMvc.perform(post("/token/revoke")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isNoContent());
+
+        verify(userService).logout("refresh");
+    }
+
     @Test
     void shouldReturnBadRequestMissingFieldsForLoginUser() throws Exception {
 
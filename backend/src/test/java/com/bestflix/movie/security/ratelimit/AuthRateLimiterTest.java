@@ -0,0 +1,66 @@
+package com.bestflix.movie.security.ratelimit;
+
+import com.bestflix.movie.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthRateLimiterTest {
+
+    @Mock
+    private RateLimitBackend backend;
+
+    private RateLimitProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AuthRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AuthRateLimiter(properties, backend, meterRegistry);
+    }
+
+    @Test
+    void checkLogin_shouldConsumeFromAddressAndNormalizedAccount() {
+        when(backend.tryConsume(any(), any())).thenReturn(0L);
+
+        limiter.checkLogin("1.2.3.4", " Elcin ");
+
+        verify(backend).tryConsume("login:address:1.2.3.4", properties.getLogin().getPerAddress());
+        verify(backend).tryConsume("login:account:elcin", properties.getLogin().getPerAccount());
+    }
+
+    @Test
+    void checkForgotPassword_shouldRejectWithRetryAfterInSeconds() {
+        when(backend.tryConsume(eq("forgot-password:address:1.2.3.4"), any())).thenReturn(0L);
+        when(backend.tryConsume(eq("forgot-password:account:elcin@gmail.com"), any())).thenReturn(1_500L);
+
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class,
+                () -> limiter.checkForgotPassword("1.2.3.4", "elcin@gmail.com"));
+
+        assertEquals(2, e.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.counter("security.rate-limit.rejected",
+                "endpoint", "forgot-password", "key", "account").count());
+    }
+
+    @Test
+    void check_shouldDoNothingWhenDisabled() {
+        properties.setEnabled(false);
+
+        limiter.checkRegister("1.2.3.4", "elcin@gmail.com");
+
+        verifyNoInteractions(backend);
+    }
+}
@@ -0,0 +1,98 @@
+package com.bestflix.movie.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRateLimitBackendTest {
+
+    private InMemoryRateLimitBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = new InMemoryRateLimitBackend(64, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void tryConsume_shouldAdmitCapacityThenReportWait() {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(3, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, backend.tryConsume("login:address:1.2.3.4", limit));
+        }
+
+        long waitMs = backend.tryConsume("login:address:1.2.3.4", limit);
+        assertTrue(waitMs > 19_000 && waitMs <= 20_000, "one token refills every 20 s, was " + waitMs);
+        assertEquals(0, backend.tryConsume("login:address:5.6.7.8", limit));
+    }
+
+    @Test
+    void tryConsume_shouldRefillOverTime() throws InterruptedException {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(2, Duration.ofMillis(100));
+
+        assertEquals(0, backend.tryConsume("key", limit));
+        assertEquals(0, backend.tryConsume("key", limit));
+        assertTrue(backend.tryConsume("key", limit) > 0);
+
+        Thread.sleep(60);
+        assertEquals(0, backend.tryConsume("key", limit));
+    }
+
+    @Test
+    void tryConsume_shouldNotAdmitMoreThanCapacityUnderContention() throws Exception {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(100, Duration.ofHours(1));
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        if (backend.tryConsume("shared", limit) == 0)
+                            admitted.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(100, admitted.get());
+    }
+
+    @Test
+    void evictIdle_shouldDropOnlyRefilledBuckets() throws InterruptedException {
+        backend.tryConsume("short", new RateLimitProperties.Limit(1, Duration.ofMillis(20)));
+        backend.tryConsume("long", new RateLimitProperties.Limit(1, Duration.ofHours(1)));
+
+        Thread.sleep(40);
+        backend.evictIdle();
+
+        assertEquals(1, backend.size());
+    }
+
+    @Test
+    void tryConsume_shouldStayWithinMaxKeys() {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(5, Duration.ofHours(1));
+
+        for (int i = 0; i < 500; i++) {
+            backend.tryConsume("login:account:user" + i, limit);
+            assertTrue(backend.size() <= 64);
+        }
+    }
+}
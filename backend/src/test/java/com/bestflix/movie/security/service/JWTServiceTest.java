@@ -1,34 +1,55 @@
 package com.bestflix.movie.security.service;
 
 import com.bestflix.movie.exception.InvalidTokenException;
+import com.bestflix.movie.exception.TokenExpiredException;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
 import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.SigningKeyService;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class JWTServiceTest {
 
     private JWTService jwtService;
 
-    private final String secret = "your-256-bit-secret-your-256-bit-secret";
+    private SigningKeyService signingKeyService;
+
+    private final CustomUserDetails elcin = new CustomUserDetails(Users.builder().id(7L).username("elcin").build());
 
     @BeforeEach
     void setUp() {
-        jwtService = new JWTService();
-        ReflectionTestUtils.setField(jwtService, "secretKey", secret);
+        signingKeyService = SigningKeys.inMemory("your-256-bit-secret-your-256-bit-secret");
+        jwtService = new JWTService(signingKeyService);
+    }
+
+    private String sign(io.jsonwebtoken.JwtBuilder builder) {
+        SigningKeyService.ActiveKey key = signingKeyService.signingKey();
+        return builder
+                .setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                .signWith(key.privateKey(), SignatureAlgorithm.ES256)
+                .compact();
     }
 
     @Test
     void generateToken_shouldIncludeCorrectSubject() {
-        String token = jwtService.generateToken("elcin");
+        String token = jwtService.generateToken(elcin);
 
         String extractedUsername = jwtService.extractUserName(token);
 
@@ -36,22 +57,66 @@ class JWTServiceTest {
     }
 
     @Test
-    void validateToken_shouldReturnTrueForValidToken() {
-        String token = jwtService.generateToken("elcin");
+    void verify_shouldReturnUserIdRolesAndExpiration() {
+        String token = jwtService.generateToken(elcin);
+
+        JWTService.VerifiedToken verified = jwtService.verify(token);
+
+        assertEquals("elcin", verified.subject());
+        assertEquals(7L, verified.userId());
+        assertEquals(List.of("USER"), verified.roles());
+        assertEquals(Duration.ofMinutes(15), Duration.between(verified.issuedAt(), verified.expiresAt()));
+    }
+
+    @Test
+    void verify_shouldThrowTokenExpiredException_whenTokenIsExpired() {
+        String token = sign(Jwts.builder()
+                .setSubject("elcin")
+                .claim("uid", 7L)
+                .setExpiration(Date.from(Instant.now().minusSeconds(60))));
+
+        assertThrows(TokenExpiredException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void generateToken_shouldSignWithES256AndKeyId() {
+        String token = jwtService.generateToken(elcin);
+
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+
+        assertTrue(header.contains("\"alg\":\"ES256\""));
+        assertTrue(header.contains("\"kid\":\"" + signingKeyService.signingKey().kid() + "\""));
+    }
 
-        UserDetails userDetails = mock(UserDetails.class);
-        when(userDetails.getUsername()).thenReturn("elcin");
+    @Test
+    void verify_shouldThrowInvalidTokenException_whenSignedWithAnotherKey() {
+        String token = new JWTService(SigningKeys.inMemory("another-256-bit-secret-another-256-bit")).generateToken(elcin);
 
-        assertTrue(jwtService.validateToken(token, userDetails));
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify(token));
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify("not.a.token"));
     }
 
     @Test
-    void validateToken_shouldThrowInvalidTokenException_whenUsernameMismatch() {
-        String token = jwtService.generateToken("elcin");
+    void verify_shouldRejectHmacTokens() {
+        String token = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyService.signingKey().kid())
+                .setSubject("elcin")
+                .claim("uid", 7L)
+                .setExpiration(Date.from(Instant.now().plusSeconds(60)))
+                .signWith(Keys.hmacShaKeyFor("your-256-bit-secret-your-256-bit-secret".getBytes(StandardCharsets.UTF_8)),
+                        SignatureAlgorithm.HS256)
+                .compact();
 
-        UserDetails userDetails = mock(UserDetails.class);
-        when(userDetails.getUsername()).thenReturn("unknownUser");
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void verify_shouldThrowInvalidTokenException_whenUserIdIsMissing() {
+        String token = sign(Jwts.builder()
+                .setSubject("elcin")
+                .setExpiration(Date.from(Instant.now().plusSeconds(60))));
 
-        assertThrows(InvalidTokenException.class, () -> jwtService.validateToken(token, userDetails));
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify(token));
     }
 }
@@ -0,0 +1,134 @@
+package com.bestflix.movie.security.service;
+
+import com.bestflix.movie.exception.InvalidTokenException;
+import com.bestflix.movie.exception.TokenExpiredException;
+import com.bestflix.movie.security.entity.RefreshToken;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.RefreshTokenRepository;
+import com.bestflix.movie.security.userService.RefreshTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RefreshTokenService refreshTokenService;
+
+    private final Users user = Users.builder().id(7L).username("elcin").build();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, meterRegistry);
+    }
+
+    /**
+     * Issues a token and returns it together with the entity the service saved for it.
+     */
+    private RefreshToken issueStored(String[] token) {
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        token[0] = refreshTokenService.issue(user);
+        verify(refreshTokenRepository, atLeastOnce()).save(saved.capture());
+
+        RefreshToken stored = saved.getValue();
+        stored.setId(1L);
+        return stored;
+    }
+
+    @Test
+    void issue_shouldStoreOnlyHashOfToken() {
+        String[] token = new String[1];
+        RefreshToken stored = issueStored(token);
+
+        assertNotNull(token[0]);
+        assertNotEquals(token[0], stored.getTokenHash());
+        assertNotNull(stored.getFamilyId());
+        assertTrue(stored.getExpiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void rotate_shouldIssueSuccessorInSameFamily() {
+        String[] token = new String[1];
+        RefreshToken stored = issueStored(token);
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(eq(1L), any())).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(token[0]);
+
+        assertSame(user, rotation.user());
+        assertNotEquals(token[0], rotation.refreshToken());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository, times(2)).save(saved.capture());
+        assertEquals(stored.getFamilyId(), saved.getValue().getFamilyId());
+        verify(refreshTokenRepository, never()).deleteFamily(any());
+    }
+
+    @Test
+    void rotate_shouldRevokeFamilyWhenTokenIsReused() {
+        String[] token = new String[1];
+        RefreshToken stored = issueStored(token);
+        stored.setUsedAt(Instant.now().minusSeconds(60));
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate(token[0]));
+
+        verify(refreshTokenRepository).deleteFamily(stored.getFamilyId());
+        assertEquals(1, meterRegistry.counter("security.refresh-tokens.rotations", "result", "reused").count());
+    }
+
+    @Test
+    void rotate_shouldRevokeFamilyWhenConcurrentRequestRotatedFirst() {
+        String[] token = new String[1];
+        RefreshToken stored = issueStored(token);
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(eq(1L), any())).thenReturn(0);
+
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate(token[0]));
+
+        verify(refreshTokenRepository).deleteFamily(stored.getFamilyId());
+    }
+
+    @Test
+    void rotate_shouldRejectExpiredAndUnknownTokens() {
+        String[] token = new String[1];
+        RefreshToken stored = issueStored(token);
+        stored.setExpiresAt(Instant.now().minusSeconds(1));
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+
+        assertThrows(TokenExpiredException.class, () -> refreshTokenService.rotate(token[0]));
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("unknown"));
+
+        verify(refreshTokenRepository, never()).markUsed(any(), any());
+    }
+
+    @Test
+    void revoke_shouldDeleteFamilyOfTokenAndIgnoreUnknownTokens() {
+        String[] token = new String[1];
+        RefreshToken stored = issueStored(token);
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+
+        refreshTokenService.revoke(token[0]);
+        refreshTokenService.revoke("unknown");
+
+        verify(refreshTokenRepository, times(1)).deleteFamily(stored.getFamilyId());
+        verify(refreshTokenRepository, never()).deleteByUser(any());
+    }
+}
@@ -0,0 +1,112 @@
+package com.bestflix.movie.security.service;
+
+import com.bestflix.movie.security.entity.SigningKey;
+import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.SigningKeyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SigningKeyServiceTest {
+
+    private static final String SECRET = "your-256-bit-secret-your-256-bit-secret";
+
+    private final List<SigningKey> keys = new ArrayList<>();
+
+    private SigningKeyService signingKeyService;
+
+    @BeforeEach
+    void setUp() {
+        signingKeyService = new SigningKeyService(SigningKeys.repository(keys), SECRET, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Moves the stored keys into the past, as if the given time had passed.
+     */
+    private void age(Duration elapsed) {
+        for (SigningKey key : keys) {
+            key.setCreatedAt(key.getCreatedAt().minus(elapsed));
+            key.setActivatesAt(key.getActivatesAt().minus(elapsed));
+        }
+    }
+
+    @Test
+    void signingKey_shouldCreateFirstKeyActiveAtOnce() {
+        SigningKeyService.ActiveKey key = signingKeyService.signingKey();
+
+        assertEquals(1, keys.size());
+        assertEquals(keys.get(0).getKid(), key.kid());
+        assertNotNull(signingKeyService.verificationKey(key.kid()));
+        assertNull(signingKeyService.verificationKey("unknown"));
+    }
+
+    @Test
+    void refresh_shouldPublishRotatedKeyBeforeSigningWithIt() {
+        String first = signingKeyService.signingKey().kid();
+
+        age(Duration.ofDays(8));
+        signingKeyService.refresh();
+
+        assertEquals(2, keys.size());
+        String second = keys.get(1).getKid();
+        assertEquals(first, signingKeyService.signingKey().kid());
+        assertNotNull(signingKeyService.verificationKey(second));
+
+        age(Duration.ofMinutes(11));
+        signingKeyService.refresh();
+
+        assertEquals(second, signingKeyService.signingKey().kid());
+        assertNotNull(signingKeyService.verificationKey(first));
+    }
+
+    @Test
+    void refresh_shouldDeleteReplacedKeyOnceItsTokensExpired() {
+        String first = signingKeyService.signingKey().kid();
+        age(Duration.ofDays(8));
+        signingKeyService.refresh();
+        age(Duration.ofMinutes(11));
+        signingKeyService.refresh();
+
+        age(JWTService.TOKEN_VALIDITY.plusMinutes(2));
+        signingKeyService.refresh();
+
+        assertNull(signingKeyService.verificationKey(first));
+        assertEquals(1, keys.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void jwks_shouldPublishPublicKeysOnly() {
+        String kid = signingKeyService.signingKey().kid();
+
+        List<Map<String, Object>> published = (List<Map<String, Object>>) signingKeyService.jwks().get("keys");
+
+        assertEquals(1, published.size());
+        Map<String, Object> jwk = published.get(0);
+        assertEquals("EC", jwk.get("kty"));
+        assertEquals("P-256", jwk.get("crv"));
+        assertEquals("ES256", jwk.get("alg"));
+        assertEquals(kid, jwk.get("kid"));
+        assertEquals(32, Base64.getUrlDecoder().decode((String) jwk.get("x")).length);
+        assertEquals(32, Base64.getUrlDecoder().decode((String) jwk.get("y")).length);
+        assertFalse(jwk.containsKey("d"));
+    }
+
+    @Test
+    void signingKey_shouldNotLoadWithAnotherSecret() {
+        signingKeyService.signingKey();
+
+        SigningKeyService other = new SigningKeyService(SigningKeys.repository(keys), "another-256-bit-secret",
+                new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, other::signingKey);
+    }
+}
@@ -0,0 +1,54 @@
+package com.bestflix.movie.security.service;
+
+import com.bestflix.movie.security.entity.SigningKey;
+import com.bestflix.movie.security.repository.SigningKeyRepository;
+import com.bestflix.movie.security.userService.SigningKeyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link SigningKeyService} instances backed by a list instead of the database, for tests and benchmarks.
+ */
+public final class SigningKeys {
+
+    private SigningKeys() {
+    }
+
+    /**
+     * @param secret secret the private keys are encrypted with
+     * @return a service whose keys live in memory
+     */
+    public static SigningKeyService inMemory(String secret) {
+        return new SigningKeyService(repository(new ArrayList<>()), secret, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param keys backing list; saved keys are added to it and deleted ones removed
+     * @return a repository supporting the methods {@link SigningKeyService} uses
+     */
+    @SuppressWarnings("unchecked")
+    public static SigningKeyRepository repository(List<SigningKey> keys) {
+        return (SigningKeyRepository) Proxy.newProxyInstance(SigningKeyRepository.class.getClassLoader(),
+                new Class<?>[]{SigningKeyRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        keys.add((SigningKey) args[0]);
+                        yield args[0];
+                    }
+                    case "findAllByOrderByCreatedAtAsc" -> keys.stream()
+                            .sorted(Comparator.comparing(SigningKey::getCreatedAt))
+                            .toList();
+                    case "deleteAll" -> {
+                        ((Iterable<SigningKey>) args[0]).forEach(keys::remove);
+                        yield null;
+                    }
+                    case "toString" -> "in-memory SigningKeyRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,70 @@
+package com.bestflix.movie.security.service;
+
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(userRepository);
+        lenient().when(userRepository.findTokensValidAfterSince(any())).thenReturn(List.of());
+    }
+
+    private static JWTService.VerifiedToken issuedAt(long userId, Instant issuedAt) {
+        return new JWTService.VerifiedToken("elcin", userId, List.of("USER"), issuedAt, issuedAt.plusSeconds(3600));
+    }
+
+    @Test
+    void revokeTokens_shouldRejectTokensIssuedBeforeAndAcceptLaterOnes() {
+        Users user = Users.builder().id(7L).username("elcin").build();
+
+        tokenRevocationService.revokeTokens(user);
+
+        assertNotNull(user.getTokensValidAfter());
+        assertTrue(tokenRevocationService.isRevoked(issuedAt(7L, user.getTokensValidAfter().minusSeconds(1))));
+        assertFalse(tokenRevocationService.isRevoked(issuedAt(7L, user.getTokensValidAfter())));
+        assertFalse(tokenRevocationService.isRevoked(issuedAt(8L, Instant.now().minusSeconds(60))));
+    }
+
+    @Test
+    void isRevoked_shouldLoadRevocationsFromOtherInstancesOnce() {
+        Instant revokedAt = Instant.now().minusSeconds(10);
+        when(userRepository.findTokensValidAfterSince(any())).thenReturn(List.<Object[]>of(new Object[]{7L, revokedAt}));
+
+        assertTrue(tokenRevocationService.isRevoked(issuedAt(7L, revokedAt.minusSeconds(30))));
+        assertFalse(tokenRevocationService.isRevoked(issuedAt(7L, revokedAt.plusSeconds(1))));
+
+        verify(userRepository, times(1)).findTokensValidAfterSince(any());
+    }
+
+    @Test
+    void refresh_shouldForgetRevocationsOlderThanTokenLifetime() {
+        Instant longAgo = Instant.now().minus(JWTService.TOKEN_VALIDITY).minusSeconds(60);
+        when(userRepository.findTokensValidAfterSince(any())).thenReturn(List.<Object[]>of(new Object[]{7L, longAgo}));
+
+        tokenRevocationService.refresh();
+
+        assertFalse(tokenRevocationService.isRevoked(issuedAt(7L, longAgo.minusSeconds(1))));
+    }
+}
@@ -3,20 +3,28 @@ package com.bestflix.movie.security.service;
 import com.bestflix.movie.exception.InvalidCredentialsException;
 import com.bestflix.movie.exception.InvalidTokenException;
 import com.bestflix.movie.exception.TokenExpiredException;
+import com.bestflix.movie.exception.UserAlreadyExistsException;
 import com.bestflix.movie.exception.UserNotFoundException;
+import com.bestflix.movie.security.dto.TokenResponse;
 import com.bestflix.movie.security.dto.UsersRequest;
 import com.bestflix.movie.security.entity.PasswordResetToken;
 import com.bestflix.movie.security.entity.Users;
 import com.bestflix.movie.security.repository.PasswordResetTokenRepository;
 import com.bestflix.movie.security.repository.UserRepository;
 import com.bestflix.movie.security.userService.EmailService;
+import com.bestflix.movie.security.userDetails.CustomUserDetails;
+import com.bestflix.movie.security.userDetails.MyUserDetailsService;
 import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.RefreshTokenService;
+import com.bestflix.movie.security.userService.TokenRevocationService;
 import com.bestflix.movie.security.userService.UserService;
+import com.bestflix.movie.security.userService.UsernameAvailabilityService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
@@ -37,6 +45,10 @@ public class UserServiceTest {
     @Mock private JWTService jwtService;
     @Mock private PasswordEncoder passwordEncoder;
     @Mock private EmailService emailService;
+    @Mock private TokenRevocationService tokenRevocationService;
+    @Mock private MyUserDetailsService myUserDetailsService;
+    @Mock private RefreshTokenService refreshTokenService;
+    @Mock private UsernameAvailabilityService usernameAvailabilityService;
 
     @InjectMocks private UserService userService;
 
@@ -44,15 +56,44 @@ public class UserServiceTest {
     @Test
     void testRegister_ShouldEncodePasswordAndSaveUser() {
         Users user = new Users();
+        user.setUsername("elcin");
+        user.setEmail("elcin@gmail.com");
         user.setPassword("rawPassword");
 
+        when(usernameAvailabilityService.isUsernameAvailable("elcin")).thenReturn(true);
+        when(usernameAvailabilityService.isEmailAvailable("elcin@gmail.com")).thenReturn(true);
         when(passwordEncoder.encode("rawPassword")).thenReturn("encodedPassword");
-        when(userRepository.save(any(Users.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(userRepository.saveAndFlush(any(Users.class))).thenAnswer(i -> i.getArguments()[0]);
 
         Users result = userService.register(user);
 
         assertEquals("encodedPassword", result.getPassword());
-        verify(userRepository).save(user);
+        verify(userRepository).saveAndFlush(user);
+        verify(usernameAvailabilityService).add(user);
+        verify(myUserDetailsService).evict("elcin");
+    }
+
+    @Test
+    void testRegister_ShouldRejectTakenUsernameBeforeHashing() {
+        Users user = Users.builder().username("elcin").email("elcin@gmail.com").password("rawPassword").build();
+
+        when(usernameAvailabilityService.isUsernameAvailable("elcin")).thenReturn(false);
+
+        assertThrows(UserAlreadyExistsException.class, () -> userService.register(user));
+        verifyNoInteractions(passwordEncoder, userRepository);
+    }
+
+    @Test
+    void testRegister_ShouldRejectDuplicateCaughtByUniqueConstraint() {
+        Users user = Users.builder().username("elcin").email("elcin@gmail.com").password("rawPassword").build();
+
+        when(usernameAvailabilityService.isUsernameAvailable("elcin")).thenReturn(true);
+        when(usernameAvailabilityService.isEmailAvailable("elcin@gmail.com")).thenReturn(true);
+        when(passwordEncoder.encode("rawPassword")).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(user)).thenThrow(new DataIntegrityViolationException("uk_users_username"));
+
+        assertThrows(UserAlreadyExistsException.class, () -> userService.register(user));
+        verify(usernameAvailabilityService, never()).add(any());
     }
 
     @Test
@@ -61,11 +102,30 @@ public class UserServiceTest {
         Authentication auth = mock(Authentication.class);
 
         when(authManager.authenticate(any())).thenReturn(auth);
+        CustomUserDetails userDetails = new CustomUserDetails(Users.builder().id(1L).username("user").build());
+
         when(auth.isAuthenticated()).thenReturn(true);
-        when(jwtService.generateToken("user")).thenReturn("jwt-token");
+        when(auth.getPrincipal()).thenReturn(userDetails);
+        when(jwtService.generateToken(any(CustomUserDetails.class))).thenReturn("jwt-token");
+        when(refreshTokenService.issue(userDetails.getUser())).thenReturn("refresh-token");
+
+        TokenResponse tokens = userService.verify(req);
+        assertEquals("jwt-token", tokens.getAccessToken());
+        assertEquals("refresh-token", tokens.getRefreshToken());
+        assertEquals(JWTService.TOKEN_VALIDITY.toSeconds(), tokens.getExpiresIn());
+    }
+
+    @Test
+    void testRefresh_ShouldIssueAccessTokenForRotatedRefreshToken() {
+        Users user = Users.builder().id(1L).username("user").build();
+        when(refreshTokenService.rotate("refresh-token")).thenReturn(new RefreshTokenService.Rotation(user, "refresh-token-2"));
+        when(jwtService.generateToken(argThat(details -> details.getUser() == user))).thenReturn("jwt-token-2");
+
+        TokenResponse tokens = userService.refresh("refresh-token");
 
-        String token = userService.verify(req);
-        assertEquals("jwt-token", token);
+        assertEquals("jwt-token-2", tokens.getAccessToken());
+        assertEquals("refresh-token-2", tokens.getRefreshToken());
+        verifyNoInteractions(authManager, passwordEncoder);
     }
 
     @Test
@@ -110,7 +170,10 @@ public class UserServiceTest {
         boolean result = userService.resetPassword("abc", "newpass");
 
         assertTrue(result);
+        verify(tokenRevocationService).revokeTokens(user);
+        verify(refreshTokenService).revokeAll(user);
         verify(userRepository).save(user);
+        verify(myUserDetailsService).evict(user.getUsername());
         verify(resetTokenRepository).delete(token);
     }
 
@@ -0,0 +1,127 @@
+package com.bestflix.movie.security.service;
+
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.security.userService.UsernameAvailabilityService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsernameAvailabilityServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UsernameAvailabilityService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new UsernameAvailabilityService(userRepository, 10_000, 0.01, meterRegistry);
+    }
+
+    private double checks(String result) {
+        return meterRegistry.counter("security.username-availability.checks", "result", result).count();
+    }
+
+    @Test
+    void shouldAskDatabaseUntilLoaded() {
+        when(userRepository.existsByUsername("elcin")).thenReturn(true);
+
+        assertFalse(service.isUsernameAvailable("elcin"));
+        assertEquals(1, checks("taken"));
+    }
+
+    @Test
+    void shouldAnswerUnknownNamesWithoutDatabase() {
+        when(userRepository.findIdentifiersAfter(anyLong(), any())).thenReturn(List.of());
+        service.refresh();
+
+        assertTrue(service.isUsernameAvailable("elcin"));
+        assertTrue(service.isEmailAvailable("elcin@gmail.com"));
+
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+        assertEquals(2, checks("absent"));
+    }
+
+    @Test
+    void shouldLoadAllPagesAndConfirmHitsInDatabase() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            rows.add(new Object[]{id, "user" + id, "user" + id + "@gmail.com"});
+        }
+        when(userRepository.findIdentifiersAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int size = invocation.<Pageable>getArgument(1).getPageSize();
+            return rows.subList((int) afterId, (int) Math.min(rows.size(), afterId + size));
+        });
+        when(userRepository.existsByUsername("user42")).thenReturn(true);
+
+        service.refresh();
+
+        verify(userRepository, times(3)).findIdentifiersAfter(anyLong(), any());
+        assertFalse(service.isUsernameAvailable("user42"));
+        assertEquals(1, checks("taken"));
+        assertEquals(0, checks("absent"));
+    }
+
+    @Test
+    void shouldMatchNamesWithTheCaseTheDatabaseUses() {
+        when(userRepository.findIdentifiersAfter(anyLong(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, "alice", "alice@gmail.com"}))
+                .thenReturn(List.of());
+        service.refresh();
+
+        assertTrue(service.isUsernameAvailable("Alice"));
+        assertTrue(service.isEmailAvailable("Alice@gmail.com"));
+
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+        assertEquals(2, checks("absent"));
+    }
+
+    @Test
+    void shouldReportRegisteredUserAsTakenAtOnce() {
+        when(userRepository.findIdentifiersAfter(anyLong(), any())).thenReturn(List.of());
+        service.refresh();
+
+        service.add(Users.builder().username("elcin").email("elcin@gmail.com").build());
+        when(userRepository.existsByEmail("elcin@gmail.com")).thenReturn(true);
+
+        assertFalse(service.isEmailAvailable("elcin@gmail.com"));
+        verify(userRepository).existsByEmail("elcin@gmail.com");
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredRate() {
+        when(userRepository.findIdentifiersAfter(anyLong(), any())).thenReturn(List.of());
+        service.refresh();
+        for (int i = 0; i < 5_000; i++) {
+            service.add(Users.builder().username("user" + i).email("user" + i + "@gmail.com").build());
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            service.isUsernameAvailable("other" + i);
+        }
+
+        // 10000 names in a filter sized for 10000 at 1%
+        assertTrue(checks("false-positive") < 200, "false positives: " + checks("false-positive"));
+        assertEquals(10_000, checks("absent") + checks("false-positive"));
+    }
+}
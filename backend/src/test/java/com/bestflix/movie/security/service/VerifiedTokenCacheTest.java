@@ -0,0 +1,95 @@
+package com.bestflix.movie.security.service;
+
+import com.bestflix.movie.exception.InvalidTokenException;
+import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerifiedTokenCacheTest {
+
+    @Mock
+    private JWTService jwtService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new VerifiedTokenCache(jwtService, 32, meterRegistry);
+    }
+
+    private static JWTService.VerifiedToken expiringIn(long seconds) {
+        return new JWTService.VerifiedToken("elcin", 7L, List.of("USER"), Instant.now(), Instant.now().plusSeconds(seconds));
+    }
+
+    @Test
+    void verify_shouldSkipVerificationForCachedToken() {
+        JWTService.VerifiedToken verified = expiringIn(3600);
+        when(jwtService.verify("token")).thenReturn(verified);
+
+        assertSame(verified, cache.verify("token"));
+        assertSame(verified, cache.verify(new String("token")));
+
+        verify(jwtService, times(1)).verify("token");
+        assertEquals(1, meterRegistry.counter("security.token-cache.requests", "result", "hit").count());
+        assertEquals(1, meterRegistry.counter("security.token-cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void verify_shouldVerifyAgainOnceCachedTokenExpired() {
+        when(jwtService.verify("token")).thenReturn(expiringIn(-1));
+
+        cache.verify("token");
+        cache.verify("token");
+
+        verify(jwtService, times(2)).verify("token");
+    }
+
+    @Test
+    void verify_shouldNotCacheRejectedTokens() {
+        when(jwtService.verify("bad")).thenThrow(new InvalidTokenException("bad"));
+
+        assertThrows(InvalidTokenException.class, () -> cache.verify("bad"));
+        assertThrows(InvalidTokenException.class, () -> cache.verify("bad"));
+
+        assertEquals(0, cache.size());
+        verify(jwtService, times(2)).verify("bad");
+    }
+
+    @Test
+    void verify_shouldStayWithinMaxEntries() {
+        when(jwtService.verify(anyString())).thenAnswer(invocation -> expiringIn(3600));
+
+        for (int i = 0; i < 100; i++) {
+            cache.verify("token-" + i);
+            assertTrue(cache.size() <= 32);
+        }
+    }
+
+    @Test
+    void evictExpired_shouldDropOnlyExpiredTokens() {
+        when(jwtService.verify("old")).thenReturn(expiringIn(-1));
+        when(jwtService.verify("new")).thenReturn(expiringIn(3600));
+        cache.verify("old");
+        cache.verify("new");
+
+        cache.evictExpired();
+
+        assertEquals(1, cache.size());
+    }
+}
@@ -1,10 +1,13 @@
 package com.bestflix.movie.security.service.filter;
 
 import com.bestflix.movie.exception.InvalidTokenException;
-import com.bestflix.movie.security.userDetails.MyUserDetailsService;
+import com.bestflix.movie.security.userDetails.TokenPrincipal;
 import com.bestflix.movie.security.userService.JWTService;
+import com.bestflix.movie.security.userService.TokenRevocationService;
+import com.bestflix.movie.security.userService.VerifiedTokenCache;
 import com.bestflix.movie.security.userService.filter.JwtFilter;
 import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,25 +17,26 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Collections;
+import java.time.Instant;
+import java.util.List;
 
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class JWTFilterTest {
 
     @Mock
-    private JWTService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @Mock
-    private MyUserDetailsService userDetailsService;
-
-    @Mock
-    private UserDetails userDetails;
+    private TokenRevocationService tokenRevocationService;
 
     @Mock
     private FilterChain filterChain;
@@ -49,21 +53,30 @@ public class JWTFilterTest {
         response = new MockHttpServletResponse();
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
-    void shouldAuthenticateWhenTokenIsValid() throws Exception {
+    void shouldAuthenticateFromTokenClaimsWhenTokenIsValid() throws Exception {
         String token = "valid.jwt.token";
-        String username = "testUser";
-
         request.addHeader("Authorization", "Bearer " + token);
 
-        when(jwtService.extractUserName(token)).thenReturn(username);
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtService.validateToken(token, userDetails)).thenReturn(true);
-        when(userDetails.getAuthorities()).thenReturn(Collections.emptyList());
+        JWTService.VerifiedToken verified = new JWTService.VerifiedToken("testUser", 7L, List.of("USER"),
+                Instant.now(), Instant.now().plusSeconds(3600));
+        when(verifiedTokenCache.verify(token)).thenReturn(verified);
+        when(tokenRevocationService.isRevoked(verified)).thenReturn(false);
 
         jwtFilter.doFilterInternal(request, response, filterChain);
 
-        Assertions.assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Assertions.assertNotNull(authentication);
+        Assertions.assertEquals("testUser", authentication.getName());
+        Assertions.assertEquals(new TokenPrincipal(7L, "testUser"), authentication.getPrincipal());
+        Assertions.assertEquals(List.of("USER"),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        verify(verifiedTokenCache, times(1)).verify(token);
         verify(filterChain).doFilter(request, response);
     }
 
@@ -73,22 +86,35 @@ public class JWTFilterTest {
 
         Assertions.assertNull(SecurityContextHolder.getContext().getAuthentication());
         verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(verifiedTokenCache, tokenRevocationService);
+    }
+
+    @Test
+    void shouldThrowExceptionForRevokedToken() throws Exception {
+        String token = "revoked.token";
+        request.addHeader("Authorization", "Bearer " + token);
+
+        JWTService.VerifiedToken verified = new JWTService.VerifiedToken("testUser", 7L, List.of("USER"),
+                Instant.now(), Instant.now().plusSeconds(3600));
+        when(verifiedTokenCache.verify(token)).thenReturn(verified);
+        when(tokenRevocationService.isRevoked(verified)).thenReturn(true);
+
+        Assertions.assertThrows(InvalidTokenException.class, () ->
+                jwtFilter.doFilterInternal(request, response, filterChain)
+        );
+        Assertions.assertNull(SecurityContextHolder.getContext().getAuthentication());
     }
 
     @Test
     void shouldThrowExceptionForInvalidToken() throws Exception {
         String token = "bad.token";
-        String username = "testUser";
-
         request.addHeader("Authorization", "Bearer " + token);
 
-        when(jwtService.extractUserName(token)).thenReturn(username);
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtService.validateToken(token, userDetails)).thenReturn(false);
+        when(verifiedTokenCache.verify(token)).thenThrow(new InvalidTokenException(token));
 
         Assertions.assertThrows(InvalidTokenException.class, () ->
                 jwtFilter.doFilterInternal(request, response, filterChain)
         );
+        verifyNoInteractions(filterChain);
     }
 }
-
@@ -2,35 +2,49 @@ package com.bestflix.movie.security.userDetails;
 
 import com.bestflix.movie.security.entity.Users;
 import com.bestflix.movie.security.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 @ExtendWith(MockitoExtension.class)
 class MyUserDetailsServiceTest {
 
-    @InjectMocks
-    private MyUserDetailsService userDetailsService;
-
     @Mock
     private UserRepository userRepository;
 
+    private SimpleMeterRegistry meterRegistry;
+
+    private MyUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new MyUserDetailsService(userRepository, meterRegistry);
+    }
+
+    private static Users user(String password) {
+        Users user = new Users();
+        user.setUsername("elcin");
+        user.setPassword(password);
+        return user;
+    }
+
     @Test
     void shouldReturnCustomUserDetails_whenUserExists() {
-        Users mockUser = new Users();
-        mockUser.setUsername("elcin");
-        mockUser.setPassword("secretPassword");
-
-        when(userRepository.findByUsername("elcin")).thenReturn(mockUser);
+        when(userRepository.findByUsername("elcin")).thenReturn(user("secretPassword"));
 
         UserDetails details = userDetailsService.loadUserByUsername("elcin");
         assertEquals("elcin", details.getUsername());
@@ -43,4 +57,52 @@ class MyUserDetailsServiceTest {
         assertThrows(UsernameNotFoundException.class, () ->
                 userDetailsService.loadUserByUsername("unknown"));
     }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        when(userRepository.findByUsername("elcin")).thenReturn(user("secretPassword"));
+
+        UserDetails first = userDetailsService.loadUserByUsername("elcin");
+        UserDetails second = userDetailsService.loadUserByUsername("elcin");
+
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByUsername("elcin");
+        assertEquals(1, meterRegistry.counter("security.user-details-cache.requests", "result", "hit").count());
+        assertEquals(1, meterRegistry.counter("security.user-details-cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void shouldCacheUnknownUsernames() {
+        when(userRepository.findByUsername("unknown")).thenReturn(null);
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("unknown"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("unknown"));
+
+        verify(userRepository, times(1)).findByUsername("unknown");
+        assertEquals(1, meterRegistry.counter("security.user-details-cache.requests", "result", "negative-hit").count());
+    }
+
+    @Test
+    void evict_shouldReloadUserWithNewPassword() {
+        when(userRepository.findByUsername("elcin")).thenReturn(user("oldHash"), user("newHash"));
+
+        assertEquals("oldHash", userDetailsService.loadUserByUsername("elcin").getPassword());
+        userDetailsService.evict("elcin");
+
+        assertEquals("newHash", userDetailsService.loadUserByUsername("elcin").getPassword());
+        verify(userRepository, times(2)).findByUsername("elcin");
+    }
+
+    @Test
+    void shouldNotCacheLookupThatRacedWithEviction() {
+        when(userRepository.findByUsername("elcin")).thenAnswer(invocation -> {
+            userDetailsService.evict("elcin");
+            return user("oldHash");
+        });
+
+        userDetailsService.loadUserByUsername("elcin");
+        userDetailsService.loadUserByUsername("elcin");
+
+        verify(userRepository, times(2)).findByUsername("elcin");
+    }
 }
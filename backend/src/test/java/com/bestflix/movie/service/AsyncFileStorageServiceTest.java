@@ -0,0 +1,178 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import com.bestflix.movie.service.impl.AsyncFileStorageService;
+import com.bestflix.movie.service.impl.MediaReferenceService;
+import com.bestflix.movie.service.impl.MultipartUploader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncFileStorageServiceTest {
+
+    @Mock
+    private S3AsyncClient s3AsyncClient;
+
+    @Mock
+    private MediaReferenceService mediaReferenceService;
+
+    @Mock
+    private MultipartUploader multipartUploader;
+
+    private ExecutorService executor;
+
+    private AsyncFileStorageService storageService;
+
+    private final MockMultipartFile image =
+            new MockMultipartFile("image", "poster.png", "image/png", MediaSamples.png("image"));
+    private final MockMultipartFile video =
+            new MockMultipartFile("video", "trailer.mp4", "video/mp4", MediaSamples.mp4("video"));
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        storageService = new AsyncFileStorageService(s3AsyncClient, executor, mediaReferenceService, multipartUploader);
+        ReflectionTestUtils.setField(storageService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void saveImageAndVideo_shouldStartBothUploadsBeforeWaiting() throws IOException {
+        CompletableFuture<PutObjectResponse> imagePut = new CompletableFuture<>();
+        CompletableFuture<PutObjectResponse> videoPut = new CompletableFuture<>();
+
+        when(s3AsyncClient.putObject(argThat((PutObjectRequest r) -> r != null && r.key().startsWith("images/")),
+                any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+                    // the video transfer must already be running when the image one is started or vice versa
+                    executor.submit(() -> imagePut.complete(PutObjectResponse.builder().build()));
+                    return imagePut;
+                });
+        when(s3AsyncClient.putObject(argThat((PutObjectRequest r) -> r != null && r.key().startsWith("videos/")),
+                any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+                    assertFalse(imagePut.isDone() && videoPut.isDone());
+                    executor.submit(() -> videoPut.complete(PutObjectResponse.builder().build()));
+                    return videoPut;
+                });
+
+        AsyncFileStorageService.StoredMedia media = storageService.saveImageAndVideo(image, video);
+
+        assertTrue(media.imageName().endsWith(".png"));
+        assertTrue(media.videoName().endsWith(".mp4"));
+        verify(s3AsyncClient, times(2)).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+        verify(mediaReferenceService).acquire("images/" + media.imageName(), 13L);
+        verify(mediaReferenceService).acquire("videos/" + media.videoName(), 17L);
+        verify(mediaReferenceService).markStored("images/" + media.imageName());
+        verify(mediaReferenceService).markStored("videos/" + media.videoName());
+        verify(mediaReferenceService, never()).release(anyCollection());
+    }
+
+    @Test
+    void saveImageAndVideo_shouldSkipWritesForContentAlreadyStored() throws IOException {
+        when(mediaReferenceService.acquire(anyString(), anyLong())).thenReturn(true);
+
+        AsyncFileStorageService.StoredMedia media = storageService.saveImageAndVideo(image, video);
+
+        assertTrue(media.imageName().endsWith(".png"));
+        verifyNoInteractions(s3AsyncClient, multipartUploader);
+        verify(mediaReferenceService).acquire("images/" + media.imageName(), 13L);
+        verify(mediaReferenceService).acquire("videos/" + media.videoName(), 17L);
+        verify(mediaReferenceService, never()).markStored(anyString());
+    }
+
+    @Test
+    void saveImageAndVideo_shouldRemoveStoredImageWhenVideoFails() {
+        CountDownLatch imageStored = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            imageStored.countDown();
+            return null;
+        }).when(mediaReferenceService).markStored(anyString());
+
+        when(s3AsyncClient.putObject(argThat((PutObjectRequest r) -> r != null && r.key().startsWith("images/")),
+                any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        when(s3AsyncClient.putObject(argThat((PutObjectRequest r) -> r != null && r.key().startsWith("videos/")),
+                any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+                    // fail only once the image is stored; a video failing first would cancel the image instead
+                    assertTrue(imageStored.await(5, TimeUnit.SECONDS));
+                    return CompletableFuture.failedFuture(S3Exception.builder().message("slow down").build());
+                });
+        IOException ex = assertThrows(IOException.class, () -> storageService.saveImageAndVideo(image, video));
+
+        assertInstanceOf(S3Exception.class, ex.getCause());
+
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+        verify(mediaReferenceService).markStored(stored.capture());
+        assertTrue(stored.getValue().startsWith("images/"));
+        assertTrue(stored.getValue().endsWith(".png"));
+        verify(mediaReferenceService).release(List.of(stored.getValue()));
+
+        ArgumentCaptor<String> acquired = ArgumentCaptor.forClass(String.class);
+        verify(mediaReferenceService).acquire(acquired.capture(), eq(17L));
+        verify(mediaReferenceService).release(List.of(acquired.getValue()));
+    }
+
+    @Test
+    void saveImageAndVideo_shouldRejectUnsupportedVideoBeforeStartingEitherUpload() {
+        MockMultipartFile textVideo = new MockMultipartFile("video", "trailer.mp4", "video/mp4", "video".getBytes());
+
+        assertThrows(UnsupportedMediaException.class, () -> storageService.saveImageAndVideo(image, textVideo));
+
+        verifyNoInteractions(s3AsyncClient, mediaReferenceService, multipartUploader);
+    }
+
+    @Test
+    void saveImageAndVideo_shouldCancelVideoWhenImageFails() throws InterruptedException {
+        CompletableFuture<PutObjectResponse> videoPut = new CompletableFuture<>();
+
+        when(s3AsyncClient.putObject(argThat((PutObjectRequest r) -> r != null && r.key().startsWith("images/")),
+                any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().message("denied").build()));
+        lenient().when(s3AsyncClient.putObject(argThat((PutObjectRequest r) -> r != null && r.key().startsWith("videos/")),
+                any(AsyncRequestBody.class)))
+                .thenReturn(videoPut);
+
+        assertThrows(IOException.class, () -> storageService.saveImageAndVideo(image, video));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // the video is hashed off-thread, so it is either cancelled in flight or never started
+        boolean videoStarted = mockingDetails(s3AsyncClient).getInvocations().stream()
+                .anyMatch(i -> i.getArgument(0) instanceof PutObjectRequest r && r.key().startsWith("videos/"));
+        assertTrue(!videoStarted || videoPut.isCancelled());
+        verify(mediaReferenceService, never()).markStored(anyString());
+    }
+}
@@ -0,0 +1,311 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.dto.UploadSessionRequest;
+import com.bestflix.movie.dto.UploadSessionStatus;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.entity.UploadSession;
+import com.bestflix.movie.exception.InvalidChunkException;
+import com.bestflix.movie.exception.UploadSessionNotFoundException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.repository.UploadSessionRepository;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.impl.ChunkedUploadService;
+import com.bestflix.movie.service.impl.FileStorageService;
+import com.bestflix.movie.service.impl.MediaReferenceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+    private static final long CHUNK = 5 * 1024 * 1024;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private IMovieService movieService;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private MediaReferenceService mediaReferenceService;
+
+    @Mock
+    private S3Client s3Client;
+
+    private ChunkedUploadService chunkedUploadService;
+
+    @BeforeEach
+    void setUp() {
+        chunkedUploadService = new ChunkedUploadService(uploadSessionRepository, userRepository, movieService,
+                fileStorageService, mediaReferenceService, s3Client);
+        ReflectionTestUtils.setField(chunkedUploadService, "bucketName", "test-bucket");
+        ReflectionTestUtils.setField(chunkedUploadService, "chunkSizeBytes", CHUNK);
+    }
+
+    private UploadSession session(long totalSize, long received) {
+        return UploadSession.builder()
+                .id("session-1")
+                .username("john")
+                .contentType("video/mp4")
+                .totalSize(totalSize)
+                .chunkSize(CHUNK)
+                .receivedBytes(received)
+                .videoName("abc.mp4")
+                .s3UploadId("s3-upload")
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .parts(new ArrayList<>())
+                .build();
+    }
+
+    /**
+     * Start of an ISO base media file with an {@code ftyp} box.
+     */
+    private static byte[] mp4Chunk(int length) {
+        byte[] chunk = new byte[length];
+        System.arraycopy(new byte[]{0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'}, 0, chunk, 0, 12);
+        return chunk;
+    }
+
+    @Test
+    void startSession_shouldReturnChunkSizeWithoutTouchingS3() {
+        when(userRepository.findByUsername("john")).thenReturn(new Users());
+        when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        UploadSessionStatus status = chunkedUploadService.startSession("john",
+                new UploadSessionRequest("movie.mp4", "video/mp4", 3 * CHUNK));
+
+        assertEquals(CHUNK, status.getChunkSize());
+        assertEquals(0, status.getNextOffset());
+        assertFalse(status.isComplete());
+
+        ArgumentCaptor<UploadSession> captor = ArgumentCaptor.forClass(UploadSession.class);
+        verify(uploadSessionRepository).save(captor.capture());
+        assertNull(captor.getValue().getS3UploadId());
+        assertNull(captor.getValue().getVideoName());
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void startSession_shouldRefuseVideoAboveMaximumSize() {
+        assertThrows(UploadTooLargeException.class, () -> chunkedUploadService.startSession("john",
+                new UploadSessionRequest("movie.mp4", "video/mp4", DataSize.ofGigabytes(1).toBytes() + 1)));
+
+        verifyNoInteractions(uploadSessionRepository, s3Client);
+    }
+
+    @Test
+    void uploadChunk_shouldNameAndCreateUploadFromSniffedFirstChunk() throws IOException {
+        UploadSession session = session(2 * CHUNK, 0);
+        session.setContentType("video/webm");
+        session.setVideoName(null);
+        session.setS3UploadId(null);
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session));
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("s3-upload").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("etag-1").build());
+        when(uploadSessionRepository.save(session)).thenReturn(session);
+
+        chunkedUploadService.uploadChunk("session-1", "john", 0, CHUNK, new ByteArrayInputStream(mp4Chunk((int) CHUNK)));
+
+        ArgumentCaptor<CreateMultipartUploadRequest> captor = ArgumentCaptor.forClass(CreateMultipartUploadRequest.class);
+        verify(s3Client).createMultipartUpload(captor.capture());
+        assertEquals("video/mp4", captor.getValue().contentType());
+        assertEquals("videos/" + session.getVideoName(), captor.getValue().key());
+        assertTrue(session.getVideoName().endsWith(".mp4"));
+        assertEquals("video/mp4", session.getContentType());
+        assertEquals("s3-upload", session.getS3UploadId());
+    }
+
+    @Test
+    void uploadChunk_shouldAbortUploadCreatedForFailedFirstChunk() {
+        UploadSession session = session(2 * CHUNK, 0);
+        session.setS3UploadId(null);
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session));
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("s3-upload").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        assertThrows(IOException.class, () -> chunkedUploadService.uploadChunk("session-1", "john", 0, CHUNK,
+                new ByteArrayInputStream(mp4Chunk((int) CHUNK))));
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(uploadSessionRepository, never()).save(any(UploadSession.class));
+    }
+
+    @Test
+    void uploadChunk_shouldStoreChunkAsNextPartAndAdvanceOffset() throws IOException {
+        UploadSession session = session(2 * CHUNK + 10, CHUNK);
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session));
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("etag-2").build());
+        when(uploadSessionRepository.save(session)).thenReturn(session);
+
+        UploadSessionStatus status = chunkedUploadService.uploadChunk("session-1", "john", CHUNK, CHUNK,
+                new ByteArrayInputStream(new byte[(int) CHUNK]));
+
+        ArgumentCaptor<UploadPartRequest> captor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3Client).uploadPart(captor.capture(), any(RequestBody.class));
+        assertEquals(2, captor.getValue().partNumber());
+        assertEquals("videos/abc.mp4", captor.getValue().key());
+        assertEquals(2 * CHUNK, status.getNextOffset());
+        assertEquals("etag-2", session.getParts().get(0).getETag());
+    }
+
+    @Test
+    void uploadChunk_shouldRejectWrongOffset() {
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session(2 * CHUNK, CHUNK)));
+
+        assertThrows(InvalidChunkException.class, () -> chunkedUploadService.uploadChunk("session-1", "john", 0, CHUNK,
+                new ByteArrayInputStream(new byte[0])));
+
+        verify(s3Client, never()).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void uploadChunk_shouldTreatExpiredSessionAsMissing() {
+        UploadSession expired = session(2 * CHUNK, 0);
+        expired.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(expired));
+
+        assertThrows(UploadSessionNotFoundException.class, () -> chunkedUploadService.uploadChunk("session-1", "john", 0, CHUNK,
+                new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    void shouldHideSessionFromOtherUsers() {
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session(2 * CHUNK, CHUNK)));
+
+        assertThrows(UploadSessionNotFoundException.class, () -> chunkedUploadService.getStatus("session-1", "jane"));
+        assertThrows(UploadSessionNotFoundException.class, () -> chunkedUploadService.uploadChunk("session-1", "jane",
+                CHUNK, CHUNK, new ByteArrayInputStream(new byte[0])));
+        assertThrows(UploadSessionNotFoundException.class, () -> chunkedUploadService.completeSession("session-1", "jane",
+                new Movie(), new MockMultipartFile("image", "p.png", "image/png", new byte[1])));
+
+        verifyNoInteractions(s3Client, fileStorageService, movieService);
+    }
+
+    @Test
+    void completeSession_shouldAssemblePartsInOrderAndCreateMovie() throws IOException {
+        UploadSession session = session(CHUNK + 10, CHUNK + 10);
+        session.getParts().add(new UploadSession.UploadedPart(2, "etag-2", 10));
+        session.getParts().add(new UploadSession.UploadedPart(1, "etag-1", CHUNK));
+        MockMultipartFile image = new MockMultipartFile("image", "poster.png", "image/png", "img".getBytes());
+        Movie movie = Movie.builder().movieName("Inception").build();
+
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session));
+        when(uploadSessionRepository.claimCompletion("session-1")).thenReturn(1);
+        when(fileStorageService.saveImage(image)).thenReturn("poster-1.png");
+        when(movieService.saveUploadedMovie("john", movie, "poster-1.png", "image/png", "abc.mp4", "video/mp4"))
+                .thenReturn(movie);
+
+        assertSame(movie, chunkedUploadService.completeSession("session-1", "john", movie, image));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(captor.capture());
+        assertEquals(List.of(1, 2), captor.getValue().multipartUpload().parts().stream()
+                .map(CompletedPart::partNumber).toList());
+        verify(uploadSessionRepository).deleteById("session-1");
+    }
+
+    @Test
+    void completeSession_shouldRefuseWhileAnotherRequestCompletesIt() {
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session(CHUNK, CHUNK)));
+        when(uploadSessionRepository.claimCompletion("session-1")).thenReturn(0);
+
+        assertThrows(InvalidChunkException.class, () -> chunkedUploadService.completeSession("session-1", "john",
+                new Movie(), new MockMultipartFile("image", "p.png", "image/png", new byte[1])));
+
+        verifyNoInteractions(s3Client, fileStorageService, movieService);
+    }
+
+    @Test
+    void completeSession_shouldHandSessionBackWhenAssemblingFails() throws IOException {
+        MockMultipartFile image = new MockMultipartFile("image", "p.png", "image/png", new byte[1]);
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session(CHUNK, CHUNK)));
+        when(uploadSessionRepository.claimCompletion("session-1")).thenReturn(1);
+        when(fileStorageService.saveImage(image)).thenReturn("poster-1.png");
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        assertThrows(IOException.class, () -> chunkedUploadService.completeSession("session-1", "john",
+                new Movie(), image));
+
+        verify(uploadSessionRepository).releaseCompletion("session-1");
+        verify(uploadSessionRepository, never()).deleteById(any());
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void completeSession_shouldRefuseWhenChunksAreMissing() {
+        when(uploadSessionRepository.findById("session-1")).thenReturn(Optional.of(session(2 * CHUNK, CHUNK)));
+
+        assertThrows(InvalidChunkException.class, () -> chunkedUploadService.completeSession("session-1", "john",
+                new Movie(), new MockMultipartFile("image", "p.png", "image/png", new byte[1])));
+
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void expireAbandonedSessions_shouldAbortAndRemoveExpiredSessions() {
+        UploadSession expired = session(2 * CHUNK, CHUNK);
+        when(uploadSessionRepository.findByExpiresAtBeforeOrderByExpiresAtAsc(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(expired));
+
+        chunkedUploadService.expireAbandonedSessions();
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(uploadSessionRepository).deleteAll(eq(List.of(expired)));
+    }
+
+    @Test
+    void expireAbandonedSessions_shouldRemoveSessionWithoutFirstChunk() {
+        UploadSession expired = session(2 * CHUNK, 0);
+        expired.setS3UploadId(null);
+        when(uploadSessionRepository.findByExpiresAtBeforeOrderByExpiresAtAsc(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(expired));
+
+        chunkedUploadService.expireAbandonedSessions();
+
+        verifyNoInteractions(s3Client);
+        verify(uploadSessionRepository).deleteAll(eq(List.of(expired)));
+    }
+}
@@ -0,0 +1,311 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.dto.DirectUploadCommitRequest;
+import com.bestflix.movie.dto.DirectUploadRequest;
+import com.bestflix.movie.dto.DirectUploadTicket;
+import com.bestflix.movie.entity.DirectUploadReservation;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.DirectUploadNotFoundException;
+import com.bestflix.movie.exception.InvalidUploadRequestException;
+import com.bestflix.movie.exception.MediaNotUploadedException;
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.repository.DirectUploadReservationRepository;
+import com.bestflix.movie.service.impl.DirectUploadService;
+import com.bestflix.movie.service.impl.MultipartUploader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectUploadServiceTest {
+
+    private static final String RESERVATION = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7e";
+    private static final String IMAGE = "0b8f5c3e-4a1d-4a55-9c1b-6f6d8f0d2a7f.png";
+    private static final String VIDEO = "9a7b6c5d-1111-2222-3333-444455556666.mp4";
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private MultipartUploader multipartUploader;
+
+    @Mock
+    private IMovieService movieService;
+
+    @Mock
+    private DirectUploadReservationRepository reservationRepository;
+
+    private S3Presigner s3Presigner;
+
+    private DirectUploadService directUploadService;
+
+    @BeforeEach
+    void setUp() {
+        s3Presigner = S3Presigner.builder()
+                .region(Region.EU_CENTRAL_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .build();
+        directUploadService = new DirectUploadService(s3Presigner, s3Client, multipartUploader, movieService,
+                reservationRepository);
+        ReflectionTestUtils.setField(directUploadService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Presigner.close();
+    }
+
+    private DirectUploadReservation reservation(String uploadId) {
+        return DirectUploadReservation.builder()
+                .id(RESERVATION)
+                .username("john")
+                .imageName(IMAGE)
+                .imageContentType("image/png")
+                .imageSize(100)
+                .videoName(VIDEO)
+                .videoContentType("video/mp4")
+                .videoSize(1000)
+                .videoUploadId(uploadId)
+                .expiresAt(LocalDateTime.now().plusMinutes(10))
+                .build();
+    }
+
+    private void stubObject(String prefix, String contentType, long size, byte[] content) {
+        lenient().when(s3Client.headObject(argThat((HeadObjectRequest r) -> r != null && r.key().startsWith(prefix))))
+                .thenReturn(HeadObjectResponse.builder().contentType(contentType).contentLength(size).build());
+        lenient().when(s3Client.getObjectAsBytes(argThat((GetObjectRequest r) -> r != null && r.key().startsWith(prefix))))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), content));
+    }
+
+    @Test
+    void presign_shouldReserveNamesForCallerAndSignSinglePuts() {
+        when(multipartUploader.shouldUseMultipart(1000L)).thenReturn(false);
+        when(reservationRepository.save(any(DirectUploadReservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DirectUploadTicket ticket = directUploadService.presign("john",
+                new DirectUploadRequest("image/png", 100L, "video/mp4", 1000L));
+
+        assertTrue(ticket.getImageName().endsWith(".png"));
+        assertTrue(ticket.getVideoName().endsWith(".mp4"));
+        assertTrue(ticket.getImageUploadUrl().contains("/images/" + ticket.getImageName()));
+        assertTrue(ticket.getVideoUploadUrl().contains("/videos/" + ticket.getVideoName()));
+        assertTrue(ticket.getImageUploadUrl().contains("X-Amz-Signature="));
+        assertTrue(ticket.getImageUploadUrl().contains("content-length"));
+        assertNull(ticket.getVideoUploadId());
+        verifyNoInteractions(s3Client);
+
+        ArgumentCaptor<DirectUploadReservation> captor = ArgumentCaptor.forClass(DirectUploadReservation.class);
+        verify(reservationRepository).save(captor.capture());
+        DirectUploadReservation reservation = captor.getValue();
+        assertEquals(ticket.getReservationId(), reservation.getId());
+        assertEquals("john", reservation.getUsername());
+        assertEquals(ticket.getImageName(), reservation.getImageName());
+        assertEquals(100L, reservation.getImageSize());
+        assertEquals("video/mp4", reservation.getVideoContentType());
+        assertFalse(reservation.isConsumed());
+        assertTrue(reservation.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void presign_shouldReturnOneUrlPerPartForLargeVideo() {
+        long size = 2L * 16 * 1024 * 1024 + 1;
+        when(multipartUploader.shouldUseMultipart(size)).thenReturn(true);
+        when(multipartUploader.partSize()).thenReturn(16 * 1024 * 1024);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(reservationRepository.save(any(DirectUploadReservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DirectUploadTicket ticket = directUploadService.presign("john",
+                new DirectUploadRequest("image/png", 100L, "video/mp4", size));
+
+        assertEquals("upload-1", ticket.getVideoUploadId());
+        assertNull(ticket.getVideoUploadUrl());
+        assertEquals(3, ticket.getVideoPartUrls().size());
+        assertTrue(ticket.getVideoPartUrls().get(2).contains("partNumber=3"));
+        assertTrue(ticket.getVideoPartUrls().get(2).contains("content-length"));
+        verify(reservationRepository).save(argThat(r -> "upload-1".equals(r.getVideoUploadId())));
+    }
+
+    @Test
+    void presign_shouldRejectMediaAboveUploadLimits() {
+        long limit = DataSize.ofGigabytes(1).toBytes();
+
+        assertThrows(UploadTooLargeException.class, () -> directUploadService.presign("john",
+                new DirectUploadRequest("image/png", 100L, "video/mp4", limit + 1)));
+        assertThrows(UploadTooLargeException.class, () -> directUploadService.presign("john",
+                new DirectUploadRequest("image/png", limit / 2, "video/mp4", limit / 2 + 1)));
+
+        verifyNoInteractions(s3Client, reservationRepository);
+    }
+
+    @Test
+    void presign_shouldRejectUnsupportedTypes() {
+        assertThrows(UnsupportedMediaException.class, () -> directUploadService.presign("john",
+                new DirectUploadRequest("text/html", 100L, "video/mp4", 1000L)));
+        assertThrows(UnsupportedMediaException.class, () -> directUploadService.presign("john",
+                new DirectUploadRequest("image/png", 100L, "image/png", 1000L)));
+
+        verifyNoInteractions(s3Client, reservationRepository);
+    }
+
+    @Test
+    void commit_shouldCompleteMultipartVerifyObjectsAndCreateMovie() {
+        Movie movie = Movie.builder().movieName("Inception").build();
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation("upload-1")));
+        when(s3Client.listPartsPaginator(any(ListPartsRequest.class))).thenCallRealMethod();
+        when(s3Client.listParts(any(ListPartsRequest.class))).thenReturn(ListPartsResponse.builder()
+                .parts(Part.builder().partNumber(2).eTag("e2").build(), Part.builder().partNumber(1).eTag("e1").build())
+                .isTruncated(false)
+                .build());
+        stubObject("images/", "image/png", 100, MediaSamples.png("poster"));
+        stubObject("videos/", "video/mp4", 1000, MediaSamples.mp4("movie"));
+        when(reservationRepository.consume(eq(RESERVATION), any())).thenReturn(1);
+        when(movieService.saveUploadedMovie("john", movie, IMAGE, "image/png", VIDEO, "video/mp4")).thenReturn(movie);
+
+        assertSame(movie, directUploadService.commit("john", new DirectUploadCommitRequest(RESERVATION, movie)));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(captor.capture());
+        assertEquals(List.of(1, 2), captor.getValue().multipartUpload().parts().stream()
+                .map(CompletedPart::partNumber).toList());
+        verify(s3Client).getObjectAsBytes(argThat((GetObjectRequest r) -> r != null
+                && r.key().equals("videos/" + VIDEO) && "bytes=0-4095".equals(r.range())));
+    }
+
+    @Test
+    void commit_shouldHideReservationOfOtherUser() {
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation(null)));
+
+        assertThrows(DirectUploadNotFoundException.class, () -> directUploadService.commit("mallory",
+                new DirectUploadCommitRequest(RESERVATION, new Movie())));
+
+        verifyNoInteractions(s3Client, movieService);
+    }
+
+    @Test
+    void commit_shouldRefuseReservationCommittedMeanwhile() {
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation(null)));
+        stubObject("images/", "image/png", 100, MediaSamples.png("poster"));
+        stubObject("videos/", "video/mp4", 1000, MediaSamples.mp4("movie"));
+        when(reservationRepository.consume(eq(RESERVATION), any())).thenReturn(0);
+
+        assertThrows(DirectUploadNotFoundException.class, () -> directUploadService.commit("john",
+                new DirectUploadCommitRequest(RESERVATION, new Movie())));
+
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void commit_shouldRefuseWhenVideoIsMissing() {
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation(null)));
+        stubObject("images/", "image/png", 100, MediaSamples.png("poster"));
+        when(s3Client.headObject(argThat((HeadObjectRequest r) -> r != null && r.key().startsWith("videos/"))))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        assertThrows(MediaNotUploadedException.class, () -> directUploadService.commit("john",
+                new DirectUploadCommitRequest(RESERVATION, new Movie())));
+
+        verify(reservationRepository, never()).consume(anyString(), any());
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void commit_shouldRejectObjectLargerThanDeclared() {
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation("upload-1")));
+        when(s3Client.listPartsPaginator(any(ListPartsRequest.class))).thenCallRealMethod();
+        when(s3Client.listParts(any(ListPartsRequest.class))).thenReturn(ListPartsResponse.builder()
+                .parts(Part.builder().partNumber(1).eTag("e1").build())
+                .isTruncated(false)
+                .build());
+        stubObject("images/", "image/png", 100, MediaSamples.png("poster"));
+        stubObject("videos/", "video/mp4", 5_000_000_000L, MediaSamples.mp4("movie"));
+
+        assertThrows(InvalidUploadRequestException.class, () -> directUploadService.commit("john",
+                new DirectUploadCommitRequest(RESERVATION, new Movie())));
+
+        verify(reservationRepository, never()).consume(anyString(), any());
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void commit_shouldRejectContentThatIsNotTheDeclaredMedia() {
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation(null)));
+        stubObject("images/", "image/png", 100, "<html><script>".getBytes());
+
+        assertThrows(UnsupportedMediaException.class, () -> directUploadService.commit("john",
+                new DirectUploadCommitRequest(RESERVATION, new Movie())));
+
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void commit_shouldReleaseReservationWhenMovieCannotBeSaved() {
+        when(reservationRepository.findById(RESERVATION)).thenReturn(Optional.of(reservation(null)));
+        stubObject("images/", "image/png", 100, MediaSamples.png("poster"));
+        stubObject("videos/", "video/mp4", 1000, MediaSamples.mp4("movie"));
+        when(reservationRepository.consume(eq(RESERVATION), any())).thenReturn(1);
+        when(movieService.saveUploadedMovie(anyString(), any(), anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class, () -> directUploadService.commit("john",
+                new DirectUploadCommitRequest(RESERVATION, new Movie())));
+
+        verify(reservationRepository).release(RESERVATION);
+    }
+
+    @Test
+    void expireReservations_shouldDiscardMediaOnlyOfUncommittedReservations() {
+        DirectUploadReservation abandoned = reservation("upload-1");
+        DirectUploadReservation committed = reservation(null);
+        committed.setId("committed");
+        when(reservationRepository.findByExpiresAtBeforeOrderByExpiresAtAsc(any(), any(Pageable.class)))
+                .thenReturn(List.of(abandoned, committed));
+        when(reservationRepository.deleteUnconsumed(RESERVATION)).thenReturn(1);
+        when(reservationRepository.deleteUnconsumed("committed")).thenReturn(0);
+
+        directUploadService.expireReservations();
+
+        verify(s3Client).abortMultipartUpload(argThat((AbortMultipartUploadRequest r) -> "upload-1".equals(r.uploadId())));
+        verify(s3Client).deleteObjects(argThat((DeleteObjectsRequest r) -> r.delete().objects().size() == 2));
+        verify(reservationRepository).deleteById("committed");
+    }
+}
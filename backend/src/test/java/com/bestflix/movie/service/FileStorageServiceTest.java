@@ -1,6 +1,9 @@
 package com.bestflix.movie.service;
 
+import com.bestflix.movie.exception.UnsupportedMediaException;
 import com.bestflix.movie.service.impl.FileStorageService;
+import com.bestflix.movie.service.impl.MediaReferenceService;
+import com.bestflix.movie.service.impl.MultipartUploader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,17 +11,21 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +34,12 @@ class FileStorageServiceTest {
     @Mock
     private S3Client s3Client;
 
+    @Mock
+    private MultipartUploader multipartUploader;
+
+    @Mock
+    private MediaReferenceService mediaReferenceService;
+
     @InjectMocks
     private FileStorageService fileStorageService;
 
@@ -34,7 +47,7 @@ class FileStorageServiceTest {
 
     @BeforeEach
     void setUp() throws Exception {
-        fileStorageService = new FileStorageService(s3Client);
+        fileStorageService = new FileStorageService(s3Client, multipartUploader, mediaReferenceService);
 
         Field bucketField = FileStorageService.class.getDeclaredField("bucketName");
         bucketField.setAccessible(true);
@@ -45,14 +58,13 @@ class FileStorageServiceTest {
     void shouldSaveImageToS3AndReturnUniqueName() throws IOException {
         // Given
         MultipartFile mockFile = mock(MultipartFile.class);
-        String originalFilename = "poster.png";
         String contentType = "image/png";
-        byte[] fileBytes = "dummy image".getBytes();
-        InputStream inputStream = new ByteArrayInputStream(fileBytes);
+        byte[] fileBytes = MediaSamples.png("dummy image");
 
-        when(mockFile.getOriginalFilename()).thenReturn(originalFilename);
-        when(mockFile.getContentType()).thenReturn(contentType);
-        when(mockFile.getInputStream()).thenReturn(inputStream);
+        // neither the name nor the declared type is used; the format comes from the bytes
+        lenient().when(mockFile.getOriginalFilename()).thenReturn("poster");
+        lenient().when(mockFile.getContentType()).thenReturn("application/octet-stream");
+        when(mockFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(fileBytes));
         when(mockFile.getSize()).thenReturn((long) fileBytes.length);
 
         ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
@@ -72,20 +84,38 @@ class FileStorageServiceTest {
 
         assertNotNull(result);
         assertTrue(result.endsWith(".png"));
+        verify(mediaReferenceService).acquire(request.key(), fileBytes.length);
+        verify(mediaReferenceService).markStored(request.key());
+    }
+
+    @Test
+    void shouldSkipUploadWhenSameContentIsAlreadyStored() throws IOException {
+        MultipartFile first = new MockMultipartFile(
+                "image", "poster.PNG", "image/png", MediaSamples.png("same bytes"));
+        MultipartFile second = new MockMultipartFile(
+                "image", "other-name", "image/jpeg", MediaSamples.png("same bytes"));
+
+        String firstName = fileStorageService.saveImage(first);
+        when(mediaReferenceService.acquire("images/" + firstName, 18L)).thenReturn(true);
+        String secondName = fileStorageService.saveImage(second);
+
+        assertEquals(firstName, secondName);
+        assertEquals(64 + ".png".length(), firstName.length());
+        verify(s3Client, times(1)).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(mediaReferenceService, times(2)).acquire("images/" + firstName, 18L);
+        verify(mediaReferenceService, times(1)).markStored("images/" + firstName);
     }
 
     @Test
     void shouldSaveVideoToS3AndReturnUniqueName() throws IOException {
         // Given
         MultipartFile mockFile = mock(MultipartFile.class);
-        String originalFilename = "trailer.mp4";
         String contentType = "video/mp4";
-        byte[] fileBytes = "fake video".getBytes();
-        InputStream inputStream = new ByteArrayInputStream(fileBytes);
+        byte[] fileBytes = MediaSamples.mp4("fake video");
 
-        when(mockFile.getOriginalFilename()).thenReturn(originalFilename);
-        when(mockFile.getContentType()).thenReturn(contentType);
-        when(mockFile.getInputStream()).thenReturn(inputStream);
+        lenient().when(mockFile.getOriginalFilename()).thenReturn("trailer.mov");
+        lenient().when(mockFile.getContentType()).thenReturn("video/quicktime");
+        when(mockFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(fileBytes));
         when(mockFile.getSize()).thenReturn((long) fileBytes.length);
 
         ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
@@ -107,12 +137,36 @@ class FileStorageServiceTest {
         assertTrue(result.endsWith(".mp4"));
     }
 
+    @Test
+    void shouldRejectUnsupportedMediaBeforeUploading() {
+        MultipartFile script = new MockMultipartFile("image", "poster.png", "image/png", "<script>".getBytes());
+        MultipartFile imageAsVideo = new MockMultipartFile("video", "trailer.mp4", "video/mp4", MediaSamples.png("x"));
+
+        assertThrows(UnsupportedMediaException.class, () -> fileStorageService.saveImage(script));
+        assertThrows(UnsupportedMediaException.class, () -> fileStorageService.saveVideo(imageAsVideo));
+        verifyNoInteractions(s3Client, multipartUploader, mediaReferenceService);
+    }
+
     @Test
     void shouldThrowIOExceptionWhenFileStreamFails() throws IOException {
         MultipartFile mockFile = mock(MultipartFile.class);
-        when(mockFile.getOriginalFilename()).thenReturn("fail.mp4");
+        lenient().when(mockFile.getOriginalFilename()).thenReturn("fail.mp4");
         when(mockFile.getInputStream()).thenThrow(new IOException("Stream error"));
 
         assertThrows(IOException.class, () -> fileStorageService.saveVideo(mockFile));
     }
+
+    @Test
+    void shouldReleaseReferenceWhenUploadFails() {
+        MultipartFile image = new MockMultipartFile("image", "poster.png", "image/png", MediaSamples.png("bytes"));
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().message("slow down").build());
+
+        assertThrows(S3Exception.class, () -> fileStorageService.saveImage(image));
+
+        ArgumentCaptor<String> acquired = ArgumentCaptor.forClass(String.class);
+        verify(mediaReferenceService).acquire(acquired.capture(), eq(13L));
+        verify(mediaReferenceService).release(List.of(acquired.getValue()));
+        verify(mediaReferenceService, never()).markStored(any());
+    }
 }
@@ -0,0 +1,122 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.entity.IdempotencyRecord;
+import com.bestflix.movie.exception.IdempotencyKeyInUseException;
+import com.bestflix.movie.exception.IdempotencyKeyMismatchException;
+import com.bestflix.movie.repository.IdempotencyRecordRepository;
+import com.bestflix.movie.service.impl.IdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyService idempotencyService;
+
+    /**
+     * Fingerprint of an empty query string.
+     */
+    private static final String NO_PARAMETERS = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository);
+        ReflectionTestUtils.setField(idempotencyService, "pollIntervalMs", 1L);
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMs", 200L);
+    }
+
+    private static IdempotencyRecord record(IdempotencyRecord.State state, LocalDateTime expiresAt) {
+        return IdempotencyRecord.builder()
+                .id("id")
+                .fingerprint(NO_PARAMETERS)
+                .state(state)
+                .responseStatus(201)
+                .responseBody("Movie Uploaded Successfully!")
+                .expiresAt(expiresAt)
+                .version(3L)
+                .build();
+    }
+
+    @Test
+    void claim_shouldInsertRecordForNewKey() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        IdempotencyService.Claim claim = idempotencyService.claim("user:john", "POST /rest/api/movie/upload", null, "k");
+
+        assertTrue(claim.claimed());
+        assertEquals(IdempotencyRecord.State.IN_PROGRESS, claim.record().getState());
+        assertEquals(NO_PARAMETERS, claim.record().getFingerprint());
+        assertEquals(64, claim.record().getId().length());
+        assertNotEquals(claim.record().getId(),
+                idempotencyService.claim("user:jane", "POST /rest/api/movie/upload", null, "k").record().getId());
+    }
+
+    @Test
+    void claim_shouldWaitForRunningDuplicateAndReplayItsResponse() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        IdempotencyRecord completed = record(IdempotencyRecord.State.COMPLETED, LocalDateTime.now().plusDays(1));
+        when(idempotencyRecordRepository.findById(anyString()))
+                .thenReturn(Optional.of(record(IdempotencyRecord.State.IN_PROGRESS, LocalDateTime.now().plusHours(1))))
+                .thenReturn(Optional.of(completed));
+
+        IdempotencyService.Claim claim = idempotencyService.claim("user:john", "POST /rest/api/movie/upload", null, "k");
+
+        assertFalse(claim.claimed());
+        assertSame(completed, claim.record());
+        verify(idempotencyRecordRepository, times(2)).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void claim_shouldGiveUpWhenDuplicateKeepsRunning() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyRecordRepository.findById(anyString()))
+                .thenReturn(Optional.of(record(IdempotencyRecord.State.IN_PROGRESS, LocalDateTime.now().plusHours(1))));
+
+        assertThrows(IdempotencyKeyInUseException.class,
+                () -> idempotencyService.claim("user:john", "PUT /rest/api/movie/update", null, "k"));
+    }
+
+    @Test
+    void claim_shouldTakeOverAbandonedRecord() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyRecordRepository.findById(anyString()))
+                .thenReturn(Optional.of(record(IdempotencyRecord.State.IN_PROGRESS, LocalDateTime.now().minusMinutes(1))));
+
+        IdempotencyService.Claim claim = idempotencyService.claim("user:john", "POST /rest/api/movie/upload", null, "k");
+
+        assertTrue(claim.claimed());
+        verify(idempotencyRecordRepository).deleteVersion(anyString(), eq(3L));
+    }
+
+    @Test
+    void claim_shouldRefuseKeySentAgainWithOtherParameters() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyRecordRepository.findById(anyString()))
+                .thenReturn(Optional.of(record(IdempotencyRecord.State.COMPLETED, LocalDateTime.now().plusDays(1))));
+
+        assertThrows(IdempotencyKeyMismatchException.class,
+                () -> idempotencyService.claim("user:john", "PUT /rest/api/movie/update", "movieId=6", "k"));
+    }
+}
@@ -0,0 +1,234 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.entity.MediaObject;
+import com.bestflix.movie.entity.MediaPurgeTask;
+import com.bestflix.movie.repository.MediaObjectRepository;
+import com.bestflix.movie.repository.MediaPurgeTaskRepository;
+import com.bestflix.movie.service.impl.MediaPurgeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaPurgeServiceTest {
+
+    @Mock
+    private MediaPurgeTaskRepository purgeTaskRepository;
+
+    @Mock
+    private MediaObjectRepository mediaObjectRepository;
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MediaPurgeService mediaPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenReturn(new SimpleTransactionStatus());
+        mediaPurgeService = new MediaPurgeService(purgeTaskRepository, mediaObjectRepository, s3Client,
+                transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(mediaPurgeService, "bucketName", "test-bucket");
+    }
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private MediaPurgeTask task(long id, String key) {
+        return MediaPurgeTask.builder()
+                .id(id)
+                .objectKey(key)
+                .createdAt(LocalDateTime.now())
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void enqueue_shouldSaveOneTaskPerDistinctKey() {
+        mediaPurgeService.enqueue(List.of("images/a.jpg", "videos/a.mp4", "images/a.jpg"));
+
+        ArgumentCaptor<List<MediaPurgeTask>> captor = ArgumentCaptor.forClass(List.class);
+        verify(purgeTaskRepository).saveAll(captor.capture());
+
+        assertEquals(List.of("images/a.jpg", "videos/a.mp4"),
+                captor.getValue().stream().map(MediaPurgeTask::getObjectKey).toList());
+    }
+
+    @Test
+    void purgePending_shouldDeleteKeysInBatchesOfAtMostOneThousand() {
+        List<MediaPurgeTask> firstPage = new ArrayList<>();
+        IntStream.range(0, 1000).forEach(i -> firstPage.add(task(i, "videos/" + i + ".mp4")));
+        List<MediaPurgeTask> secondPage = List.of(task(1000, "images/last.jpg"));
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(firstPage, secondPage);
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        mediaPurgeService.purgePending();
+
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client, times(2)).deleteObjects(captor.capture());
+
+        assertEquals(1000, captor.getAllValues().get(0).delete().objects().size());
+        assertEquals(1, captor.getAllValues().get(1).delete().objects().size());
+        assertEquals("test-bucket", captor.getAllValues().get(0).bucket());
+        verify(purgeTaskRepository).deleteAllInBatch(firstPage);
+        assertEquals(1001, meterRegistry.counter("media.purge.deleted").count());
+    }
+
+    @Test
+    void purgeBatch_shouldRescheduleKeysReportedAsErrors() {
+        MediaPurgeTask ok = task(1, "images/ok.jpg");
+        MediaPurgeTask denied = task(2, "videos/denied.mp4");
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(ok, denied));
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder()
+                        .errors(S3Error.builder().key("videos/denied.mp4").code("AccessDenied").message("Access Denied").build())
+                        .build());
+
+        mediaPurgeService.purgePending();
+
+        verify(purgeTaskRepository).deleteAllInBatch(List.of(ok));
+        verify(purgeTaskRepository).saveAll(List.of(denied));
+        assertEquals(1, denied.getAttempts());
+        assertEquals("Access Denied", denied.getLastError());
+        assertTrue(denied.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals(1, meterRegistry.counter("media.purge.failed").count());
+    }
+
+    @Test
+    void purgeBatch_shouldRescheduleWholeBatchWhenRequestFails() {
+        MediaPurgeTask first = task(1, "images/a.jpg");
+        MediaPurgeTask second = task(2, "videos/a.mp4");
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        mediaPurgeService.purgePending();
+
+        verify(purgeTaskRepository, never()).deleteAllInBatch(anyList());
+        verify(purgeTaskRepository).saveAll(eq(List.of(first, second)));
+        assertEquals(1, first.getAttempts());
+        assertEquals("connection reset", second.getLastError());
+    }
+
+    @Test
+    void purgeBatch_shouldDropKeysThatAreReferencedAgain() {
+        MediaPurgeTask unused = task(1, "images/unused.jpg");
+        MediaPurgeTask reused = task(2, "videos/reused.mp4");
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(unused, reused));
+        when(mediaObjectRepository.lockAll(any())).thenReturn(List.of(
+                MediaObject.builder().objectKey("videos/reused.mp4").referenceCount(1).build()));
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        mediaPurgeService.purgePending();
+
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(captor.capture());
+        assertEquals(List.of("images/unused.jpg"),
+                captor.getValue().delete().objects().stream().map(o -> o.key()).toList());
+        verify(purgeTaskRepository).deleteAllInBatch(List.of(reused));
+        verify(purgeTaskRepository).deleteAllInBatch(List.of(unused));
+    }
+
+    @Test
+    void purgePending_shouldDeleteUnreferencedRowWithObjectInsideLockingTransaction() {
+        MediaPurgeTask tombstone = task(1, "images/" + HASH + ".jpg");
+        when(mediaObjectRepository.lockAll(any())).thenReturn(List.of(
+                MediaObject.builder().objectKey("images/" + HASH + ".jpg").referenceCount(0).build()));
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(tombstone));
+
+        mediaPurgeService.purgePending();
+
+        InOrder inOrder = inOrder(transactionManager, mediaObjectRepository, s3Client);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(mediaObjectRepository).lockAll(any());
+        inOrder.verify(s3Client).deleteObjects(any(DeleteObjectsRequest.class));
+        inOrder.verify(mediaObjectRepository).deleteIfUnreferenced("images/" + HASH + ".jpg");
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void purgePending_shouldLeaveContentAddressedObjectWithoutRowAlone() {
+        MediaPurgeTask stale = task(1, "videos/" + HASH + ".mp4");
+        when(mediaObjectRepository.lockAll(any())).thenReturn(List.of());
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(stale));
+
+        mediaPurgeService.purgePending();
+
+        verifyNoInteractions(s3Client);
+        verify(purgeTaskRepository).deleteAllInBatch(List.of(stale));
+    }
+
+    @Test
+    void purgePending_shouldRollBackAndRescheduleWhenDeleteFails() {
+        MediaPurgeTask tombstone = task(1, "images/" + HASH + ".jpg");
+        when(mediaObjectRepository.lockAll(any())).thenReturn(List.of(
+                MediaObject.builder().objectKey("images/" + HASH + ".jpg").referenceCount(0).build()));
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        when(purgeTaskRepository.findByAttemptsLessThanAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                anyInt(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(tombstone));
+
+        mediaPurgeService.purgePending();
+
+        verify(transactionManager).rollback(any());
+        verify(mediaObjectRepository, never()).deleteIfUnreferenced(any());
+        assertEquals(1, tombstone.getAttempts());
+    }
+}
@@ -0,0 +1,143 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.repository.MediaObjectRepository;
+import com.bestflix.movie.repository.MediaPurgeTaskRepository;
+import com.bestflix.movie.repository.MovieRepository;
+import com.bestflix.movie.service.impl.MediaPurgeService;
+import com.bestflix.movie.service.impl.MediaReconcileService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaReconcileServiceTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private MediaObjectRepository mediaObjectRepository;
+
+    @Mock
+    private MediaPurgeTaskRepository purgeTaskRepository;
+
+    @Mock
+    private MediaPurgeService mediaPurgeService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MediaReconcileService reconcileService;
+
+    private final Instant old = Instant.now().minus(Duration.ofDays(3));
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconcileService = new MediaReconcileService(s3Client, movieRepository, mediaObjectRepository,
+                purgeTaskRepository, mediaPurgeService, meterRegistry);
+        ReflectionTestUtils.setField(reconcileService, "bucketName", "test-bucket");
+
+        when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(invocation -> new ListObjectsV2Iterable(s3Client, invocation.getArgument(0)));
+        lenient().when(mediaObjectRepository.findTrackedKeys(anyCollection())).thenReturn(List.of());
+        lenient().when(purgeTaskRepository.findQueuedKeys(anyCollection())).thenReturn(List.of());
+    }
+
+    private void listing(String prefix, S3Object... objects) {
+        when(s3Client.listObjectsV2(argThat((ListObjectsV2Request request) -> request != null && prefix.equals(request.prefix()))))
+                .thenReturn(ListObjectsV2Response.builder().contents(objects).isTruncated(false).build());
+    }
+
+    private S3Object object(String key, Instant lastModified) {
+        return S3Object.builder().key(key).size(10L).lastModified(lastModified).build();
+    }
+
+    @Test
+    void reconcile_shouldQueueOnlyOldUnreferencedObjects() {
+        listing("images/",
+                object("images/used.png", old),
+                object("images/tracked.png", old),
+                object("images/orphan.png", old),
+                object("images/fresh.png", Instant.now()));
+        listing("videos/",
+                object("videos/queued.mp4", old),
+                object("videos/orphan.mp4", old));
+        when(movieRepository.findImageNamesIn(List.of("used.png", "tracked.png", "orphan.png")))
+                .thenReturn(List.of("used.png"));
+        when(mediaObjectRepository.findTrackedKeys(List.of("images/used.png", "images/tracked.png", "images/orphan.png")))
+                .thenReturn(List.of("images/tracked.png"));
+        when(movieRepository.findVideoNamesIn(List.of("queued.mp4", "orphan.mp4"))).thenReturn(List.of());
+        when(purgeTaskRepository.findQueuedKeys(List.of("videos/queued.mp4", "videos/orphan.mp4")))
+                .thenReturn(List.of("videos/queued.mp4"));
+
+        MediaReconcileService.Report report = reconcileService.reconcile(false);
+
+        verify(mediaPurgeService).enqueue(List.of("images/orphan.png"));
+        verify(mediaPurgeService).enqueue(List.of("videos/orphan.mp4"));
+        assertEquals(6, report.scanned());
+        assertEquals(1, report.recent());
+        assertEquals(2, report.orphans());
+        assertEquals(20, report.orphanBytes());
+        assertEquals(2, report.queued());
+        assertEquals(List.of("images/orphan.png", "videos/orphan.mp4"), report.sample());
+        assertEquals(2, meterRegistry.counter("media.reconcile.orphans", "dry_run", "false").count());
+    }
+
+    @Test
+    void reconcile_shouldOnlyReportInDryRun() {
+        listing("images/", object("images/orphan.png", old));
+        listing("videos/");
+        when(movieRepository.findImageNamesIn(anyCollection())).thenReturn(List.of());
+
+        MediaReconcileService.Report report = reconcileService.reconcile(true);
+
+        assertTrue(report.dryRun());
+        assertEquals(1, report.orphans());
+        assertEquals(0, report.queued());
+        verifyNoInteractions(mediaPurgeService);
+        assertEquals(1, meterRegistry.counter("media.reconcile.orphans", "dry_run", "true").count());
+    }
+
+    @Test
+    void reconcile_shouldCheckKeysInBatchesAndStopQueueingAtRunLimit() {
+        ReflectionTestUtils.setField(reconcileService, "batchSize", 2);
+        ReflectionTestUtils.setField(reconcileService, "maxPurgesPerRun", 3L);
+        listing("images/");
+        listing("videos/", IntStream.range(0, 5)
+                .mapToObj(i -> object("videos/" + i + ".mp4", old))
+                .toArray(S3Object[]::new));
+        when(movieRepository.findVideoNamesIn(anyCollection())).thenReturn(List.of());
+
+        MediaReconcileService.Report report = reconcileService.reconcile(false);
+
+        verify(movieRepository, times(3)).findVideoNamesIn(anyCollection());
+        verify(mediaPurgeService).enqueue(List.of("videos/0.mp4", "videos/1.mp4"));
+        verify(mediaPurgeService).enqueue(List.of("videos/2.mp4"));
+        verifyNoMoreInteractions(mediaPurgeService);
+        assertEquals(5, report.orphans());
+        assertEquals(3, report.queued());
+    }
+}
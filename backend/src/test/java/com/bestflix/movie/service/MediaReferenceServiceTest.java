@@ -0,0 +1,133 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.entity.MediaObject;
+import com.bestflix.movie.repository.MediaObjectRepository;
+import com.bestflix.movie.service.impl.MediaPurgeService;
+import com.bestflix.movie.service.impl.MediaReferenceService;
+import com.bestflix.movie.service.impl.MediaSniffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaReferenceServiceTest {
+
+    @Mock
+    private MediaObjectRepository mediaObjectRepository;
+
+    @Mock
+    private MediaPurgeService mediaPurgeService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MediaReferenceService mediaReferenceService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenReturn(new SimpleTransactionStatus());
+        mediaReferenceService = new MediaReferenceService(mediaObjectRepository, mediaPurgeService, transactionManager);
+    }
+
+    @Test
+    void contentName_shouldBeSha256OfContentWithDetectedExtension() throws IOException {
+        String name = MediaReferenceService.contentName(
+                new MockMultipartFile("image", "Poster.PNG", "image/png", "test".getBytes()), MediaSniffer.Media.JPEG);
+
+        assertEquals("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.jpg", name);
+    }
+
+    @Test
+    void acquire_shouldSkipUploadOfStoredObject() {
+        when(mediaObjectRepository.incrementReferences("images/a.jpg")).thenReturn(1);
+        when(mediaObjectRepository.findById("images/a.jpg"))
+                .thenReturn(Optional.of(MediaObject.builder().objectKey("images/a.jpg").referenceCount(1).build()));
+
+        assertTrue(mediaReferenceService.acquire("images/a.jpg", 10));
+
+        verify(mediaObjectRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void acquire_shouldUploadAgainWhileFirstUploadIsStillWriting() {
+        when(mediaObjectRepository.incrementReferences("images/a.jpg")).thenReturn(1);
+        when(mediaObjectRepository.findById("images/a.jpg"))
+                .thenReturn(Optional.of(MediaObject.builder().objectKey("images/a.jpg").uploading(true).build()));
+
+        assertFalse(mediaReferenceService.acquire("images/a.jpg", 10));
+    }
+
+    @Test
+    void acquire_shouldInsertFirstReferenceBeforeUpload() {
+        when(mediaObjectRepository.incrementReferences("images/abc.jpg")).thenReturn(0);
+
+        assertFalse(mediaReferenceService.acquire("images/abc.jpg", 10));
+
+        ArgumentCaptor<MediaObject> captor = ArgumentCaptor.forClass(MediaObject.class);
+        verify(mediaObjectRepository).saveAndFlush(captor.capture());
+        assertEquals("abc", captor.getValue().getSha256());
+        assertEquals(1, captor.getValue().getReferenceCount());
+        assertEquals(10, captor.getValue().getSize());
+        assertTrue(captor.getValue().isUploading());
+    }
+
+    @Test
+    void acquire_shouldIncrementWhenConcurrentInsertWins() {
+        when(mediaObjectRepository.incrementReferences("images/abc.jpg")).thenReturn(0, 1);
+        when(mediaObjectRepository.saveAndFlush(any(MediaObject.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertFalse(mediaReferenceService.acquire("images/abc.jpg", 10));
+
+        verify(mediaObjectRepository, times(2)).incrementReferences("images/abc.jpg");
+    }
+
+    @Test
+    void release_shouldPurgeOnlyUnreferencedAndUntrackedKeys() {
+        when(mediaObjectRepository.decrementReferences("images/last.jpg")).thenReturn(1);
+        when(mediaObjectRepository.existsByObjectKeyAndReferenceCountLessThanEqual("images/last.jpg", 0)).thenReturn(true);
+        when(mediaObjectRepository.decrementReferences("videos/shared.mp4")).thenReturn(1);
+        when(mediaObjectRepository.existsByObjectKeyAndReferenceCountLessThanEqual("videos/shared.mp4", 0)).thenReturn(false);
+        when(mediaObjectRepository.decrementReferences("videos/legacy-uuid.mp4")).thenReturn(0);
+
+        mediaReferenceService.release(List.of("images/last.jpg", "videos/shared.mp4", "videos/legacy-uuid.mp4"));
+
+        verify(mediaPurgeService).enqueue(List.of("images/last.jpg", "videos/legacy-uuid.mp4"));
+        // the row stays until the purge deletes it together with the object
+        verify(mediaObjectRepository, never()).deleteIfUnreferenced(any());
+    }
+
+    @Test
+    void release_shouldNotEnqueueWhenEverythingIsStillReferenced() {
+        when(mediaObjectRepository.decrementReferences("images/shared.jpg")).thenReturn(1);
+        when(mediaObjectRepository.existsByObjectKeyAndReferenceCountLessThanEqual("images/shared.jpg", 0)).thenReturn(false);
+
+        mediaReferenceService.release(List.of("images/shared.jpg"));
+
+        verifyNoInteractions(mediaPurgeService);
+    }
+
+    @Test
+    void isContentAddressed_shouldRecognizeHashNamesOnly() {
+        assertTrue(MediaReferenceService.isContentAddressed(
+                "images/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.jpg"));
+        assertFalse(MediaReferenceService.isContentAddressed("videos/9a7b6c5d-1111-2222-3333-444455556666.mp4"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.bestflix.movie.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal media contents that pass magic-byte detection.
+ */
+final class MediaSamples {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] MP4 = {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+
+    /**
+     * WebP and MP4 signatures are plain ASCII, so they survive being embedded in a text multipart body.
+     */
+    static final String WEBP_TEXT = "RIFF\u0000\u0000\u0000\u0000WEBP";
+    static final String MP4_TEXT = "\u0000\u0000\u0000\u0018ftypisom";
+
+    private MediaSamples() {
+    }
+
+    static byte[] png(String body) {
+        return concat(PNG, body);
+    }
+
+    static byte[] mp4(String body) {
+        return concat(MP4, body);
+    }
+
+    private static byte[] concat(byte[] header, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[header.length + bytes.length];
+        System.arraycopy(header, 0, result, 0, header.length);
+        System.arraycopy(bytes, 0, result, header.length, bytes.length);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import com.bestflix.movie.service.impl.MediaSniffer;
+import com.bestflix.movie.service.impl.MediaSniffer.Media;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaSnifferTest {
+
+    private static final byte[] EBML = {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, (byte) 0x9F, 0x42, (byte) 0x86, (byte) 0x81, 0x01};
+
+    private static byte[] ebml(String docType) {
+        byte[] name = docType.getBytes(StandardCharsets.US_ASCII);
+        byte[] header = new byte[EBML.length + 3 + name.length];
+        System.arraycopy(EBML, 0, header, 0, EBML.length);
+        header[EBML.length] = 0x42;
+        header[EBML.length + 1] = (byte) 0x82;
+        header[EBML.length + 2] = (byte) (0x80 | name.length);
+        System.arraycopy(name, 0, header, EBML.length + 3, name.length);
+        return header;
+    }
+
+    private static byte[] ftyp(String brand) {
+        return ("\u0000\u0000\u0000\u0018ftyp" + brand).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void detect_shouldRecognizeSupportedFormats() {
+        assertEquals(Media.JPEG, MediaSniffer.detect(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+        assertEquals(Media.PNG, MediaSniffer.detect(MediaSamples.png("")));
+        assertEquals(Media.WEBP, MediaSniffer.detect(MediaSamples.WEBP_TEXT.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(Media.MP4, MediaSniffer.detect(ftyp("isom")));
+        assertEquals(Media.MP4, MediaSniffer.detect(ftyp("qt  ")));
+        assertEquals(Media.WEBM, MediaSniffer.detect(ebml("webm")));
+        assertEquals(Media.MKV, MediaSniffer.detect(ebml("matroska")));
+    }
+
+    @Test
+    void detect_shouldReturnNullForUnknownOrImageContainers() {
+        assertNull(MediaSniffer.detect("<html>".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(MediaSniffer.detect(new byte[0]));
+        assertNull(MediaSniffer.detect(ftyp("heic")));
+        assertNull(MediaSniffer.detect(ftyp("avif")));
+        assertNull(MediaSniffer.detect(ebml("other")));
+    }
+
+    @Test
+    void require_shouldRejectMediaOfTheWrongKind() {
+        assertEquals(Media.PNG, MediaSniffer.require(MediaSamples.png(""), true, "image"));
+
+        assertThrows(UnsupportedMediaException.class, () -> MediaSniffer.require(MediaSamples.png(""), false, "video"));
+        assertThrows(UnsupportedMediaException.class, () -> MediaSniffer.require(MediaSamples.mp4(""), true, "image"));
+    }
+
+    @Test
+    void contentTypeOf_shouldFollowStoredExtension() {
+        assertEquals("image/webp", MediaSniffer.contentTypeOf("abc.webp"));
+        assertEquals("video/x-matroska", MediaSniffer.contentTypeOf("abc.MKV"));
+        assertEquals("application/octet-stream", MediaSniffer.contentTypeOf("legacy"));
+        assertEquals("application/octet-stream", MediaSniffer.contentTypeOf(null));
+    }
+}
@@ -1,5 +1,6 @@
 package com.bestflix.movie.service;
 
+import com.bestflix.movie.datasource.ReadYourWritesTracker;
 import com.bestflix.movie.entity.Movie;
 import com.bestflix.movie.entity.UsersMovie;
 import com.bestflix.movie.exception.MovieNotFoundException;
@@ -9,7 +10,9 @@ import com.bestflix.movie.repository.MovieRepository;
 import com.bestflix.movie.repository.UsersMovieRepository;
 import com.bestflix.movie.security.entity.Users;
 import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.impl.AsyncFileStorageService;
 import com.bestflix.movie.service.impl.FileStorageService;
+import com.bestflix.movie.service.impl.MediaReferenceService;
 import com.bestflix.movie.service.impl.MovieService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
@@ -37,6 +44,9 @@ class MovieServiceTest {
     @Mock
     private FileStorageService fileStorageService;
 
+    @Mock
+    private AsyncFileStorageService asyncFileStorageService;
+
     @Mock
     private MovieRepository movieRepository;
 
@@ -58,6 +68,15 @@ class MovieServiceTest {
     @Mock
     private S3Client s3Client;
 
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Mock
+    private MediaReferenceService mediaReferenceService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
 
     private final String bucketName = "test-bucket";
     private final String region = "eu-central-1";
@@ -100,10 +119,14 @@ class MovieServiceTest {
 
         MovieService movieService = new MovieService(
                 fileStorageService,
+                asyncFileStorageService,
                 movieRepository,
                 userRepository,
                 usersMovieRepository,
-                s3Client
+                s3Client,
+                readYourWritesTracker,
+                mediaReferenceService,
+                transactionManager
         );
 
         // Inject @Value fields manually
@@ -147,12 +170,8 @@ class MovieServiceTest {
         String videoPath = "https://test-bucket.s3.eu-central-1.amazonaws.com/video123.mp4";
 
         when(userRepository.findByUsername(username)).thenReturn(mockUser);
-        when(fileStorageService.saveImage(imageFile)).thenReturn(savedImageName);
-        when(fileStorageService.saveVideo(videoFile)).thenReturn(savedVideoName);
-        when(imageFile.getContentType()).thenReturn("image/jpeg");
-        when(videoFile.getContentType()).thenReturn("video/mp4");
-
-        when(fileStorageService.saveVideo(videoFile)).thenReturn(videoPath);
+        when(asyncFileStorageService.saveImageAndVideo(imageFile, videoFile))
+                .thenReturn(new AsyncFileStorageService.StoredMedia(savedImageName, videoPath));
 
 
         when(movieRepository.save(any(Movie.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -173,7 +192,7 @@ class MovieServiceTest {
     }
 
     @Test
-    void uploadMovie_shouldThrowExceptionWhenUserNotFound() {
+    void uploadMovie_shouldThrowExceptionWhenUserNotFound() throws IOException {
         // Arrange
         when(userRepository.findByUsername("UnknownUser")).thenReturn(null);
 
@@ -185,6 +204,7 @@ class MovieServiceTest {
         assertThrows(UserNotFoundException.class, () -> {
             movieService.uploadMovie("UnknownUser", movie, image, video);
         });
+        verifyNoInteractions(asyncFileStorageService, movieRepository);
     }
 
     @Test
@@ -267,9 +287,14 @@ class MovieServiceTest {
         String result = movieService.deleteMovieById(movie.getId());
 
         verify(usersMovieRepository).deleteAllByMovieId(movie.getId());
-        verify(movieRepository).deleteById(movie.getId());
-
-        assertEquals("Movie deleted completely", result);
+        verify(movieRepository).save(movie);
+        verify(movieRepository, never()).deleteById(any());
+        verify(mediaReferenceService).release(List.of("images/ifie-3242dss-ssdfs", "videos/jewrm3-3453r34-34f"));
+        verifyNoInteractions(s3Client);
+
+        assertTrue(movie.isDeleted());
+        assertNotNull(movie.getDeletedAt());
+        assertEquals("Movie deleted", result);
     }
 
     @Test
@@ -279,6 +304,8 @@ class MovieServiceTest {
 
         Movie existingMovie = new Movie();
         existingMovie.setId(movieId);
+        existingMovie.setImageName("oldImage.png");
+        existingMovie.setVideoName("oldVideo.mp4");
 
         Movie movieInput = new Movie();
         movieInput.setMovieName("Updated Name");
@@ -289,18 +316,17 @@ class MovieServiceTest {
         movieInput.setAbout("Updated About");
         movieInput.setCategory("Action");
 
-        MultipartFile imageMock = mock(MultipartFile.class);
-        MultipartFile videoMock = mock(MultipartFile.class);
+        MultipartFile imageMock = new MockMultipartFile("image", "new.png", "image/png", MediaSamples.png("image"));
+        MultipartFile videoMock = new MockMultipartFile("video", "new.mp4", "video/mp4", MediaSamples.mp4("video"));
 
         // Mock image & video
-        when(imageMock.getContentType()).thenReturn("image/png");
         when(fileStorageService.saveImage(imageMock)).thenReturn("savedImage.png");
 
-        when(videoMock.getContentType()).thenReturn("video/mp4");
         when(fileStorageService.saveVideo(videoMock)).thenReturn("savedVideo.mp4");
         when(fileStorageService.saveVideo(videoMock)).thenReturn("savedVideo.mp4");
 
         // Repositories
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
         when(movieRepository.findById(movieId)).thenReturn(Optional.of(existingMovie));
         when(usersMovieRepository.findByMovieId(movieId)).thenReturn(new UsersMovie());
 
@@ -315,13 +341,14 @@ class MovieServiceTest {
         assertEquals("savedVideo.mp4", result.getVideoName());
         assertEquals("https://null.s3.null.amazonaws.com/savedVideo.mp4", result.getVideoPath());
 
-        verify(movieRepository).findById(movieId);
+        verify(movieRepository, times(2)).findById(movieId);
         verify(fileStorageService).saveImage(imageMock);
         verify(fileStorageService).saveVideo(videoMock);
         verify(fileStorageService).saveVideo(videoMock);
         verify(movieRepository).save(any(Movie.class));
         verify(usersMovieRepository).findByMovieId(movieId);
         verify(usersMovieRepository).save(any(UsersMovie.class));
+        verify(mediaReferenceService).release(List.of("images/oldImage.png", "videos/oldVideo.mp4"));
     }
 
 
@@ -341,20 +368,97 @@ class MovieServiceTest {
 
 
     @Test
-    void updateMovie_shouldThrowUserMoviesNotFoundException_whenUsersMovieIsNull() {
+    void updateMovie_shouldThrowUserMoviesNotFoundExceptionAndReleaseNewMedia_whenUsersMovieIsNull() throws IOException {
         Long movieId = 1L;
         Movie existing = new Movie();
+        existing.setImageName("oldImage.png");
+        existing.setVideoName("oldVideo.mp4");
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
         when(movieRepository.findById(movieId)).thenReturn(Optional.of(existing));
+        when(fileStorageService.saveImage(any())).thenReturn("savedImage.png");
+        when(fileStorageService.saveVideo(any())).thenReturn("savedVideo.mp4");
         when(usersMovieRepository.findByMovieId(movieId)).thenReturn(null);
 
         assertThrows(UserMoviesNotFoundException.class, () -> {
-            movieService.updateMovie(movieId, new Movie(), mock(MultipartFile.class), mock(MultipartFile.class));
+            movieService.updateMovie(movieId, new Movie(),
+                    new MockMultipartFile("image", "new.png", "image/png", MediaSamples.png("image")),
+                    new MockMultipartFile("video", "new.mp4", "video/mp4", MediaSamples.mp4("video")));
         });
 
-        verify(movieRepository).findById(movieId);
         verify(usersMovieRepository).findByMovieId(movieId);
+        verify(transactionManager).rollback(any());
+        verify(mediaReferenceService).release(List.of("images/savedImage.png", "videos/savedVideo.mp4"));
+        verifyNoMoreInteractions(mediaReferenceService);
     }
 
-}
 
+    @Test
+    void patchMovie_shouldUpdateMetadataOnlyWithoutTouchingMedia() throws IOException {
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        Movie changes = new Movie();
+        changes.setAbout("Fixed typo");
+        when(movieRepository.updateMetadata(1L, null, null, null, null, null, "Fixed typo", null)).thenReturn(1);
+        when(usersMovieRepository.findByMovieId(1L)).thenReturn(usersMovie);
+
+        movieService.patchMovie(1L, "Elcin", changes, null, null);
+
+        verify(movieRepository, never()).findById(any());
+        verify(movieRepository, never()).save(any());
+        verifyNoInteractions(fileStorageService, asyncFileStorageService, mediaReferenceService);
+        verify(readYourWritesTracker).recordWrite("Elcin");
+    }
 
+    @Test
+    void patchMovie_shouldThrowMovieNotFoundException_whenMetadataUpdateMatchesNothing() {
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        when(usersMovieRepository.findByMovieId(9L)).thenReturn(usersMovie);
+        when(movieRepository.updateMetadata(eq(9L), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(MovieNotFoundException.class, () -> movieService.patchMovie(9L, "Elcin", null, null, null));
+    }
+
+    @Test
+    void patchMovie_shouldReplaceOnlySuppliedVideoAndReleaseOldOne() throws IOException {
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        MockMultipartFile video = new MockMultipartFile("video", "new.mp4", "video/mp4", "bytes".getBytes());
+        when(movieRepository.existsById(1L)).thenReturn(true);
+        when(movieRepository.findById(1L)).thenReturn(Optional.of(movie));
+        when(fileStorageService.saveVideo(video)).thenReturn("new.mp4");
+        when(usersMovieRepository.findByMovieId(1L)).thenReturn(usersMovie);
+
+        movieService.patchMovie(1L, "Elcin", null, null, video);
+
+        assertEquals("new.mp4", movie.getVideoName());
+        assertEquals("video/mp4", movie.getVideoType());
+        assertEquals("ifie-3242dss-ssdfs", movie.getImageName());
+        assertEquals("Room", movie.getMovieName());
+        verify(fileStorageService, never()).saveImage(any());
+        verify(movieRepository).save(movie);
+        verify(mediaReferenceService).release(List.of("videos/jewrm3-3453r34-34f"));
+    }
+
+    @Test
+    void patchMovie_shouldReleaseNewMediaWhenRowUpdateFails() throws IOException {
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        MockMultipartFile image = new MockMultipartFile("image", "new.png", "image/png", "bytes".getBytes());
+        when(movieRepository.existsById(1L)).thenReturn(true);
+        when(movieRepository.findById(1L)).thenReturn(Optional.empty());
+        when(fileStorageService.saveImage(image)).thenReturn("new.png");
+        when(usersMovieRepository.findByMovieId(1L)).thenReturn(usersMovie);
+
+        assertThrows(MovieNotFoundException.class, () -> movieService.patchMovie(1L, "Elcin", null, image, null));
+
+        verify(mediaReferenceService).release(List.of("images/new.png"));
+        verify(mediaReferenceService, never()).release(List.of("images/ifie-3242dss-ssdfs"));
+    }
+
+    @Test
+    void patchMovie_shouldHideMovieOfOtherUserWithoutStoringAnything() {
+        MockMultipartFile image = new MockMultipartFile("image", "new.png", "image/png", "bytes".getBytes());
+        when(usersMovieRepository.findByMovieId(1L)).thenReturn(usersMovie);
+
+        assertThrows(MovieNotFoundException.class, () -> movieService.patchMovie(1L, "mallory", null, image, null));
+
+        verifyNoInteractions(movieRepository, fileStorageService, asyncFileStorageService, mediaReferenceService);
+    }
+}
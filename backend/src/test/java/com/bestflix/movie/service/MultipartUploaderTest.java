@@ -0,0 +1,130 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.service.impl.MultipartUploader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MultipartUploaderTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @Mock
+    private S3Client s3Client;
+
+    private ExecutorService executor;
+
+    private MultipartUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        uploader = new MultipartUploader(s3Client, executor);
+        ReflectionTestUtils.setField(uploader, "bucketName", "test-bucket");
+        ReflectionTestUtils.setField(uploader, "partSizeBytes", PART_SIZE);
+        ReflectionTestUtils.setField(uploader, "retryBackoffMs", 1L);
+
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static ByteArrayInputStream source(int size) {
+        return new ByteArrayInputStream(new byte[size]);
+    }
+
+    @Test
+    void upload_shouldSendAllPartsAndCompleteThemInOrder() throws IOException {
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenAnswer(invocation -> {
+                    UploadPartRequest request = invocation.getArgument(0);
+                    return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+                });
+
+        uploader.upload("videos/big.mp4", "video/mp4", source(2 * PART_SIZE + 10), () -> false);
+
+        verify(s3Client, times(3)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        verify(s3Client).uploadPart(argThat((UploadPartRequest r) -> r != null && r.partNumber() == 3
+                && r.contentLength() == 10L), any(RequestBody.class));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(captor.capture());
+
+        List<CompletedPart> parts = captor.getValue().multipartUpload().parts();
+        assertEquals(List.of(1, 2, 3), parts.stream().map(CompletedPart::partNumber).toList());
+        assertEquals("etag-2", parts.get(1).eTag());
+        assertEquals("upload-1", captor.getValue().uploadId());
+        verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void upload_shouldRetryOnlyTheFailedPart() throws IOException {
+        when(s3Client.uploadPart(argThat((UploadPartRequest r) -> r != null && r.partNumber() == 1), any(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("etag-1").build());
+        when(s3Client.uploadPart(argThat((UploadPartRequest r) -> r != null && r.partNumber() == 2), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("connection reset"))
+                .thenReturn(UploadPartResponse.builder().eTag("etag-2").build());
+
+        uploader.upload("videos/big.mp4", "video/mp4", source(PART_SIZE + 1), () -> false);
+
+        verify(s3Client, times(1)).uploadPart(argThat((UploadPartRequest r) -> r != null && r.partNumber() == 1),
+                any(RequestBody.class));
+        verify(s3Client, times(2)).uploadPart(argThat((UploadPartRequest r) -> r != null && r.partNumber() == 2),
+                any(RequestBody.class));
+        verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void upload_shouldAbortWhenAPartKeepsFailing() {
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        IOException ex = assertThrows(IOException.class,
+                () -> uploader.upload("videos/big.mp4", "video/mp4", source(PART_SIZE), () -> false));
+
+        assertInstanceOf(SdkClientException.class, ex.getCause());
+        verify(s3Client).abortMultipartUpload(argThat((AbortMultipartUploadRequest r) ->
+                r != null && r.uploadId().equals("upload-1") && r.key().equals("videos/big.mp4")));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void upload_shouldAbortWhenCallerCancels() {
+        assertThrows(IOException.class,
+                () -> uploader.upload("videos/big.mp4", "video/mp4", source(3 * PART_SIZE), () -> true));
+
+        verify(s3Client, never()).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+}
@@ -0,0 +1,193 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.service.impl.MediaPurgeService;
+import com.bestflix.movie.service.impl.MultipartUploader;
+import com.bestflix.movie.service.impl.StreamingUploadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Streams a video several times larger than the heap through {@link StreamingUploadService}.
+ * Runs in its own surefire execution with a small {@code -Xmx}, so buffering a whole part of the
+ * request instead of streaming it fails with an {@link OutOfMemoryError}.
+ */
+@ExtendWith(MockitoExtension.class)
+class StreamingUploadMemoryTest {
+
+    private static final long VIDEO_SIZE = 384L * 1024 * 1024;
+
+    @Mock
+    private IMovieService movieService;
+
+    @Mock
+    private MediaPurgeService mediaPurgeService;
+
+    private final AtomicLong videoBytesReceived = new AtomicLong();
+    private final AtomicInteger partsReceived = new AtomicInteger();
+
+    private ExecutorService partExecutor;
+
+    private StreamingUploadService streamingUploadService;
+
+    @BeforeEach
+    void setUp() {
+        partExecutor = Executors.newFixedThreadPool(2);
+
+        MultipartUploader multipartUploader = new MultipartUploader(new DiscardingS3Client(), partExecutor);
+        ReflectionTestUtils.setField(multipartUploader, "bucketName", "test-bucket");
+        ReflectionTestUtils.setField(multipartUploader, "partSizeBytes", 5 * 1024 * 1024);
+        ReflectionTestUtils.setField(multipartUploader, "parallelism", 2);
+
+        streamingUploadService = new StreamingUploadService(multipartUploader, new DiscardingS3Client(), movieService,
+                mediaPurgeService, new ObjectMapper().findAndRegisterModules(), DataSize.ofGigabytes(1));
+        ReflectionTestUtils.setField(streamingUploadService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        partExecutor.shutdownNow();
+    }
+
+    @Test
+    void upload_shouldStreamVideoLargerThanHeap() throws IOException {
+        assertTrue(Runtime.getRuntime().maxMemory() < VIDEO_SIZE / 2,
+                "run with a small -Xmx; see the small-heap surefire execution");
+
+        when(movieService.saveUploadedMovie(eq("john"), any(Movie.class), anyString(), anyString(), anyString(),
+                eq("video/mp4"))).thenReturn(new Movie());
+
+        String head = StreamingUploadServiceTest.moviePart("{\"movieName\":\"Big\"}")
+                + StreamingUploadServiceTest.filePart("image", "poster.png", "image/png", MediaSamples.WEBP_TEXT + "img")
+                + "--" + StreamingUploadServiceTest.BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"video\"; filename=\"big.mp4\"\r\n"
+                + "Content-Type: video/mp4\r\n\r\n"
+                + MediaSamples.MP4_TEXT;
+        String tail = "\r\n--" + StreamingUploadServiceTest.BOUNDARY + "--\r\n";
+
+        InputStream body = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(head.getBytes(StandardCharsets.UTF_8)),
+                new SyntheticInputStream(VIDEO_SIZE),
+                new ByteArrayInputStream(tail.getBytes(StandardCharsets.UTF_8)))));
+
+        streamingUploadService.upload("john", StreamingUploadServiceTest.request(body));
+
+        assertEquals(MediaSamples.MP4_TEXT.length() + VIDEO_SIZE, videoBytesReceived.get());
+        assertEquals(VIDEO_SIZE / (5 * 1024 * 1024) + 1, partsReceived.get());
+        verifyNoInteractions(mediaPurgeService);
+    }
+
+
+    /**
+     * Produces {@code size} bytes without allocating them; never emits CR, so it cannot contain a boundary.
+     */
+    private static final class SyntheticInputStream extends InputStream {
+
+        private long remaining;
+
+        SyntheticInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            return remaining-- > 0 ? 'a' + (int) (remaining % 26) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (remaining <= 0)
+                return -1;
+            int count = (int) Math.min(length, remaining);
+            for (int i = 0; i < count; i++)
+                buffer[offset + i] = (byte) ('a' + (int) ((remaining - i - 1) % 26));
+            remaining -= count;
+            return count;
+        }
+    }
+
+
+    /**
+     * Reads every request body and drops it, counting the video bytes that arrive.
+     * Hand-written instead of a Mockito mock, which would keep every part's bytes alive as invocation arguments.
+     */
+    private final class DiscardingS3Client implements S3Client {
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            return CreateMultipartUploadResponse.builder().uploadId("upload-1").build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+            videoBytesReceived.addAndGet(drain(body));
+            partsReceived.incrementAndGet();
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            return CompleteMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+            drain(body);
+            return PutObjectResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private long drain(RequestBody body) {
+            try (InputStream in = body.contentStreamProvider().newStream()) {
+                return in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.InvalidUploadRequestException;
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import com.bestflix.movie.service.impl.MediaPurgeService;
+import com.bestflix.movie.service.impl.MultipartUploader;
+import com.bestflix.movie.service.impl.StreamingUploadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.fileupload2.core.RequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingUploadServiceTest {
+
+    static final String BOUNDARY = "----bestflix-boundary";
+
+    @Mock
+    private MultipartUploader multipartUploader;
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private IMovieService movieService;
+
+    @Mock
+    private MediaPurgeService mediaPurgeService;
+
+    private StreamingUploadService streamingUploadService;
+
+    @BeforeEach
+    void setUp() {
+        streamingUploadService = new StreamingUploadService(multipartUploader, s3Client, movieService,
+                mediaPurgeService, new ObjectMapper().findAndRegisterModules(), DataSize.ofGigabytes(1));
+        ReflectionTestUtils.setField(streamingUploadService, "bucketName", "test-bucket");
+        lenient().when(multipartUploader.partSize()).thenReturn(5 * 1024 * 1024);
+    }
+
+    static String filePart(String field, String fileName, String contentType, String content) {
+        return "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + field + "\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n"
+                + content + "\r\n";
+    }
+
+    static String moviePart(String json) {
+        return "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"movie\"\r\n"
+                + "Content-Type: application/json\r\n\r\n"
+                + json + "\r\n";
+    }
+
+    static RequestContext request(InputStream body) {
+        return new RequestContext() {
+            @Override
+            public String getCharacterEncoding() {
+                return "UTF-8";
+            }
+
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public String getContentType() {
+                return "multipart/form-data; boundary=" + BOUNDARY;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return body;
+            }
+
+            @Override
+            public boolean isMultipartRelated() {
+                return false;
+            }
+        };
+    }
+
+    private static RequestContext request(String body) {
+        return request(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void upload_shouldStoreSmallPartsWithSinglePutAndCreateMovie() throws IOException {
+        Movie saved = new Movie();
+        when(movieService.saveUploadedMovie(eq("john"), any(Movie.class), anyString(), eq("image/webp"),
+                anyString(), eq("video/mp4"))).thenReturn(saved);
+
+        Movie result = streamingUploadService.upload("john", request(
+                filePart("image", "poster.png", "image/png", MediaSamples.WEBP_TEXT + "img")
+                        + moviePart("{\"movieName\":\"Inception\",\"releaseDate\":\"2010-07-16\"}")
+                        + filePart("video", "movie", "application/octet-stream", MediaSamples.MP4_TEXT + "video-bytes")
+                        + "--" + BOUNDARY + "--\r\n"));
+
+        assertSame(saved, result);
+
+        ArgumentCaptor<Movie> movie = ArgumentCaptor.forClass(Movie.class);
+        verify(movieService).saveUploadedMovie(eq("john"), movie.capture(), anyString(), anyString(), anyString(), anyString());
+        assertEquals("Inception", movie.getValue().getMovieName());
+
+        ArgumentCaptor<PutObjectRequest> puts = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client, times(2)).putObject(puts.capture(), any(RequestBody.class));
+        assertTrue(puts.getAllValues().get(0).key().startsWith("images/"));
+        assertTrue(puts.getAllValues().get(0).key().endsWith(".webp"));
+        assertEquals("video/mp4", puts.getAllValues().get(1).contentType());
+        assertTrue(puts.getAllValues().get(1).key().endsWith(".mp4"));
+        assertEquals(12L + 11L, puts.getAllValues().get(1).contentLength());
+        verifyNoInteractions(mediaPurgeService);
+    }
+
+    @Test
+    void upload_shouldPurgeStoredPartsWhenAPartIsMissing() {
+        InvalidUploadRequestException ex = assertThrows(InvalidUploadRequestException.class,
+                () -> streamingUploadService.upload("john", request(
+                        filePart("image", "poster.png", "image/png", MediaSamples.WEBP_TEXT + "img")
+                                + moviePart("{\"movieName\":\"Inception\"}")
+                                + "--" + BOUNDARY + "--\r\n")));
+
+        assertNotNull(ex.getMessage());
+
+        ArgumentCaptor<Collection<String>> keys = ArgumentCaptor.forClass(Collection.class);
+        verify(mediaPurgeService).enqueue(keys.capture());
+        assertEquals(1, keys.getValue().size());
+        assertTrue(keys.getValue().iterator().next().startsWith("images/"));
+        verifyNoInteractions(movieService);
+    }
+
+    @Test
+    void upload_shouldRejectPartThatIsNotSupportedMedia() {
+        assertThrows(UnsupportedMediaException.class, () -> streamingUploadService.upload("john", request(
+                filePart("image", "poster.png", "image/png", "<svg/>")
+                        + "--" + BOUNDARY + "--\r\n")));
+
+        verifyNoInteractions(s3Client, mediaPurgeService, movieService);
+    }
+
+    @Test
+    void upload_shouldRejectPartWithOversizedHeaders() {
+        String part = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"" + "a".repeat(16 * 1024) + "\"\r\n"
+                + "Content-Type: image/png\r\n\r\n"
+                + MediaSamples.WEBP_TEXT + "img\r\n";
+
+        assertThrows(IOException.class, () -> streamingUploadService.upload("john",
+                request(part + "--" + BOUNDARY + "--\r\n")));
+
+        verifyNoInteractions(s3Client, mediaPurgeService, movieService);
+    }
+}
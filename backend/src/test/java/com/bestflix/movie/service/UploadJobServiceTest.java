@@ -0,0 +1,200 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.dto.UploadJobStatus;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.UnsupportedMediaException;
+import com.bestflix.movie.exception.UploadJobNotFoundException;
+import com.bestflix.movie.exception.UploadQueueFullException;
+import com.bestflix.movie.exception.UserNotFoundException;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.impl.AsyncFileStorageService;
+import com.bestflix.movie.service.impl.MediaReferenceService;
+import com.bestflix.movie.service.impl.UploadJobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadJobServiceTest {
+
+    @Mock
+    private AsyncFileStorageService asyncFileStorageService;
+
+    @Mock
+    private IMovieService movieService;
+
+    @Mock
+    private MediaReferenceService mediaReferenceService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @TempDir
+    Path spoolDir;
+
+    private ThreadPoolExecutor jobExecutor;
+
+    private UploadJobService uploadJobService;
+
+    private final Movie movie = Movie.builder().movieName("Inception").build();
+    private final MockMultipartFile image =
+            new MockMultipartFile("image", "poster.png", "image/png", MediaSamples.png("image"));
+    private final MockMultipartFile video =
+            new MockMultipartFile("video", "trailer.mp4", "video/mp4", MediaSamples.mp4("video-bytes"));
+
+    @BeforeEach
+    void setUp() {
+        jobExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        uploadJobService = new UploadJobService(asyncFileStorageService, movieService, mediaReferenceService,
+                userRepository, jobExecutor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(uploadJobService, "spoolDir", spoolDir.toString());
+
+        lenient().when(userRepository.findByUsername("john")).thenReturn(new Users());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private UploadJobStatus awaitFinished(String jobId) throws InterruptedException {
+        jobExecutor.shutdown();
+        assertTrue(jobExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        return uploadJobService.getStatus(jobId, "john");
+    }
+
+    @Test
+    void submit_shouldAcceptAtOnceAndCompleteInBackground() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(asyncFileStorageService.saveImageAndVideo(any(MultipartFile.class), any(MultipartFile.class),
+                any(LongConsumer.class))).thenAnswer(invocation -> {
+                    MultipartFile spooled = invocation.getArgument(1);
+                    assertArrayEquals(video.getBytes(), spooled.getBytes());
+                    release.await(5, TimeUnit.SECONDS);
+                    invocation.<LongConsumer>getArgument(2).accept(36);
+                    return new AsyncFileStorageService.StoredMedia("a.png", "b.mp4");
+                });
+        Movie saved = new Movie();
+        saved.setId(42L);
+        when(movieService.saveUploadedMovie("john", movie, "a.png", "image/png", "b.mp4", "video/mp4"))
+                .thenReturn(saved);
+
+        UploadJobStatus accepted = uploadJobService.submit("john", movie, image, video);
+
+        assertEquals(UploadJobStatus.State.QUEUED, accepted.getState());
+        assertEquals(36, accepted.getTotalBytes());
+        verify(movieService, never()).saveUploadedMovie(anyString(), any(), anyString(), anyString(), anyString(), anyString());
+
+        release.countDown();
+        UploadJobStatus finished = awaitFinished(accepted.getJobId());
+
+        assertEquals(UploadJobStatus.State.COMPLETED, finished.getState());
+        assertEquals(42L, finished.getMovieId());
+        assertEquals(36, finished.getStoredBytes());
+        assertNotNull(finished.getFinishedAt());
+        assertFalse(Files.exists(spoolDir.resolve(accepted.getJobId())));
+    }
+
+    @Test
+    void submit_shouldRejectWhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(asyncFileStorageService.saveImageAndVideo(any(MultipartFile.class), any(MultipartFile.class),
+                any(LongConsumer.class))).thenAnswer(invocation -> {
+                    running.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new AsyncFileStorageService.StoredMedia("a.png", "b.mp4");
+                });
+        when(movieService.saveUploadedMovie(anyString(), any(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(new Movie());
+
+        String first = uploadJobService.submit("john", movie, image, video).getJobId();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        String queued = uploadJobService.submit("john", movie, image, video).getJobId();
+
+        assertThrows(UploadQueueFullException.class, () -> uploadJobService.submit("john", movie, image, video));
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(2, files.count());
+        }
+
+        release.countDown();
+        awaitFinished(first);
+        assertEquals(UploadJobStatus.State.COMPLETED, uploadJobService.getStatus(queued, "john").getState());
+    }
+
+    @Test
+    void run_shouldReleaseMediaAndFailJobWhenMovieCannotBeSaved() throws Exception {
+        when(asyncFileStorageService.saveImageAndVideo(any(MultipartFile.class), any(MultipartFile.class),
+                any(LongConsumer.class))).thenReturn(new AsyncFileStorageService.StoredMedia("a.png", "b.mp4"));
+        when(movieService.saveUploadedMovie(eq("john"), any(), anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        UploadJobStatus finished = awaitFinished(uploadJobService.submit("john", movie, image, video).getJobId());
+
+        assertEquals(UploadJobStatus.State.FAILED, finished.getState());
+        assertNotNull(finished.getError());
+        assertNull(finished.getMovieId());
+        verify(mediaReferenceService).release(List.of("images/a.png", "videos/b.mp4"));
+    }
+
+    @Test
+    void submit_shouldRejectUnknownUserBeforeSpooling() throws IOException {
+        assertThrows(UserNotFoundException.class, () -> uploadJobService.submit("ghost", movie, image, video));
+
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+        verifyNoInteractions(asyncFileStorageService);
+    }
+
+    @Test
+    void submit_shouldRejectUnsupportedMediaBeforeSpooling() throws IOException {
+        MockMultipartFile textImage = new MockMultipartFile("image", "poster.png", "image/png", "image".getBytes());
+
+        assertThrows(UnsupportedMediaException.class, () -> uploadJobService.submit("john", movie, textImage, video));
+
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+        verifyNoInteractions(asyncFileStorageService);
+    }
+
+    @Test
+    void getStatus_shouldHideJobsOfOtherUsers() throws Exception {
+        when(asyncFileStorageService.saveImageAndVideo(any(MultipartFile.class), any(MultipartFile.class),
+                any(LongConsumer.class))).thenReturn(new AsyncFileStorageService.StoredMedia("a.png", "b.mp4"));
+        when(movieService.saveUploadedMovie(anyString(), any(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(new Movie());
+
+        String jobId = uploadJobService.submit("john", movie, image, video).getJobId();
+
+        assertThrows(UploadJobNotFoundException.class, () -> uploadJobService.getStatus(jobId, "jane"));
+        assertThrows(UploadJobNotFoundException.class, () -> uploadJobService.getStatus("missing", "john"));
+        awaitFinished(jobId);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bestflix.movie.service;
+
+import com.bestflix.movie.dto.UploadCheckRequest;
+import com.bestflix.movie.entity.Movie;
+import com.bestflix.movie.exception.InvalidUploadRequestException;
+import com.bestflix.movie.exception.UploadTooLargeException;
+import com.bestflix.movie.security.entity.Users;
+import com.bestflix.movie.security.repository.UserRepository;
+import com.bestflix.movie.service.impl.UploadPreflightService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadPreflightServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UploadPreflightService uploadPreflightService;
+
+    @BeforeEach
+    void setUp() {
+        uploadPreflightService = new UploadPreflightService(userRepository, DataSize.ofBytes(50), DataSize.ofBytes(100));
+        when(userRepository.findByUsername("john")).thenReturn(new Users());
+    }
+
+    private static UploadCheckRequest.UploadCheckRequestBuilder validRequest() {
+        return UploadCheckRequest.builder()
+                .movie(Movie.builder().movieName("Interstellar").build())
+                .imageContentType("image/jpeg").imageSize(10)
+                .videoContentType("video/mp4").videoSize(50);
+    }
+
+    @Test
+    void check_shouldAcceptValidUpload() {
+        assertDoesNotThrow(() -> uploadPreflightService.check("john", validRequest().username("john").build()));
+    }
+
+    @Test
+    void check_shouldRejectMissingMetadataWrongTypeAndOversizedFile() {
+        assertThrows(InvalidUploadRequestException.class,
+                () -> uploadPreflightService.check("john", validRequest().movie(new Movie()).build()));
+        assertThrows(InvalidUploadRequestException.class,
+                () -> uploadPreflightService.check("john", validRequest().videoContentType("image/png").build()));
+        assertThrows(UploadTooLargeException.class,
+                () -> uploadPreflightService.check("john", validRequest().videoSize(51).build()));
+    }
+}
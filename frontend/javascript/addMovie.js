@@ -2,7 +2,7 @@
 /**
  * Handles upload and update operations for movies.
  * Validates image and video inputs, movie metadata, and updates UI accordingly.
- * Relies on SweetAlert2 and fetch API for communication.
+ * Relies on SweetAlert2 and authFetch (authFetch.js) for communication.
  */
 document.querySelector(".upload-btn").addEventListener("click", async () => {
   const apiUrl = "https://bestflix-budz.onrender.com";
@@ -98,7 +98,7 @@ if (isUpdate) {
       
 
       /** @type {Response} */
-    const response = await fetch(url, {
+    const response = await authFetch(url, {
       method: isUpdate? "PUT" : "POST",
       body: formData
     });
@@ -183,13 +183,7 @@ document.addEventListener("DOMContentLoaded", async () => {
   if (!movieId) return;
 
   try {
-    const token = localStorage.getItem("jwtToken");
-
-    const response = await fetch(`${apiUrl}/rest/api/movie/${movieId}`, {
-      headers: {
-        "Authorization": `Bearer ${token}`
-      }
-    });
+    const response = await authFetch(`${apiUrl}/rest/api/movie/${movieId}`);
 
     if (!response.ok) throw new Error("Failed to load movie");
 
@@ -0,0 +1,125 @@
+/**
+ * Authenticated Fetch
+ * Sends API requests with the stored access token. An expired access token is renewed
+ * with the stored refresh token before the request; a request answered with 401 is
+ * renewed and retried once. Also provides logout, which revokes the refresh token.
+ * Must be loaded before the scripts that use it.
+ */
+(function () {
+  const apiUrl = "https://bestflix-budz.onrender.com";
+
+  /** @type {Promise<boolean>|null} */
+  let pendingRefresh = null;
+
+  /**
+   * Exchanges the stored refresh token for new tokens. Callers on the same page share one
+   * exchange, because presenting a refresh token twice logs the whole session out.
+   * @returns {Promise<boolean>} whether new tokens were stored
+   */
+  function refreshTokens() {
+    if (!pendingRefresh) {
+      pendingRefresh = exchangeRefreshToken().finally(() => {
+        pendingRefresh = null;
+      });
+    }
+    return pendingRefresh;
+  }
+
+  /**
+   * @returns {Promise<boolean>} whether new tokens were stored
+   */
+  async function exchangeRefreshToken() {
+    const refreshToken = localStorage.getItem("refreshToken");
+    if (!refreshToken) return false;
+
+    try {
+      const response = await fetch(`${apiUrl}/token/refresh`, {
+        method: "POST",
+        headers: {"Content-Type" : "application/json"},
+        body: JSON.stringify({ refreshToken })
+      });
+      if (!response.ok) return false;
+
+      const tokens = await response.json();
+      localStorage.setItem("jwtToken", tokens.accessToken);
+      localStorage.setItem("refreshToken", tokens.refreshToken);
+      return true;
+    } catch (err) {
+      console.error("Token refresh failed:", err);
+      return false;
+    }
+  }
+
+  /**
+   * @param {string} token
+   * @returns {boolean} whether the token is expired or unreadable
+   */
+  function isExpired(token) {
+    try {
+      /** @type {{exp: number}} */
+      const payload = JSON.parse(atob(token.split(".")[1]));
+      return Date.now() >= payload.exp * 1000;
+    } catch (err) {
+      return true;
+    }
+  }
+
+  /**
+   * @param {RequestInit} options
+   * @returns {RequestInit} the options with the current access token
+   */
+  function withToken(options) {
+    const headers = new Headers(options.headers || {});
+    const token = localStorage.getItem("jwtToken");
+    if (token) headers.set("Authorization", `Bearer ${token}`);
+    return { ...options, headers };
+  }
+
+  /**
+   * Fetch with the stored access token, renewing it at most once.
+   * A body sent this way must be reusable, e.g. a string or FormData.
+   * @param {string} url
+   * @param {RequestInit} [options]
+   * @returns {Promise<Response>}
+   */
+  async function authFetch(url, options = {}) {
+    const token = localStorage.getItem("jwtToken");
+    let refreshed = false;
+
+    if (!token || isExpired(token)) {
+      await refreshTokens();
+      refreshed = true;
+    }
+
+    const response = await fetch(url, withToken(options));
+    if (response.status !== 401 || refreshed || !(await refreshTokens())) return response;
+
+    return fetch(url, withToken(options));
+  }
+
+  /**
+   * Revokes the refresh token on the server and forgets both tokens.
+   * The tokens are removed even if the server cannot be reached.
+   * @returns {Promise<void>}
+   */
+  async function logout() {
+    const refreshToken = localStorage.getItem("refreshToken");
+    localStorage.removeItem("jwtToken");
+    localStorage.removeItem("refreshToken");
+    if (!refreshToken) return;
+
+    try {
+      await fetch(`${apiUrl}/token/revoke`, {
+        method: "POST",
+        headers: {"Content-Type" : "application/json"},
+        body: JSON.stringify({ refreshToken })
+      });
+    } catch (err) {
+      console.error("Token revocation failed:", err);
+    }
+  }
+
+  window.authFetch = authFetch;
+  window.refreshTokens = refreshTokens;
+  window.logout = logout;
+})();
\ No newline at end of file
@@ -1,9 +1,10 @@
 /**
  * Auth Guard
  * Redirects user to login if token is missing or expired.
- * Shows alert on expired session.
+ * An expired access token is renewed with refreshTokens from authFetch.js first;
+ * the session expired alert is only shown when that fails.
  */
-(function () {
+(async function () {
   /** @type {string|null} */
   const token = localStorage.getItem("jwtToken");
 
@@ -19,12 +20,18 @@
     const now = Date.now();
 
     if (now > exp) {
+      if (await refreshTokens()) {
+        window.location.reload();
+        return;
+      }
+
       Swal.fire({
       title: "Oops",
       text: "Session Expired. Please log in again!",
       icon: "error"
     });
       localStorage.removeItem("jwtToken");
+      localStorage.removeItem("refreshToken");
       window.location.href = "login.html";
     }
   } catch (err) {
@@ -79,7 +79,7 @@ document.addEventListener("DOMContentLoaded", async() =>{
   
   /**
   * Sends login request to backend.
-  * @returns {Response} response containing JWT or error details
+  * @returns {Response} response containing access and refresh tokens or error details
   */
   const response = await fetch(`${apiUrl}/login`, {
     method: "POST",
@@ -99,10 +99,11 @@ document.addEventListener("DOMContentLoaded", async() =>{
       }
 
 
-      const token = await response.text();
+      const { accessToken, refreshToken } = await response.json();
 
-      
-      localStorage.setItem("jwtToken", token);
+
+      localStorage.setItem("jwtToken", accessToken);
+      localStorage.setItem("refreshToken", refreshToken);
 
       await Swal.fire({
       title: "Good Job!",
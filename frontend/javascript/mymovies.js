@@ -22,7 +22,7 @@ document.addEventListener("DOMContentLoaded", async () => {
 
   try {
     /** @type {Response} */
-    const response = await fetch(`${apiUrl}/rest/api/movie/mymovies`, {
+    const response = await authFetch(`${apiUrl}/rest/api/movie/mymovies`, {
       method: "POST",
       headers: { "Content-Type": "application/json" },
       body: JSON.stringify({ username })
@@ -164,8 +164,8 @@ document.addEventListener("DOMContentLoaded", async () => {
       paginationContainer.style.display = "none";
     }
 
-    document.querySelector(".log-out-btn").addEventListener("click", () => {
-      localStorage.removeItem("jwtToken");
+    document.querySelector(".log-out-btn").addEventListener("click", async () => {
+      await logout();
       window.location.href = "login.html";
     });
     
@@ -19,6 +19,46 @@ document.addEventListener("DOMContentLoaded", () => {
 
   const logbtn = document.querySelector(".log-btn");
 
+  /**
+   * Asks the backend whether a username or email is still free.
+   * @param {string} field "username" or "email"
+   * @param {string} value value typed by the user
+   * @returns {Promise<boolean>} false only if the value is known to be taken
+   */
+  async function isAvailable(field, value) {
+    try {
+      const response = await fetch(`${apiUrl}/register/availability?${field}=${encodeURIComponent(value)}`);
+      if (!response.ok) return true;
+      const result = await response.json();
+      return result[`${field}Available`] !== false;
+    } catch (err) {
+      return true;
+    }
+  }
+
+  // Warns as soon as a taken username or email is entered, before the form is submitted
+  document.querySelector(".input-name").addEventListener("blur", async (e) => {
+    const username = e.target.value.trim();
+    if (username.length >= 3 && !(await isAvailable("username", username))) {
+      Swal.fire({
+        title: "Oops",
+        text: "This username is already taken.",
+        icon: "warning"
+      });
+    }
+  });
+
+  document.querySelector(".input-email").addEventListener("blur", async (e) => {
+    const email = e.target.value.trim();
+    if (/^\S+@\S+\.\S+$/.test(email) && !(await isAvailable("email", email))) {
+      Swal.fire({
+        title: "Oops",
+        text: "An account with this email already exists.",
+        icon: "warning"
+      });
+    }
+  });
+
   /**
    * Validates form fields and submits registration payload.
    * @param {MouseEvent} e
@@ -89,6 +129,10 @@ document.addEventListener("DOMContentLoaded", () => {
         body: JSON.stringify(payload)
       });
 
+      if (response.status === 409) {
+        throw new Error("Username or email is already taken.");
+      }
+
       if (!response.ok) {
         const errMsg = await response.text();
         throw new Error(errMsg || response.statusText);
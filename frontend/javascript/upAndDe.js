@@ -6,9 +6,6 @@ document.addEventListener("DOMContentLoaded", async () => {
 
   const apiUrl = "https://bestflix-budz.onrender.com";
 
-  
-  const token = localStorage.getItem("jwtToken");
-
 
   /**
    * Handles delete button clicks, confirms intent, and calls delete API.
@@ -34,11 +31,10 @@ document.addEventListener("DOMContentLoaded", async () => {
 
 
     try {
-      const response = await fetch(`${apiUrl}/rest/api/movie/delete/${movieId}`, {
+      const response = await authFetch(`${apiUrl}/rest/api/movie/delete/${movieId}`, {
         method: "DELETE",
         headers: {
-          "Content-Type": "application/json",
-          "Authorization": `Bearer ${token}`
+          "Content-Type": "application/json"
         }
       });
 